@@ -34,6 +34,7 @@ import com.mikepenz.iconics.Iconics;
 import com.mikepenz.mmex_icon_font_typeface_library.MMXIconFont;
 import com.money.manager.ex.common.MoneyParcelConverter;
 import com.money.manager.ex.core.InfoKeys;
+import com.money.manager.ex.core.StartupTimings;
 import com.money.manager.ex.core.database.DatabaseManager;
 import com.money.manager.ex.core.ioc.DaggerMmxComponent;
 import com.money.manager.ex.core.ioc.MmxComponent;
@@ -83,8 +84,14 @@ public class MmexApplication
         return appInstance;
     }
 
-    public static Amplitude getAmplitude()
+    /**
+     * The analytics client is created on the first use, which is off the main thread at start.
+     */
+    public static synchronized Amplitude getAmplitude()
     {
+        if (mAmplitude == null) {
+            mAmplitude = appInstance.createAmplitude();
+        }
         return mAmplitude;
     }
 
@@ -145,7 +152,11 @@ public class MmexApplication
         // Job Manager initialization.
         initializeJobManager();
 
-        mAmplitude = AmplitudeKt.Amplitude("1e1fbc10354400d9c3392a89558d693d"
+        StartupTimings.mark(StartupTimings.APPLICATION);
+    }
+
+    private Amplitude createAmplitude() {
+        Amplitude amplitude = AmplitudeKt.Amplitude("1e1fbc10354400d9c3392a89558d693d"
                 , getApplicationContext()
                 , configuration -> {
                     configuration.setTrackingOptions(new TrackingOptions());
@@ -154,7 +165,8 @@ public class MmexApplication
                 }
         );
 
-        mAmplitude.setDeviceId(getOrCreateUUID(this));
+        amplitude.setDeviceId(getOrCreateUUID(this));
+        return amplitude;
     }
 
     public static String getOrCreateUUID(Context context) {
@@ -228,21 +240,72 @@ public class MmexApplication
     // dynamic
 
     public void initDb(String path) {
+        if (TextUtils.isEmpty(path)) {
+            path = new DatabaseManager(this).getDatabasePath();
+        }
+
+        // cached balances and currencies belong to the previous database, or to the previous file version.
+        if (iocComponent != null) {
+            iocComponent.runningBalanceEngine().reset();
+            iocComponent.currencyCache().reset();
+            iocComponent.budgetActualsEngine().invalidate();
+            iocComponent.reportFactTable().reset();
+            iocComponent.nameIndexCache().reset();
+            iocComponent.transactionSearchIndex().reset();
+        }
+
+        // Keep the open connection if the same file is selected again, i.e. after sync.
+        MmxOpenHelper current = openHelperAtomicReference == null
+                ? null
+                : openHelperAtomicReference.get();
+        if (current != null && current.isFor(path, getPassword())) {
+            Timber.d("database %s already open", path);
+            return;
+        }
+
         MmxOpenHelper db = createDbInstance(path);
 
         if (openHelperAtomicReference == null) {
             openHelperAtomicReference = new AtomicReference<>(db);
         } else {
             // close existing db
-           // openHelperAtomicReference.get().close();
-            openHelperAtomicReference.set(db);
+            MmxOpenHelper previous = openHelperAtomicReference.getAndSet(db);
+            if (previous != null) {
+                previous.close();
+            }
         }
     }
 
-    private MmxOpenHelper createDbInstance(String path) {
-        if (TextUtils.isEmpty(path)) {
-            path = new DatabaseManager(this).getDatabasePath();
+    /**
+     * Closes the connection to the current database. I.e. before the file gets replaced.
+     * The connection is re-opened on the next access.
+     */
+    public void closeDb() {
+        if (openHelperAtomicReference == null) return;
+
+        MmxOpenHelper current = openHelperAtomicReference.get();
+        if (current != null) {
+            current.close();
         }
+    }
+
+    /**
+     * Moves the write-ahead log of the current database into the file, if it is the given one.
+     * Called before the file is read outside of SQLite, i.e. uploaded or copied.
+     * @return false if the log could not be moved. The file then lacks the latest commits
+     * and must not be read.
+     */
+    public boolean checkpointDb(String path) {
+        if (openHelperAtomicReference == null) return true;
+
+        MmxOpenHelper current = openHelperAtomicReference.get();
+        if (current != null && TextUtils.equals(current.getDbPath(), path)) {
+            return current.checkpoint();
+        }
+        return true;
+    }
+
+    private MmxOpenHelper createDbInstance(String path) {
         return new MmxOpenHelper(this, path);
     }
 
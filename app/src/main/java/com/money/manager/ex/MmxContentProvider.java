@@ -19,25 +19,41 @@ package com.money.manager.ex;
 import static android.database.sqlite.SQLiteDatabase.CONFLICT_REPLACE;
 
 import android.content.ContentProvider;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.Context;
+import android.content.OperationApplicationException;
 import android.content.UriMatcher;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.net.Uri;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
 import android.text.TextUtils;
 
+import com.money.manager.ex.account.RunningBalanceEngine;
+import com.money.manager.ex.budget.BudgetActualsEngine;
 import com.money.manager.ex.budget.BudgetQuery;
+import com.money.manager.ex.core.NameIndexCache;
+import com.money.manager.ex.currency.CurrencyCache;
 import com.money.manager.ex.currency.CurrencyRepository;
 import com.money.manager.ex.database.Dataset;
 import com.money.manager.ex.database.DatasetType;
+import com.money.manager.ex.database.ITransactionEntity;
 import com.money.manager.ex.database.MmxOpenHelper;
+import com.money.manager.ex.database.PredicatePushdown;
 import com.money.manager.ex.database.QueryAccountBills;
 import com.money.manager.ex.database.QueryAllData;
 import com.money.manager.ex.database.QueryBillDeposits;
 import com.money.manager.ex.database.QueryCategorySubCategory;
 import com.money.manager.ex.database.QueryReportIncomeVsExpenses;
+import com.money.manager.ex.database.ReportFactTable;
 import com.money.manager.ex.database.SQLDataSet;
+import com.money.manager.ex.database.TransactionSearchIndex;
 import com.money.manager.ex.database.ViewMobileData;
+import com.money.manager.ex.database.WriteBatch;
 import com.money.manager.ex.datalayer.AccountRepository;
 import com.money.manager.ex.datalayer.AccountTransactionRepository;
 import com.money.manager.ex.datalayer.BudgetEntryRepository;
@@ -46,13 +62,17 @@ import com.money.manager.ex.datalayer.CategoryRepository;
 import com.money.manager.ex.datalayer.PayeeRepository;
 import com.money.manager.ex.datalayer.AttachmentRepository;
 import com.money.manager.ex.datalayer.RecurringTransactionRepository;
+import com.money.manager.ex.datalayer.Select;
 import com.money.manager.ex.datalayer.SplitCategoriesRepository;
 import com.money.manager.ex.datalayer.SplitRecurringCategoriesRepository;
 import com.money.manager.ex.datalayer.StockRepository;
 import com.money.manager.ex.datalayer.StockHistoryRepository;
+import com.money.manager.ex.domainmodel.AccountTransaction;
 import com.money.manager.ex.nestedcategory.QueryNestedCategory;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
 
@@ -60,6 +80,7 @@ import javax.inject.Inject;
 
 import androidx.annotation.NonNull;
 import androidx.collection.SparseArrayCompat;
+import androidx.sqlite.db.SimpleSQLiteQuery;
 import androidx.sqlite.db.SupportSQLiteDatabase;
 
 import dagger.Lazy;
@@ -78,6 +99,12 @@ public class MmxContentProvider
     // object map for the definition of the objects referenced in the URI
     private static final SparseArrayCompat<Object> mapContent = new SparseArrayCompat<>();
     private static String mAuthority;
+    /**
+     * Batches of at least this many rows are treated as imports.
+     */
+    private static final int LARGE_IMPORT_ROWS = 1000;
+    // the batch being applied on the current thread, if any.
+    private static final ThreadLocal<WriteBatch> currentBatch = new ThreadLocal<>();
 
     public MmxContentProvider() {
         super();
@@ -85,6 +112,18 @@ public class MmxContentProvider
 
     @Inject
     Lazy<MmxOpenHelper> openHelper;
+    @Inject
+    Lazy<RunningBalanceEngine> balanceEngine;
+    @Inject
+    Lazy<CurrencyCache> currencyCache;
+    @Inject
+    Lazy<BudgetActualsEngine> budgetActualsEngine;
+    @Inject
+    Lazy<ReportFactTable> reportFactTable;
+    @Inject
+    Lazy<NameIndexCache> nameIndexCache;
+    @Inject
+    Lazy<TransactionSearchIndex> searchIndex;
 
     public static String getAuthority() {
         return mAuthority;
@@ -94,14 +133,11 @@ public class MmxContentProvider
         MmxContentProvider.mAuthority = mAuthority;
     }
 
-    @Override
-    public boolean onCreate() {
-        Context context = getContext();
-        if (context == null) return false;
-
-        setAuthority(context.getApplicationContext().getPackageName() + ".provider");
-
-        List<Dataset> objMoneyManager = Arrays.asList(
+    /**
+     * @return the data sets served by the provider, in the order of their uri codes.
+     */
+    public static List<Dataset> createDatasets(Context context) {
+        return Arrays.asList(
                 new AccountRepository(context),
                 new AccountTransactionRepository(context),
                 new BudgetEntryRepository(context),
@@ -126,6 +162,16 @@ public class MmxContentProvider
                 new SQLDataSet(),
                 new QueryNestedCategory(context)
         );
+    }
+
+    @Override
+    public boolean onCreate() {
+        Context context = getContext();
+        if (context == null) return false;
+
+        setAuthority(context.getApplicationContext().getPackageName() + ".provider");
+
+        List<Dataset> objMoneyManager = createDatasets(context);
 
         // Cycle all data sets for th
         // e composition of UriMatcher
@@ -140,8 +186,21 @@ public class MmxContentProvider
 
     @Override
     public Cursor query(@NonNull Uri uri, String[] projection, String selection, String[] selectionArgs, String sortOrder) {
+        return query(uri, projection, selection, selectionArgs, sortOrder, null);
+    }
+
+    /**
+     * The cursor loaders pass a cancellation signal, which stops the running query when the
+     * loader is restarted, i.e. on the next search keystroke.
+     */
+    @Override
+    public Cursor query(@NonNull Uri uri, String[] projection, String selection, String[] selectionArgs,
+                        String sortOrder, CancellationSignal cancellationSignal) {
         try {
-            return query_internal(uri, projection, selection, selectionArgs, sortOrder);
+            return query_internal(uri, projection, selection, selectionArgs, sortOrder, cancellationSignal);
+        } catch (OperationCanceledException e) {
+            // the caller handles the cancellation.
+            throw e;
         } catch (Exception e) {
             Timber.e(e, "content provider.query %s", uri);
         }
@@ -162,15 +221,33 @@ public class MmxContentProvider
             if (Objects.requireNonNull(dataset.getType()) == DatasetType.TABLE) {
                 logTableInsert(dataset, values);
 
-                //database.beginTransaction();
+                initializeDependencies();
+                WriteBatch ownBatch = beginWrite(dataset);
+                WriteBatch batch = currentBatch.get();
                 try {
-                    initializeDependencies();
+                    if (batch != null) {
+                        id = batch.insert(dataset.getSource(), values);
+                    } else {
+                        id = openHelper.get().getStatementCache()
+                                .insert(dataset.getSource(), CONFLICT_REPLACE, values);
+                    }
 
-                    id = openHelper.get().getWritableDatabase()
-                            .insert(dataset.getSource(), CONFLICT_REPLACE, values);
-                    //database.setTransactionSuccessful();
+                    if (isTransactionsTable(dataset) && id > 0) {
+                        onTransactionsChanged(null, values);
+                    }
+                    if (id > 0) {
+                        HashSet<Integer> ids = new HashSet<>();
+                        if (isTransactionsTable(dataset)) ids.add((int) id);
+                        refreshReportFacts(openHelper.get().getWritableDatabase(), dataset, ids, values);
+                    }
+                    if (id > 0) {
+                        notifyChange(uri);
+                    }
                 } catch (Exception e) {
                     Timber.e(e, "inserting: %s", "insert");
+                    if (batch != null) batch.setFailed();
+                } finally {
+                    if (!endWrite(ownBatch)) id = Constants.NOT_SET;
                 }
                 parse = dataset.getBasePath() + "/" + id;
             } else {
@@ -200,10 +277,30 @@ public class MmxContentProvider
             if (Objects.requireNonNull(dataset.getType()) == DatasetType.TABLE) {
                 logUpdate(dataset, values, whereClause, whereArgs);
 
+                WriteBatch ownBatch = beginWrite(dataset);
                 try {
-                    rowsUpdate = database.update(dataset.getSource(), CONFLICT_REPLACE, values, whereClause, whereArgs);
+                    List<ContentValues> affected = isTransactionsTable(dataset)
+                            ? getAffectedTransactions(database, whereClause, whereArgs)
+                            : null;
+                    HashSet<Integer> factIds = getReportFactIds(database, dataset, whereClause, whereArgs);
+
+                    rowsUpdate = openHelper.get().getStatementCache()
+                            .update(dataset.getSource(), CONFLICT_REPLACE, values, whereClause, whereArgs);
+
+                    if (affected != null && rowsUpdate > 0) {
+                        onTransactionsChanged(affected, values);
+                    }
+                    if (rowsUpdate > 0) {
+                        refreshReportFacts(database, dataset, factIds, values);
+                    }
+                    if (rowsUpdate > 0) {
+                        notifyChange(uri);
+                    }
                 } catch (Exception ex) {
                     Timber.e(ex, "updating: %s", "update");
+                    failCurrentBatch();
+                } finally {
+                    if (!endWrite(ownBatch)) rowsUpdate = 0;
                 }
             } else {
                 throw new IllegalArgumentException("Type of dataset not supported for update");
@@ -232,19 +329,32 @@ public class MmxContentProvider
             Dataset dataset = ((Dataset) ret);
             if (Objects.requireNonNull(dataset.getType()) == DatasetType.TABLE) {
                 logDelete(dataset, selection, selectionArgs);
+                initializeDependencies();
+                WriteBatch ownBatch = beginWrite(dataset);
                 try {
-                    initializeDependencies();
+                    SupportSQLiteDatabase database = openHelper.get().getWritableDatabase();
+                    List<ContentValues> affected = isTransactionsTable(dataset)
+                            ? getAffectedTransactions(database, selection, selectionArgs)
+                            : null;
+                    HashSet<Integer> factIds = getReportFactIds(database, dataset, selection, selectionArgs);
 
-                    rowsDelete = openHelper.get().getWritableDatabase()
+                    rowsDelete = openHelper.get().getStatementCache()
                             .delete(dataset.getSource(), selection, selectionArgs);
 
-                    /*
-                     committed
-                    if (BuildConfig.DEBUG) Log.d(LOGCAT, "database set transaction successful");
-                    database.setTransactionSuccessful();
-                    */
+                    if (affected != null && rowsDelete > 0) {
+                        onTransactionsChanged(affected, null);
+                    }
+                    if (rowsDelete > 0) {
+                        refreshReportFacts(database, dataset, factIds, null);
+                    }
+                    if (rowsDelete > 0) {
+                        notifyChange(uri);
+                    }
                 } catch (Exception e) {
                     Timber.e(e, "insert");
+                    failCurrentBatch();
+                } finally {
+                    if (!endWrite(ownBatch)) rowsDelete = 0;
                 }
             } else {
                 throw new IllegalArgumentException("Type of dataset not supported for delete");
@@ -256,6 +366,77 @@ public class MmxContentProvider
         return rowsDelete;
     }
 
+    /**
+     * Inserts all the records in a single transaction, reusing the compiled statement.
+     * Either all the records are stored or none.
+     * @return the number of inserted records.
+     */
+    @Override
+    public int bulkInsert(@NonNull Uri uri, @NonNull ContentValues[] values) {
+        Timber.d("Bulk insert Uri: %s, %d records", uri, values.length);
+
+        Object ret = getObjectFromUri(uri);
+        if (!(ret instanceof Dataset) || ((Dataset) ret).getType() != DatasetType.TABLE) {
+            throw new IllegalArgumentException("Type of dataset not supported for insert");
+        }
+
+        if (currentBatch.get() != null) {
+            // already part of an outer batch.
+            return insertAll(uri, values);
+        }
+
+        initializeDependencies();
+
+        WriteBatch batch = beginBatch();
+        int inserted;
+        try {
+            inserted = insertAll(uri, values);
+            if (!batch.isFailed()) {
+                batch.getDatabase().setTransactionSuccessful();
+            }
+        } finally {
+            endBatch(batch);
+        }
+
+        if (batch.isFailed()) return 0;
+
+        optimizeAfterImport(values.length);
+        return inserted;
+    }
+
+    /**
+     * Applies all the operations in a single transaction. Change notifications are sent
+     * once per uri, after the commit.
+     */
+    @NonNull
+    @Override
+    public ContentProviderResult[] applyBatch(@NonNull ArrayList<ContentProviderOperation> operations)
+            throws OperationApplicationException {
+        Timber.d("Applying batch of %d operations", operations.size());
+
+        if (currentBatch.get() != null) {
+            // already part of an outer batch.
+            return super.applyBatch(operations);
+        }
+
+        initializeDependencies();
+
+        WriteBatch batch = beginBatch();
+        ContentProviderResult[] results;
+        try {
+            results = super.applyBatch(operations);
+            if (batch.isFailed()) {
+                throw new OperationApplicationException("batch operation failed");
+            }
+            batch.getDatabase().setTransactionSuccessful();
+        } finally {
+            endBatch(batch);
+        }
+
+        optimizeAfterImport(operations.size());
+        return results;
+    }
+
     /**
      * Prepare statement SQL from data set object
      *
@@ -265,9 +446,42 @@ public class MmxContentProvider
      * @param sortOrder  field name for sort order
      * @return statement
      */
-    public String prepareQuery(String query, String[] projection, String selection, String sortOrder) {
+    public static String prepareQuery(String query, String[] projection, String selection, String sortOrder) {
+        return prepareQuery(query, null, projection, selection, sortOrder);
+    }
+
+    /**
+     * Prepare statement SQL from data set object, with the filters pushed into the query
+     * where the dataset allows.
+     * The columns are not pushed down: SQLite flattens the subquery and only evaluates
+     * the selected ones.
+     *
+     * @param pushdown   The filterable columns of the dataset, or null.
+     * @return statement
+     */
+    public static String prepareQuery(String query, PredicatePushdown pushdown, String[] projection,
+                                      String selection, String sortOrder) {
+        return prepareQuery(query, pushdown, projection, selection, sortOrder, null);
+    }
+
+    /**
+     * Prepare statement SQL from data set object, with the filters pushed into the query
+     * where the dataset allows.
+     *
+     * @param pushdown   The filterable columns of the dataset, or null.
+     * @param limit      Maximum number of rows, or null for all.
+     * @return statement
+     */
+    public static String prepareQuery(String query, PredicatePushdown pushdown, String[] projection,
+                                      String selection, String sortOrder, Integer limit) {
         String selectList, from, where = "", sort = "";
 
+        if (pushdown != null) {
+            PredicatePushdown.Query pushed = pushdown.compose(query, selection);
+            query = pushed.source;
+            selection = pushed.selection;
+        }
+
         // todo: use builder?
 //        SQLiteQueryBuilder builder = new SQLiteQueryBuilder();
 //        SQLiteQueryBuilder.buildQueryString(false, )
@@ -311,6 +525,9 @@ public class MmxContentProvider
         if (!TextUtils.isEmpty(sort)) {
             query += " " + sort;
         }
+        if (limit != null) {
+            query += " LIMIT " + limit;
+        }
 
         return query;
     }
@@ -350,6 +567,277 @@ public class MmxContentProvider
         MmexApplication.getApp().iocComponent.inject(this);
     }
 
+    private WriteBatch beginBatch() {
+        SupportSQLiteDatabase database = openHelper.get().getWritableDatabase();
+        WriteBatch batch = new WriteBatch(database, openHelper.get().getStatementCache());
+
+        database.beginTransaction();
+        currentBatch.set(batch);
+
+        return batch;
+    }
+
+    /**
+     * Ends the transaction and, if it was committed, sends the collected notifications.
+     * The balance checkpoints are updated after the transaction, so that the engine is not
+     * waited for while holding the connection.
+     */
+    private void endBatch(WriteBatch batch) {
+        currentBatch.remove();
+        batch.getDatabase().endTransaction();
+
+        // also on rollback, as the checkpoints may have been read from the uncommitted data.
+        for (WriteBatch.TransactionChange change : batch.getTransactionChanges()) {
+            balanceEngine.get().onTransactionChanged(change.accountId, change.toAccountId, change.date);
+        }
+
+        for (Uri uri : batch.getChangedUris()) {
+            // caches may have been filled with the uncommitted data, even if rolled back.
+            invalidateCaches(uri);
+            if (!batch.isFailed()) {
+                sendNotification(uri);
+            }
+        }
+    }
+
+    /**
+     * Large imports change the data distribution. The query planner statistics are refreshed
+     * so that the new rows do not lead to poor plans.
+     */
+    private void optimizeAfterImport(int rows) {
+        if (rows < LARGE_IMPORT_ROWS) return;
+
+        openHelper.get().optimize();
+    }
+
+    private int insertAll(Uri uri, ContentValues[] values) {
+        int inserted = 0;
+        for (ContentValues record : values) {
+            Uri result = insert(uri, record);
+            if (ContentUris.parseId(result) > 0) {
+                inserted++;
+            }
+        }
+        return inserted;
+    }
+
+    /**
+     * Starts a batch for a single write to the transactions or the splits, so that the write
+     * and the refresh of the report facts and of the search index are committed together.
+     * @return the started batch, or null if not needed or already part of a batch.
+     */
+    private WriteBatch beginWrite(Dataset dataset) {
+        if (currentBatch.get() != null) return null;
+        if (!isTransactionsTable(dataset) && !isSplitsTable(dataset)) return null;
+
+        return beginBatch();
+    }
+
+    /**
+     * Commits the batch started by beginWrite, unless the write failed.
+     * @return false if the batch was rolled back.
+     */
+    private boolean endWrite(WriteBatch batch) {
+        if (batch == null) return true;
+
+        try {
+            if (!batch.isFailed()) {
+                batch.getDatabase().setTransactionSuccessful();
+            }
+        } finally {
+            endBatch(batch);
+        }
+        return !batch.isFailed();
+    }
+
+    private void failCurrentBatch() {
+        WriteBatch batch = currentBatch.get();
+        if (batch != null) batch.setFailed();
+    }
+
+    /**
+     * Notifies the observers of the uri, or postpones the notification to the end of the
+     * current batch.
+     */
+    private void notifyChange(Uri uri) {
+        WriteBatch batch = currentBatch.get();
+        if (batch != null) {
+            batch.addChangedUri(uri);
+        } else {
+            invalidateCaches(uri);
+            sendNotification(uri);
+        }
+    }
+
+    /**
+     * Drops the in-memory data derived from the changed dataset.
+     */
+    private void invalidateCaches(Uri uri) {
+        Object dataset = getObjectFromUri(uri);
+        if (dataset instanceof CurrencyRepository) {
+            // currencies or exchange rates changed.
+            currencyCache.get().invalidate();
+        }
+        if (dataset instanceof AccountTransactionRepository || dataset instanceof SplitCategoriesRepository
+                || dataset instanceof CategoryRepository || dataset instanceof CurrencyRepository
+                || dataset instanceof AccountRepository || dataset instanceof BudgetRepository) {
+            // anything the budget actuals are calculated from.
+            budgetActualsEngine.get().invalidate();
+        }
+        if (dataset instanceof CategoryRepository || dataset instanceof PayeeRepository
+                || dataset instanceof AccountRepository || dataset instanceof CurrencyRepository) {
+            // these change the report data of many transactions at once.
+            ReportFactTable facts = reportFactTable.get();
+            if (facts.isEnabled()) facts.invalidate();
+        }
+        if (dataset instanceof CategoryRepository || dataset instanceof PayeeRepository) {
+            // the search index holds the payee names and category paths.
+            searchIndex.get().invalidate();
+        }
+        if (dataset instanceof PayeeRepository) {
+            nameIndexCache.get().invalidatePayees();
+        }
+        if (dataset instanceof CategoryRepository) {
+            nameIndexCache.get().invalidateCategories();
+        }
+        if (dataset instanceof AccountTransactionRepository || dataset instanceof SplitCategoriesRepository) {
+            // usage counts for the ranking.
+            nameIndexCache.get().refreshUsage();
+        }
+    }
+
+    private boolean isSplitsTable(Dataset dataset) {
+        return dataset instanceof SplitCategoriesRepository;
+    }
+
+    /**
+     * Reads the ids of the transactions about to be changed, when the report fact table
+     * or the search index is maintained.
+     */
+    private HashSet<Integer> getReportFactIds(SupportSQLiteDatabase database, Dataset dataset,
+                                              String where, String[] args) {
+        if (!isTransactionsTable(dataset) && !isSplitsTable(dataset)) return null;
+        if (!reportFactTable.get().isMaintained(database) && !searchIndex.get().isMaintained(database)) {
+            return null;
+        }
+
+        String sql = "SELECT " + AccountTransaction.TRANSID + " FROM " + dataset.getSource();
+        if (!TextUtils.isEmpty(where)) {
+            sql += " WHERE " + where;
+        }
+
+        HashSet<Integer> result = new HashSet<>();
+        Cursor c = args == null ? database.query(sql) : database.query(sql, args);
+        while (c.moveToNext()) {
+            result.add(c.getInt(0));
+        }
+        c.close();
+
+        return result;
+    }
+
+    /**
+     * Reloads the report data and the search index entries of the changed transactions.
+     * @param ids Ids of the transactions read before the write.
+     * @param values The new values, which may move a split to another transaction. Null on delete.
+     */
+    private void refreshReportFacts(SupportSQLiteDatabase database, Dataset dataset,
+                                    HashSet<Integer> ids, ContentValues values) {
+        if (ids == null || !(isTransactionsTable(dataset) || isSplitsTable(dataset))) return;
+
+        if (values != null && values.getAsInteger(AccountTransaction.TRANSID) != null) {
+            ids.add(values.getAsInteger(AccountTransaction.TRANSID));
+        }
+        reportFactTable.get().refresh(database, ids);
+        if (isTransactionsTable(dataset)) {
+            searchIndex.get().refresh(database, ids);
+        }
+    }
+
+    private void sendNotification(Uri uri) {
+        Context context = getContext();
+        if (context == null) return;
+
+        context.getContentResolver().notifyChange(uri, null);
+    }
+
+    private boolean isTransactionsTable(Dataset dataset) {
+        return AccountTransactionRepository.TABLE_NAME.equalsIgnoreCase(dataset.getSource());
+    }
+
+    /**
+     * Reads the accounts and dates of the transactions about to be changed, so that the
+     * balance checkpoints can be updated after the write.
+     */
+    private List<ContentValues> getAffectedTransactions(SupportSQLiteDatabase database,
+                                                        String where, String[] args) {
+        String sql = "SELECT " + ITransactionEntity.ACCOUNTID + ", " + ITransactionEntity.TOACCOUNTID +
+                ", " + ITransactionEntity.TRANSDATE + " FROM " + AccountTransactionRepository.TABLE_NAME;
+        if (!TextUtils.isEmpty(where)) {
+            sql += " WHERE " + where;
+        }
+
+        List<ContentValues> result = new ArrayList<>();
+        Cursor c = args == null ? database.query(sql) : database.query(sql, args);
+        while (c.moveToNext()) {
+            ContentValues row = new ContentValues();
+            DatabaseUtils.cursorRowToContentValues(c, row);
+            result.add(row);
+        }
+        c.close();
+
+        return result;
+    }
+
+    /**
+     * Updates the balance checkpoints for the accounts and periods touched by a write.
+     * @param before The state of the changed records before the write. Null on insert.
+     * @param values The new values. Null on delete.
+     */
+    private void onTransactionsChanged(List<ContentValues> before, ContentValues values) {
+        String newDate = values == null ? null : values.getAsString(ITransactionEntity.TRANSDATE);
+
+        if (before == null) {
+            onTransactionChanged(values.getAsInteger(ITransactionEntity.ACCOUNTID),
+                    values.getAsInteger(ITransactionEntity.TOACCOUNTID), newDate);
+            return;
+        }
+
+        for (ContentValues row : before) {
+            Integer accountId = row.getAsInteger(ITransactionEntity.ACCOUNTID);
+            Integer toAccountId = row.getAsInteger(ITransactionEntity.TOACCOUNTID);
+            String date = row.getAsString(ITransactionEntity.TRANSDATE);
+
+            onTransactionChanged(accountId, toAccountId, date);
+            if (values == null) continue;
+
+            // the record may have moved to other accounts or to another period.
+            if (values.containsKey(ITransactionEntity.ACCOUNTID)) {
+                accountId = values.getAsInteger(ITransactionEntity.ACCOUNTID);
+            }
+            if (values.containsKey(ITransactionEntity.TOACCOUNTID)) {
+                toAccountId = values.getAsInteger(ITransactionEntity.TOACCOUNTID);
+            }
+            if (newDate != null) {
+                date = newDate;
+            }
+            onTransactionChanged(accountId, toAccountId, date);
+        }
+    }
+
+    /**
+     * Registers the change with the balance engine, or at the end of the current batch,
+     * once its transaction is finished.
+     */
+    private void onTransactionChanged(Integer accountId, Integer toAccountId, String date) {
+        WriteBatch batch = currentBatch.get();
+        if (batch != null) {
+            batch.addTransactionChange(accountId, toAccountId, date);
+        } else {
+            balanceEngine.get().onTransactionChanged(accountId, toAccountId, date);
+        }
+    }
+
     private void logTableInsert(Dataset dataset, ContentValues values) {
         String log = "INSERT INTO " + dataset.getSource();
         if (values != null) {
@@ -359,7 +847,8 @@ public class MmxContentProvider
     }
 
     private Cursor query_internal(Uri uri, String[] projection, String selection,
-                                  String[] selectionArgs, String sortOrder) {
+                                  String[] selectionArgs, String sortOrder,
+                                  CancellationSignal cancellationSignal) {
         Timber.v("Querying URI: %s", uri);
         Timber.v("Querying selection: %s", selection);
 
@@ -368,31 +857,45 @@ public class MmxContentProvider
 
         initializeDependencies();
 
-        SupportSQLiteDatabase database = openHelper.get().getReadableDatabase();
-        if (database == null) {
+        MmxOpenHelper helper = openHelper.get();
+        if (helper.getReadableDatabase() == null) {
             Timber.e("Database could not be opened");
             return null;
         }
 
         Cursor cursor;
+        SupportSQLiteDatabase database;
 
         // check type of instance data set
         if (sourceObject instanceof Dataset) {
             Dataset dataset = ((Dataset) sourceObject);
-            String query = prepareQuery(dataset.getSource(), projection, selection, sortOrder);
+            String query = prepareQuery(dataset.getSource(), dataset.getPushdown(), projection,
+                    selection, sortOrder, getLimit(uri));
+            if (BuildConfig.DEBUG) {
+                helper.getStatementCache().recordQuery(
+                        dataset.getType() == DatasetType.SQL ? selection : query);
+            }
 
             switch (dataset.getType()) {
                 case QUERY:
                 case TABLE:
                 case VIEW:
-                    if (selectionArgs == null) {
+                    database = helper.getReadConnection(query);
+                    if (cancellationSignal != null) {
+                        cursor = database.query(new SimpleSQLiteQuery(query, selectionArgs), cancellationSignal);
+                    } else if (selectionArgs == null) {
                         cursor = database.query(query);
                     } else {
                         cursor = database.query(query, selectionArgs);
                     }
                     break;
                 case SQL:
-                    cursor = database.query(selection, selectionArgs);
+                    database = helper.getReadConnection(selection);
+                    if (cancellationSignal != null) {
+                        cursor = database.query(new SimpleSQLiteQuery(selection, selectionArgs), cancellationSignal);
+                    } else {
+                        cursor = database.query(selection, selectionArgs);
+                    }
                     break;
                 default:
                     throw new IllegalArgumentException("Type of dataset not defined");
@@ -402,41 +905,21 @@ public class MmxContentProvider
         }
 
         // notify listeners waiting for the data is ready
-        cursor.setNotificationUri(Objects.requireNonNull(getContext()).getContentResolver(), uri);
-
-        if (!cursor.isClosed()) {
-            Timber.v("Rows returned: %d", cursor.getCount());
-        }
+        // Do not call getCount() here. It fills the whole cursor window on this thread.
+        cursor.setNotificationUri(Objects.requireNonNull(getContext()).getContentResolver(),
+                uri.buildUpon().clearQuery().build());
 
         return cursor;
     }
 
-    private void logQuery(Dataset dataset, String[] projection, String selection,
-                          String[] selectionArgs, String sortOrder) {
-        // compose log verbose instruction
-        String log;
-        // compose log
-        if (dataset.getType() == DatasetType.SQL) {
-            log = selection;
-        } else {
-            if (projection != null) {
-                log = "SELECT " + Arrays.asList(projection);
-            } else {
-                log = "SELECT *";
-            }
-            log += " FROM " + dataset.getSource();
-            if (!TextUtils.isEmpty(selection)) {
-                log += " WHERE " + selection;
-            }
-            if (!TextUtils.isEmpty(sortOrder)) {
-                log += " ORDER BY " + sortOrder;
-            }
-            if (selectionArgs != null) {
-                log += "; ARGS=" + Arrays.asList(selectionArgs);
-            }
-        }
-        // log
-        Timber.d(log);
+    /**
+     * @return The maximum number of rows requested with the uri, or null for all.
+     */
+    private Integer getLimit(Uri uri) {
+        String limit = uri.getQueryParameter(Select.LIMIT_PARAMETER);
+        if (TextUtils.isEmpty(limit)) return null;
+
+        return Integer.parseInt(limit);
     }
 
     private void logUpdate(Dataset dataset, ContentValues values, String whereClause, String[] whereArgs) {
@@ -37,7 +37,7 @@ import com.mikepenz.google_material_typeface_library.GoogleMaterial;
 import com.money.manager.ex.R;
 import com.money.manager.ex.adapter.MoneySimpleCursorAdapter;
 import com.money.manager.ex.common.BaseListFragment;
-import com.money.manager.ex.common.MmxCursorLoader;
+import com.money.manager.ex.common.SearchCursorLoader;
 import com.money.manager.ex.core.ContextMenuIds;
 import com.money.manager.ex.core.MenuHelper;
 import com.money.manager.ex.core.UIHelper;
@@ -58,6 +58,7 @@ public class AccountListFragment
     public String mAction = Intent.ACTION_EDIT;
 
     private String mCurFilter;
+    private final SearchCursorLoader.Results mSearchResults = new SearchCursorLoader.Results();
 
     @Override
     public void onActivityCreated(Bundle savedInstanceState) {
@@ -150,19 +151,12 @@ public class AccountListFragment
     @Override
     public Loader<Cursor> onCreateLoader(int id, Bundle args) {
         if (id == LOADER_ACCOUNT) {
-            String whereClause = null;
-            String[] selectionArgs = null;
-            if (!TextUtils.isEmpty(mCurFilter)) {
-                whereClause = Account.ACCOUNTNAME + " LIKE ?";
-                selectionArgs = new String[]{mCurFilter + "%"};
-            }
-
             AccountRepository repo = new AccountRepository(getActivity());
             Select query = new Select(repo.getAllColumns())
-                    .where(whereClause, selectionArgs)
                     .orderBy("upper(" + Account.ACCOUNTNAME + ")");
 
-            return new MmxCursorLoader(getActivity(), repo.getUri(), query);
+            return new SearchCursorLoader(getActivity(), repo.getUri(), query, mCurFilter, mSearchResults,
+                    Account.ACCOUNTNAME);
         }
 
         return null;
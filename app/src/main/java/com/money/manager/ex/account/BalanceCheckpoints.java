@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.money.manager.ex.account;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import info.javaperformance.money.Money;
+import info.javaperformance.money.MoneyAccumulator;
+import info.javaperformance.money.MoneyFactory;
+
+/**
+ * Monthly balance checkpoints for one account.
+ * Each checkpoint holds the net movement of the account in a calendar month (period yyyy-MM).
+ * The balance on a date is the sum of all the preceding periods plus the transactions of
+ * the date's own month, so only one month needs to be scanned in the database.
+ * Periods touched by a write are marked dirty and re-aggregated on the next read.
+ */
+public class BalanceCheckpoints {
+
+    /**
+     * @param isoDate date in ISO format, yyyy-MM-dd, optionally followed by the time.
+     * @return the period (yyyy-MM) to which the date belongs.
+     */
+    public static String getPeriod(String isoDate) {
+        return isoDate.substring(0, 7);
+    }
+
+    /**
+     * @param period Period in yyyy-MM format.
+     * @return The first day of the period, in ISO format.
+     */
+    public static String getPeriodStart(String period) {
+        return period + "-01";
+    }
+
+    /**
+     * @param period Period in yyyy-MM format.
+     * @return The first day of the following period, in ISO format.
+     */
+    public static String getNextPeriodStart(String period) {
+        int year = Integer.parseInt(period.substring(0, 4));
+        int month = Integer.parseInt(period.substring(5, 7));
+        if (month == 12) {
+            year++;
+            month = 1;
+        } else {
+            month++;
+        }
+        return String.format("%04d-%02d-01", year, month);
+    }
+
+    public BalanceCheckpoints(int accountId) {
+        this.accountId = accountId;
+    }
+
+    private final int accountId;
+    private final TreeMap<String, Money> periodTotals = new TreeMap<>();
+    private final TreeSet<String> dirtyPeriods = new TreeSet<>();
+
+    public int getAccountId() {
+        return accountId;
+    }
+
+    public void clear() {
+        periodTotals.clear();
+        dirtyPeriods.clear();
+    }
+
+    public boolean isEmpty() {
+        return periodTotals.isEmpty() && dirtyPeriods.isEmpty();
+    }
+
+    public void markDirty(String period) {
+        dirtyPeriods.add(period);
+    }
+
+    public boolean hasDirtyPeriods() {
+        return !dirtyPeriods.isEmpty();
+    }
+
+    public TreeSet<String> getDirtyPeriods() {
+        return new TreeSet<>(dirtyPeriods);
+    }
+
+    public int size() {
+        return periodTotals.size();
+    }
+
+    /**
+     * Stores the re-aggregated total of a period and clears its dirty flag.
+     * @param period Period in yyyy-MM format.
+     * @param total Net movement in the period. Zero removes the checkpoint.
+     */
+    public void put(String period, Money total) {
+        if (total == null || total.isZero()) {
+            periodTotals.remove(period);
+        } else {
+            periodTotals.put(period, total);
+        }
+        dirtyPeriods.remove(period);
+    }
+
+    /**
+     * Sum of all the periods before the given one.
+     * @param period Period (yyyy-MM), exclusive.
+     * @return Total movement of the account up to the start of the period.
+     */
+    public Money getTotalBefore(String period) {
+        return getTotalBefore(period, new HashMap<>());
+    }
+
+    /**
+     * Sum of all the periods before the given one, with some of the totals replaced.
+     * @param period Period (yyyy-MM), exclusive.
+     * @param totals Totals to use instead of the stored ones, i.e. re-aggregated but not stored.
+     * @return Total movement of the account up to the start of the period.
+     */
+    public Money getTotalBefore(String period, Map<String, Money> totals) {
+        MoneyAccumulator total = new MoneyAccumulator();
+        for (Map.Entry<String, Money> entry : periodTotals.headMap(period, false).entrySet()) {
+            if (totals.containsKey(entry.getKey())) continue;
+            total.add(entry.getValue());
+        }
+        for (Map.Entry<String, Money> entry : totals.entrySet()) {
+            if (entry.getKey().compareTo(period) >= 0 || entry.getValue() == null) continue;
+            total.add(entry.getValue());
+        }
+        return total.toMoney();
+    }
+
+    /**
+     * Exports the checkpoints as strings, for persisting.
+     */
+    public HashMap<String, String> toMap() {
+        HashMap<String, String> result = new HashMap<>();
+        for (Map.Entry<String, Money> entry : periodTotals.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().toString());
+        }
+        return result;
+    }
+
+    public void loadFrom(Map<String, String> values) {
+        periodTotals.clear();
+        if (values == null) return;
+
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            periodTotals.put(entry.getKey(), MoneyFactory.fromString(entry.getValue()));
+        }
+    }
+}
@@ -21,31 +21,39 @@ import android.database.Cursor;
 import android.os.AsyncTask;
 import android.os.Bundle;
 
+import com.money.manager.ex.Constants;
+import com.money.manager.ex.MmexApplication;
 import com.money.manager.ex.account.events.RunningBalanceCalculatedEvent;
 import com.money.manager.ex.servicelayer.AccountService;
 import com.money.manager.ex.common.AllDataListFragment;
 import com.money.manager.ex.core.TransactionStatuses;
 import com.money.manager.ex.core.TransactionTypes;
-import com.money.manager.ex.datalayer.QueryAllDataRepository;
+import com.money.manager.ex.database.MoneyCursorReader;
+import com.money.manager.ex.database.QueryAllData;
+import com.money.manager.ex.datalayer.KeysetPager;
+import com.money.manager.ex.datalayer.Select;
 import com.money.manager.ex.utils.MmxDate;
-import com.money.manager.ex.viewmodels.AccountTransactionDisplay;
 
 import org.greenrobot.eventbus.EventBus;
 
-import java.math.BigDecimal;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Map;
+
+import javax.inject.Inject;
 
 import info.javaperformance.money.Money;
 import info.javaperformance.money.MoneyFactory;
 import timber.log.Timber;
 
 /**
- * Not used!
- * Async task that calculates and updates the amount balance for each transaction in the
- * transactions list.
- * Here the idea is the fast calculation of the balances and caching in memory.
- * The problem is displaying the amounts once they are loaded.
+ * Async task that calculates the running balance for the transactions in the first page of
+ * the transactions list. The pages loaded later continue from it, see
+ * {@link #continueBalances(Cursor, int, Map)}.
+ * The list is sorted from the newest transaction. The balance after the newest one is the
+ * opening balance, from the balance checkpoints in RunningBalanceEngine, plus the sum of all
+ * the listed transactions, so only the rows of the page are read.
+ * As in the list, the deleted transactions are not included.
  */
 public class CalculateRunningBalanceTask2
     extends AsyncTask<Void, Void, HashMap<Integer, Money>> {
@@ -62,14 +70,46 @@ public class CalculateRunningBalanceTask2
         this.accountId = accountId;
         this.startingDate = startingDate;
         this.selectionBundle = selection;
+
+        MmexApplication.getApp().iocComponent.inject(this);
     }
 
+    @Inject RunningBalanceEngine balanceEngine;
+
     private final Context context;
-    private HashMap<Integer, Money> balances;
     private final int accountId;
     private final Date startingDate;
     private final Bundle selectionBundle;
 
+    /**
+     * Sets the running balances of the rows that follow the last row with a balance, i.e.
+     * of a page appended to the list. Keeps the position of the cursor.
+     * @param cursor The transactions, in the order of the list.
+     * @param balances The balances by transaction id, calculated so far. Updated.
+     */
+    public static void continueBalances(Cursor cursor, int accountId, Map<Integer, Money> balances) {
+        int originalPosition = cursor.getPosition();
+        int idColumn = cursor.getColumnIndex(QueryAllData.ID);
+
+        int position = 0;
+        while (cursor.moveToPosition(position) && balances.containsKey(cursor.getInt(idColumn))) {
+            position++;
+        }
+        // nothing to continue from, or nothing to add.
+        if (position == 0 || position == cursor.getCount()) {
+            cursor.moveToPosition(originalPosition);
+            return;
+        }
+
+        cursor.moveToPosition(position - 1);
+        MoneyCursorReader reader = new MoneyCursorReader();
+        Money balance = balances.get(cursor.getInt(idColumn))
+            .subtract(getAmount(cursor, accountId, reader));
+
+        addBalances(cursor, position, accountId, balance, balances);
+        cursor.moveToPosition(originalPosition);
+    }
+
     /**
      * Override this method to perform a computation on a background thread. The
      * specified parameters are the parameters passed to {@link #execute}
@@ -100,86 +140,113 @@ public class CalculateRunningBalanceTask2
     }
 
     private HashMap<Integer, Money> runTask() {
-        // load data
-        Cursor c = loadData();
+        String where = this.selectionBundle.getString(AllDataListFragment.KEY_ARGUMENTS_WHERE);
+        String sort = this.selectionBundle.getString(AllDataListFragment.KEY_ARGUMENTS_SORT);
+
+        // the balance before the first day, from the nearest checkpoint.
+        AccountService accountService = new AccountService(this.context);
+        String date = new MmxDate(this.startingDate).minusDays(1).toIsoDateString();
+        Money balance = accountService.loadInitialBalance(this.accountId)
+            .add(balanceEngine.getBalanceOn(this.accountId, date));
+
+        // the balance after the newest listed transaction.
+        balance = balance.add(sumListed(where));
+
+        Cursor c = loadFirstPage(where, sort);
         if (c == null) return null;
-        int records = c.getCount();
-        if (balances != null && records == balances.size()) return null;
-        if (c.getCount() <= 0) return null;
 
-        Money startingBalance = null;
+        HashMap<Integer, Money> balances = new HashMap<>();
+        addBalances(c, 0, this.accountId, balance, balances);
+        c.close();
 
-        AccountService accountService = new AccountService(this.context);
-        AccountTransactionDisplay tx = new AccountTransactionDisplay();
-
-        int originalPosition = c.getPosition();
-        balances = new HashMap<>();
-        String transType;
-        Money amount = MoneyFactory.fromBigDecimal(BigDecimal.ZERO);
-        Money runningBalance = MoneyFactory.fromBigDecimal(BigDecimal.ZERO);
-
-        // populate balance amounts
-
-        // Move from the earliest record towards the newer ones.
-        int i = c.getCount() - 1;
-
-        while (c.moveToPosition(i)) {
-            // load the initial balance based on the date of the first transaction
-            if (startingBalance == null) {
-                // Get starting balance on the given day.
-                startingBalance = accountService.loadInitialBalance(this.accountId);
-
-                String date = new MmxDate(this.startingDate).minusDays(1)
-                        .toIsoDateString();
-                Money balanceOnDate = accountService.calculateBalanceOn(this.accountId, date);
-                startingBalance = startingBalance.add(balanceOnDate);
-
-                runningBalance = startingBalance;
-            }
-
-            // adjust the balance for each transaction.
-
-            tx.loadFromCursor(c);
-
-            // Exclude Void transactions from calculation.
-            TransactionStatuses status = tx.getStatus();
-            if (!status.equals(TransactionStatuses.VOID)) {
-                transType = tx.getTransactionTypeName();
-
-                switch (TransactionTypes.valueOf(transType)) {
-                    case Withdrawal:
-                        amount = tx.getAmount();
-                        break;
-                    case Deposit:
-                        amount = tx.getAmount();
-                        break;
-                    case Transfer:
-                        int accountId = tx.getAccountId();
-                        if (accountId == this.accountId) {
-                            amount = tx.getAmount();
-                        } else {
-                            amount = tx.getToAmount();
-                        }
-                        break;
-                }
-                runningBalance = runningBalance.add(amount);
-            }
-
-            this.balances.put(tx.getId(), runningBalance);
-            i--;
+        // persist the updated checkpoints for the next run.
+        balanceEngine.save();
+
+        return balances;
+    }
+
+    /**
+     * Walks the rows from the given position to the end of the cursor, from the newest
+     * transaction to the oldest.
+     * @param balance The balance after the transaction at the position.
+     */
+    private static void addBalances(Cursor c, int position, int accountId, Money balance,
+                                    Map<Integer, Money> balances) {
+        MoneyCursorReader reader = new MoneyCursorReader();
+        int idColumn = c.getColumnIndex(QueryAllData.ID);
+
+        while (c.moveToPosition(position)) {
+            balances.put(c.getInt(idColumn), balance);
+            // the balance before this transaction.
+            balance = balance.subtract(getAmount(c, accountId, reader));
+            position++;
+        }
+    }
+
+    /**
+     * @return The effect of the transaction in the current row on the account's balance.
+     * Zero for the void transactions.
+     */
+    private static Money getAmount(Cursor c, int accountId, MoneyCursorReader reader) {
+        Money zero = MoneyFactory.fromUnits(0, 0);
+
+        String status = c.getString(c.getColumnIndex(QueryAllData.Status));
+        if (TransactionStatuses.VOID.getCode().equals(status)) return zero;
+
+        int amountColumn = c.getColumnIndex(QueryAllData.Amount);
+        String type = c.getString(c.getColumnIndex(QueryAllData.TransactionType));
+        if (TransactionTypes.valueOf(type) == TransactionTypes.Transfer
+            && c.getInt(c.getColumnIndex(QueryAllData.ACCOUNTID)) != accountId) {
+            // incoming transfer.
+            amountColumn = c.getColumnIndex(QueryAllData.ToAmount);
+        }
+        return reader.read(c, amountColumn, zero);
+    }
+
+    /**
+     * @return The sum of all the listed transactions, exact at the default precision.
+     */
+    private Money sumListed(String where) {
+        String amount = "CASE WHEN " + QueryAllData.TransactionType + " = '" + TransactionTypes.Transfer +
+            "' AND " + QueryAllData.ACCOUNTID + " <> " + this.accountId +
+            " THEN " + QueryAllData.ToAmount + " ELSE " + QueryAllData.Amount + " END";
+        String units = "SUM(CAST(round((" + amount + ") * " + RunningBalanceEngine.UNITS_PER_AMOUNT +
+            ") AS INTEGER))";
+
+        String selection = "IFNULL(" + QueryAllData.Status + ", '') <> '" +
+            TransactionStatuses.VOID.getCode() + "'";
+        if (where != null && !where.isEmpty()) {
+            selection = "(" + where + ") AND " + selection;
         }
 
-        // set back to the original position.
-        c.moveToPosition(originalPosition);
+        QueryAllData allData = new QueryAllData(this.context);
+        Cursor c = this.context.getContentResolver().query(allData.getUri(),
+            new String[] { units }, selection, null, null);
+        if (c == null) return MoneyFactory.fromUnits(0, 0);
+
+        long total = c.moveToFirst() ? c.getLong(0) : 0;
+        c.close();
 
-        return this.balances;
+        return MoneyFactory.fromUnits(total, Constants.DEFAULT_PRECISION);
     }
 
-    private Cursor loadData() {
-        String where = this.selectionBundle.getString(AllDataListFragment.KEY_ARGUMENTS_WHERE);
-        String sort = this.selectionBundle.getString(AllDataListFragment.KEY_ARGUMENTS_SORT);
+    /**
+     * @return The rows of the first page of the list, or all of them if the list is not paged.
+     */
+    private Cursor loadFirstPage(String where, String sort) {
+        QueryAllData allData = new QueryAllData(this.context);
+        Select query = new Select(QueryAllData.ID, QueryAllData.ACCOUNTID, QueryAllData.Status,
+            QueryAllData.TransactionType, QueryAllData.Amount, QueryAllData.ToAmount,
+            QueryAllData.Date)
+            .where(where)
+            .orderBy(sort);
+
+        KeysetPager pager = KeysetPager.create(query, QueryAllData.ID, AllDataListFragment.PAGE_SIZE);
+        if (pager != null) {
+            query = pager.getFirstPage();
+        }
 
-        QueryAllDataRepository repo = new QueryAllDataRepository(this.context);
-        return repo.query(where, sort);
+        return this.context.getContentResolver().query(query.getUri(allData.getUri()),
+            query.projection, query.selection, query.selectionArgs, query.sort);
     }
 }
@@ -0,0 +1,507 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.money.manager.ex.account;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.text.TextUtils;
+
+import com.google.gson.Gson;
+import com.money.manager.ex.Constants;
+import com.money.manager.ex.MmexApplication;
+import com.money.manager.ex.core.TransactionStatuses;
+import com.money.manager.ex.database.SQLDataSet;
+import com.money.manager.ex.settings.AppSettings;
+import com.money.manager.ex.utils.MmxDate;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import info.javaperformance.money.Money;
+import info.javaperformance.money.MoneyFactory;
+import timber.log.Timber;
+
+/**
+ * Answers "balance on date" questions for transactional accounts from monthly checkpoints.
+ * The checkpoints are built with one aggregate query per account, kept current by the
+ * content provider on every write to the transactions table, and persisted in the cache
+ * directory per database file so that they survive application restarts.
+ * The amounts exclude the account's initial balance, same as the previous full scan in
+ * AccountService.calculateBalanceOn(). Unlike that scan, they also exclude the deleted
+ * transactions, which the transaction lists do not show either.
+ * The amounts are summed exactly, as whole units of the default precision.
+ * No lock is held by the writers while the engine queries the database: the state is guarded
+ * by the engine's monitor, which is only held briefly, and the queries by a separate lock.
+ * Totals read while a write to the same account was registered are not kept, as they may
+ * predate the write, but they are used for the answer being calculated.
+ */
+@Singleton
+public class RunningBalanceEngine {
+
+    private static final String CACHE_DIRECTORY = "balances";
+
+    /**
+     * 10^DEFAULT_PRECISION. The amounts are summed as integers of this many units,
+     * which SQLite adds exactly.
+     */
+    public static final long UNITS_PER_AMOUNT = (long) Math.pow(10, Constants.DEFAULT_PRECISION);
+
+    private static final String SQL_AMOUNT =
+        "CAST(round(CASE" +
+        " WHEN TRANSCODE = 'Deposit' THEN TRANSAMOUNT" +
+        " WHEN TRANSCODE = 'Withdrawal' THEN -TRANSAMOUNT" +
+        " WHEN TRANSCODE = 'Transfer' AND ACCOUNTID = ? THEN -TRANSAMOUNT" +
+        " WHEN TRANSCODE = 'Transfer' THEN TOTRANSAMOUNT" +
+        " ELSE 0 END * " + UNITS_PER_AMOUNT + ") AS INTEGER)";
+
+    private static final String SQL_FILTER =
+        " FROM CHECKINGACCOUNT_V1" +
+        " WHERE (ACCOUNTID = ? OR TOACCOUNTID = ?)" +
+        " AND STATUS <> '" + TransactionStatuses.VOID.getCode() + "'" +
+        " AND (DELETEDTIME IS NULL OR DELETEDTIME = '')";
+
+    /**
+     * Cheap fingerprint of the transactions table. Used to detect changes made outside of
+     * the app (desktop, sync) before trusting the persisted checkpoints.
+     * The checksum weighs the accounts, the day and the amounts of each transaction by its id,
+     * so that moving a transaction to another account or date changes it. Each term is kept
+     * small enough for the integer sum not to overflow.
+     */
+    private static final String SQL_FINGERPRINT =
+        "SELECT COUNT(*), MAX(TRANSID), MAX(LASTUPDATEDTIME)," +
+        " SUM((TRANSID % 10007 + 1) * ((ACCOUNTID * 7 + IFNULL(TOACCOUNTID, 0) * 13" +
+        " + CAST(replace(substr(TRANSDATE, 1, 10), '-', '') AS INTEGER) * 3" +
+        " + CAST(round(IFNULL(TRANSAMOUNT, 0) * " + UNITS_PER_AMOUNT + ") AS INTEGER)" +
+        " + CAST(round(IFNULL(TOTRANSAMOUNT, 0) * " + UNITS_PER_AMOUNT + ") AS INTEGER) * 5) % 1000003))," +
+        " TOTAL(CASE WHEN STATUS = 'V' OR IFNULL(DELETEDTIME, '') <> '' THEN TRANSID ELSE 0 END)" +
+        " FROM CHECKINGACCOUNT_V1";
+
+    @Inject
+    public RunningBalanceEngine(MmexApplication app) {
+        this.context = app;
+    }
+
+    private final Context context;
+    /**
+     * Held while reading from the database, so that one caller builds the checkpoints
+     * and the others use them. Never held by the writers.
+     */
+    private final Object queryLock = new Object();
+    private final HashMap<Integer, BalanceCheckpoints> checkpoints = new HashMap<>();
+    /**
+     * Periods written to before the persisted checkpoints were loaded.
+     */
+    private final HashMap<Integer, List<String>> pendingChanges = new HashMap<>();
+    /**
+     * Accounts to rebuild from scratch once the persisted checkpoints are loaded.
+     */
+    private final HashSet<Integer> pendingRebuilds = new HashSet<>();
+    private String databasePath;
+    private boolean loaded = false;
+    private boolean modified = false;
+    /**
+     * Number of the writes and resets registered. The checkpoints are only saved if it did not
+     * change while the fingerprint was read.
+     */
+    private long changes = 0;
+    /**
+     * Value of the counter at the last write registered for each account. The totals of an
+     * account are only stored if there was no write to it while they were read.
+     */
+    private final HashMap<Integer, Long> accountChanges = new HashMap<>();
+    /**
+     * Value of the counter at the last reset, which applies to all the accounts.
+     */
+    private long resetAt = 0;
+
+    /**
+     * Calculate the balance by adding together all transactions before and on the given date.
+     * To get the real balance, add the account initial balance.
+     * @param accountId Account
+     * @param isoDate Date in ISO format, inclusive.
+     * @return The movement on the account up to and including the given date.
+     */
+    public Money getBalanceOn(int accountId, String isoDate) {
+        long start = System.nanoTime();
+        String period = BalanceCheckpoints.getPeriod(isoDate);
+        Money total;
+
+        synchronized (queryLock) {
+            ensureLoaded();
+
+            BalanceCheckpoints account = getCheckpoints(accountId);
+            Map<String, Money> totals = refresh(account);
+
+            synchronized (this) {
+                // the dirty periods that could not be stored count with their new totals.
+                total = account.getTotalBefore(period, totals);
+            }
+        }
+
+        // delta scan over the remaining days of the month.
+        String nextDay = new MmxDate(isoDate).plusDays(1).toIsoDateString();
+        Money delta = querySum(accountId, BalanceCheckpoints.getPeriodStart(period), nextDay);
+        total = total.add(delta);
+
+        Timber.d("balance on %s for account %d in %d ms", isoDate, accountId,
+            (System.nanoTime() - start) / 1000000);
+
+        return total;
+    }
+
+    /**
+     * Registers a write in the transactions table. Called by the content provider, once the
+     * write is committed.
+     * @param accountId The account of the transaction.
+     * @param toAccountId The destination account, for transfers.
+     * @param isoDate The transaction date.
+     */
+    public synchronized void onTransactionChanged(Integer accountId, Integer toAccountId, String isoDate) {
+        if (TextUtils.isEmpty(isoDate) || isoDate.length() < 7) {
+            // the date is unknown. Rebuild the accounts from scratch.
+            invalidate(accountId);
+            invalidate(toAccountId);
+            return;
+        }
+
+        String period = BalanceCheckpoints.getPeriod(isoDate);
+        markDirty(accountId, period);
+        markDirty(toAccountId, period);
+    }
+
+    /**
+     * Drops all the checkpoints. Used when the database is switched.
+     */
+    public synchronized void reset() {
+        checkpoints.clear();
+        pendingChanges.clear();
+        pendingRebuilds.clear();
+        databasePath = null;
+        loaded = false;
+        modified = false;
+        changes++;
+        accountChanges.clear();
+        resetAt = changes;
+    }
+
+    /**
+     * Persists the checkpoints, if anything changed since the last save.
+     */
+    public void save() {
+        synchronized (queryLock) {
+            long generation;
+            synchronized (this) {
+                if (!loaded || !modified || TextUtils.isEmpty(databasePath)) return;
+                generation = changes;
+            }
+
+            Snapshot snapshot = new Snapshot();
+            snapshot.fingerprint = getFingerprint();
+            snapshot.accounts = new HashMap<>();
+            File file;
+            synchronized (this) {
+                // a write after the fingerprint would not be detected on the next run.
+                if (generation != changes) return;
+
+                for (BalanceCheckpoints account : checkpoints.values()) {
+                    // accounts with pending changes are rebuilt on the next run.
+                    if (account.hasDirtyPeriods()) continue;
+                    snapshot.accounts.put(account.getAccountId(), account.toMap());
+                }
+                file = getCacheFile();
+                modified = false;
+            }
+
+            try (Writer writer = new FileWriter(file)) {
+                new Gson().toJson(snapshot, writer);
+            } catch (IOException e) {
+                Timber.e(e, "saving balance checkpoints");
+                synchronized (this) {
+                    modified = true;
+                }
+            }
+        }
+    }
+
+    // Private
+
+    /**
+     * Loads the persisted checkpoints of the current database. Called with the query lock.
+     */
+    private void ensureLoaded() {
+        String currentPath = new AppSettings(context).getDatabaseSettings().getDatabasePath();
+        synchronized (this) {
+            if (loaded && TextUtils.equals(currentPath, databasePath)) return;
+        }
+
+        // the writes registered from here on are pending, and applied to the loaded checkpoints.
+        Snapshot snapshot = readSnapshot(currentPath);
+        String fingerprint = getFingerprint();
+
+        synchronized (this) {
+            checkpoints.clear();
+            databasePath = currentPath;
+            loaded = true;
+            modified = false;
+
+            if (snapshot == null || snapshot.accounts == null
+                || !TextUtils.equals(snapshot.fingerprint, fingerprint)) {
+                Timber.d("balance checkpoints missing or outdated, rebuilding");
+                pendingChanges.clear();
+                pendingRebuilds.clear();
+                return;
+            }
+
+            applySnapshot(snapshot);
+        }
+    }
+
+    private void applySnapshot(Snapshot snapshot) {
+        for (Map.Entry<Integer, HashMap<String, String>> entry : snapshot.accounts.entrySet()) {
+            BalanceCheckpoints account = new BalanceCheckpoints(entry.getKey());
+            account.loadFrom(entry.getValue());
+            checkpoints.put(entry.getKey(), account);
+        }
+
+        // apply the writes that happened before the checkpoints were loaded.
+        for (Map.Entry<Integer, List<String>> entry : pendingChanges.entrySet()) {
+            BalanceCheckpoints account = checkpoints.get(entry.getKey());
+            if (account == null) continue;
+
+            for (String period : entry.getValue()) {
+                account.markDirty(period);
+            }
+        }
+        for (Integer accountId : pendingRebuilds) {
+            checkpoints.remove(accountId);
+        }
+        pendingChanges.clear();
+        pendingRebuilds.clear();
+    }
+
+    private BalanceCheckpoints getCheckpoints(int accountId) {
+        long generation;
+        synchronized (this) {
+            BalanceCheckpoints account = checkpoints.get(accountId);
+            if (account != null) return account;
+            generation = getChanges(accountId);
+        }
+
+        BalanceCheckpoints account = new BalanceCheckpoints(accountId);
+        build(account);
+
+        synchronized (this) {
+            // used for this answer only if the data changed meanwhile, and built again next time.
+            if (generation == getChanges(accountId)) {
+                checkpoints.put(accountId, account);
+                modified = true;
+            }
+        }
+        return account;
+    }
+
+    /**
+     * Aggregates all the periods of the account with one query.
+     */
+    private void build(BalanceCheckpoints account) {
+        String accountId = Integer.toString(account.getAccountId());
+        String sql = "SELECT substr(TRANSDATE, 1, 7) AS PERIOD, SUM(" + SQL_AMOUNT + ") AS AMOUNT" +
+            SQL_FILTER +
+            " GROUP BY PERIOD";
+
+        Cursor c = query(sql, new String[] { accountId, accountId, accountId });
+        if (c == null) return;
+
+        while (c.moveToNext()) {
+            String period = c.getString(0);
+            if (period == null) continue;
+
+            account.put(period, toMoney(c.getLong(1)));
+        }
+        c.close();
+    }
+
+    /**
+     * Re-aggregates the periods affected by writes.
+     * @return The new totals of the periods, also when they could not be stored.
+     */
+    private Map<String, Money> refresh(BalanceCheckpoints account) {
+        TreeSet<String> periods;
+        long generation;
+        synchronized (this) {
+            if (!account.hasDirtyPeriods()) return new HashMap<>();
+            periods = account.getDirtyPeriods();
+            generation = getChanges(account.getAccountId());
+        }
+
+        HashMap<String, Money> totals = new HashMap<>();
+        for (String period : periods) {
+            totals.put(period, querySum(account.getAccountId(),
+                BalanceCheckpoints.getPeriodStart(period),
+                BalanceCheckpoints.getNextPeriodStart(period)));
+        }
+
+        synchronized (this) {
+            // the totals may predate a write. The periods stay dirty for the next read.
+            if (generation != getChanges(account.getAccountId())) return totals;
+
+            for (Map.Entry<String, Money> entry : totals.entrySet()) {
+                account.put(entry.getKey(), entry.getValue());
+            }
+            modified = true;
+        }
+        return totals;
+    }
+
+    /**
+     * @return The counter at the last write to the account or reset, whichever came later.
+     */
+    private long getChanges(int accountId) {
+        Long changed = accountChanges.get(accountId);
+        return changed == null ? resetAt : Math.max(changed, resetAt);
+    }
+
+    /**
+     * Sum of the transactions in the date range. Uses the TRANSDATE index.
+     * @param dateFrom inclusive
+     * @param dateTo exclusive
+     */
+    private Money querySum(int accountId, String dateFrom, String dateTo) {
+        String id = Integer.toString(accountId);
+        String sql = "SELECT SUM(" + SQL_AMOUNT + ")" +
+            SQL_FILTER +
+            " AND TRANSDATE >= ? AND TRANSDATE < ?";
+
+        Cursor c = query(sql, new String[] { id, id, id, dateFrom, dateTo });
+        if (c == null) return MoneyFactory.fromUnits(0, 0);
+
+        Money result = c.moveToFirst()
+            ? toMoney(c.getLong(0))
+            : MoneyFactory.fromUnits(0, 0);
+        c.close();
+
+        return result;
+    }
+
+    private void markDirty(Integer accountId, String period) {
+        if (accountId == null || accountId == Constants.NOT_SET) return;
+
+        changes++;
+        accountChanges.put(accountId, changes);
+        if (!loaded) {
+            List<String> periods = pendingChanges.get(accountId);
+            if (periods == null) {
+                periods = new ArrayList<>();
+                pendingChanges.put(accountId, periods);
+            }
+            periods.add(period);
+            return;
+        }
+
+        BalanceCheckpoints account = checkpoints.get(accountId);
+        if (account == null) return;
+
+        account.markDirty(period);
+        modified = true;
+    }
+
+    private void invalidate(Integer accountId) {
+        if (accountId == null || accountId == Constants.NOT_SET) return;
+
+        changes++;
+        accountChanges.put(accountId, changes);
+        if (!loaded) {
+            pendingRebuilds.add(accountId);
+            return;
+        }
+
+        checkpoints.remove(accountId);
+        modified = true;
+    }
+
+    private String getFingerprint() {
+        Cursor c = query(SQL_FINGERPRINT, null);
+        if (c == null) return null;
+
+        StringBuilder fingerprint = new StringBuilder();
+        if (c.moveToFirst()) {
+            for (int i = 0; i < c.getColumnCount(); i++) {
+                fingerprint.append(c.getString(i));
+                fingerprint.append('|');
+            }
+        }
+        c.close();
+
+        return fingerprint.toString();
+    }
+
+    private Cursor query(String sql, String[] args) {
+        return context.getContentResolver().query(new SQLDataSet().getUri(), null, sql, args, null);
+    }
+
+    private Money toMoney(long units) {
+        return MoneyFactory.fromUnits(units, Constants.DEFAULT_PRECISION);
+    }
+
+    private File getCacheFile() {
+        return getCacheFile(databasePath);
+    }
+
+    private File getCacheFile(String databasePath) {
+        File directory = new File(context.getCacheDir(), CACHE_DIRECTORY);
+        if (!directory.exists() && !directory.mkdirs()) {
+            Timber.w("could not create %s", directory);
+        }
+        String name = new File(databasePath).getName() + "_" + Integer.toHexString(databasePath.hashCode());
+        return new File(directory, name + ".json");
+    }
+
+    private Snapshot readSnapshot(String path) {
+        if (TextUtils.isEmpty(path)) return null;
+
+        File file = getCacheFile(path);
+        if (!file.exists()) return null;
+
+        try (Reader reader = new FileReader(file)) {
+            return new Gson().fromJson(reader, Snapshot.class);
+        } catch (Exception e) {
+            Timber.w(e, "reading balance checkpoints");
+            return null;
+        }
+    }
+
+    /**
+     * Persisted form of the checkpoints.
+     */
+    private static class Snapshot {
+        String fingerprint;
+        HashMap<Integer, HashMap<String, String>> accounts;
+    }
+}
@@ -95,6 +95,9 @@ public class AllDataAdapter
     private final Context mContext;
     private HashMap<Integer, Money> balances;
     private final ArrayList<TextView> requestingBalanceUpdate;
+    private CurrencyService currencyService;
+    // the date formatters are cached, the locale is read once for the list.
+    private MmxDateTimeUtils dateUtils;
 
     @Override
     public View newView(Context context, Cursor cursor, ViewGroup parent) {
@@ -146,8 +149,7 @@ public class AllDataAdapter
 
         String dateString = cursor.getString(cursor.getColumnIndex(DATE));
         if (!TextUtils.isEmpty(dateString)) {
-            Locale locale = MmexApplication.getApp().getAppLocale();
-            MmxDateTimeUtils dateUtils = new MmxDateTimeUtils(locale);
+            MmxDateTimeUtils dateUtils = getDateUtils();
 
             Date dateTime = new MmxDate(dateString).toDate();
 
@@ -172,8 +174,7 @@ public class AllDataAdapter
             setCurrencyId(cursor.getInt(cursor.getColumnIndex(CURRENCYID)));
         }
 
-        CurrencyService currencyService = new CurrencyService(mContext);
-        holder.txtAmount.setText(currencyService.getCurrencyFormatted(getCurrencyId(), MoneyFactory.fromDouble(amount)));
+        holder.txtAmount.setText(getCurrencyService().getCurrencyFormatted(getCurrencyId(), MoneyFactory.fromDouble(amount)));
 
         // text color amount
         int amountTextColor;
@@ -337,6 +338,10 @@ public class AllDataAdapter
         NOTES = mTypeCursor == TypeCursor.ALLDATA ? QueryAllData.Notes : QueryBillDeposits.NOTES;
     }
 
+    public HashMap<Integer, Money> getBalances() {
+        return balances;
+    }
+
     public void setBalances(HashMap<Integer, Money> balances) {
         this.balances = balances;
 
@@ -454,6 +459,21 @@ public class AllDataAdapter
         return result;
     }
 
+    private CurrencyService getCurrencyService() {
+        if (currencyService == null) {
+            currencyService = new CurrencyService(mContext);
+        }
+        return currencyService;
+    }
+
+    private MmxDateTimeUtils getDateUtils() {
+        if (dateUtils == null) {
+            Locale locale = MmexApplication.getApp().getAppLocale();
+            dateUtils = new MmxDateTimeUtils(locale);
+        }
+        return dateUtils;
+    }
+
     private void showBalanceAmount(TextView textView) {
         if (this.balances == null) {
             return;
@@ -464,11 +484,14 @@ public class AllDataAdapter
         if (tag == null) return;
 
         int txId = (int) tag;
-        if (!this.balances.containsKey(txId)) return;
+        if (!this.balances.containsKey(txId)) {
+            // not calculated yet, i.e. in a page loaded later. The view may show another row's.
+            textView.setVisibility(View.GONE);
+            return;
+        }
 
-        CurrencyService currencyService = new CurrencyService(mContext);
         Money currentBalance = this.balances.get(txId);
-        String balanceFormatted = currencyService.getCurrencyFormatted(getCurrencyId(), currentBalance);
+        String balanceFormatted = getCurrencyService().getCurrencyFormatted(getCurrencyId(), currentBalance);
         textView.setText(balanceFormatted);
         textView.setVisibility(View.VISIBLE);
     }
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.money.manager.ex.budget;
+
+import com.money.manager.ex.Constants;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Actual amounts, in base currency, per category for the period of a budget.
+ * Keeps the totals of the transactions assigned directly to each category and the totals
+ * rolled up the category tree, where a parent includes all its descendants.
+ */
+public class BudgetActuals {
+
+    public BudgetActuals(Map<Integer, Double> categoryTotals, Map<Integer, Integer> parents) {
+        this.categoryTotals = new HashMap<>(categoryTotals);
+        this.totalsWithSubcategories = rollUp(categoryTotals, parents);
+    }
+
+    private final HashMap<Integer, Double> categoryTotals;
+    private final HashMap<Integer, Double> totalsWithSubcategories;
+
+    /**
+     * @return the total of the transactions in the category itself. Zero if there are none.
+     */
+    public double getActual(int categoryId) {
+        Double total = categoryTotals.get(categoryId);
+        return total == null ? 0 : total;
+    }
+
+    /**
+     * @return the total of the category and all its subcategories, at any level.
+     */
+    public double getActualWithSubcategories(int categoryId) {
+        Double total = totalsWithSubcategories.get(categoryId);
+        return total == null ? 0 : total;
+    }
+
+    private static HashMap<Integer, Double> rollUp(Map<Integer, Double> totals, Map<Integer, Integer> parents) {
+        HashMap<Integer, Double> result = new HashMap<>();
+
+        for (Map.Entry<Integer, Double> entry : totals.entrySet()) {
+            Integer categoryId = entry.getKey();
+            double amount = entry.getValue();
+
+            // walk up to the root. The depth limit protects from cycles in corrupted data.
+            for (int depth = 0; categoryId != null && categoryId != Constants.NOT_SET
+                    && depth <= parents.size(); depth++) {
+                Double existing = result.get(categoryId);
+                result.put(categoryId, existing == null ? amount : existing + amount);
+
+                categoryId = parents.get(categoryId);
+            }
+        }
+
+        return result;
+    }
+}
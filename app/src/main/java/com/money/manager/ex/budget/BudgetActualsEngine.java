@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.money.manager.ex.budget;
+
+import android.database.Cursor;
+
+import com.money.manager.ex.Constants;
+import com.money.manager.ex.MmexApplication;
+import com.money.manager.ex.database.ParameterizedWhere;
+import com.money.manager.ex.database.PredicatePushdown;
+import com.money.manager.ex.database.SQLDataSet;
+import com.money.manager.ex.database.ViewMobileData;
+import com.money.manager.ex.datalayer.CategoryRepository;
+import com.money.manager.ex.domainmodel.Category;
+
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import timber.log.Timber;
+
+/**
+ * Calculates the actual amounts for a budget: all the category totals for the budget
+ * period in one aggregate query, rolled up the category tree in memory.
+ * The results are cached per budget year and dropped by the content provider whenever
+ * transactions, categories or exchange rates change.
+ */
+@Singleton
+public class BudgetActualsEngine {
+
+    @Inject
+    public BudgetActualsEngine(MmexApplication app) {
+        this.app = app;
+    }
+
+    private final MmexApplication app;
+    private final ConcurrentHashMap<Long, BudgetActuals> cache = new ConcurrentHashMap<>();
+    /**
+     * Incremented on every invalidation, so that the actuals calculated meanwhile, possibly
+     * from the data before the change, are not cached.
+     */
+    private long generation = 0;
+
+    /**
+     * @param budgetYearId Id of the budget (year or month).
+     * @param budgetName Name of the budget, i.e. 2024 or 2024-03, which sets the period.
+     * @return the actual amounts per category for the budget period.
+     */
+    public BudgetActuals getActuals(long budgetYearId, String budgetName) {
+        BudgetActuals actuals = cache.get(budgetYearId);
+        if (actuals != null) return actuals;
+
+        long started;
+        synchronized (this) {
+            started = generation;
+        }
+
+        actuals = new BudgetActuals(loadCategoryTotals(budgetName), loadCategoryParents());
+
+        synchronized (this) {
+            if (generation == started) {
+                cache.put(budgetYearId, actuals);
+            }
+        }
+
+        return actuals;
+    }
+
+    /**
+     * Drops all the calculated actuals, and those being calculated.
+     */
+    public synchronized void invalidate() {
+        generation++;
+        cache.clear();
+    }
+
+    // Private
+
+    private HashMap<Integer, Double> loadCategoryTotals(String budgetName) {
+        BudgetNameParser parser = new BudgetNameParser();
+        // the same statement for all the budgets.
+        ParameterizedWhere where = new ParameterizedWhere();
+        where.addStatement(ViewMobileData.Status, "<>", "V");
+        where.addStatement(ViewMobileData.TransactionType + " IN ('Withdrawal', 'Deposit')");
+        where.addStatement(ViewMobileData.Year, "=", parser.getYear(budgetName));
+        int month = parser.getMonth(budgetName);
+        if (month != 0) {
+            where.addStatement(ViewMobileData.Month, "=", month);
+        }
+
+        // the year and the status are also applied to the transactions, by their indexes.
+        ViewMobileData mobileData = new ViewMobileData(app);
+        PredicatePushdown.Query query = mobileData.getPushdown()
+                .compose(mobileData.getSource(), where.getWhere());
+
+        String sql = "SELECT " + ViewMobileData.CATEGID + ", " +
+                "SUM(" + ViewMobileData.AmountBaseConvRate + ") AS TOTAL" +
+                " FROM (" + query.source + ") T" +
+                " WHERE " + query.selection +
+                " GROUP BY " + ViewMobileData.CATEGID;
+
+        HashMap<Integer, Double> totals = new HashMap<>();
+        Cursor cursor = query(sql, where.getArgs());
+        if (cursor == null) return totals;
+
+        while (cursor.moveToNext()) {
+            totals.put(cursor.getInt(0), cursor.getDouble(1));
+        }
+        cursor.close();
+
+        return totals;
+    }
+
+    private HashMap<Integer, Integer> loadCategoryParents() {
+        String sql = "SELECT " + Category.CATEGID + ", " + Category.PARENTID +
+                " FROM " + CategoryRepository.tableName;
+
+        HashMap<Integer, Integer> parents = new HashMap<>();
+        Cursor cursor = query(sql, null);
+        if (cursor == null) return parents;
+
+        while (cursor.moveToNext()) {
+            parents.put(cursor.getInt(0), cursor.isNull(1) ? Constants.NOT_SET : cursor.getInt(1));
+        }
+        cursor.close();
+
+        return parents;
+    }
+
+    private Cursor query(String sql, String[] args) {
+        try {
+            return app.getContentResolver().query(new SQLDataSet().getUri(), null, sql, args, null);
+        } catch (Exception e) {
+            Timber.e(e, "loading budget actuals");
+            return null;
+        }
+    }
+}
@@ -19,9 +19,7 @@ package com.money.manager.ex.budget;
 import android.annotation.SuppressLint;
 import android.content.Context;
 import android.database.Cursor;
-import android.database.sqlite.SQLiteQueryBuilder;
 import androidx.core.content.ContextCompat;
-import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -34,20 +32,16 @@ import com.money.manager.ex.R;
 import com.money.manager.ex.core.UIHelper;
 import com.money.manager.ex.currency.CurrencyService;
 import com.money.manager.ex.database.QueryCategorySubCategory;
-import com.money.manager.ex.database.ViewMobileData;
 import com.money.manager.ex.datalayer.BudgetEntryRepository;
 import com.money.manager.ex.domainmodel.BudgetEntry;
 import com.money.manager.ex.settings.AppSettings;
-import com.squareup.sqlbrite3.BriteDatabase;
 
 import java.util.HashMap;
 
 import javax.inject.Inject;
 
 import androidx.cursoradapter.widget.SimpleCursorAdapter;
-import dagger.Lazy;
 import info.javaperformance.money.MoneyFactory;
-import timber.log.Timber;
 
 /**
  * Adapter for budgets.
@@ -89,12 +83,13 @@ public class BudgetAdapter
 
     }
 
-    @Inject Lazy<BriteDatabase> databaseLazy;
+    @Inject BudgetActualsEngine actualsEngine;
 
     private final int mLayout;
     private String mBudgetName;
     private long mBudgetYearId;
     private HashMap<String, BudgetEntry> mBudgetEntries;
+    private BudgetActuals mActuals;
 
     private boolean useNestedCategory = false;  // new NestedCateg
 
@@ -223,6 +218,8 @@ public class BudgetAdapter
         }
         // populate thread cache HashMap
         mBudgetEntries = populateThreadCache();
+        // all the actual amounts for the budget period, in one query.
+        mActuals = actualsEngine.getActuals(budgetYearId, mBudgetName);
     }
 
     private double getActualAmount(boolean hasSubcategory, Cursor cursor) {
@@ -283,100 +280,11 @@ public class BudgetAdapter
     }
 
     private double getAmountForCategory(int categoryId) {
-        double total = loadTotalFor(ViewMobileData.CATEGID + "=" + categoryId);
-        return total;
-    }
-
-    private double getAmountForSubCategory(int subCategoryId) {
-        double total = loadTotalFor(ViewMobileData.SubcategID + "=" + subCategoryId);
-        return total;
-    }
-
-    private double loadTotalFor(String where) {
-        double total = 0;
-
-        int year = getYearFromBudgetName(mBudgetName);
-        where += " AND " + ViewMobileData.Year + "=" + year;
-        int month = getMonthFromBudgetName(mBudgetName);
-        if (month != Constants.NOT_SET) {
-            where += " AND " + ViewMobileData.Month + "=" + month;
-        }
-
-        try {
-            // wolfsolver todo adapt query for nested category
-            String query = prepareQuery(where);
-            Cursor cursor = databaseLazy.get().query(query);
-            if (cursor == null) return 0;
-            // add all the categories and subcategories together.
-            while (cursor.moveToNext()) {
-                total += cursor.getDouble(cursor.getColumnIndex("TOTAL"));
-            }
-            cursor.close();
-        } catch (IllegalStateException ise) {
-            Timber.e(ise, "loading category total");
-        }
-
-        return total;
-    }
-
-    private String prepareQuery(String whereClause) {
-        SQLiteQueryBuilder builder = new SQLiteQueryBuilder();
-        ViewMobileData mobileData = new ViewMobileData(getContext());
-
-        //data to compose builder
-        String[] projectionIn = new String[]{
-                "ID AS _id", ViewMobileData.CATEGID, ViewMobileData.Category,
-                ViewMobileData.SubcategID, ViewMobileData.Subcategory,
-                "SUM(" + ViewMobileData.AmountBaseConvRate + ") AS TOTAL"
-        };
-
-        String selection = ViewMobileData.Status + "<>'V' AND " +
-                ViewMobileData.TransactionType + " IN ('Withdrawal', 'Deposit')";
-        if (!TextUtils.isEmpty(whereClause)) {
-            selection += " AND " + whereClause;
-        }
-
-        String groupBy = ViewMobileData.CATEGID + ", " + ViewMobileData.Category + ", " +
-                ViewMobileData.SubcategID + ", " + ViewMobileData.Subcategory;
-
-        String having = null;
-//        if (!TextUtils.isEmpty(((CategoriesReportActivity) context).mFilter)) {
-//            String filter = ((CategoriesReportActivity) context).mFilter;
-//            if (TransactionTypes.valueOf(filter).equals(TransactionTypes.Withdrawal)) {
-//                having = "SUM(" + ViewMobileData.AmountBaseConvRate + ") < 0";
-//            } else {
-//                having = "SUM(" + ViewMobileData.AmountBaseConvRate + ") > 0";
-//            }
-//        }
-
-        String sortOrder = ViewMobileData.Category + ", " + ViewMobileData.Subcategory;
-        String limit = null;
-
-        builder.setTables(mobileData.getSource());
-
-        return builder.buildQuery(projectionIn, selection, groupBy, having, sortOrder, limit);
-    }
-
-    private int getYearFromBudgetName(String budgetName) {
-        String yearString = budgetName.substring(0, 4);
-        int year = Integer.parseInt(yearString);
-        return year;
+        return mActuals.getActual(categoryId);
     }
 
     private boolean isMonthlyBudget(String budgetName) {
         return budgetName.contains("-");
     }
 
-    private int getMonthFromBudgetName(String budgetName) {
-        int result = Constants.NOT_SET;
-
-        if (!isMonthlyBudget(budgetName)) return result;
-
-        int separatorLocation = budgetName.indexOf("-");
-        String monthString = budgetName.substring(separatorLocation + 1, separatorLocation + 3);
-
-        result = Integer.parseInt(monthString);
-        return result;
-    }
-
 }
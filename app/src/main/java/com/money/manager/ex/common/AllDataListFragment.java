@@ -19,13 +19,15 @@ package com.money.manager.ex.common;
 import android.app.Activity;
 import android.app.AlertDialog;
 import android.content.ContentValues;
+import android.content.Context;
 import android.content.DialogInterface;
 import android.content.Intent;
 import android.database.Cursor;
-import android.database.DatabaseUtils;
 import android.graphics.Typeface;
+import android.net.Uri;
 import android.os.Bundle;
 import android.text.TextUtils;
+import android.util.Pair;
 import android.util.SparseBooleanArray;
 import android.view.LayoutInflater;
 import android.view.Menu;
@@ -33,6 +35,7 @@ import android.view.MenuInflater;
 import android.view.MenuItem;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.AbsListView;
 import android.widget.AdapterView;
 import android.widget.AdapterView.OnItemClickListener;
 import android.widget.LinearLayout;
@@ -49,15 +52,19 @@ import androidx.loader.content.Loader;
 import com.mikepenz.google_material_typeface_library.GoogleMaterial;
 import com.money.manager.ex.Constants;
 import com.money.manager.ex.R;
+import com.money.manager.ex.account.CalculateRunningBalanceTask2;
 import com.money.manager.ex.adapter.AllDataAdapter;
 import com.money.manager.ex.adapter.AllDataAdapter.TypeCursor;
 import com.money.manager.ex.core.ExportToCsvFile;
+import com.money.manager.ex.core.RequestCodes;
 import com.money.manager.ex.core.TransactionTypes;
 import com.money.manager.ex.core.UIHelper;
 import com.money.manager.ex.currency.CurrencyService;
 import com.money.manager.ex.database.ITransactionEntity;
+import com.money.manager.ex.database.MoneyCursorReader;
 import com.money.manager.ex.database.QueryAllData;
 import com.money.manager.ex.datalayer.AccountTransactionRepository;
+import com.money.manager.ex.datalayer.KeysetPager;
 import com.money.manager.ex.datalayer.Select;
 import com.money.manager.ex.datalayer.SplitCategoriesRepository;
 import com.money.manager.ex.domainmodel.AccountTransaction;
@@ -71,9 +78,16 @@ import com.money.manager.ex.transactions.EditTransactionActivityConstants;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.concurrent.Callable;
 
 import info.javaperformance.money.Money;
+import info.javaperformance.money.MoneyAccumulator;
 import info.javaperformance.money.MoneyFactory;
+import rx.Single;
+import rx.SingleSubscriber;
+import rx.Subscription;
+import rx.android.schedulers.AndroidSchedulers;
+import rx.schedulers.Schedulers;
 import timber.log.Timber;
 
 /**
@@ -112,6 +126,12 @@ public class AllDataListFragment
     public static final String KEY_ARGUMENTS_WHERE = "SearchResultFragment:ArgumentsWhere";
     public static final String KEY_ARGUMENTS_SORT = "SearchResultFragment:ArgumentsSort";
 
+    /**
+     * Number of transactions loaded at a time. The running balances are calculated for the
+     * first page, and continued as the next pages are loaded.
+     */
+    public static final int PAGE_SIZE = 200;
+
     public int AccountId = Constants.NOT_SET;
     private LinearLayout footer;
     private LoaderManager.LoaderCallbacks<Cursor> mSearResultFragmentLoaderCallbacks;
@@ -122,6 +142,13 @@ public class AllDataListFragment
     private View mListHeader = null;
     private Bundle mArguments;
     private boolean mShowFooter = false;
+    /**
+     * Pages of the current query. Null when the whole result is loaded at once.
+     */
+    private KeysetPager mPager;
+    private Subscription mPageSubscription;
+    private Subscription mFooterSubscription;
+    private boolean mAllPagesLoaded = false;
 
     @Override
     public void onActivityCreated(Bundle savedInstanceState) {
@@ -190,7 +217,9 @@ public class AllDataListFragment
         if (showAddButton) {
             // Show floating action button.
             setFloatingActionButtonVisible(true);
-            attachFloatingActionButtonToListView();
+            attachFloatingActionButtonToListView(mPageScrollListener);
+        } else {
+            getListView().setOnScrollListener(mPageScrollListener);
         }
 
         // start loader if asked to do so by the caller.
@@ -242,6 +271,13 @@ public class AllDataListFragment
                     .where(selection)
                     .orderBy(sort);
 
+            // load the first page only, if the sort allows it.
+            cancelPaging();
+            mPager = KeysetPager.create(query, QueryAllData.ID, PAGE_SIZE);
+            if (mPager != null) {
+                query = mPager.getFirstPage();
+            }
+
             return new MmxCursorLoader(getActivity(), allData.getUri(), query);
         }
         return null;
@@ -263,6 +299,10 @@ public class AllDataListFragment
 
         if (loader.getId() == ID_LOADER_ALL_DATA_DETAIL) {// Transactions list loaded.
             AllDataAdapter adapter = (AllDataAdapter) getListAdapter();
+            if (mPager != null && data != null) {
+                mAllPagesLoaded = data.getCount() < mPager.getPageSize();
+                data = new PagedCursor(data);
+            }
 //                adapter.swapCursor(data);
             adapter.changeCursor(data);
             if (isResumed()) {
@@ -325,6 +365,7 @@ public class AllDataListFragment
 
     @Override
     public void onDestroy() {
+        cancelPaging();
         if (mMultiChoiceModeListener != null)
             mMultiChoiceModeListener.onDestroyActionMode(null);
         super.onDestroy();
@@ -454,6 +495,24 @@ public class AllDataListFragment
         if(adapter == null) return;
 
         adapter.setBalances(balances);
+        // pages may have been loaded since the balances were calculated.
+        if (continueRunningBalances(adapter)) {
+            adapter.notifyDataSetChanged();
+        }
+    }
+
+    /**
+     * Calculates the running balances of the loaded rows that follow the calculated ones.
+     * @return true if any balance was added.
+     */
+    private boolean continueRunningBalances(AllDataAdapter adapter) {
+        HashMap<Integer, Money> balances = adapter.getBalances();
+        Cursor cursor = adapter.getCursor();
+        if (balances == null || cursor == null || cursor.isClosed()) return false;
+
+        int count = balances.size();
+        CalculateRunningBalanceTask2.continueBalances(cursor, this.AccountId, balances);
+        return balances.size() > count;
     }
 
     /**
@@ -469,9 +528,39 @@ public class AllDataListFragment
      * @param prefixName prefix for the file
      */
     public void exportDataToCSVFile(String prefixName) {
-        ExportToCsvFile csv = new ExportToCsvFile(getActivity(), (AllDataAdapter) getListAdapter());
-        csv.setPrefixName(prefixName);
-        csv.execute();
+        // let the user pick the destination.
+        Intent intent = new Intent(Intent.ACTION_CREATE_DOCUMENT);
+        intent.addCategory(Intent.CATEGORY_OPENABLE);
+        intent.setType("text/csv");
+        intent.putExtra(Intent.EXTRA_TITLE, ExportToCsvFile.getFileName(prefixName));
+
+        startActivityForResult(intent, RequestCodes.EXPORT_CSV);
+    }
+
+    @Override
+    public void onActivityResult(int requestCode, int resultCode, Intent data) {
+        super.onActivityResult(requestCode, resultCode, data);
+
+        if (requestCode == RequestCodes.EXPORT_CSV && resultCode == Activity.RESULT_OK
+                && data != null && data.getData() != null) {
+            startCsvExport(data.getData());
+        }
+    }
+
+    /**
+     * Export the transactions currently listed, with the same filter and order.
+     * @param destination Uri of the file to write to.
+     */
+    private void startCsvExport(Uri destination) {
+        Bundle args = getLatestArguments();
+        String selection = "";
+        String sort = "";
+        if (args != null) {
+            selection = args.getString(KEY_ARGUMENTS_WHERE, "");
+            sort = args.getString(KEY_ARGUMENTS_SORT, "");
+        }
+
+        new ExportToCsvFile(getActivity(), destination, selection, sort).execute();
     }
 
     /**
@@ -591,19 +680,27 @@ public class AllDataListFragment
     private void updateFooter(Cursor data) {
         if (data == null) return;
 
-        String display;
-
-        // number of records
-         display = data.getCount() + " " + getString(R.string.records) + ", ";
+        if (mPager != null) {
+            // only the first page is loaded. Sum all the transactions in the background.
+            loadFooterTotals();
+            return;
+        }
 
         // sum
 
         Money total = MoneyFactory.fromString("0");
 
         if (data.getCount() != 0) {
-            total = getTotalFromCursor(data);
+            total = getTotalFromCursor(getContext(), data);
         }
 
+        showFooterTotals(data.getCount(), total);
+    }
+
+    private void showFooterTotals(int count, Money total) {
+        // number of records
+        String display = count + " " + getString(R.string.records) + ", ";
+
         TextView txtColumn2 = this.footer.findViewById(R.id.textViewColumn2);
 
         CurrencyService currencyService = new CurrencyService(getContext());
@@ -612,50 +709,177 @@ public class AllDataListFragment
         txtColumn2.setText(display);
     }
 
-    private Money getTotalFromCursor(Cursor cursor) {
-        Money total = MoneyFactory.fromString("0");
-        int originalPosition = cursor.getPosition();
+    private void loadFooterTotals() {
+        if (mFooterSubscription != null) mFooterSubscription.unsubscribe();
+
+        final Context context = getActivity().getApplicationContext();
+        final QueryAllData allData = new QueryAllData(context);
+        Bundle args = getLatestArguments();
+        final String selection = args == null ? "" : args.getString(KEY_ARGUMENTS_WHERE, "");
+
+        mFooterSubscription = Single.fromCallable(new Callable<Pair<Integer, Money>>() {
+            @Override
+            public Pair<Integer, Money> call() throws Exception {
+                String[] projection = new String[] { QueryAllData.TransactionType,
+                    QueryAllData.CURRENCYID, QueryAllData.ToCurrencyId,
+                    QueryAllData.Amount, QueryAllData.ToAmount };
+                Cursor cursor = context.getContentResolver().query(allData.getUri(),
+                    projection, selection, null, null);
+                if (cursor == null) return Pair.create(0, MoneyFactory.fromString("0"));
+
+                try {
+                    return Pair.create(cursor.getCount(), getTotalFromCursor(context, cursor));
+                } finally {
+                    cursor.close();
+                }
+            }
+        })
+            .subscribeOn(Schedulers.io())
+            .observeOn(AndroidSchedulers.mainThread())
+            .subscribe(new SingleSubscriber<Pair<Integer, Money>>() {
+                @Override
+                public void onSuccess(Pair<Integer, Money> totals) {
+                    if (!isAdded()) return;
+                    showFooterTotals(totals.first, totals.second);
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    Timber.e(error, "calculating the totals");
+                }
+            });
+    }
+
+    /**
+     * Scroll listener that loads the next page when the end of the list comes into view.
+     */
+    private final AbsListView.OnScrollListener mPageScrollListener = new AbsListView.OnScrollListener() {
+        @Override
+        public void onScrollStateChanged(AbsListView view, int scrollState) {
+        }
+
+        @Override
+        public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+            // prefetch while half a page is still left to scroll.
+            if (mPager == null) return;
+            if (firstVisibleItem + visibleItemCount + mPager.getPageSize() / 2 < totalItemCount) return;
+
+            loadNextPage();
+        }
+    };
+
+    private void loadNextPage() {
+        if (mPager == null || mAllPagesLoaded || mPageSubscription != null) return;
+
         AllDataAdapter adapter = getAllDataAdapter();
-        CurrencyService currencyService = new CurrencyService(getContext());
+        if (adapter == null || !(adapter.getCursor() instanceof PagedCursor)) return;
+        final PagedCursor cursor = (PagedCursor) adapter.getCursor();
+        if (cursor.isClosed() || !cursor.moveToLast()) return;
+
+        final Context context = getActivity().getApplicationContext();
+        final QueryAllData allData = new QueryAllData(context);
+        final Select page = mPager.getNextPage(cursor);
+        final KeysetPager pager = mPager;
+
+        mPageSubscription = Single.fromCallable(new Callable<Cursor>() {
+            @Override
+            public Cursor call() throws Exception {
+                Cursor result = context.getContentResolver().query(page.getUri(allData.getUri()),
+                    page.projection, page.selection, page.selectionArgs, page.sort);
+                // fill the window here, not on the main thread.
+                if (result != null) result.getCount();
+                return result;
+            }
+        })
+            .subscribeOn(Schedulers.io())
+            .observeOn(AndroidSchedulers.mainThread())
+            .subscribe(new SingleSubscriber<Cursor>() {
+                @Override
+                public void onSuccess(Cursor result) {
+                    mPageSubscription = null;
+                    if (result == null) return;
+
+                    AllDataAdapter adapter = getAllDataAdapter();
+                    if (pager != mPager || cursor.isClosed() || adapter == null
+                        || adapter.getCursor() != cursor) {
+                        // the list was reloaded in the meantime.
+                        result.close();
+                        return;
+                    }
+
+                    mAllPagesLoaded = result.getCount() < pager.getPageSize();
+                    if (result.getCount() == 0) {
+                        result.close();
+                        return;
+                    }
+                    cursor.addPage(result);
+                    continueRunningBalances(adapter);
+                    adapter.notifyDataSetChanged();
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    mPageSubscription = null;
+                    Timber.e(error, "loading the next page of transactions");
+                }
+            });
+    }
+
+    private void cancelPaging() {
+        if (mPageSubscription != null) {
+            mPageSubscription.unsubscribe();
+            mPageSubscription = null;
+        }
+        if (mFooterSubscription != null) {
+            mFooterSubscription.unsubscribe();
+            mFooterSubscription = null;
+        }
+        mAllPagesLoaded = false;
+    }
+
+    /**
+     * Sums the transactions in the base currency. Can run on a background thread.
+     */
+    private static Money getTotalFromCursor(Context context, Cursor cursor) {
+        MoneyAccumulator total = new MoneyAccumulator();
+        int originalPosition = cursor.getPosition();
+        CurrencyService currencyService = new CurrencyService(context);
         int baseCurrencyId = currencyService.getBaseCurrencyId();
-        ContentValues values = new ContentValues();
+        MoneyCursorReader reader = new MoneyCursorReader();
+        Money zero = MoneyFactory.fromUnits(0, 0);
+
+        // resolve the columns once.
+        int transactionTypeColumn = cursor.getColumnIndex(QueryAllData.TransactionType);
+        int currencyIdColumn = cursor.getColumnIndex(QueryAllData.CURRENCYID);
+        int toCurrencyIdColumn = cursor.getColumnIndex(QueryAllData.ToCurrencyId);
+        int amountColumn = cursor.getColumnIndex(QueryAllData.Amount);
+        int toAmountColumn = cursor.getColumnIndex(QueryAllData.ToAmount);
 
         int currencyId;
         Money amount;
         Money converted;
-        String transType;
         TransactionTypes transactionType;
 
         cursor.moveToPosition(Constants.NOT_SET);
 
         while(cursor.moveToNext()) {
-            values.clear();
-
-            // Read needed data.
-            DatabaseUtils.cursorStringToContentValues(cursor, adapter.TRANSACTIONTYPE, values);
-            DatabaseUtils.cursorIntToContentValues(cursor, adapter.CURRENCYID, values);
-            DatabaseUtils.cursorIntToContentValues(cursor, adapter.TOCURRENCYID, values);
-            DatabaseUtils.cursorDoubleToCursorValues(cursor, adapter.AMOUNT, values);
-            DatabaseUtils.cursorDoubleToCursorValues(cursor, adapter.TOAMOUNT, values);
-
-            transType = values.getAsString(adapter.TRANSACTIONTYPE);
-            transactionType = TransactionTypes.valueOf(transType);
+            transactionType = TransactionTypes.valueOf(cursor.getString(transactionTypeColumn));
 
             if (transactionType.equals(TransactionTypes.Transfer)) {
-                currencyId = values.getAsInteger(adapter.TOCURRENCYID);
-                amount = MoneyFactory.fromString(values.getAsString(adapter.TOAMOUNT));
+                currencyId = cursor.getInt(toCurrencyIdColumn);
+                amount = reader.read(cursor, toAmountColumn, zero);
             } else {
-                currencyId = values.getAsInteger(adapter.CURRENCYID);
-                amount = MoneyFactory.fromString(values.getAsString(adapter.AMOUNT));
+                currencyId = cursor.getInt(currencyIdColumn);
+                amount = reader.read(cursor, amountColumn, zero);
             }
 
             converted = currencyService.doCurrencyExchange(baseCurrencyId, amount, currencyId);
-            total = total.add(converted);
+            total.add(converted);
         }
 
         cursor.moveToPosition(originalPosition);
 
-        return total;
+        return total.toMoney();
     }
 
     private boolean setStatusCheckingAccount(int[] transId, String status) {
@@ -903,9 +1127,17 @@ public class AllDataListFragment
     // end multi-choice-mode listener callback handlers.
 
     private void exportToQif(){
-        AllDataAdapter adapter = (AllDataAdapter) getListAdapter();
+        // export the listed transactions, with the same filter and order.
+        Bundle args = getLatestArguments();
+        String selection = "";
+        String sort = "";
+        if (args != null) {
+            selection = args.getString(KEY_ARGUMENTS_WHERE, "");
+            sort = args.getString(KEY_ARGUMENTS_SORT, "");
+        }
+
         QifExport qif = new QifExport(getActivity());
-        qif.export(adapter);
+        qif.export(selection, sort);
     }
 
     private int[] convertArrayListToArray(ArrayList<Integer> list) {
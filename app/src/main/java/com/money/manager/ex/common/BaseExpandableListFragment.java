@@ -52,6 +52,12 @@ public abstract class BaseExpandableListFragment
     private boolean mMenuItemSearchIconified = true;
     // flag for tips wildcard
     private boolean isShowTipsWildcard = false;
+    private final SearchTextDebouncer mSearchDebouncer = new SearchTextDebouncer(new SearchTextDebouncer.Listener() {
+        @Override
+        public void onSearchTextChanged(String text) {
+            if (isAdded()) onPreQueryTextChange(text);
+        }
+    });
     FloatingActionButton mFloatingActionButton;
 
     public abstract String getSubTitle();
@@ -128,12 +134,15 @@ public abstract class BaseExpandableListFragment
                 searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
                     @Override
                     public boolean onQueryTextSubmit(String s) {
+                        mSearchDebouncer.flush();
                         return false;
                     }
 
                     @Override
                     public boolean onQueryTextChange(String s) {
-                        return BaseExpandableListFragment.this.onPreQueryTextChange(s);
+                        // the list is queried when the typing pauses.
+                        mSearchDebouncer.onTextChanged(s);
+                        return true;
                     }
                 });
                 searchView.setIconified(isMenuItemSearchIconified());
@@ -209,6 +218,12 @@ public abstract class BaseExpandableListFragment
         return true;
     }
 
+    @Override
+    public void onDestroyView() {
+        mSearchDebouncer.cancel();
+        super.onDestroyView();
+    }
+
     @Override
     public void onSaveInstanceState(Bundle outState) {
         outState.putBoolean(KEY_SHOWN_TIPS_WILDCARD, isShowTipsWildcard);
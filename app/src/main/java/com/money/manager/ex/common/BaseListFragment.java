@@ -24,6 +24,7 @@ import android.view.Menu;
 import android.view.MenuInflater;
 import android.view.MenuItem;
 import android.view.View;
+import android.widget.AbsListView;
 
 import com.melnykov.fab.FloatingActionButton;
 import com.money.manager.ex.R;
@@ -51,6 +52,12 @@ public abstract class BaseListFragment
     private boolean mMenuItemSearchIconified = true;
     // flag for tips wildcard
     private boolean isShowTipsWildcard = false;
+    private final SearchTextDebouncer mSearchDebouncer = new SearchTextDebouncer(new SearchTextDebouncer.Listener() {
+        @Override
+        public void onSearchTextChanged(String text) {
+            if (isAdded()) onPreQueryTextChange(text);
+        }
+    });
     // hint search view
     private String mSearchHint = "";
 
@@ -116,12 +123,15 @@ public abstract class BaseListFragment
             searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
                 @Override
                 public boolean onQueryTextSubmit(String s) {
+                    mSearchDebouncer.flush();
                     return false;
                 }
 
                 @Override
                 public boolean onQueryTextChange(String s) {
-                    return BaseListFragment.this.onPreQueryTextChange(s);
+                    // the list is queried when the typing pauses.
+                    mSearchDebouncer.onTextChanged(s);
+                    return true;
                 }
             });
 //            searchView.setIconifiedByDefault(isMenuItemSearchIconified());
@@ -156,6 +166,12 @@ public abstract class BaseListFragment
         return super.onOptionsItemSelected(item);
     }
 
+    @Override
+    public void onDestroyView() {
+        mSearchDebouncer.cancel();
+        super.onDestroyView();
+    }
+
     @Override
     public void onSaveInstanceState(Bundle outState) {
         outState.putBoolean(KEY_SHOWN_TIPS_WILDCARD, isShowTipsWildcard);
@@ -209,6 +225,20 @@ public abstract class BaseListFragment
         }
     }
 
+    /**
+     * Attach the floating button to the list view, keeping the given scroll listener.
+     * The list view accepts only one scroll listener, which the button would replace.
+     * @param onScrollListener Listener for the scroll events. Set on the list view if there
+     *                         is no floating button.
+     */
+    public void attachFloatingActionButtonToListView(AbsListView.OnScrollListener onScrollListener) {
+        if (mFloatingActionButton != null) {
+            mFloatingActionButton.attachToListView(getListView(), null, onScrollListener);
+        } else {
+            getListView().setOnScrollListener(onScrollListener);
+        }
+    }
+
     public void onFloatingActionButtonClicked() {
     }
 
@@ -42,10 +42,13 @@ import androidx.loader.content.Loader;
 import com.mikepenz.fontawesome_typeface_library.FontAwesome;
 import com.mikepenz.google_material_typeface_library.GoogleMaterial;
 import com.money.manager.ex.Constants;
+import com.money.manager.ex.MmexApplication;
 import com.money.manager.ex.R;
 import com.money.manager.ex.adapter.CategoryExpandableListAdapter;
 import com.money.manager.ex.core.ContextMenuIds;
 import com.money.manager.ex.core.Core;
+import com.money.manager.ex.core.NameIndex;
+import com.money.manager.ex.core.NameIndexCache;
 import com.money.manager.ex.core.UIHelper;
 import com.money.manager.ex.database.QueryCategorySubCategory;
 import com.money.manager.ex.database.SQLTypeTransaction;
@@ -92,6 +95,7 @@ public class CategoryListFragment
 
     private ArrayList<Integer> mPositionToExpand;
     private String mCurFilter;
+    private final SearchCursorLoader.Results mSearchResults = new SearchCursorLoader.Results();
 
     @Override
     public void onActivityCreated(Bundle savedInstanceState) {
@@ -260,18 +264,21 @@ public class CategoryListFragment
             mSubCategories.clear();
 
             // load data
-            String whereClause = null;
-            String[] selectionArgs = null;
-            if (!TextUtils.isEmpty(mCurFilter)) {
-                whereClause = QueryCategorySubCategory.CATEGNAME + " LIKE ? OR "
-                        + QueryCategorySubCategory.SUBCATEGNAME + " LIKE ?";
-                selectionArgs = new String[]{mCurFilter + "%", mCurFilter + "%"};
+            String orderBy = QueryCategorySubCategory.CATEGNAME + ", " + QueryCategorySubCategory.SUBCATEGNAME;
+            List<Integer> matches = findInIndex();
+            if (matches != null) {
+                // a subcategory is listed when it or its parent matches.
+                Select query = new Select(mQuery.getAllColumns())
+                        .where(NameIndexCache.getIdFilter(QueryCategorySubCategory.CATEGID, matches) + " OR "
+                                + NameIndexCache.getIdFilter(QueryCategorySubCategory.SUBCATEGID, matches))
+                        .orderBy(orderBy);
+                return new MmxCursorLoader(getActivity(), mQuery.getUri(), query);
             }
-            Select query = new Select(mQuery.getAllColumns())
-                    .where(whereClause, selectionArgs)
-                    .orderBy(QueryCategorySubCategory.CATEGNAME + ", " + QueryCategorySubCategory.SUBCATEGNAME);
 
-            return new MmxCursorLoader(getActivity(), mQuery.getUri(), query);
+            Select query = new Select(mQuery.getAllColumns())
+                    .orderBy(orderBy);
+            return new SearchCursorLoader(getActivity(), mQuery.getUri(), query, mCurFilter, mSearchResults,
+                    QueryCategorySubCategory.CATEGNAME, QueryCategorySubCategory.SUBCATEGNAME);
         }
         return null;
     }
@@ -443,6 +450,21 @@ public class CategoryListFragment
         getLoaderManager().restartLoader(ID_LOADER_CATEGORYSUB, null, this);
     }
 
+    /**
+     * Looks up the filter in the in-memory index of the category paths.
+     * @return the ids of the matching categories, or null to filter in the database.
+     */
+    private List<Integer> findInIndex() {
+        if (TextUtils.isEmpty(mCurFilter)) return null;
+
+        NameIndex index = MmexApplication.getApp().iocComponent.nameIndexCache().getCategories();
+        if (index == null) return null;
+
+        List<Integer> matches = index.search(mCurFilter.replace("%", ""),
+                NameIndexCache.FILTER_LIMIT, true);
+        return matches.size() < NameIndexCache.FILTER_LIMIT ? matches : null;
+    }
+
     /**
      * Show alter binaryDialog confirm delete category or sub category
      */
@@ -20,6 +20,7 @@ package com.money.manager.ex.common;
 import android.content.Context;
 import android.database.Cursor;
 import android.net.Uri;
+import androidx.core.os.OperationCanceledException;
 import androidx.loader.content.CursorLoader;
 
 import com.money.manager.ex.datalayer.Select;
@@ -38,7 +39,7 @@ public class MmxCursorLoader
 
     public MmxCursorLoader(Context context, Uri uri, Select query) {
         // String[] projection, String selection, String[] selectionArgs, String sortOrder
-        super(context, uri, query.projection, query.selection, query.selectionArgs, query.sort);
+        super(context, query.getUri(uri), query.projection, query.selection, query.selectionArgs, query.sort);
 
     }
 
@@ -46,6 +47,9 @@ public class MmxCursorLoader
     public Cursor loadInBackground() {
         try {
             return super.loadInBackground();
+        } catch (OperationCanceledException e) {
+            // restarted, i.e. the search text changed. The result is not used.
+            Timber.v("query cancelled");
         } catch (Exception e) {
             Timber.e(e, "loading data");
         }
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.money.manager.ex.common;
+
+import android.database.AbstractCursor;
+import android.database.CharArrayBuffer;
+import android.database.Cursor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Presents the pages of a query as one cursor. Pages can be appended while the cursor
+ * is in use, i.e. when the list is scrolled to the end.
+ * The first page belongs to the loader and is not closed here. The added pages are
+ * closed with this cursor.
+ */
+public class PagedCursor
+    extends AbstractCursor {
+
+    public PagedCursor(Cursor firstPage) {
+        mPages.add(firstPage);
+        mOffsets = new int[] { 0, firstPage.getCount() };
+    }
+
+    private final List<Cursor> mPages = new ArrayList<>();
+    /**
+     * Position of the first row of each page. The last element is the total count.
+     */
+    private int[] mOffsets;
+    private Cursor mCurrent;
+
+    public void addPage(Cursor page) {
+        int pages = mPages.size();
+        mPages.add(page);
+
+        int[] offsets = new int[pages + 2];
+        System.arraycopy(mOffsets, 0, offsets, 0, pages + 1);
+        offsets[pages + 1] = mOffsets[pages] + page.getCount();
+        mOffsets = offsets;
+    }
+
+    public int getPageCount() {
+        return mPages.size();
+    }
+
+    @Override
+    public int getCount() {
+        return mOffsets[mPages.size()];
+    }
+
+    @Override
+    public boolean onMove(int oldPosition, int newPosition) {
+        int page = findPage(newPosition);
+        mCurrent = mPages.get(page);
+        return mCurrent.moveToPosition(newPosition - mOffsets[page]);
+    }
+
+    @Override
+    public String[] getColumnNames() {
+        return mPages.get(0).getColumnNames();
+    }
+
+    @Override
+    public String getString(int column) {
+        return mCurrent.getString(column);
+    }
+
+    @Override
+    public void copyStringToBuffer(int column, CharArrayBuffer buffer) {
+        mCurrent.copyStringToBuffer(column, buffer);
+    }
+
+    @Override
+    public short getShort(int column) {
+        return mCurrent.getShort(column);
+    }
+
+    @Override
+    public int getInt(int column) {
+        return mCurrent.getInt(column);
+    }
+
+    @Override
+    public long getLong(int column) {
+        return mCurrent.getLong(column);
+    }
+
+    @Override
+    public float getFloat(int column) {
+        return mCurrent.getFloat(column);
+    }
+
+    @Override
+    public double getDouble(int column) {
+        return mCurrent.getDouble(column);
+    }
+
+    @Override
+    public byte[] getBlob(int column) {
+        return mCurrent.getBlob(column);
+    }
+
+    @Override
+    public int getType(int column) {
+        return mCurrent.getType(column);
+    }
+
+    @Override
+    public boolean isNull(int column) {
+        return mCurrent.isNull(column);
+    }
+
+    @Override
+    public void close() {
+        super.close();
+
+        for (int i = 1; i < mPages.size(); i++) {
+            mPages.get(i).close();
+        }
+    }
+
+    private int findPage(int position) {
+        int low = 0;
+        int high = mPages.size() - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (mOffsets[middle] <= position) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+}
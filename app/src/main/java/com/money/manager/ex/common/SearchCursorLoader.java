@@ -0,0 +1,274 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.money.manager.ex.common;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.text.TextUtils;
+
+import androidx.core.os.OperationCanceledException;
+
+import com.money.manager.ex.datalayer.Select;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import timber.log.Timber;
+
+/**
+ * Cursor loader for the search-as-you-type lists (payees, categories, accounts, currencies).
+ * The filter is applied as "column LIKE 'filter%'" on the given columns.
+ * When the new filter only adds characters to the previous one, the previous result set
+ * already contains all the matches, so it is filtered in memory instead of querying the
+ * database again. The previous results are kept in a {@link Results} instance that the
+ * fragment holds across the loader restarts.
+ */
+public class SearchCursorLoader
+    extends MmxCursorLoader {
+
+    /**
+     * Larger result sets are not kept for the in-memory filtering.
+     */
+    private static final int MAX_CACHED_ROWS = 2000;
+
+    /**
+     * @param baseQuery The query without the search filter.
+     * @param filter The search text, with the wildcards. Can be empty.
+     * @param results The previous results of this list.
+     * @param filterColumns The columns to match the filter against. A row matches if any of them does.
+     */
+    public SearchCursorLoader(Context context, Uri uri, Select baseQuery, String filter,
+                              Results results, String... filterColumns) {
+        super(context, uri, getQuery(baseQuery, filter, filterColumns));
+
+        this.filter = filter == null ? "" : filter;
+        this.results = results;
+        this.filterColumns = filterColumns;
+        this.key = uri + "|" + Arrays.toString(baseQuery.projection) + "|" + baseQuery.selection
+                + "|" + Arrays.toString(baseQuery.selectionArgs) + "|" + baseQuery.sort;
+    }
+
+    private final String filter;
+    private final Results results;
+    private final String[] filterColumns;
+    /**
+     * Identifies the query without the filter. The results are reused only for the same query.
+     */
+    private final String key;
+    private final ForceLoadContentObserver observer = new ForceLoadContentObserver();
+
+    @Override
+    public Cursor loadInBackground() {
+        Cursor cursor = results.refine(key, filter, filterColumns);
+        if (cursor != null) {
+            // reload when the data changes, as for the database cursors.
+            cursor.setNotificationUri(getContext().getContentResolver(), getUri());
+            cursor.registerContentObserver(observer);
+            return cursor;
+        }
+
+        cursor = super.loadInBackground();
+        if (cursor != null) {
+            try {
+                results.remember(key, filter, cursor, this);
+            } catch (OperationCanceledException e) {
+                cursor.close();
+                return null;
+            }
+        }
+        return cursor;
+    }
+
+    @Override
+    public void onContentChanged() {
+        // the kept rows are outdated.
+        results.clear();
+        super.onContentChanged();
+    }
+
+    /**
+     * @return the SQL LIKE result for the value, with the ASCII-only case folding of SQLite.
+     */
+    public static boolean like(String pattern, String value) {
+        if (value == null) return false;
+
+        int p = 0;
+        int v = 0;
+        int wildcard = -1;
+        int wildcardValue = -1;
+        while (v < value.length()) {
+            if (p < pattern.length() && pattern.charAt(p) == '%') {
+                wildcard = p++;
+                wildcardValue = v;
+            } else if (p < pattern.length()
+                    && (pattern.charAt(p) == '_' || sameCharacter(pattern.charAt(p), value.charAt(v)))) {
+                p++;
+                v++;
+            } else if (wildcard >= 0) {
+                p = wildcard + 1;
+                v = ++wildcardValue;
+            } else {
+                return false;
+            }
+        }
+        while (p < pattern.length() && pattern.charAt(p) == '%') p++;
+
+        return p == pattern.length();
+    }
+
+    /**
+     * @return true if every value that matches the new filter also matches the previous one.
+     */
+    public static boolean isRefinement(String previous, String filter) {
+        // both patterns end with %, so adding characters narrows the result.
+        return filter.startsWith(previous) && !filter.equals(previous);
+    }
+
+    // Private
+
+    private static Select getQuery(Select baseQuery, String filter, String[] filterColumns) {
+        if (TextUtils.isEmpty(filter) || filterColumns.length == 0) return baseQuery;
+
+        List<String> conditions = new ArrayList<>();
+        List<String> args = new ArrayList<>();
+        for (String column : filterColumns) {
+            conditions.add(column + " LIKE ?");
+            args.add(filter + "%");
+        }
+        String selection = "(" + TextUtils.join(" OR ", conditions) + ")";
+        if (!TextUtils.isEmpty(baseQuery.selection)) {
+            selection = "(" + baseQuery.selection + ") AND " + selection;
+        }
+        if (baseQuery.selectionArgs != null) {
+            args.addAll(0, Arrays.asList(baseQuery.selectionArgs));
+        }
+
+        return new Select(baseQuery.projection)
+                .where(selection, args.toArray(new String[0]))
+                .orderBy(baseQuery.sort);
+    }
+
+    private static boolean sameCharacter(char a, char b) {
+        if (a == b) return true;
+        if (a < 128 && b < 128) {
+            return Character.toLowerCase(a) == Character.toLowerCase(b);
+        }
+        return false;
+    }
+
+    /**
+     * The last result set of a list, for the in-memory filtering.
+     */
+    public static class Results {
+        private String key;
+        private String filter;
+        private String[] columns;
+        private List<Object[]> rows;
+
+        public synchronized void clear() {
+            key = null;
+            filter = null;
+            columns = null;
+            rows = null;
+        }
+
+        /**
+         * @return the rows of the previous results that match the filter, or null if the
+         * previous results can not be used.
+         */
+        synchronized Cursor refine(String key, String filter, String[] filterColumns) {
+            if (rows == null || !key.equals(this.key) || !isRefinement(this.filter, filter)) return null;
+
+            int[] indexes = new int[filterColumns.length];
+            for (int i = 0; i < filterColumns.length; i++) {
+                indexes[i] = getColumnIndex(filterColumns[i]);
+                if (indexes[i] < 0) return null;
+            }
+
+            String pattern = filter + "%";
+            List<Object[]> matches = new ArrayList<>();
+            MatrixCursor cursor = new MatrixCursor(columns, rows.size());
+            for (Object[] row : rows) {
+                for (int index : indexes) {
+                    if (row[index] != null && like(pattern, row[index].toString())) {
+                        matches.add(row);
+                        cursor.addRow(row);
+                        break;
+                    }
+                }
+            }
+            Timber.v("search '%s' filtered in memory: %d of %d rows", filter, matches.size(), rows.size());
+
+            // the next keystroke narrows the smaller set.
+            this.filter = filter;
+            this.rows = matches;
+            return cursor;
+        }
+
+        /**
+         * Keeps a copy of the rows, if there are not too many. Leaves the cursor before the first row.
+         */
+        synchronized void remember(String key, String filter, Cursor cursor, SearchCursorLoader loader) {
+            clear();
+            if (cursor.getCount() > MAX_CACHED_ROWS) return;
+
+            String[] names = cursor.getColumnNames();
+            List<Object[]> copy = new ArrayList<>(cursor.getCount());
+            cursor.moveToPosition(-1);
+            while (cursor.moveToNext()) {
+                if (loader.isLoadInBackgroundCanceled()) throw new OperationCanceledException();
+
+                Object[] row = new Object[names.length];
+                for (int i = 0; i < names.length; i++) {
+                    row[i] = getValue(cursor, i);
+                }
+                copy.add(row);
+            }
+            cursor.moveToPosition(-1);
+
+            this.key = key;
+            this.filter = filter;
+            this.columns = names;
+            this.rows = copy;
+        }
+
+        private int getColumnIndex(String name) {
+            for (int i = 0; i < columns.length; i++) {
+                if (columns[i].equalsIgnoreCase(name)) return i;
+            }
+            return -1;
+        }
+
+        private static Object getValue(Cursor cursor, int index) {
+            switch (cursor.getType(index)) {
+                case Cursor.FIELD_TYPE_INTEGER:
+                    return cursor.getLong(index);
+                case Cursor.FIELD_TYPE_FLOAT:
+                    return cursor.getDouble(index);
+                case Cursor.FIELD_TYPE_STRING:
+                    return cursor.getString(index);
+                case Cursor.FIELD_TYPE_BLOB:
+                    return cursor.getBlob(index);
+                default:
+                    return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.money.manager.ex.common;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
+
+/**
+ * Delays the search text changes until the typing pauses, so that the list is queried
+ * once per pause and not on every keystroke. Clearing the text is passed on immediately.
+ */
+public class SearchTextDebouncer {
+
+    public static final long DELAY_MS = 250;
+
+    public interface Listener {
+        void onSearchTextChanged(String text);
+    }
+
+    public SearchTextDebouncer(Listener listener) {
+        this.listener = listener;
+    }
+
+    private final Listener listener;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private String pendingText;
+    private final Runnable dispatch = new Runnable() {
+        @Override
+        public void run() {
+            String text = pendingText;
+            pendingText = null;
+            if (text != null) listener.onSearchTextChanged(text);
+        }
+    };
+
+    public void onTextChanged(String text) {
+        handler.removeCallbacks(dispatch);
+        pendingText = text == null ? "" : text;
+
+        if (TextUtils.isEmpty(text)) {
+            dispatch.run();
+        } else {
+            handler.postDelayed(dispatch, DELAY_MS);
+        }
+    }
+
+    /**
+     * Passes on the pending text now, i.e. when the search is submitted.
+     */
+    public void flush() {
+        handler.removeCallbacks(dispatch);
+        dispatch.run();
+    }
+
+    /**
+     * Drops the pending text. Call when the view is destroyed.
+     */
+    public void cancel() {
+        handler.removeCallbacks(dispatch);
+        pendingText = null;
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2012-2018 The Android Money Manager Ex Project Team
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
  *
  * This program is free software; you can redistribute it and/or
  * modify it under the terms of the GNU General Public License
@@ -19,142 +19,218 @@ package com.money.manager.ex.core;
 
 import android.app.ProgressDialog;
 import android.content.Context;
+import android.content.DialogInterface;
 import android.database.Cursor;
+import android.net.Uri;
 import android.os.AsyncTask;
-import android.os.Environment;
+import android.provider.DocumentsContract;
 import android.text.TextUtils;
 import android.widget.Toast;
 
 import com.money.manager.ex.R;
-import com.money.manager.ex.adapter.AllDataAdapter;
 import com.money.manager.ex.database.QueryAllData;
 import com.opencsv.CSVWriter;
 
-import java.io.File;
-import java.io.FileWriter;
+import java.io.BufferedWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
+import java.util.Locale;
 
 import timber.log.Timber;
 
+/**
+ * Exports transactions to a CSV file selected through the storage access framework.
+ * The exporter runs its own query, with the same filter and sort as the list on screen,
+ * and streams the rows to the destination, so the memory use does not depend on the
+ * number of transactions. The export can be cancelled from the progress dialog.
+ */
 public class ExportToCsvFile
-        extends AsyncTask<Void, Void, Boolean> {
+        extends AsyncTask<Void, Integer, Boolean> {
+
+    private static final String[] PROJECTION = {
+        QueryAllData.Date, QueryAllData.Payee, QueryAllData.AccountName, QueryAllData.Amount,
+        QueryAllData.Category, QueryAllData.Subcategory, QueryAllData.TransactionNumber,
+        QueryAllData.Notes
+    };
+    /**
+     * Number of rows between the progress updates.
+     */
+    private static final int PROGRESS_STEP = 100;
+
+    /**
+     * @param destination Uri of the document to write to.
+     * @param selection Filter for the transactions, as used by the list.
+     * @param sort Sort order of the transactions.
+     */
+    public ExportToCsvFile(Context context, Uri destination, String selection, String sort) {
+        mContext = context;
+        mDestination = destination;
+        mSelection = selection;
+        mSort = sort;
+
+        dialog = new ProgressDialog(mContext);
+    }
+
+    private final Context mContext;
+    private final Uri mDestination;
+    private final String mSelection;
+    private final String mSort;
+    private final ProgressDialog dialog;
+
+    /**
+     * Suggested name for the export file: prefix_timestamp.csv
+     */
+    public static String getFileName(String prefix) {
+        String name = TextUtils.isEmpty(prefix) ? "" : prefix + "_";
+        return name + new SimpleDateFormat("yyyyMMddHHmmss", Locale.US).format(Calendar.getInstance().getTime())
+                + ".csv";
+    }
+
+    @Override
+    protected void onPreExecute() {
+        super.onPreExecute();
+
+        dialog.setProgressStyle(ProgressDialog.STYLE_HORIZONTAL);
+        dialog.setIndeterminate(true);
+        dialog.setMessage(mContext.getString(R.string.export_data_in_progress));
+        dialog.setCancelable(true);
+        dialog.setCanceledOnTouchOutside(false);
+        dialog.setOnCancelListener(dialogInterface -> cancel(false));
+        dialog.setButton(DialogInterface.BUTTON_NEGATIVE, mContext.getString(android.R.string.cancel),
+                (dialogInterface, which) -> dialogInterface.cancel());
+        dialog.show();
+    }
+
+    @Override
+    protected Boolean doInBackground(Void... params) {
+        QueryAllData allData = new QueryAllData(mContext);
+        // counted by the database, as getCount() on the cursor would read all the rows at once.
+        int total = countRows(allData);
+        publishProgress(0, total);
+
+        Cursor cursor = mContext.getContentResolver().query(allData.getUri(), PROJECTION,
+                mSelection, null, mSort);
+        if (cursor == null) return false;
+
+        try (OutputStream stream = mContext.getContentResolver().openOutputStream(mDestination)) {
+            if (stream == null) return false;
+
+            // resolve the columns once.
+            int dateColumn = cursor.getColumnIndexOrThrow(QueryAllData.Date);
+            int payeeColumn = cursor.getColumnIndexOrThrow(QueryAllData.Payee);
+            int accountColumn = cursor.getColumnIndexOrThrow(QueryAllData.AccountName);
+            int amountColumn = cursor.getColumnIndexOrThrow(QueryAllData.Amount);
+            int categoryColumn = cursor.getColumnIndexOrThrow(QueryAllData.Category);
+            int subcategoryColumn = cursor.getColumnIndexOrThrow(QueryAllData.Subcategory);
+            int numberColumn = cursor.getColumnIndexOrThrow(QueryAllData.TransactionNumber);
+            int notesColumn = cursor.getColumnIndexOrThrow(QueryAllData.Notes);
+
+            CSVWriter csvWriter = new CSVWriter(
+                    new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8)),
+                    CSVWriter.DEFAULT_SEPARATOR, CSVWriter.NO_QUOTE_CHARACTER);
+            // the record is reused, as the writer does not keep it.
+            String[] record = new String[7];
+            int rows = 0;
+
+            while (cursor.moveToNext()) {
+                if (isCancelled()) break;
+
+                record[0] = cursor.getString(dateColumn);
+                String payee = cursor.getString(payeeColumn);
+                record[1] = TextUtils.isEmpty(payee) ? cursor.getString(accountColumn) : payee;
+                record[2] = Double.toString(cursor.getDouble(amountColumn));
+                record[3] = cursor.getString(categoryColumn);
+                record[4] = cursor.getString(subcategoryColumn);
+                record[5] = Integer.toString(cursor.getInt(numberColumn));
+                record[6] = cursor.getString(notesColumn);
+                csvWriter.writeNext(record);
+
+                rows++;
+                if (rows % PROGRESS_STEP == 0) {
+                    publishProgress(rows, total);
+                }
+            }
+            csvWriter.close();
+
+            Timber.d("exported %d transactions to CSV", rows);
+        } catch (Exception e) {
+            Timber.e(e, "exporting to CSV");
+            return false;
+        } finally {
+            cursor.close();
+        }
+
+        return !isCancelled();
+    }
+
+    private int countRows(QueryAllData allData) {
+        Cursor cursor = mContext.getContentResolver().query(allData.getUri(),
+                new String[] { "COUNT(*) AS NUM" }, mSelection, null, null);
+        if (cursor == null) return 0;
+
+        try {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Override
+    protected void onProgressUpdate(Integer... values) {
+        int rows = values[0];
+        int total = values[1];
 
-	private final Context mContext;
-	private final AllDataAdapter mAdapter;
-	private final ProgressDialog dialog;
+        // without a count, the progress stays indeterminate.
+        if (dialog.isIndeterminate() && total > 0) {
+            dialog.setIndeterminate(false);
+            dialog.setMax(total);
+        }
+        dialog.setProgress(rows);
+    }
 
-	private String mFileName = null;
-	private String mPrefix = "";
+    @Override
+    protected void onPostExecute(Boolean result) {
+        super.onPostExecute(result);
 
-	public ExportToCsvFile(Context context, AllDataAdapter adapter) {
-		mContext = context;
-		mAdapter = adapter;
-		// create progress binaryDialog
-		dialog = new ProgressDialog(mContext);
-	}
+        closeDialog();
 
-	@Override
-	protected Boolean doInBackground(Void... params) {
+        if (!result) {
+            deleteDestination();
+        }
+        Toast.makeText(mContext,
+                mContext.getString(result ? R.string.export_file_complete : R.string.export_file_failed,
+                        getDisplayName()),
+                Toast.LENGTH_LONG).show();
+    }
+
+    @Override
+    protected void onCancelled(Boolean result) {
+        super.onCancelled(result);
+
+        closeDialog();
+        // do not leave a partial file behind.
+        deleteDestination();
+    }
+
+    private void closeDialog() {
+        if (dialog.isShowing()) {
+            dialog.dismiss();
+        }
+    }
+
+    private void deleteDestination() {
         try {
-            return runTask();
+            DocumentsContract.deleteDocument(mContext.getContentResolver(), mDestination);
         } catch (Exception e) {
-            throw new RuntimeException("Error in Export to CSV", e);
+            Timber.w(e, "deleting incomplete CSV export");
         }
-	}
-
-	@Override
-	protected void onPostExecute(Boolean result) {
-		super.onPostExecute(result);
-		if (dialog != null && dialog.isShowing()) {
-			dialog.dismiss();
-		}
-		// prompt
-		Toast.makeText(mContext,
-				mContext.getString(result ? R.string.export_file_complete
-						: R.string.export_file_failed, mFileName),
-				Toast.LENGTH_LONG).show();
-	}
-
-	@Override
-	protected void onPreExecute() {
-		super.onPreExecute();
-		// file
-		File externalStorage = Environment.getExternalStorageDirectory();
-		if (!(externalStorage != null && externalStorage.exists() && externalStorage.isDirectory()))
-			return;
-		// create folder to copy database
-		File folderOutput = new File(externalStorage + "/" + mContext.getPackageName());
-		// make a directory
-		if (!folderOutput.exists()) {
-			if (!folderOutput.mkdirs())
-				return;
-		}
-		String prefix = getPrefixName();
-		if (!TextUtils.isEmpty(prefix))
-			prefix = prefix + "_";
-		// compose file name
-		mFileName = folderOutput + "/" + prefix
-				+ new SimpleDateFormat("yyyyMMddhhmmss").format(Calendar.getInstance().getTime()) + ".csv";
-		// binaryDialog
-		dialog.setIndeterminate(true);
-		dialog.setMessage(mContext.getString(R.string.export_data_in_progress));
-		dialog.show();
-	}
-
-	private boolean runTask() {
-		if (mAdapter == null || mAdapter.getCursor() == null)
-			return false;
-		// take cursor
-		Cursor data = mAdapter.getCursor();
-		// create object to write csv file
-		try {
-			CSVWriter csvWriter = new CSVWriter(new FileWriter(mFileName), CSVWriter.DEFAULT_SEPARATOR,
-					CSVWriter.NO_QUOTE_CHARACTER);
-			while (data.moveToNext()) {
-				String[] record = new String[7];
-				// compose a records
-				record[0] = data.getString(data.getColumnIndex(QueryAllData.Date));
-				if (!TextUtils.isEmpty(data.getString(data.getColumnIndex(QueryAllData.Payee)))) {
-					record[1] = data.getString(data.getColumnIndex(QueryAllData.Payee));
-				} else {
-					record[1] = data.getString(data.getColumnIndex(QueryAllData.AccountName));
-				}
-				record[2] = Double.toString(data.getDouble(data.getColumnIndex(QueryAllData.Amount)));
-				record[3] = data.getString(data.getColumnIndex(QueryAllData.Category));
-				record[4] = data.getString(data.getColumnIndex(QueryAllData.Subcategory));
-				record[5] = Integer.toString(data.getInt(data.getColumnIndex(QueryAllData.TransactionNumber)));
-				record[6] = data.getString(data.getColumnIndex(QueryAllData.Notes));
-				// writer record
-				csvWriter.writeNext(record);
-				// move to next row
-				data.moveToNext();
-			}
-			csvWriter.close();
-		} catch (Exception e) {
-			Timber.e(e, "exporting to CSV");
-
-			return false;
-		}
-		return true;
-	}
-
-	/**
-	 * @return the mPrefix
-	 */
-	public String getPrefixName() {
-		if (TextUtils.isEmpty(mPrefix)) {
-			return "";
-		} else {
-			return mPrefix;
-		}
-	}
-
-	/**
-	 * @param mPrefix
-	 *            the mPrefix to set
-	 */
-	public void setPrefixName(String mPrefix) {
-		this.mPrefix = mPrefix;
-	}
+    }
+
+    private String getDisplayName() {
+        String name = mDestination.getLastPathSegment();
+        return name == null ? mDestination.toString() : name;
+    }
 }
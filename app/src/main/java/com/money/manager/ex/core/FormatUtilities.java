@@ -26,10 +26,9 @@ import com.money.manager.ex.R;
 import com.money.manager.ex.currency.CurrencyService;
 import com.money.manager.ex.domainmodel.Currency;
 import com.money.manager.ex.log.ExceptionHandler;
+import com.money.manager.ex.utils.FormatterCache;
 
 import java.text.DecimalFormat;
-import java.text.DecimalFormatSymbols;
-import java.text.NumberFormat;
 import java.util.Locale;
 
 import javax.inject.Inject;
@@ -121,8 +120,7 @@ public class FormatUtilities {
     public String getDecimalSeparatorForAppLocale() {
         Locale locale = MmexApplication.getApp().getAppLocale();
 
-        DecimalFormat currencyFormatter = (DecimalFormat) NumberFormat.getInstance(locale);
-        char decimalSeparator = currencyFormatter.getDecimalFormatSymbols().getDecimalSeparator();
+        char decimalSeparator = FormatterCache.getSymbols(locale).getDecimalSeparator();
 
         String separator = Character.toString(decimalSeparator);
 
@@ -132,8 +130,7 @@ public class FormatUtilities {
     public String getGroupingSeparatorForAppLocale() {
         Locale locale = MmexApplication.getApp().getAppLocale();
 
-        DecimalFormat currencyFormatter = (DecimalFormat) NumberFormat.getInstance(locale);
-        char groupingSeparator = currencyFormatter.getDecimalFormatSymbols().getGroupingSeparator();
+        char groupingSeparator = FormatterCache.getSymbols(locale).getGroupingSeparator();
 
         String separator = Character.toString(groupingSeparator);
 
@@ -141,8 +138,7 @@ public class FormatUtilities {
     }
 
     public String format(Money value, String numberFormat) {
-//        DecimalFormat format = new DecimalFormat(numberFormat);
-        DecimalFormat formatter = new DecimalFormat(numberFormat);
+        DecimalFormat formatter = FormatterCache.getNumberFormat(numberFormat);
         return formatter.format(value.toDouble());
     }
 
@@ -192,30 +188,8 @@ public class FormatUtilities {
 
         value = value.truncate(decimals);
 
-        // set format
-        DecimalFormatSymbols formatSymbols = new DecimalFormatSymbols();
-        // getDecimalSeparator()
-        if (!(TextUtils.isEmpty(decimalSeparator))) {
-            formatSymbols.setDecimalSeparator(decimalSeparator.charAt(0));
-        }
-        // getGroupSeparator()
-        if (!(TextUtils.isEmpty(groupSeparator))) {
-            formatSymbols.setGroupingSeparator(groupSeparator.charAt(0));
-        }
-
-        // All these use locale-dependent formatting.
-//        DecimalFormat formatter = new DecimalFormat();
-//        Locale appLocale = MoneyManagerApplication.getInstance().getLocale();
-//        DecimalFormat formatter = (DecimalFormat) NumberFormat.getNumberInstance(appLocale);
-        String pattern = NumericPatternGenerator.getPattern(decimals);
-
-        DecimalFormat formatter = new DecimalFormat(pattern);
-
-        formatter.setMaximumFractionDigits(decimals);
-        formatter.setMinimumFractionDigits(decimals);
-
-        formatter.setGroupingSize(3);
-        formatter.setDecimalFormatSymbols(formatSymbols);
+        // The formatters are cached per thread, by the decimals and separators.
+        DecimalFormat formatter = FormatterCache.getNumberFormat(decimals, decimalSeparator, groupSeparator);
 
         String result = formatter.format(value.toDouble());
         return result;
@@ -235,26 +209,8 @@ public class FormatUtilities {
      */
     public String formatNumber(Money amount, int decimals, String decimalSeparator, String groupSeparator,
                                String prefix, String suffix) {
-        // Decimals
-
-        String pattern = NumericPatternGenerator.getPattern(decimals);
-        DecimalFormat formatter = new DecimalFormat(pattern);
-        formatter.setMaximumFractionDigits(decimals);
-        formatter.setMinimumFractionDigits(decimals);
-
-        // Separators
-
-        DecimalFormatSymbols formatSymbols = new DecimalFormatSymbols();
-        if (!(TextUtils.isEmpty(decimalSeparator))) {
-            formatSymbols.setDecimalSeparator(decimalSeparator.charAt(0));
-        }
-        if (!(TextUtils.isEmpty(groupSeparator))) {
-            formatSymbols.setGroupingSeparator(groupSeparator.charAt(0));
-        }
-        // Group size
-        formatter.setGroupingSize(3);
-
-        formatter.setDecimalFormatSymbols(formatSymbols);
+        // Decimals, separators and group size.
+        DecimalFormat formatter = FormatterCache.getNumberFormat(decimals, decimalSeparator, groupSeparator);
 
         String result = formatter.format(amount.toDouble());
 
@@ -0,0 +1,427 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.money.manager.ex.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * In-memory index of names (payees, category paths) for the search-as-you-type lookups.
+ * The results are ranked by how the name matches:
+ * 1. the name starts with the text,
+ * 2. a word in the name starts with the text,
+ * 3. the name contains the text,
+ * 4. the name contains the text with a typo (optional),
+ * and then by usage, so the names used most often come first.
+ * The index is immutable and can be shared between threads. Build a new one when the
+ * names change.
+ */
+public class NameIndex {
+
+    private static final int MATCH_NAME_PREFIX = 1;
+    private static final int MATCH_WORD_PREFIX = 2;
+    private static final int MATCH_SUBSTRING = 3;
+    private static final int MATCH_TYPO = 4;
+
+    /**
+     * Texts shorter than this are not matched with typos.
+     */
+    private static final int MIN_TYPO_LENGTH = 4;
+
+    public static class Builder {
+        private final List<Integer> ids = new ArrayList<>();
+        private final List<String> names = new ArrayList<>();
+        private final List<Integer> usage = new ArrayList<>();
+
+        /**
+         * @param usage How often the name is used, i.e. the number of transactions.
+         */
+        public Builder add(int id, String name, int usage) {
+            if (name == null) return this;
+
+            this.ids.add(id);
+            this.names.add(name);
+            this.usage.add(usage);
+            return this;
+        }
+
+        public NameIndex build() {
+            return new NameIndex(this);
+        }
+    }
+
+    private NameIndex(Builder builder) {
+        int count = builder.ids.size();
+        ids = new int[count];
+        names = new String[count];
+        normalized = new String[count];
+        usage = new int[count];
+        characters = new long[count];
+        positions = new HashMap<>(count * 2);
+
+        for (int i = 0; i < count; i++) {
+            ids[i] = builder.ids.get(i);
+            names[i] = builder.names.get(i);
+            normalized[i] = normalize(names[i]);
+            usage[i] = builder.usage.get(i);
+            characters[i] = characterMask(normalized[i]);
+            positions.put(ids[i], i);
+        }
+
+        // Order the entries by usage, then name, so the ranking within a match type
+        // only needs the entry position.
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) order[i] = i;
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                if (usage[a] != usage[b]) return usage[a] > usage[b] ? -1 : 1;
+                return normalized[a].compareTo(normalized[b]);
+            }
+        });
+        rank = new int[count];
+        byRank = new int[count];
+        for (int i = 0; i < count; i++) {
+            rank[order[i]] = i;
+            byRank[i] = order[i];
+        }
+
+        buildWordStarts();
+        buildTrigrams();
+    }
+
+    private final int[] ids;
+    private final String[] names;
+    private final String[] normalized;
+    private final int[] usage;
+    /**
+     * Characters in each name, for a quick check before the typo matching.
+     */
+    private final long[] characters;
+    /**
+     * Position of the entry in the ranking by usage and name.
+     */
+    private final int[] rank;
+    private final int[] byRank;
+    private final Map<Integer, Integer> positions;
+
+    /**
+     * The name from each word start, sorted, for the prefix lookups.
+     */
+    private String[] wordSuffixes;
+    private int[] suffixEntries;
+    private int[] suffixOffsets;
+
+    /**
+     * Trigram -> entries that contain it, in ascending order.
+     */
+    private Map<Long, int[]> trigrams;
+
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * @return the name for the id, or null if the id is not in the index.
+     */
+    public String getName(int id) {
+        Integer position = positions.get(id);
+        return position == null ? null : names[position];
+    }
+
+    /**
+     * @return the usage for the id, or 0 if the id is not in the index.
+     */
+    public int getUsage(int id) {
+        Integer position = positions.get(id);
+        return position == null ? 0 : usage[position];
+    }
+
+    /**
+     * @param text Text to look for.
+     * @param limit Maximum number of results.
+     * @param allowTypos Also return names that contain the text with one typo (two for longer texts).
+     * @return ids of the matching names, the best match first.
+     */
+    public List<Integer> search(String text, int limit, boolean allowTypos) {
+        List<Integer> result = new ArrayList<>();
+        if (text == null) return result;
+        String query = normalize(text).trim();
+        if (query.isEmpty() || limit <= 0) return result;
+
+        // match type of each entry, 0 if not matched.
+        int[] matches = new int[ids.length];
+        int[] distances = null;
+
+        findPrefixes(query, matches);
+        findSubstrings(query, matches);
+        if (allowTypos && query.length() >= MIN_TYPO_LENGTH && query.length() <= Long.SIZE) {
+            distances = findTypos(query, matches);
+        }
+
+        // sort by match type, typo distance, then usage, packed into one number.
+        int count = 0;
+        for (int match : matches) {
+            if (match != 0) count++;
+        }
+        long[] keys = new long[count];
+        int k = 0;
+        for (int i = 0; i < matches.length; i++) {
+            if (matches[i] == 0) continue;
+            long distance = distances == null ? 0 : distances[i];
+            keys[k++] = ((long) matches[i] << 36) | (distance << 32) | rank[i];
+        }
+        Arrays.sort(keys);
+
+        for (int i = 0; i < keys.length && i < limit; i++) {
+            result.add(ids[byRank[(int) (keys[i] & 0xFFFFFFFFL)]]);
+        }
+        return result;
+    }
+
+    // Private
+
+    private void findPrefixes(String query, int[] matches) {
+        // first suffix >= query.
+        int low = 0;
+        int high = wordSuffixes.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (wordSuffixes[middle].compareTo(query) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+
+        for (int i = low; i < wordSuffixes.length && wordSuffixes[i].startsWith(query); i++) {
+            int entry = suffixEntries[i];
+            int type = suffixOffsets[i] == 0 ? MATCH_NAME_PREFIX : MATCH_WORD_PREFIX;
+            if (matches[entry] == 0 || type < matches[entry]) {
+                matches[entry] = type;
+            }
+        }
+    }
+
+    private void findSubstrings(String query, int[] matches) {
+        if (query.length() < 3) {
+            // too short for the trigrams. Check all the names.
+            for (int i = 0; i < normalized.length; i++) {
+                if (matches[i] == 0 && normalized[i].contains(query)) {
+                    matches[i] = MATCH_SUBSTRING;
+                }
+            }
+            return;
+        }
+
+        // the names that contain the text contain its least common trigram.
+        int[] candidates = null;
+        for (int i = 0; i + 3 <= query.length(); i++) {
+            int[] entries = trigrams.get(trigram(query, i));
+            if (entries == null) return;
+            if (candidates == null || entries.length < candidates.length) {
+                candidates = entries;
+            }
+        }
+
+        for (int entry : candidates) {
+            if (matches[entry] == 0 && normalized[entry].contains(query)) {
+                matches[entry] = MATCH_SUBSTRING;
+            }
+        }
+    }
+
+    /**
+     * @return the edit distance of each name matched with typos.
+     */
+    private int[] findTypos(String query, int[] matches) {
+        int maxEdits = query.length() >= 8 ? 2 : 1;
+        int[] distances = new int[ids.length];
+
+        // Each edit changes at most 3 trigrams, so a match shares at least
+        // (trigrams - 3 * edits) of them with the text.
+        int queryTrigrams = query.length() - 2;
+        int minShared = queryTrigrams - 3 * maxEdits;
+
+        int[] shared = null;
+        if (minShared > 0) {
+            shared = new int[ids.length];
+            List<Long> seen = new ArrayList<>();
+            for (int i = 0; i < queryTrigrams; i++) {
+                Long key = trigram(query, i);
+                if (seen.contains(key)) continue;
+                seen.add(key);
+
+                int[] entries = trigrams.get(key);
+                if (entries == null) continue;
+                for (int entry : entries) shared[entry]++;
+            }
+        }
+
+        long[] ascii = new long[128];
+        for (int i = 0; i < query.length(); i++) {
+            char c = query.charAt(i);
+            if (c < ascii.length) ascii[c] |= 1L << i;
+        }
+
+        // every query character missing from the name needs an edit.
+        long queryCharacters = characterMask(query);
+
+        for (int i = 0; i < ids.length; i++) {
+            if (matches[i] != 0) continue;
+            if (Long.bitCount(queryCharacters & ~characters[i]) > maxEdits) continue;
+            if (shared != null && shared[i] < minShared) continue;
+
+            int distance = substringDistance(query, ascii, normalized[i]);
+            if (distance <= maxEdits) {
+                matches[i] = MATCH_TYPO;
+                distances[i] = distance;
+            }
+        }
+        return distances;
+    }
+
+    /**
+     * @return the smallest edit distance between the text and any part of the name.
+     * Uses the bit-parallel algorithm by Myers, so the text can be at most 64 characters.
+     * @param ascii bit mask of the text positions for each ASCII character.
+     */
+    private static int substringDistance(String query, long[] ascii, String name) {
+        int m = query.length();
+        long high = 1L << (m - 1);
+        long pv = -1L;
+        long mv = 0;
+        int score = m;
+        int best = m;
+
+        for (int j = 0; j < name.length() && best > 0; j++) {
+            char c = name.charAt(j);
+            long eq;
+            if (c < ascii.length) {
+                eq = ascii[c];
+            } else {
+                eq = 0;
+                for (int i = 0; i < m; i++) {
+                    if (query.charAt(i) == c) eq |= 1L << i;
+                }
+            }
+
+            long xv = eq | mv;
+            long xh = (((eq & pv) + pv) ^ pv) | eq;
+            long ph = mv | ~(xh | pv);
+            long mh = pv & xh;
+            if ((ph & high) != 0) {
+                score++;
+            } else if ((mh & high) != 0) {
+                score--;
+            }
+            // the match can start anywhere in the name, so the top row stays at 0.
+            ph <<= 1;
+            mh <<= 1;
+            pv = mh | ~(xv | ph);
+            mv = ph & xv;
+
+            if (score < best) best = score;
+        }
+        return best;
+    }
+
+    private void buildWordStarts() {
+        List<String> suffixes = new ArrayList<>();
+        List<int[]> starts = new ArrayList<>();
+        for (int entry = 0; entry < normalized.length; entry++) {
+            String name = normalized[entry];
+            for (int i = 0; i < name.length(); i++) {
+                boolean wordStart = Character.isLetterOrDigit(name.charAt(i))
+                    && (i == 0 || !Character.isLetterOrDigit(name.charAt(i - 1)));
+                if (!wordStart) continue;
+
+                suffixes.add(name.substring(i));
+                starts.add(new int[] { entry, i });
+            }
+        }
+
+        final String[] unsorted = suffixes.toArray(new String[0]);
+        Integer[] order = new Integer[unsorted.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return unsorted[a].compareTo(unsorted[b]);
+            }
+        });
+
+        wordSuffixes = new String[order.length];
+        suffixEntries = new int[order.length];
+        suffixOffsets = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            wordSuffixes[i] = unsorted[order[i]];
+            suffixEntries[i] = starts.get(order[i])[0];
+            suffixOffsets[i] = starts.get(order[i])[1];
+        }
+    }
+
+    private void buildTrigrams() {
+        Map<Long, List<Integer>> lists = new HashMap<>();
+        for (int entry = 0; entry < normalized.length; entry++) {
+            String name = normalized[entry];
+            for (int i = 0; i + 3 <= name.length(); i++) {
+                Long key = trigram(name, i);
+                List<Integer> entries = lists.get(key);
+                if (entries == null) {
+                    entries = new ArrayList<>();
+                    lists.put(key, entries);
+                }
+                // entries are added in order, so a repeated trigram is the last element.
+                if (entries.isEmpty() || entries.get(entries.size() - 1) != entry) {
+                    entries.add(entry);
+                }
+            }
+        }
+
+        trigrams = new HashMap<>(lists.size() * 2);
+        for (Map.Entry<Long, List<Integer>> item : lists.entrySet()) {
+            List<Integer> entries = item.getValue();
+            int[] array = new int[entries.size()];
+            for (int i = 0; i < array.length; i++) array[i] = entries.get(i);
+            trigrams.put(item.getKey(), array);
+        }
+    }
+
+    private static long trigram(String text, int start) {
+        return ((long) text.charAt(start) << 32)
+            | ((long) text.charAt(start + 1) << 16)
+            | text.charAt(start + 2);
+    }
+
+    private static long characterMask(String text) {
+        long mask = 0;
+        for (int i = 0; i < text.length(); i++) {
+            mask |= 1L << (text.charAt(i) & 63);
+        }
+        return mask;
+    }
+
+    private static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,310 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.money.manager.ex.core;
+
+import android.database.Cursor;
+import android.text.TextUtils;
+
+import com.money.manager.ex.Constants;
+import com.money.manager.ex.MmexApplication;
+import com.money.manager.ex.database.SQLDataSet;
+import com.money.manager.ex.datalayer.AccountTransactionRepository;
+import com.money.manager.ex.datalayer.CategoryRepository;
+import com.money.manager.ex.domainmodel.Category;
+import com.money.manager.ex.domainmodel.Payee;
+import com.money.manager.ex.domainmodel.SplitCategory;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import rx.Single;
+import rx.SingleSubscriber;
+import rx.schedulers.Schedulers;
+import timber.log.Timber;
+
+/**
+ * Application-wide in-memory indexes of the payee names and the category paths, for the
+ * lookups while typing and in the SMS processing.
+ * The indexes are built on a background thread on the first request. Until then the
+ * callers get null and query the database as before.
+ * The content provider drops an index when its names change, and marks it for a refresh
+ * when transactions change the usage counts. A refresh keeps serving the previous index.
+ */
+@Singleton
+public class NameIndexCache {
+
+    /**
+     * Separator between the parent and the subcategory names in a category path.
+     */
+    public static final String CATEGORY_SEPARATOR = " : ";
+    /**
+     * Maximum number of results used in a list filter. When there are more matches, the
+     * list is filtered in the database instead.
+     */
+    public static final int FILTER_LIMIT = 500;
+
+    /**
+     * @return the where clause that selects the given ids.
+     */
+    public static String getIdFilter(String column, List<Integer> ids) {
+        return column + " IN (" + TextUtils.join(", ", ids) + ")";
+    }
+
+    @Inject
+    public NameIndexCache(MmexApplication app) {
+        this.app = app;
+    }
+
+    private final MmexApplication app;
+
+    private final Slot payees = new Slot("payees") {
+        @Override
+        NameIndex load() {
+            return loadPayees();
+        }
+    };
+
+    private final Slot categories = new Slot("categories") {
+        @Override
+        NameIndex load() {
+            return loadCategories();
+        }
+    };
+
+    /**
+     * @return the payee index, or null while it is being built.
+     */
+    public NameIndex getPayees() {
+        return payees.get();
+    }
+
+    /**
+     * Builds the payee index on the calling thread if needed. Not for the main thread.
+     */
+    public NameIndex awaitPayees() {
+        return payees.await();
+    }
+
+    /**
+     * @return the index of the full category paths (Parent : Child), or null while it is being built.
+     */
+    public NameIndex getCategories() {
+        return categories.get();
+    }
+
+    public NameIndex awaitCategories() {
+        return categories.await();
+    }
+
+    /**
+     * Called after any change to the payee table.
+     */
+    public void invalidatePayees() {
+        payees.invalidate();
+    }
+
+    /**
+     * Called after any change to the category table.
+     */
+    public void invalidateCategories() {
+        categories.invalidate();
+    }
+
+    /**
+     * Called after transaction changes. The indexes are rebuilt with the new usage counts
+     * on the next request.
+     */
+    public void refreshUsage() {
+        payees.markStale();
+        categories.markStale();
+    }
+
+    /**
+     * Drops both indexes. Used when the database is switched.
+     */
+    public void reset() {
+        payees.invalidate();
+        categories.invalidate();
+    }
+
+    // Private
+
+    private NameIndex loadPayees() {
+        String sql = "SELECT P." + Payee.PAYEEID + ", P." + Payee.PAYEENAME + ", IFNULL(U.TIMESUSED, 0)" +
+                " FROM PAYEE_V1 P" +
+                " LEFT JOIN (SELECT PAYEEID, COUNT(*) AS TIMESUSED" +
+                " FROM " + AccountTransactionRepository.TABLE_NAME +
+                " WHERE DELETEDTIME IS NULL OR DELETEDTIME = ''" +
+                " GROUP BY PAYEEID) U ON U.PAYEEID = P." + Payee.PAYEEID;
+
+        NameIndex.Builder builder = new NameIndex.Builder();
+        Cursor cursor = query(sql);
+        if (cursor == null) return null;
+
+        while (cursor.moveToNext()) {
+            builder.add(cursor.getInt(0), cursor.getString(1), cursor.getInt(2));
+        }
+        cursor.close();
+
+        return builder.build();
+    }
+
+    private NameIndex loadCategories() {
+        String sql = "SELECT C." + Category.CATEGID + ", C." + Category.CATEGNAME + ", C." + Category.PARENTID +
+                ", IFNULL(U.TIMESUSED, 0)" +
+                " FROM " + CategoryRepository.tableName + " C" +
+                " LEFT JOIN (SELECT CATEGID, COUNT(*) AS TIMESUSED FROM (" +
+                " SELECT CATEGID FROM " + AccountTransactionRepository.TABLE_NAME +
+                " WHERE DELETEDTIME IS NULL OR DELETEDTIME = ''" +
+                " UNION ALL SELECT " + SplitCategory.CATEGID + " FROM " + SplitCategory.TABLE_NAME +
+                ") GROUP BY CATEGID) U ON U.CATEGID = C." + Category.CATEGID;
+
+        Cursor cursor = query(sql);
+        if (cursor == null) return null;
+
+        HashMap<Integer, String> names = new HashMap<>();
+        HashMap<Integer, Integer> parents = new HashMap<>();
+        HashMap<Integer, Integer> usage = new HashMap<>();
+        while (cursor.moveToNext()) {
+            int id = cursor.getInt(0);
+            names.put(id, cursor.getString(1));
+            parents.put(id, cursor.isNull(2) ? Constants.NOT_SET : cursor.getInt(2));
+            usage.put(id, cursor.getInt(3));
+        }
+        cursor.close();
+
+        NameIndex.Builder builder = new NameIndex.Builder();
+        for (Integer id : names.keySet()) {
+            builder.add(id, getPath(id, names, parents), usage.get(id));
+        }
+        return builder.build();
+    }
+
+    private String getPath(int id, HashMap<Integer, String> names, HashMap<Integer, Integer> parents) {
+        StringBuilder path = new StringBuilder(names.get(id) == null ? "" : names.get(id));
+        Integer parentId = parents.get(id);
+        // the depth limit protects against loops in the data.
+        for (int depth = 0; depth < 10 && parentId != null && names.containsKey(parentId); depth++) {
+            path.insert(0, CATEGORY_SEPARATOR).insert(0, names.get(parentId));
+            parentId = parents.get(parentId);
+        }
+        return path.toString();
+    }
+
+    private Cursor query(String sql) {
+        try {
+            return app.getContentResolver().query(new SQLDataSet().getUri(), null, sql, null, null);
+        } catch (Exception e) {
+            Timber.e(e, "loading name index");
+            return null;
+        }
+    }
+
+    /**
+     * Holds one index and rebuilds it when needed.
+     */
+    private abstract static class Slot {
+        Slot(String name) {
+            this.name = name;
+        }
+
+        private final String name;
+        private volatile NameIndex index;
+        private volatile boolean stale;
+        /**
+         * Incremented on every change, so that a build started before the change is not published.
+         */
+        private final AtomicInteger version = new AtomicInteger();
+        private final AtomicBoolean building = new AtomicBoolean();
+
+        abstract NameIndex load();
+
+        NameIndex get() {
+            NameIndex current = index;
+            if (current == null || stale) {
+                scheduleBuild();
+            }
+            return current;
+        }
+
+        NameIndex await() {
+            NameIndex current = index;
+            if (current != null) {
+                if (stale) scheduleBuild();
+                return current;
+            }
+            return build();
+        }
+
+        void invalidate() {
+            version.incrementAndGet();
+            index = null;
+        }
+
+        void markStale() {
+            version.incrementAndGet();
+            stale = true;
+        }
+
+        private NameIndex build() {
+            int startVersion = version.get();
+            long start = System.nanoTime();
+
+            NameIndex built = load();
+            if (built != null && version.get() == startVersion) {
+                index = built;
+                stale = false;
+            }
+
+            Timber.d("%s index: %d names in %d ms", name, built == null ? 0 : built.size(),
+                    (System.nanoTime() - start) / 1000000);
+            return built;
+        }
+
+        private void scheduleBuild() {
+            if (!building.compareAndSet(false, true)) return;
+
+            Single.fromCallable(new Callable<NameIndex>() {
+                @Override
+                public NameIndex call() {
+                    try {
+                        return build();
+                    } finally {
+                        building.set(false);
+                    }
+                }
+            })
+                    .subscribeOn(Schedulers.io())
+                    .subscribe(new SingleSubscriber<NameIndex>() {
+                        @Override
+                        public void onSuccess(NameIndex value) {
+                        }
+
+                        @Override
+                        public void onError(Throwable error) {
+                            Timber.e(error, "building %s index", name);
+                        }
+                    });
+        }
+    }
+}
@@ -44,4 +44,5 @@ public class RequestCodes {
     public static final int SORT_ORDER = 13;
     public static final int SPLIT_TX = 14;
     public static final int REQUEST_PASSWORD = 20;
+    public static final int EXPORT_CSV = 21;
 }
@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.money.manager.ex.core;
+
+import android.os.Process;
+import android.os.SystemClock;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import timber.log.Timber;
+
+/**
+ * Timing markers of the app start, logged as "cold start: first_frame at 420 ms".
+ * The first main activity of the process is a cold start, measured from the process start.
+ * Later ones (i.e. after the activity was closed with the back button) are warm starts,
+ * measured from the creation of the activity. Each marker is recorded once per start.
+ */
+public class StartupTimings {
+
+    public static final String APPLICATION = "application";
+    public static final String FIRST_FRAME = "first_frame";
+    public static final String DATABASE = "database";
+    public static final String RECURRING = "recurring";
+    public static final String SYNC = "sync";
+    public static final String INTEGRITY = "integrity";
+    public static final String BALANCES = "balances";
+
+    private static long origin = Process.getStartElapsedRealtime();
+    private static boolean cold = true;
+    private static boolean activityStarted = false;
+    private static final Map<String, Long> marks = new LinkedHashMap<>();
+
+    /**
+     * Called when the main activity is created.
+     */
+    public static synchronized void begin() {
+        if (!activityStarted) {
+            // the application markers belong to this start.
+            activityStarted = true;
+            return;
+        }
+
+        cold = false;
+        origin = SystemClock.elapsedRealtime();
+        marks.clear();
+    }
+
+    /**
+     * @return true if the marker was recorded, false if it was already reached in this start.
+     */
+    public static synchronized boolean mark(String name) {
+        if (marks.containsKey(name)) return false;
+
+        long elapsed = SystemClock.elapsedRealtime() - origin;
+        marks.put(name, elapsed);
+        Timber.i("%s start: %s at %d ms", cold ? "cold" : "warm", name, elapsed);
+        return true;
+    }
+
+    /**
+     * @return the time of the marker since the start, or -1 if it was not reached.
+     */
+    public static synchronized long get(String name) {
+        Long elapsed = marks.get(name);
+        return elapsed == null ? -1 : elapsed;
+    }
+
+    public static synchronized boolean isCold() {
+        return cold;
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.money.manager.ex.core.docstorage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hashes of the fixed-size blocks of a database file. The block size is the SQLite page
+ * size, so a change to a record only changes the hashes of the pages that contain it.
+ */
+public class BlockManifest {
+
+    public static final int DEFAULT_BLOCK_SIZE = 4096;
+
+    private static final int MAGIC = 0x4d4d5842; // MMXB
+    private static final int VERSION = 1;
+    private static final String HASH_ALGORITHM = "SHA-1";
+    private static final byte[] SQLITE_HEADER = "SQLite format 3\0".getBytes(StandardCharsets.US_ASCII);
+
+    public BlockManifest(int blockSize, long length, List<byte[]> hashes) {
+        this.blockSize = blockSize;
+        this.length = length;
+        this.hashes = hashes;
+    }
+
+    private final int blockSize;
+    private final long length;
+    private final List<byte[]> hashes;
+
+    /**
+     * Calculates the manifest of a file.
+     */
+    public static BlockManifest compute(File file) throws IOException {
+        int blockSize = readPageSize(file);
+        MessageDigest digest = getDigest();
+        List<byte[]> hashes = new ArrayList<>();
+        byte[] block = new byte[blockSize];
+
+        try (InputStream stream = new FileInputStream(file)) {
+            int read;
+            while ((read = readBlock(stream, block)) > 0) {
+                digest.update(block, 0, read);
+                hashes.add(digest.digest());
+            }
+        }
+
+        return new BlockManifest(blockSize, file.length(), hashes);
+    }
+
+    /**
+     * @return the stored manifest, or null if there is none or it can not be read.
+     */
+    public static BlockManifest load(File file) {
+        if (!file.exists()) return null;
+
+        try (DataInputStream stream = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (stream.readInt() != MAGIC || stream.readInt() != VERSION) return null;
+
+            int blockSize = stream.readInt();
+            long length = stream.readLong();
+            int count = stream.readInt();
+            int hashLength = stream.readInt();
+
+            List<byte[]> hashes = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                byte[] hash = new byte[hashLength];
+                stream.readFully(hash);
+                hashes.add(hash);
+            }
+            return new BlockManifest(blockSize, length, hashes);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public void save(File file) throws IOException {
+        File directory = file.getParentFile();
+        if (directory != null && !directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+
+        try (DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            stream.writeInt(MAGIC);
+            stream.writeInt(VERSION);
+            stream.writeInt(blockSize);
+            stream.writeLong(length);
+            stream.writeInt(hashes.size());
+            stream.writeInt(hashes.isEmpty() ? 0 : hashes.get(0).length);
+            for (byte[] hash : hashes) {
+                stream.write(hash);
+            }
+        }
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    public int getBlockCount() {
+        return hashes.size();
+    }
+
+    /**
+     * @param previous Manifest of the earlier version of the file, with the same block size.
+     * @return the indexes of the blocks that are new or differ from the previous version.
+     */
+    public List<Integer> getChangedBlocks(BlockManifest previous) {
+        List<Integer> changed = new ArrayList<>();
+        for (int i = 0; i < hashes.size(); i++) {
+            if (i >= previous.hashes.size() || !Arrays.equals(hashes.get(i), previous.hashes.get(i))) {
+                changed.add(i);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Checks that a file starts with the first block of this version. For a database, the
+     * first page holds the header with the change counter, which differs in any other version.
+     * @param stream Contents of the file to check. Not closed.
+     */
+    public boolean matchesFirstBlock(InputStream stream) throws IOException {
+        if (hashes.isEmpty()) return false;
+
+        byte[] block = new byte[(int) Math.min(blockSize, length)];
+        if (readBlock(stream, block) < block.length) return false;
+
+        MessageDigest digest = getDigest();
+        digest.update(block);
+        return Arrays.equals(digest.digest(), hashes.get(0));
+    }
+
+    /**
+     * Reads the page size from the database header. Encrypted databases do not expose it,
+     * in which case the default is used.
+     */
+    static int readPageSize(File file) throws IOException {
+        byte[] header = new byte[18];
+        try (InputStream stream = new FileInputStream(file)) {
+            if (readBlock(stream, header) < header.length) return DEFAULT_BLOCK_SIZE;
+        }
+
+        if (!Arrays.equals(Arrays.copyOf(header, SQLITE_HEADER.length), SQLITE_HEADER)) {
+            return DEFAULT_BLOCK_SIZE;
+        }
+
+        int pageSize = ((header[16] & 0xff) << 8) | (header[17] & 0xff);
+        if (pageSize == 1) return 65536;
+        // must be a power of two between 512 and 32768.
+        if (pageSize < 512 || (pageSize & (pageSize - 1)) != 0) return DEFAULT_BLOCK_SIZE;
+        return pageSize;
+    }
+
+    private static int readBlock(InputStream stream, byte[] block) throws IOException {
+        int total = 0;
+        while (total < block.length) {
+            int read = stream.read(block, total, block.length - total);
+            if (read < 0) break;
+            total += read;
+        }
+        return total;
+    }
+
+    private static MessageDigest getDigest() {
+        try {
+            return MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
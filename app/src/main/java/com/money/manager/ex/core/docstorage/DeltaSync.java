@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.money.manager.ex.core.docstorage;
+
+import com.google.common.io.ByteStreams;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+import timber.log.Timber;
+
+/**
+ * Uploads a database file by writing only the blocks that changed since the last
+ * synchronization. The state of the remote file after the last synchronization is kept
+ * in a local block manifest. When there is no usable manifest, the remote file does not
+ * match it, or the storage does not allow random access, the whole file is copied.
+ */
+public class DeltaSync {
+
+    /**
+     * @param manifestFile Where to keep the manifest of the last synchronized version.
+     */
+    public DeltaSync(File manifestFile) {
+        mManifestFile = manifestFile;
+    }
+
+    private final File mManifestFile;
+
+    /**
+     * Brings the remote file up to date with the local one.
+     * @return the number of bytes written to the remote file.
+     */
+    public long upload(File localFile, IRemoteFile remote) throws IOException {
+        BlockManifest current = BlockManifest.compute(localFile);
+        BlockManifest previous = BlockManifest.load(mManifestFile);
+
+        long written = -1;
+        if (canUseDelta(previous, current, remote)) {
+            try {
+                written = writeChangedBlocks(localFile, remote, current, previous);
+            } catch (IOException e) {
+                Timber.w(e, "delta upload failed, copying the whole file");
+            }
+        }
+        if (written < 0) {
+            written = copyFile(localFile, remote);
+        }
+
+        current.save(mManifestFile);
+        return written;
+    }
+
+    /**
+     * Records the file as the current remote version. Called after the file is downloaded.
+     * Plain document providers can not tell which blocks changed remotely, so downloads
+     * always read the whole file.
+     */
+    public void recordSynced(File localFile) throws IOException {
+        BlockManifest.compute(localFile).save(mManifestFile);
+    }
+
+    /**
+     * Forgets the synchronized state. The next upload copies the whole file.
+     */
+    public void reset() {
+        if (mManifestFile.exists() && !mManifestFile.delete()) {
+            Timber.w("could not delete %s", mManifestFile);
+        }
+    }
+
+    // Private
+
+    private boolean canUseDelta(BlockManifest previous, BlockManifest current, IRemoteFile remote) {
+        if (previous == null) return false;
+        if (previous.getBlockSize() != current.getBlockSize()) return false;
+        // the remote file was replaced since the last synchronization.
+        if (remote.length() != previous.getLength()) return false;
+
+        // another version of the same size. Only the header is read.
+        try (InputStream stream = remote.openInputStream()) {
+            return previous.matchesFirstBlock(stream);
+        } catch (IOException e) {
+            Timber.w(e, "could not read the remote header");
+            return false;
+        }
+    }
+
+    private long writeChangedBlocks(File localFile, IRemoteFile remote, BlockManifest current,
+                                    BlockManifest previous) throws IOException {
+        List<Integer> changed = current.getChangedBlocks(previous);
+        int blockSize = current.getBlockSize();
+        ByteBuffer buffer = ByteBuffer.allocate(blockSize);
+        long written = 0;
+
+        try (RandomAccessFile local = new RandomAccessFile(localFile, "r");
+             FileChannel source = local.getChannel();
+             FileChannel target = remote.openChannel()) {
+            for (int index : changed) {
+                long position = (long) index * blockSize;
+
+                buffer.clear();
+                while (buffer.hasRemaining() && source.read(buffer, position + buffer.position()) > 0) {
+                    // read the whole block
+                }
+                buffer.flip();
+
+                while (buffer.hasRemaining()) {
+                    written += target.write(buffer, position + buffer.position());
+                }
+            }
+            if (target.size() > current.getLength()) {
+                target.truncate(current.getLength());
+            }
+            target.force(true);
+        }
+
+        Timber.d("delta upload: %d of %d blocks, %d bytes", changed.size(), current.getBlockCount(), written);
+        return written;
+    }
+
+    private long copyFile(File localFile, IRemoteFile remote) throws IOException {
+        try (InputStream input = new FileInputStream(localFile);
+             OutputStream output = remote.openOutputStream()) {
+            long copied = ByteStreams.copy(input, output);
+            Timber.d("full upload: %d bytes", copied);
+            return copied;
+        }
+    }
+}
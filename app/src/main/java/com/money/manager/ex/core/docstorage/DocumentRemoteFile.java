@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.money.manager.ex.core.docstorage;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.ParcelFileDescriptor;
+import android.provider.OpenableColumns;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+
+import timber.log.Timber;
+
+/**
+ * A database file in any document provider, accessed through the Storage Access Framework.
+ * Random access works when the provider returns a seekable file descriptor, which is the
+ * case for local and most synced providers. Streaming-only providers fail in openChannel.
+ */
+public class DocumentRemoteFile
+    implements IRemoteFile {
+
+    public DocumentRemoteFile(Context context, Uri uri) {
+        mResolver = context.getContentResolver();
+        mUri = uri;
+    }
+
+    private final ContentResolver mResolver;
+    private final Uri mUri;
+
+    @Override
+    public long length() {
+        try (Cursor cursor = mResolver.query(mUri, new String[] { OpenableColumns.SIZE }, null, null, null)) {
+            if (cursor == null || !cursor.moveToFirst() || cursor.isNull(0)) return -1;
+
+            return cursor.getLong(0);
+        } catch (Exception e) {
+            Timber.w(e, "reading the remote file size");
+            return -1;
+        }
+    }
+
+    @Override
+    public InputStream openInputStream() throws IOException {
+        InputStream stream = mResolver.openInputStream(mUri);
+        if (stream == null) throw new FileNotFoundException(mUri.toString());
+        return stream;
+    }
+
+    @Override
+    public OutputStream openOutputStream() throws IOException {
+        ParcelFileDescriptor pfd = openFileDescriptor("w");
+        return new ParcelFileDescriptor.AutoCloseOutputStream(pfd);
+    }
+
+    @Override
+    public FileChannel openChannel() throws IOException {
+        ParcelFileDescriptor pfd = openFileDescriptor("rw");
+        // closing the channel closes the stream, which closes the descriptor.
+        FileChannel channel = new ParcelFileDescriptor.AutoCloseOutputStream(pfd).getChannel();
+        try {
+            // fails on pipes.
+            channel.position(0);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return channel;
+    }
+
+    private ParcelFileDescriptor openFileDescriptor(String mode) throws IOException {
+        ParcelFileDescriptor pfd = mResolver.openFileDescriptor(mUri, mode);
+        if (pfd == null) throw new FileNotFoundException(mUri.toString());
+        return pfd;
+    }
+}
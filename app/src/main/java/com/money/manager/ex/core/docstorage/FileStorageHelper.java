@@ -11,6 +11,7 @@ import android.os.Looper;
 import android.os.ParcelFileDescriptor;
 import android.provider.DocumentsContract;
 import android.provider.OpenableColumns;
+import android.text.TextUtils;
 import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
@@ -20,11 +21,14 @@ import com.google.common.io.Files;
 import com.money.manager.ex.MmexApplication;
 import com.money.manager.ex.core.RequestCodes;
 import com.money.manager.ex.core.database.DatabaseManager;
+import com.money.manager.ex.database.MmxOpenHelper;
 import com.money.manager.ex.home.DatabaseMetadata;
+import com.money.manager.ex.settings.SyncPreferences;
 import com.money.manager.ex.utils.MmxDatabaseUtils;
 import com.money.manager.ex.utils.MmxDate;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
@@ -116,6 +120,24 @@ public class FileStorageHelper {
      */
 
     public boolean isLocalFileChanged(DatabaseMetadata metadata) {
+        // the recent changes can be in the write-ahead log.
+        if (!MmexApplication.getApp().checkpointDb(metadata.localPath)) {
+            // the file does not have them yet. Assume they are changes, so that it is not replaced.
+            Timber.w("Local file could not be checkpointed, considered changed");
+            return true;
+        }
+
+        if (!TextUtils.isEmpty(metadata.syncedDigest)) {
+            // the contents decide. Timestamps also change on writes that leave them the same.
+            try {
+                boolean changed = !metadata.syncedDigest.equals(FileDigest.of(new File(metadata.localPath)));
+                Timber.d("Local file contents changed: %b", changed);
+                return changed;
+            } catch (IOException e) {
+                Timber.e(e, "calculating the local file digest");
+            }
+        }
+
         Date localModified = getLocalFileModifiedDate(metadata).toDate();
         // The timestamp when the local file was downloaded.
         Date localSnapshot = MmxDate.fromIso8601(metadata.localSnapshotTimestamp).toDate();
@@ -133,7 +155,37 @@ public class FileStorageHelper {
 
         Timber.d("Remote file mtime: %s, snapshot time: %s", remoteModified.toString(), remoteSnapshot.toString());
 
-        return remoteModified.after(remoteSnapshot);
+        // any difference counts, as the remote clock can be behind the local one.
+        return !remoteModified.equals(remoteSnapshot);
+    }
+
+    /**
+     * Confirms a remote change by reading the remote file and comparing its digest with the
+     * one recorded at the last synchronization. This transfers the whole file, so it is used
+     * only to resolve conflicts. If the contents are the same, the new remote timestamp
+     * is stored.
+     * @return true if the contents differ, or can not be compared.
+     */
+    public boolean isRemoteContentChanged(DatabaseMetadata metadata) {
+        if (TextUtils.isEmpty(metadata.syncedDigest)) return true;
+
+        Uri uri = Uri.parse(metadata.remotePath);
+        String remoteDigest;
+        try (InputStream stream = getContext().getContentResolver().openInputStream(uri)) {
+            if (stream == null) return true;
+            remoteDigest = FileDigest.of(stream);
+        } catch (Exception e) {
+            Timber.e(e, "calculating the remote file digest");
+            return true;
+        }
+
+        boolean changed = !metadata.syncedDigest.equals(remoteDigest);
+        Timber.d("Remote file contents changed: %b", changed);
+        if (!changed) {
+            metadata.remoteLastChangedDate = getRemoteFileModifiedDate(metadata).toIsoString();
+            saveMetadata(metadata);
+        }
+        return changed;
     }
 
     /**
@@ -153,10 +205,6 @@ public class FileStorageHelper {
         DocFileMetadata remote = getRemoteMetadata(uri);
         metadata.remoteLastChangedDate = remote.lastModified.toIsoString();
 
-        // Store the local snapshot timestamp, the time when the file was downloaded.
-        MmxDate localSnapshot = getLocalFileModifiedDate(metadata);
-        metadata.localSnapshotTimestamp = localSnapshot.toIsoString();
-
         // store the metadata.
         MmxDatabaseUtils dbUtils = new MmxDatabaseUtils(getContext());
 
@@ -168,6 +216,11 @@ public class FileStorageHelper {
             Toast.makeText(getContext(),"Unable to open DB. Not a .mmb file.", Toast.LENGTH_SHORT).show();
             return;
         }
+
+        // opening changes the file, i.e. creates the app's indexes. The synchronized state is
+        // recorded after that, so that it does not count as a local change.
+        recordSyncedState(metadata);
+        saveMetadata(metadata);
         MmexApplication.getAmplitude().track("synchronize", new HashMap() {{
                        put("authority", uri.getAuthority());
                         put("result", "pullDatabase");
@@ -177,8 +230,16 @@ public class FileStorageHelper {
     /**
      * Pushes the local file to the document provider and updates the metadata.
      * @param metadata Database file metadata.
+     * @return false if the upload was postponed, as the write-ahead log could not be moved
+     * into the file.
      */
-    public void pushDatabase(DatabaseMetadata metadata) {
+    public boolean pushDatabase(DatabaseMetadata metadata) {
+        // the file is uploaded without the write-ahead log.
+        if (!MmexApplication.getApp().checkpointDb(metadata.localPath)) {
+            Timber.w("Local file could not be checkpointed, upload postponed");
+            return false;
+        }
+
         // upload local file
         uploadDatabase(metadata);
 
@@ -197,6 +258,7 @@ public class FileStorageHelper {
             metadata.remoteLastChangedDate = remote.lastModified.toIsoString();
         }
         metadata.localSnapshotTimestamp = localLastModifiedMmxDate.toIsoString();
+        metadata.syncedDigest = getLocalDigest(metadata);
 
         saveMetadata(metadata);
 
@@ -204,6 +266,41 @@ public class FileStorageHelper {
             put("authority", remoteUri.getAuthority());
             put("result", "pushDatabase");
         }});
+        return true;
+    }
+
+    /**
+     * Opens the downloaded file and stores its timestamp and digest as the synchronized state.
+     */
+    private void recordSyncedState(DatabaseMetadata metadata) {
+        try {
+            MmxOpenHelper helper = MmexApplication.getApp().openHelperAtomicReference.get();
+            // the same file kept open from before it was synchronized, in write-ahead log mode.
+            if (helper.isWriteAheadLog()) {
+                MmexApplication.getApp().closeDb();
+            }
+            helper.getWritableDatabase();
+        } catch (Exception e) {
+            Timber.e(e, "opening the downloaded database");
+        }
+
+        // Store the local snapshot timestamp, the time when the file was downloaded.
+        metadata.localSnapshotTimestamp = getLocalFileModifiedDate(metadata).toIsoString();
+        metadata.syncedDigest = MmexApplication.getApp().checkpointDb(metadata.localPath)
+                ? getLocalDigest(metadata)
+                : null;
+    }
+
+    /**
+     * @return the digest of the local file, or null if it can not be read.
+     */
+    private String getLocalDigest(DatabaseMetadata metadata) {
+        try {
+            return FileDigest.of(new File(metadata.localPath));
+        } catch (IOException e) {
+            Timber.e(e, "calculating the local file digest");
+            return null;
+        }
     }
 
     /**
@@ -295,6 +392,17 @@ public class FileStorageHelper {
         ContentResolver resolver = getContext().getContentResolver();
         Uri remote = Uri.parse(metadata.remotePath);
 
+        if (new SyncPreferences(getContext()).getDeltaSync()) {
+            try {
+                long bytes = getDeltaSync(metadata).upload(new File(metadata.localPath),
+                        new DocumentRemoteFile(getContext(), remote));
+                Timber.d("Database stored successfully, %d bytes written.", bytes);
+            } catch (IOException e) {
+                Timber.e(e, "IO error during upload");
+            }
+            return;
+        }
+
         try (ParcelFileDescriptor pfd = resolver.openFileDescriptor(remote, "w");
              FileOutputStream fileOutputStream = new FileOutputStream(pfd.getFileDescriptor())) {
 
@@ -347,9 +455,64 @@ public class FileStorageHelper {
 
         // Replace local database with downloaded version
         File localDatabaseFile = new File(localPath);
+        if (isSameContents(tempDatabaseFile, localDatabaseFile)) {
+            // nothing to replace. Keeps the open connection.
+            Timber.d("downloaded file is the same as the local one");
+            tempDatabaseFile.delete();
+            recordSyncedBlocks(localDatabaseFile);
+            return;
+        }
+        // the open connection would keep pointing to the replaced file.
+        MmexApplication.getApp().closeDb();
+        // closing moves the write-ahead log into the old file. What is left must not be
+        // applied to the new one.
+        new File(localPath + "-wal").delete();
+        new File(localPath + "-shm").delete();
         Timber.d("%s %s %s", tempDatabaseFile.toPath(), localDatabaseFile.toPath(), localPath);
         // StandardCopyOption.REPLACE_EXISTING ensures that the destination file is replaced if it exists
         Files.move(tempDatabaseFile, localDatabaseFile);
+
+        recordSyncedBlocks(localDatabaseFile);
+    }
+
+    /**
+     * Remembers the downloaded version for the next delta upload.
+     */
+    private void recordSyncedBlocks(File localDatabaseFile) {
+        DeltaSync deltaSync = getDeltaSync(localDatabaseFile.getPath());
+        deltaSync.reset();
+        if (new SyncPreferences(getContext()).getDeltaSync()) {
+            try {
+                deltaSync.recordSynced(localDatabaseFile);
+            } catch (IOException e) {
+                // the next upload copies the whole file.
+                Timber.w(e, "recording the synchronized blocks");
+            }
+        }
+    }
+
+    private boolean isSameContents(File downloaded, File local) {
+        if (!local.exists() || downloaded.length() != local.length()) return false;
+
+        try (InputStream stream = new FileInputStream(downloaded)) {
+            return FileDigest.of(stream).equals(FileDigest.of(local));
+        } catch (IOException e) {
+            Timber.w(e, "comparing the downloaded file");
+            return false;
+        }
+    }
+
+    private DeltaSync getDeltaSync(DatabaseMetadata metadata) {
+        return getDeltaSync(metadata.localPath);
+    }
+
+    /**
+     * The block manifest of each database is kept in the private files, by local path.
+     */
+    private DeltaSync getDeltaSync(String localPath) {
+        File directory = new File(getContext().getFilesDir(), "sync");
+        String name = new File(localPath).getName() + "_" + Integer.toHexString(localPath.hashCode());
+        return new DeltaSync(new File(directory, name + ".blocks"));
     }
 
     /**
@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.money.manager.ex.core.docstorage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+
+/**
+ * The remote copy of a database file, as seen by the synchronization.
+ */
+public interface IRemoteFile {
+    /**
+     * @return the size of the file in bytes, or -1 if it is not known.
+     */
+    long length();
+
+    InputStream openInputStream() throws IOException;
+
+    /**
+     * Opens the file to replace all its contents.
+     */
+    OutputStream openOutputStream() throws IOException;
+
+    /**
+     * Opens the file for writing at arbitrary positions, without truncating it.
+     * Closing the channel releases the file.
+     * @throws IOException if the storage does not support random access.
+     */
+    FileChannel openChannel() throws IOException;
+}
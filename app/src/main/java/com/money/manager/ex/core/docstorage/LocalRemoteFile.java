@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.money.manager.ex.core.docstorage;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+
+/**
+ * Stand-in for the remote storage that keeps the file in a local directory.
+ * Used for testing the synchronization without a document provider.
+ */
+public class LocalRemoteFile
+    implements IRemoteFile {
+
+    public LocalRemoteFile(File directory, String fileName) {
+        mFile = new File(directory, fileName);
+    }
+
+    private final File mFile;
+
+    public File getFile() {
+        return mFile;
+    }
+
+    @Override
+    public long length() {
+        return mFile.exists() ? mFile.length() : -1;
+    }
+
+    @Override
+    public InputStream openInputStream() throws IOException {
+        return new FileInputStream(mFile);
+    }
+
+    @Override
+    public OutputStream openOutputStream() throws IOException {
+        return new FileOutputStream(mFile);
+    }
+
+    @Override
+    public FileChannel openChannel() throws IOException {
+        // the channel closes the file.
+        return new RandomAccessFile(mFile, "rw").getChannel();
+    }
+}
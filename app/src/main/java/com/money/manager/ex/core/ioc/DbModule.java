@@ -17,18 +17,15 @@
 
 package com.money.manager.ex.core.ioc;
 
-import androidx.sqlite.db.SupportSQLiteOpenHelper;
-
 import com.money.manager.ex.MmexApplication;
 import com.money.manager.ex.database.MmxOpenHelper;
 import com.squareup.sqlbrite3.BriteDatabase;
 import com.squareup.sqlbrite3.SqlBrite;
 
-import net.sqlcipher.database.SupportFactory;
+import javax.inject.Singleton;
 
 import dagger.Module;
 import dagger.Provides;
-import io.reactivex.schedulers.Schedulers;
 import timber.log.Timber;
 
 /**
@@ -50,7 +47,7 @@ public final class DbModule {
         return app.openHelperAtomicReference.get();
     }
 
-    @Provides SqlBrite provideSqlBrite() {
+    @Provides @Singleton SqlBrite provideSqlBrite() {
         return new SqlBrite.Builder().logger(new SqlBrite.Logger() {
             @Override public void log(String message) {
                 Timber.tag("Database").v(message);
@@ -58,15 +55,11 @@ public final class DbModule {
         }).build();
     }
 
+    /**
+     * Not scoped, as the database can be switched at runtime. The open helper keeps one
+     * BriteDatabase per database file, sharing the connection with the content provider.
+     */
     @Provides BriteDatabase provideDatabase(SqlBrite sqlBrite, MmxOpenHelper helper) {
-        SupportSQLiteOpenHelper.Factory factory = new SupportFactory(helper.getPassword().getBytes());
-        SupportSQLiteOpenHelper.Configuration configuration =
-                SupportSQLiteOpenHelper.Configuration.builder(helper.getContext())
-                        .name(helper.getDbPath())
-                        .callback(helper)
-                        .build();
-        BriteDatabase db = sqlBrite.wrapDatabaseHelper(factory.create(configuration), Schedulers.io());
-        db.setLoggingEnabled(true);
-        return db;
+        return helper.getBriteDatabase(sqlBrite);
     }
 }
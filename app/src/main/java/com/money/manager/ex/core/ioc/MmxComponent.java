@@ -18,18 +18,26 @@
 package com.money.manager.ex.core.ioc;
 
 import com.money.manager.ex.MmxContentProvider;
+import com.money.manager.ex.account.CalculateRunningBalanceTask2;
+import com.money.manager.ex.account.RunningBalanceEngine;
+import com.money.manager.ex.currency.CurrencyCache;
+import com.money.manager.ex.budget.BudgetActualsEngine;
 import com.money.manager.ex.budget.BudgetAdapter;
 import com.money.manager.ex.common.CalculatorActivity;
 import com.money.manager.ex.core.Core;
 import com.money.manager.ex.core.FormatUtilities;
+import com.money.manager.ex.core.NameIndexCache;
 import com.money.manager.ex.core.Passcode;
 import com.money.manager.ex.core.UIHelper;
 import com.money.manager.ex.currency.CurrencyService;
 import com.money.manager.ex.currency.list.CurrencyListFragment;
+import com.money.manager.ex.database.ReportFactTable;
+import com.money.manager.ex.database.TransactionSearchIndex;
 import com.money.manager.ex.datalayer.StockHistoryRepositorySql;
 import com.money.manager.ex.datalayer.StockRepositorySql;
 import com.money.manager.ex.home.HomeFragment;
 import com.money.manager.ex.home.MainActivity;
+import com.money.manager.ex.home.RecentDatabasesProvider;
 import com.money.manager.ex.home.SelectDatabaseActivity;
 import com.money.manager.ex.investment.EditPriceDialog;
 import com.money.manager.ex.investment.prices.ISecurityPriceUpdater;
@@ -37,6 +45,7 @@ import com.money.manager.ex.investment.InvestmentTransactionEditActivity;
 import com.money.manager.ex.investment.PriceEditActivity;
 import com.money.manager.ex.investment.PriceEditModel;
 import com.money.manager.ex.investment.morningstar.MorningstarPriceUpdater;
+import com.money.manager.ex.notifications.SmsReceiverTransactions;
 import com.money.manager.ex.recurring.transactions.RecurringTransactionEditActivity;
 import com.money.manager.ex.recurring.transactions.RecurringTransactionListFragment;
 import com.money.manager.ex.reports.BaseReportFragment;
@@ -66,6 +75,13 @@ import dagger.Component;
 public interface MmxComponent {
     // Example on how to expose a provision method.
 //    MmxOpenHelper getHelper();
+    RunningBalanceEngine runningBalanceEngine();
+    CurrencyCache currencyCache();
+    BudgetActualsEngine budgetActualsEngine();
+    ReportFactTable reportFactTable();
+    NameIndexCache nameIndexCache();
+    TransactionSearchIndex transactionSearchIndex();
+    RecentDatabasesProvider recentDatabasesProvider();
 
     // Activities
     void inject(CalculatorActivity activity);
@@ -93,6 +109,7 @@ public interface MmxComponent {
     void inject(PriceEditModel model);
 
     // Custom objects
+    void inject(CalculateRunningBalanceTask2 task);
     void inject(ISecurityPriceUpdater updater);
     void inject(MorningstarPriceUpdater updater);
     void inject(AppSettings settings);
@@ -115,6 +132,9 @@ public interface MmxComponent {
     // Intent Services
     void inject(SyncService service);
 
+    // Receivers
+    void inject(SmsReceiverTransactions receiver);
+
     // Repositories
     void inject(StockRepositorySql repository);
     void inject(StockHistoryRepositorySql repository);
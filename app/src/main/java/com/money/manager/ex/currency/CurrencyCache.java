@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.money.manager.ex.currency;
+
+import android.text.TextUtils;
+
+import com.money.manager.ex.MmexApplication;
+import com.money.manager.ex.core.NumericHelper;
+import com.money.manager.ex.core.NumericPatternGenerator;
+import com.money.manager.ex.domainmodel.Currency;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import info.javaperformance.money.Money;
+import timber.log.Timber;
+
+/**
+ * Application-wide cache of the currencies of the current database, shared by all the
+ * CurrencyService instances. Each entry keeps the formatter built from the currency settings.
+ * The cache is invalidated by the content provider on every write to the currency table
+ * (which includes the exchange rate updates) and when the database is switched.
+ */
+@Singleton
+public class CurrencyCache {
+
+    @Inject
+    public CurrencyCache(MmexApplication app) {
+        this.app = app;
+    }
+
+    private final MmexApplication app;
+    private final ConcurrentHashMap<Integer, Entry> currencies = new ConcurrentHashMap<>();
+    /**
+     * Currency code -> id. i.e. EUR->2.
+     */
+    private final ConcurrentHashMap<String, Integer> currencyCodes = new ConcurrentHashMap<>();
+    private volatile Integer baseCurrencyId;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @return the currency with the given id, loading it on the first request. Null if not found.
+     */
+    public Currency getCurrency(int currencyId) {
+        Entry entry = getEntry(currencyId);
+        return entry == null ? null : entry.currency;
+    }
+
+    /**
+     * @return the id of the currency with the given code, or null if there is no such currency.
+     */
+    public Integer getIdForCode(String code) {
+        if (code == null) return null;
+
+        Integer id = currencyCodes.get(code);
+        if (id != null) {
+            hits.incrementAndGet();
+            return id;
+        }
+
+        misses.incrementAndGet();
+        Currency currency = new CurrencyRepository(app).loadCurrency(code);
+        if (currency == null) return null;
+
+        id = currency.getCurrencyId();
+        currencyCodes.put(code, id);
+        currencies.putIfAbsent(id, new Entry(currency));
+
+        return id;
+    }
+
+    /**
+     * Formats the value with the scale, separators and symbols of the currency.
+     * @return the formatted value, or null if the currency does not exist.
+     */
+    public String format(int currencyId, Money value) {
+        Entry entry = getEntry(currencyId);
+        if (entry == null) return null;
+
+        return entry.format(value);
+    }
+
+    public Integer getBaseCurrencyId() {
+        return baseCurrencyId;
+    }
+
+    public void setBaseCurrencyId(Integer baseCurrencyId) {
+        this.baseCurrencyId = baseCurrencyId;
+    }
+
+    /**
+     * Drops all the cached currencies. Called after any change to the currency table.
+     */
+    public void invalidate() {
+        currencies.clear();
+        currencyCodes.clear();
+        Timber.d("currency cache invalidated, hits: %d, misses: %d", getHitCount(), getMissCount());
+    }
+
+    /**
+     * Drops everything, including the base currency. Used when the database is switched.
+     */
+    public void reset() {
+        baseCurrencyId = null;
+        invalidate();
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    // Private
+
+    private Entry getEntry(int currencyId) {
+        Entry entry = currencies.get(currencyId);
+        if (entry != null) {
+            hits.incrementAndGet();
+            return entry;
+        }
+
+        misses.incrementAndGet();
+        Currency currency = new CurrencyRepository(app).loadCurrency(currencyId);
+        if (currency == null) return null;
+
+        Entry existing = currencies.putIfAbsent(currencyId, new Entry(currency));
+        return existing == null ? currencies.get(currencyId) : existing;
+    }
+
+    /**
+     * A cached currency with its precomputed formatter.
+     */
+    private class Entry {
+        Entry(Currency currency) {
+            this.currency = currency;
+
+            decimals = new NumericHelper(app).getNumberOfDecimals(currency.getScale());
+
+            DecimalFormatSymbols formatSymbols = new DecimalFormatSymbols();
+            if (!TextUtils.isEmpty(currency.getDecimalSeparator())) {
+                formatSymbols.setDecimalSeparator(currency.getDecimalSeparator().charAt(0));
+            }
+            if (!TextUtils.isEmpty(currency.getGroupSeparator())) {
+                formatSymbols.setGroupingSeparator(currency.getGroupSeparator().charAt(0));
+            }
+
+            formatter = new DecimalFormat(NumericPatternGenerator.getPattern(decimals));
+            formatter.setMaximumFractionDigits(decimals);
+            formatter.setMinimumFractionDigits(decimals);
+            formatter.setGroupingSize(3);
+            formatter.setDecimalFormatSymbols(formatSymbols);
+
+            prefix = TextUtils.isEmpty(currency.getPfxSymbol()) ? "" : currency.getPfxSymbol() + " ";
+            suffix = TextUtils.isEmpty(currency.getSfxSymbol()) ? "" : " " + currency.getSfxSymbol();
+        }
+
+        final Currency currency;
+        private final int decimals;
+        // DecimalFormat is not thread-safe.
+        private final DecimalFormat formatter;
+        private final String prefix;
+        private final String suffix;
+
+        String format(Money value) {
+            double amount = value.truncate(decimals).toDouble();
+            String result;
+            synchronized (formatter) {
+                result = formatter.format(amount);
+            }
+            return prefix + result + suffix;
+        }
+    }
+}
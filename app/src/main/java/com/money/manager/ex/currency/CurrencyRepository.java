@@ -23,7 +23,7 @@ import android.database.Cursor;
 
 import com.money.manager.ex.database.DatasetType;
 import com.money.manager.ex.datalayer.RepositoryBase;
-import com.money.manager.ex.database.WhereStatementGenerator;
+import com.money.manager.ex.database.ParameterizedWhere;
 import com.money.manager.ex.domainmodel.Currency;
 
 import info.javaperformance.money.Money;
@@ -53,10 +53,10 @@ public class CurrencyRepository
     }
 
     public Currency load(int id) {
-        WhereStatementGenerator where = new WhereStatementGenerator();
+        ParameterizedWhere where = new ParameterizedWhere();
         where.addStatement(Currency.CURRENCYID, "=", id);
 
-        return first(where.getWhere());
+        return query(null, where.getWhere(), where.getArgs());
     }
 
     public boolean insert(Currency value) {
@@ -66,10 +66,10 @@ public class CurrencyRepository
     public boolean update(Currency value) {
         int id = value.getCurrencyId();
 
-        WhereStatementGenerator generator = new WhereStatementGenerator();
-        String where = generator.getStatement(Currency.CURRENCYID, "=", id);
+        ParameterizedWhere where = new ParameterizedWhere();
+        where.addStatement(Currency.CURRENCYID, "=", id);
 
-        return update(value, where);
+        return update(value, where.getWhere(), where.getArgs());
     }
 
     public boolean delete(int id) {
@@ -20,7 +20,6 @@ import android.content.Context;
 import android.database.Cursor;
 import android.text.TextUtils;
 import android.util.Log;
-import android.util.SparseArray;
 
 import androidx.sqlite.db.SupportSQLiteDatabase;
 import androidx.sqlite.db.SupportSQLiteQuery;
@@ -29,7 +28,6 @@ import androidx.sqlite.db.SupportSQLiteQueryBuilder;
 import com.money.manager.ex.Constants;
 import com.money.manager.ex.MmexApplication;
 import com.money.manager.ex.R;
-import com.money.manager.ex.core.FormatUtilities;
 import com.money.manager.ex.core.InfoKeys;
 import com.money.manager.ex.core.UIHelper;
 import com.money.manager.ex.datalayer.AccountRepository;
@@ -64,21 +62,14 @@ public class CurrencyService
     public CurrencyService(Context context) {
         super(context);
 
-        mCurrencyCodes = new HashMap<>();
-        mCurrencies = new SparseArray<>();
-
         MmexApplication.getApp().iocComponent.inject(this);
     }
 
     @Inject CurrencyRepositorySql mRepository;
-
-    private Integer mBaseCurrencyId = null;
-    // hash map of all currencies
-    private final SparseArray<Currency> mCurrencies;
     /**
-     * a fast lookup for symbol -> id. i.e. EUR->2.
+     * The currencies are shared by all the service instances.
      */
-    private final HashMap<String, Integer> mCurrencyCodes;
+    @Inject CurrencyCache mCache;
 
     /**
      * @param currencyId of the currency to be get
@@ -87,16 +78,7 @@ public class CurrencyService
     public Currency getCurrency(Integer currencyId) {
         if (currencyId == null || currencyId == Constants.NOT_SET) return null;
 
-        if (mCurrencies.indexOfKey(currencyId) >= 0) {
-            return mCurrencies.get(currencyId);
-        }
-
-        CurrencyRepository repository = getRepository();
-        Currency currency = repository.loadCurrency(currencyId);
-
-        mCurrencies.put(currencyId, currency);
-
-        return currency;
+        return mCache.getCurrency(currencyId);
     }
 
     public Currency getCurrency(String currencyCode) {
@@ -123,16 +105,8 @@ public class CurrencyService
     }
 
     public Integer getIdForCode(String code) {
-        if (mCurrencyCodes.containsKey(code)) {
-            return mCurrencyCodes.get(code);
-        }
-
-        CurrencyRepository repo = getRepository();
-        Currency currency = repo.loadCurrency(code);
-
-        mCurrencyCodes.put(code, currency.getCurrencyId());
-
-        Integer result = currency.getCurrencyId();
+        Integer result = mCache.getIdForCode(code);
+        if (result == null) return Constants.NOT_SET;
 
         return result;
     }
@@ -211,7 +185,8 @@ public class CurrencyService
      * @return Id of base currency
      */
     public int getBaseCurrencyId() {
-        if (mBaseCurrencyId != null) return mBaseCurrencyId;
+        Integer cachedId = mCache.getBaseCurrencyId();
+        if (cachedId != null) return cachedId;
 
         int result;
 
@@ -242,13 +217,13 @@ public class CurrencyService
                 }
             }
         }
-        mBaseCurrencyId = result;
+        mCache.setBaseCurrencyId(result);
 
         return result;
     }
 
     public void setBaseCurrencyId(int baseCurrencyId) {
-        mBaseCurrencyId = baseCurrencyId;
+        mCache.setBaseCurrencyId(baseCurrencyId);
 
         InfoService service = new InfoService(getContext());
         boolean saved = service.setInfoValue(InfoKeys.BASECURRENCYID, Integer.toString(baseCurrencyId));
@@ -287,18 +262,14 @@ public class CurrencyService
 
         // find currency id
         if (currencyId != null) {
-            Currency currency = getCurrency(currencyId);
-//            NumericHelper helper = new NumericHelper(mContext);
+            // formatted value, with the formatter cached for the currency.
+            result = currencyId == Constants.NOT_SET ? null : mCache.format(currencyId, value);
 
-            if (currency == null) {
+            if (result == null) {
                 // no currency
                 return value.toString();
                 // we can not simply cut off the decimals!
 //                result = String.format("%.2f", value);
-            } else {
-                // formatted value
-                FormatUtilities formats = new FormatUtilities(getContext());
-                result = formats.format(value, currency);
             }
         } else {
             result = String.valueOf(value);
@@ -38,7 +38,7 @@ import com.mikepenz.mmex_icon_font_typeface_library.MMXIconFont;
 import com.money.manager.ex.Constants;
 import com.money.manager.ex.MmexApplication;
 import com.money.manager.ex.R;
-import com.money.manager.ex.common.MmxCursorLoader;
+import com.money.manager.ex.common.SearchCursorLoader;
 import com.money.manager.ex.common.BaseListFragment;
 import com.money.manager.ex.core.UIHelper;
 import com.money.manager.ex.currency.CurrencyRepository;
@@ -78,6 +78,7 @@ public class CurrencyListFragment
 
     private String mAction = Intent.ACTION_EDIT;
     private String mCurFilter;
+    private final SearchCursorLoader.Results mSearchResults = new SearchCursorLoader.Results();
     private boolean mShowOnlyUsedCurrencies;
     private LoaderManager.LoaderCallbacks<Cursor> loaderCallbacks;
 
@@ -419,16 +420,6 @@ public class CurrencyListFragment
                         }
                     }
 
-                    if (!TextUtils.isEmpty(mCurFilter)) {
-                        if (!TextUtils.isEmpty(whereClause)) {
-                            whereClause += " AND ";
-                        }
-
-                        whereClause += Currency.CURRENCYNAME + " LIKE ?";
-                        arguments.add(mCurFilter + "%");
-//                    selectionArgs = new String[]{ mCurFilter + "%"};
-                    }
-
                     String[] selectionArgs = new String[arguments.size()];
                     selectionArgs = arguments.toArray(selectionArgs);
 
@@ -437,7 +428,8 @@ public class CurrencyListFragment
                             .where(whereClause, selectionArgs)
                             .orderBy("upper(" + Currency.CURRENCYNAME + ")");
 
-                    return new MmxCursorLoader(getActivity(), repo.getUri(), query);
+                    return new SearchCursorLoader(getActivity(), repo.getUri(), query, mCurFilter,
+                            mSearchResults, Currency.CURRENCYNAME);
                 }
 
                 return null;
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.money.manager.ex.database;
+
+import android.database.Cursor;
+import android.os.SystemClock;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import timber.log.Timber;
+
+/**
+ * Indexes that the app adds for its own queries, on top of the desktop schema.
+ * They are not part of the schema versions: on every open the missing ones are created and
+ * the ones no longer listed here are dropped, recognized by the name prefix. To change an
+ * index, give it a new name. The desktop application ignores them.
+ */
+public class AppIndexes {
+
+    public static final String PREFIX = "IDX_ANDROID_";
+
+    /**
+     * Sample size for ANALYZE, so that it stays fast on large files.
+     */
+    private static final int ANALYSIS_LIMIT = 1000;
+
+    private static final Map<String, String> INDEXES = new LinkedHashMap<>();
+
+    static {
+        // account balances (AccountService.calculateBalanceOn, RunningBalanceEngine) filter
+        // on either side of the transaction and on the date.
+        INDEXES.put(PREFIX + "CHECKINGACCOUNT_ACCOUNT_DATE",
+                "CHECKINGACCOUNT_V1 (ACCOUNTID, TRANSDATE)");
+        INDEXES.put(PREFIX + "CHECKINGACCOUNT_TOACCOUNT_DATE",
+                "CHECKINGACCOUNT_V1 (TOACCOUNTID, TRANSDATE)");
+        // totals per account and type in query_account_bills.sql, without reading the rows.
+        INDEXES.put(PREFIX + "CHECKINGACCOUNT_TOTALS",
+                "CHECKINGACCOUNT_V1 (TRANSCODE, ACCOUNTID, TOACCOUNTID, STATUS, TRANSAMOUNT, TOTRANSAMOUNT, DELETEDTIME)");
+        // usage counts of the payees and categories.
+        INDEXES.put(PREFIX + "CHECKINGACCOUNT_PAYEE",
+                "CHECKINGACCOUNT_V1 (PAYEEID, DELETEDTIME)");
+        INDEXES.put(PREFIX + "CHECKINGACCOUNT_CATEGORY",
+                "CHECKINGACCOUNT_V1 (CATEGID, DELETEDTIME)");
+        INDEXES.put(PREFIX + "SPLITTRANSACTIONS_CATEGORY",
+                "SPLITTRANSACTIONS_V1 (CATEGID)");
+    }
+
+    /**
+     * Creates the missing indexes and drops the obsolete ones. Cheap when there is nothing to do.
+     * @return the number of indexes created.
+     */
+    public static int ensure(SupportSQLiteDatabase db) {
+        if (db.isReadOnly()) return 0;
+
+        long start = SystemClock.elapsedRealtime();
+
+        HashSet<String> existing = new HashSet<>();
+        Cursor cursor = db.query("SELECT name FROM sqlite_master WHERE type = 'index' AND name LIKE ?",
+                new String[] { PREFIX + "%" });
+        while (cursor.moveToNext()) {
+            existing.add(cursor.getString(0));
+        }
+        cursor.close();
+
+        int created = 0;
+        for (String name : existing) {
+            // LIKE also matches other characters in place of the underscores.
+            if (!name.startsWith(PREFIX) || INDEXES.containsKey(name)) continue;
+
+            execute(db, "DROP INDEX IF EXISTS " + name);
+        }
+        for (Map.Entry<String, String> index : INDEXES.entrySet()) {
+            if (existing.contains(index.getKey())) continue;
+
+            // i.e. a column is missing in a file of an older schema version.
+            if (execute(db, "CREATE INDEX IF NOT EXISTS " + index.getKey() + " ON " + index.getValue())) {
+                created++;
+            }
+        }
+
+        if (created > 0) {
+            Timber.i("%d indexes created in %d ms", created, SystemClock.elapsedRealtime() - start);
+        }
+        return created;
+    }
+
+    /**
+     * Gathers the statistics for the query planner. Used after schema upgrades and new indexes.
+     */
+    public static void analyze(SupportSQLiteDatabase db) {
+        if (db.isReadOnly()) return;
+
+        long start = SystemClock.elapsedRealtime();
+        pragma(db, "PRAGMA analysis_limit = " + ANALYSIS_LIMIT);
+        execute(db, "ANALYZE");
+        Timber.i("database analyzed in %d ms", SystemClock.elapsedRealtime() - start);
+    }
+
+    /**
+     * Refreshes the statistics of the tables that changed enough since they were analyzed.
+     * Used after large imports.
+     */
+    public static void optimize(SupportSQLiteDatabase db) {
+        if (db.isReadOnly()) return;
+
+        long start = SystemClock.elapsedRealtime();
+        pragma(db, "PRAGMA analysis_limit = " + ANALYSIS_LIMIT);
+        pragma(db, "PRAGMA optimize");
+        Timber.d("database optimized in %d ms", SystemClock.elapsedRealtime() - start);
+    }
+
+    private static boolean execute(SupportSQLiteDatabase db, String sql) {
+        try {
+            db.execSQL(sql);
+            return true;
+        } catch (Exception e) {
+            Timber.w(e, "executing %s", sql);
+            return false;
+        }
+    }
+
+    private static void pragma(SupportSQLiteDatabase db, String sql) {
+        // some pragmas return a row, which execSQL does not accept. The cursor runs the
+        // statement when it is first moved.
+        try {
+            Cursor cursor = db.query(sql);
+            cursor.moveToFirst();
+            cursor.close();
+        } catch (Exception e) {
+            Timber.w(e, "executing %s", sql);
+        }
+    }
+}
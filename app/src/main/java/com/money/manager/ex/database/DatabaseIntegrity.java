@@ -0,0 +1,269 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.money.manager.ex.database;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import com.money.manager.ex.settings.PreferenceConstants;
+import com.money.manager.ex.utils.MmxDatabaseUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import timber.log.Timber;
+
+/**
+ * Integrity checks of the database file, without blocking the opening of the database.
+ * A quick check runs when the database is opened, the full integrity check, the foreign keys
+ * and the app-level checks run later in {@link IntegrityCheckWorker}.
+ * The last verified state is remembered per file, with a fingerprint of the file, so an
+ * unchanged file is not checked again.
+ */
+public class DatabaseIntegrity {
+
+    /**
+     * The structure of the file passed the quick check, the full check is pending.
+     */
+    public static final String QUICK = "quick";
+    public static final String FULL = "full";
+    public static final String FAILED = "failed";
+
+    /**
+     * Bytes read from the start and the end of the file for the fingerprint. The first page
+     * holds the file change counter, which SQLite increments on every commit.
+     */
+    private static final int FINGERPRINT_BLOCK = 4096;
+    /**
+     * Errors listed by a check before it stops.
+     */
+    private static final int MAX_ERRORS = 20;
+
+    public static class Report {
+        /**
+         * Damage in the database file.
+         */
+        public final List<String> errors = new ArrayList<>();
+        /**
+         * Problems in the app data, fixed from the database settings.
+         */
+        public final List<String> warnings = new ArrayList<>();
+
+        public boolean isOk() {
+            return errors.isEmpty();
+        }
+    }
+
+    /**
+     * @return A digest of the size, the modification time and the first and last block of
+     * the file, or null if the file can't be read.
+     */
+    public static String fingerprint(@NonNull File file) {
+        if (!file.isFile()) return null;
+
+        try (RandomAccessFile input = new RandomAccessFile(file, "r")) {
+            long length = input.length();
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(ByteBuffer.allocate(16).putLong(length).putLong(file.lastModified()).array());
+
+            byte[] block = new byte[(int) Math.min(FINGERPRINT_BLOCK, length)];
+            input.readFully(block);
+            digest.update(block);
+
+            if (length > FINGERPRINT_BLOCK) {
+                input.seek(length - block.length);
+                input.readFully(block);
+                digest.update(block);
+            }
+
+            StringBuilder result = new StringBuilder();
+            for (byte b : digest.digest()) {
+                result.append(String.format("%02x", b));
+            }
+            return result.toString();
+        } catch (IOException | NoSuchAlgorithmException e) {
+            Timber.w(e, "fingerprinting %s", file);
+            return null;
+        }
+    }
+
+    public DatabaseIntegrity(Context context, MmxOpenHelper openHelper) {
+        mContext = context.getApplicationContext();
+        mOpenHelper = openHelper;
+    }
+
+    private final Context mContext;
+    private final MmxOpenHelper mOpenHelper;
+
+    /**
+     * Runs the quick check on the open database, unless the file did not change since it was
+     * last verified, and schedules the full check. Call off the main thread.
+     * @return false if the file is damaged.
+     */
+    public boolean checkOnOpen() {
+        // opening may update the indexes.
+        SupportSQLiteDatabase db = mOpenHelper.getReadableDatabase();
+        String path = mOpenHelper.getDbPath();
+        String fingerprint = fingerprint(new File(path));
+        String state = getState(path, fingerprint);
+
+        if (FAILED.equals(state)) return false;
+        if (FULL.equals(state)) {
+            Timber.d("%s is unchanged since the last integrity check", path);
+            return true;
+        }
+
+        if (state == null) {
+            List<String> errors = new ArrayList<>();
+            check(db, "PRAGMA quick_check", errors);
+            if (!errors.isEmpty()) {
+                Timber.e("quick check of %s failed: %s", path, errors);
+                saveState(path, fingerprint, FAILED);
+                return false;
+            }
+            saveState(path, fingerprint, QUICK);
+        }
+
+        IntegrityCheckWorker.enqueueWork(mContext, path);
+        return true;
+    }
+
+    /**
+     * Checks the tables one at a time, so that the other queries get the connection in between,
+     * and then the foreign keys and the app data.
+     * @param stopped Checked between the tables.
+     * @return null if the check was stopped.
+     */
+    public Report checkAll(BooleanSupplier stopped) {
+        SupportSQLiteDatabase db = mOpenHelper.getReadableDatabase();
+        String path = mOpenHelper.getDbPath();
+        // before the check, so that a change made while checking is checked next time.
+        String fingerprint = fingerprint(new File(path));
+        Report report = new Report();
+
+        try {
+            for (String table : getTables(db)) {
+                if (stopped.getAsBoolean()) return null;
+
+                check(db, "PRAGMA integrity_check('" + table.replace("'", "''") + "')", report.errors);
+            }
+        } catch (Exception e) {
+            // the check of a single table needs SQLite 3.33.
+            Timber.w(e, "checking the tables, checking the whole file instead");
+            report.errors.clear();
+            check(db, "PRAGMA integrity_check", report.errors);
+        }
+        if (stopped.getAsBoolean()) return null;
+
+        checkForeignKeys(db, report.errors);
+        checkAppData(report.warnings);
+
+        if (report.isOk()) {
+            Timber.i("integrity check of %s passed, warnings: %s", path, report.warnings);
+        } else {
+            Timber.e("integrity check of %s failed: %s", path, report.errors);
+        }
+        saveState(path, fingerprint, report.isOk() ? FULL : FAILED);
+
+        return report;
+    }
+
+    // Private
+
+    private void check(SupportSQLiteDatabase db, String pragma, List<String> errors) {
+        try (Cursor cursor = db.query(pragma)) {
+            while (cursor.moveToNext() && errors.size() < MAX_ERRORS) {
+                String message = cursor.getString(0);
+                if (!"ok".equalsIgnoreCase(message)) {
+                    errors.add(message);
+                }
+            }
+        }
+    }
+
+    private void checkForeignKeys(SupportSQLiteDatabase db, List<String> errors) {
+        try (Cursor cursor = db.query("PRAGMA foreign_key_check")) {
+            while (cursor.moveToNext() && errors.size() < MAX_ERRORS) {
+                errors.add("foreign key violation: " + cursor.getString(0) + " row " + cursor.getLong(1)
+                        + " refers to a missing " + cursor.getString(2));
+            }
+        }
+    }
+
+    private void checkAppData(List<String> warnings) {
+        MmxDatabaseUtils utils = new MmxDatabaseUtils(mContext);
+
+        try {
+            for (String table : utils.getMissingTables()) {
+                warnings.add("missing table " + table);
+            }
+        } catch (IOException e) {
+            Timber.e(e, "reading table names from generation script");
+        }
+        if (utils.hasDuplicates()) {
+            warnings.add("duplicate settings");
+        }
+    }
+
+    private List<String> getTables(SupportSQLiteDatabase db) {
+        List<String> tables = new ArrayList<>();
+        try (Cursor cursor = db.query("SELECT name FROM sqlite_master WHERE type = 'table'"
+                + " AND sql NOT LIKE 'CREATE VIRTUAL TABLE%'")) {
+            while (cursor.moveToNext()) {
+                tables.add(cursor.getString(0));
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * @return The verified state of the file, or null if it changed since it was verified.
+     */
+    private String getState(String path, String fingerprint) {
+        if (fingerprint == null) return null;
+
+        String value = getPreferences().getString(path, null);
+        if (value == null) return null;
+
+        String[] parts = value.split(":");
+        if (parts.length != 2 || !parts[1].equals(fingerprint)) return null;
+        return parts[0];
+    }
+
+    private void saveState(String path, String fingerprint, String state) {
+        if (fingerprint == null) return;
+
+        getPreferences().edit()
+                .putString(path, state + ":" + fingerprint)
+                .apply();
+    }
+
+    private SharedPreferences getPreferences() {
+        return mContext.getSharedPreferences(PreferenceConstants.INTEGRITY_PREFERENCES, Context.MODE_PRIVATE);
+    }
+}
@@ -51,6 +51,13 @@ public abstract class Dataset
 	 */
 	public abstract String[] getAllColumns();
 
+	/**
+	 * @return the filterable columns of a query, to push the filters into it, or null.
+	 */
+	public PredicatePushdown getPushdown() {
+		return null;
+	}
+
 	/**
 	 * @return the basepath
 	 */
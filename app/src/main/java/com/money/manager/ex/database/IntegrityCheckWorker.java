@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.money.manager.ex.database;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.money.manager.ex.MmexApplication;
+import com.money.manager.ex.utils.MmxDatabaseUtils;
+
+import java.util.concurrent.TimeUnit;
+
+import timber.log.Timber;
+
+/**
+ * Runs the full integrity check of the current database in the background, after the app
+ * has settled and when the battery is not low.
+ */
+public class IntegrityCheckWorker
+        extends Worker {
+
+    private static final String WORK_NAME = "IntegrityCheck";
+    private static final String KEY_PATH = "path";
+    private static final long DELAY_MINUTES = 2;
+
+    public IntegrityCheckWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        String path = getInputData().getString(KEY_PATH);
+        MmexApplication app = MmexApplication.getApp();
+        MmxOpenHelper openHelper = app.openHelperAtomicReference == null
+                ? null
+                : app.openHelperAtomicReference.get();
+
+        // another database is in use now, this one is checked when it is opened again.
+        if (path == null || openHelper == null || !path.equals(openHelper.getDbPath())) {
+            return Result.success();
+        }
+        // the password is not available when the app was started for the work only.
+        if (MmxDatabaseUtils.isEncryptedDatabase(path) && !openHelper.hasPassword()) {
+            return Result.success();
+        }
+
+        try {
+            DatabaseIntegrity.Report report = new DatabaseIntegrity(getApplicationContext(), openHelper)
+                    .checkAll(this::isStopped);
+            return report == null ? Result.retry() : Result.success();
+        } catch (Exception e) {
+            Timber.e(e, "checking the integrity of %s", path);
+            return Result.failure();
+        }
+    }
+
+    public static void enqueueWork(Context context, String path) {
+        Data input = new Data.Builder()
+                .putString(KEY_PATH, path)
+                .build();
+        Constraints constraints = new Constraints.Builder()
+                .setRequiresBatteryNotLow(true)
+                .build();
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(IntegrityCheckWorker.class)
+                .setInputData(input)
+                .setConstraints(constraints)
+                .setInitialDelay(DELAY_MINUTES, TimeUnit.MINUTES)
+                .build();
+
+        // only the current database is checked.
+        WorkManager.getInstance(context)
+                .enqueueUniqueWork(WORK_NAME, ExistingWorkPolicy.REPLACE, request);
+    }
+}
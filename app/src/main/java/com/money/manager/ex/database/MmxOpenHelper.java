@@ -19,6 +19,7 @@ package com.money.manager.ex.database;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteException;
+import android.os.SystemClock;
 import android.text.TextUtils;
 
 import androidx.sqlite.db.SupportSQLiteDatabase;
@@ -33,16 +34,22 @@ import com.money.manager.ex.core.InfoKeys;
 import com.money.manager.ex.core.UIHelper;
 import com.money.manager.ex.currency.CurrencyService;
 import com.money.manager.ex.datalayer.InfoRepositorySql;
+import com.money.manager.ex.home.DatabaseMetadata;
 import com.money.manager.ex.domainmodel.Info;
 import com.money.manager.ex.servicelayer.InfoService;
+import com.money.manager.ex.settings.AppSettings;
 import com.money.manager.ex.utils.MmxFileUtils;
+import com.squareup.sqlbrite3.BriteDatabase;
+import com.squareup.sqlbrite3.SqlBrite;
 
 import net.sqlcipher.database.SupportFactory;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.Currency;
+import java.util.Locale;
 
+import io.reactivex.schedulers.Schedulers;
 import timber.log.Timber;
 
 /**
@@ -54,6 +61,12 @@ public class MmxOpenHelper extends SupportSQLiteOpenHelper.Callback {
      * Database schema version.
      */
     private static final int DATABASE_VERSION = 19;
+    /**
+     * Attempts of a blocked checkpoint, with the read connections closed, and the pause
+     * between them for the running statements to finish.
+     */
+    private static final int CHECKPOINT_RETRIES = 5;
+    private static final long CHECKPOINT_RETRY_DELAY_MILLIS = 100;
     private String dbPath;
 
     // Dynamic
@@ -71,6 +84,25 @@ public class MmxOpenHelper extends SupportSQLiteOpenHelper.Callback {
 
     private final Context mContext;
     private String mPassword = "";
+    private SupportSQLiteOpenHelper mSupportHelper;
+    private SupportSQLiteDatabase mDatabase;
+    private BriteDatabase mBriteDatabase;
+    private ReadConnectionPool mReadPool;
+    private StatementCache mStatementCache;
+    /**
+     * Whether the file is in write-ahead log mode, set when the main connection is opened.
+     */
+    private volatile boolean mWriteAheadLog = false;
+    /**
+     * Set while a checkpoint waits for the readers, so that the read connections are not reopened.
+     */
+    private volatile boolean mReadersPaused = false;
+    private int mOpenCount = 0;
+    private long mOpenDurationMillis = 0;
+    /**
+     * Set by an upgrade, so that the statistics are refreshed once the database is open.
+     */
+    private boolean mAnalyzePending = false;
 
     public Context getContext() {
         return this.mContext;
@@ -102,7 +134,15 @@ public class MmxOpenHelper extends SupportSQLiteOpenHelper.Callback {
     }
 
     public void onOpen(SupportSQLiteDatabase db) {
-        db.disableWriteAheadLogging();
+        if (new AppSettings(mContext).getDatabaseSettings().getUseWriteAheadLog() && !isSynchronised()) {
+            mWriteAheadLog = db.enableWriteAheadLogging();
+        } else {
+            db.disableWriteAheadLogging();
+            mWriteAheadLog = false;
+            useRollbackJournal(db);
+        }
+
+        updateIndexes(db);
    //     super.onOpen(db);
 
 //        int version = db.getVersion();
@@ -123,19 +163,130 @@ public class MmxOpenHelper extends SupportSQLiteOpenHelper.Callback {
 
         // update databases
         updateDatabase(db, oldVersion, newVersion);
+        mAnalyzePending = true;
     }
 
-    private SupportSQLiteDatabase getDatabase(boolean writable) {
+    /**
+     * The main connection is opened only once per database file and shared by the content provider
+     * and the BriteDatabase used by the *RepositorySql classes. It does all the writes. With
+     * SQLCipher, opening is where the key derivation (PBKDF2) happens, which is expensive.
+     * @return The open helper for the selected database file.
+     */
+    public synchronized SupportSQLiteOpenHelper getSupportHelper() {
+        if (mSupportHelper != null) return mSupportHelper;
+
         SupportSQLiteOpenHelper.Factory factory = new SupportFactory(this.mPassword.getBytes());
         SupportSQLiteOpenHelper.Configuration configuration =
                 SupportSQLiteOpenHelper.Configuration.builder(mContext)
                         .name(this.dbPath)
                         .callback(this)
                         .build();
-        SupportSQLiteDatabase sqLiteDatabase = writable
-                ? factory.create(configuration).getWritableDatabase()
-                : factory.create(configuration).getReadableDatabase();
-        return sqLiteDatabase;
+        mSupportHelper = factory.create(configuration);
+        return mSupportHelper;
+    }
+
+    /**
+     * @param sqlBrite SqlBrite instance
+     * @return The BriteDatabase wrapping the shared connection. Created once per database file.
+     */
+    public synchronized BriteDatabase getBriteDatabase(SqlBrite sqlBrite) {
+        if (mBriteDatabase == null) {
+            mBriteDatabase = sqlBrite.wrapDatabaseHelper(getSupportHelper(), Schedulers.io());
+            mBriteDatabase.setLoggingEnabled(true);
+        }
+        return mBriteDatabase;
+    }
+
+    private synchronized SupportSQLiteDatabase getDatabase(boolean writable) {
+        if (mDatabase != null && mDatabase.isOpen()) return mDatabase;
+
+        long start = SystemClock.elapsedRealtime();
+
+        SupportSQLiteOpenHelper helper = getSupportHelper();
+        mDatabase = writable
+                ? helper.getWritableDatabase()
+                : helper.getReadableDatabase();
+
+        mOpenCount++;
+        mOpenDurationMillis = SystemClock.elapsedRealtime() - start;
+        Timber.i("database %s opened in %d ms (open #%d, encrypted: %b)",
+                this.dbPath, mOpenDurationMillis, mOpenCount, hasPassword());
+
+        return mDatabase;
+    }
+
+    /**
+     * In write-ahead log mode, the queries run on the read connections, concurrently with
+     * each other and with the writes. They stay on the main connection when they use the temp
+     * tables, which exist on the main connection only, when the current thread is in a
+     * transaction, to see its own changes, and until the read connections are open.
+     * Encrypted files have no read connections: each one would derive the key from the
+     * passphrase again, on every open of the database, which costs more than it saves.
+     * @param sql The query, to find out whether it uses the temp tables.
+     * @return The connection on which to run the query.
+     */
+    public SupportSQLiteDatabase getReadConnection(String sql) {
+        SupportSQLiteDatabase database = getReadableDatabase();
+        if (!mWriteAheadLog || mReadersPaused || hasPassword() || database.inTransaction()) return database;
+        if (sql != null && sql.toLowerCase(Locale.ROOT).contains("temp.")) return database;
+
+        SupportSQLiteDatabase connection = getReadPool().getConnection();
+        return connection != null ? connection : database;
+    }
+
+    /**
+     * @return The compiled write statements of the main connection.
+     */
+    public synchronized StatementCache getStatementCache() {
+        SupportSQLiteDatabase database = getWritableDatabase();
+        // the statements belong to the connection they were compiled on.
+        if (mStatementCache == null || !mStatementCache.isFor(database)) {
+            if (mStatementCache != null) mStatementCache.close();
+            mStatementCache = new StatementCache(database, StatementCache.DEFAULT_CAPACITY);
+        }
+        return mStatementCache;
+    }
+
+    /**
+     * Moves the write-ahead log into the database file, so that the file can be read on its own,
+     * i.e. before it is uploaded or copied. When a reader blocks it, the read connections are
+     * closed and the checkpoint is retried, with the queries on the main connection meanwhile.
+     * @return false if the log could not be moved completely. The file then lacks the latest
+     * commits and must not be read outside of SQLite.
+     */
+    public boolean checkpoint() {
+        SupportSQLiteDatabase database = getOpenDatabase();
+        if (database == null || !mWriteAheadLog) return true;
+
+        if (runCheckpoint(database)) return true;
+
+        mReadersPaused = true;
+        try {
+            closeReadPool();
+            for (int attempt = 0; attempt < CHECKPOINT_RETRIES; attempt++) {
+                SystemClock.sleep(CHECKPOINT_RETRY_DELAY_MILLIS);
+                if (runCheckpoint(database)) return true;
+            }
+        } finally {
+            mReadersPaused = false;
+        }
+
+        Timber.w("checkpoint of %s blocked by a reader", this.dbPath);
+        return false;
+    }
+
+    /**
+     * @return true if the open file is in write-ahead log mode.
+     */
+    public boolean isWriteAheadLog() {
+        return mWriteAheadLog;
+    }
+
+    /**
+     * @return The connection if it is already open, without opening it.
+     */
+    public synchronized SupportSQLiteDatabase getOpenDatabase() {
+        return mDatabase != null && mDatabase.isOpen() ? mDatabase : null;
     }
 
     public SupportSQLiteDatabase getReadableDatabase() {
@@ -146,7 +297,64 @@ public class MmxOpenHelper extends SupportSQLiteOpenHelper.Callback {
         return getDatabase(true);
     }
 
-    public void setPassword(String password) {
+    /**
+     * Closes the connection. Used when the app switches to another database file, or before
+     * the file gets replaced.
+     * The support helper and the BriteDatabase are kept: the BriteDatabase instances already
+     * injected wrap this helper, so the connection they reopen on the next access is the same
+     * one this helper uses, not a second one.
+     */
+    public synchronized void close() {
+        closeReadPool();
+        if (mStatementCache != null) {
+            mStatementCache.close();
+            mStatementCache = null;
+        }
+
+        try {
+            if (mSupportHelper != null) {
+                mSupportHelper.close();
+            }
+        } catch (Exception e) {
+            Timber.e(e, "closing database");
+        }
+
+        mDatabase = null;
+    }
+
+    /**
+     * @return Number of times the database was (re)opened through this helper.
+     */
+    public int getOpenCount() {
+        return mOpenCount;
+    }
+
+    /**
+     * @return Duration of the last open, including the key derivation for encrypted files.
+     */
+    public long getOpenDurationMillis() {
+        return mOpenDurationMillis;
+    }
+
+    /**
+     * Checks whether this helper can be reused for the given file, instead of opening it again.
+     */
+    public boolean isFor(String path, String password) {
+        return TextUtils.equals(this.dbPath, path) && TextUtils.equals(this.mPassword, password);
+    }
+
+    /**
+     * Sets the key before the database is opened. To open the file with another key later,
+     * MmexApplication.initDb() creates a new helper, as the BriteDatabase instances of this one
+     * keep the helper of the previous key.
+     */
+    public synchronized void setPassword(String password) {
+        if (!TextUtils.equals(this.mPassword, password) && mSupportHelper != null) {
+            // the helper was created with the previous key.
+            close();
+            mSupportHelper = null;
+            mBriteDatabase = null;
+        }
         this.mPassword = password;
     }
     public String getPassword() { return this.mPassword;}
@@ -155,6 +363,94 @@ public class MmxOpenHelper extends SupportSQLiteOpenHelper.Callback {
         return !TextUtils.isEmpty(this.mPassword);
     }
 
+    /**
+     * Refreshes the query planner statistics of the tables that changed a lot.
+     * Called after large imports.
+     */
+    public void optimize() {
+        SupportSQLiteDatabase database = getOpenDatabase();
+        if (database == null) return;
+
+        try {
+            AppIndexes.optimize(database);
+        } catch (Exception e) {
+            Timber.e(e, "optimizing database");
+        }
+    }
+
+    /**
+     * The journal mode is stored in the file. A synchronised file is shared with the desktop
+     * clients, which expect a rollback journal, and is compared by its contents, so it is not
+     * switched to the write-ahead log when opened.
+     */
+    private boolean isSynchronised() {
+        MmexApplication app = MmexApplication.getApp();
+        if (app == null || app.iocComponent == null) return false;
+
+        DatabaseMetadata metadata = app.iocComponent.recentDatabasesProvider().get(this.dbPath);
+        return metadata != null && metadata.isSynchronised();
+    }
+
+    /**
+     * Switches back a file left in write-ahead log mode, i.e. before it was synchronised.
+     * Only the main connection is open at this point.
+     */
+    private void useRollbackJournal(SupportSQLiteDatabase db) {
+        try {
+            try (Cursor cursor = db.query("PRAGMA journal_mode")) {
+                if (!cursor.moveToFirst() || !"wal".equalsIgnoreCase(cursor.getString(0))) return;
+            }
+            try (Cursor cursor = db.query("PRAGMA journal_mode = DELETE")) {
+                cursor.moveToFirst();
+            }
+        } catch (Exception e) {
+            Timber.e(e, "leaving write-ahead log mode");
+        }
+    }
+
+    private boolean runCheckpoint(SupportSQLiteDatabase database) {
+        try (Cursor cursor = database.query("PRAGMA wal_checkpoint(TRUNCATE)")) {
+            // busy, log frames, checkpointed frames.
+            return !cursor.moveToFirst() || cursor.getInt(0) == 0;
+        } catch (Exception e) {
+            Timber.e(e, "checkpoint");
+            return false;
+        }
+    }
+
+    private synchronized void closeReadPool() {
+        if (mReadPool == null) return;
+
+        mReadPool.close();
+        mReadPool = null;
+    }
+
+    private synchronized ReadConnectionPool getReadPool() {
+        if (mReadPool == null) {
+            // only used for plain files, so no key is derived.
+            SupportSQLiteOpenHelper.Factory factory = new SupportFactory(this.mPassword.getBytes(), null, false);
+            mReadPool = new ReadConnectionPool(mContext, this.dbPath, factory, DATABASE_VERSION,
+                    ReadConnectionPool.DEFAULT_SIZE);
+        }
+        return mReadPool;
+    }
+
+    /**
+     * Creates the app's own indexes, which are managed apart from the desktop schema versions,
+     * and analyzes the database after an upgrade or when new indexes were created.
+     */
+    private void updateIndexes(SupportSQLiteDatabase db) {
+        try {
+            int created = AppIndexes.ensure(db);
+            if (created > 0 || mAnalyzePending) {
+                AppIndexes.analyze(db);
+            }
+            mAnalyzePending = false;
+        } catch (Exception e) {
+            Timber.e(e, "updating indexes");
+        }
+    }
+
     /**
      * @param db    SQLite database to execute raw SQL
      * @param rawId id raw resource
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.money.manager.ex.database;
+
+import android.database.CharArrayBuffer;
+import android.database.Cursor;
+
+import com.money.manager.ex.Constants;
+
+import info.javaperformance.money.Money;
+import info.javaperformance.money.MoneyFactory;
+
+/**
+ * Reads amount columns from a cursor without creating a String for each row.
+ * Numeric columns are read as numbers. Text columns are copied into a buffer that is reused
+ * for all the rows. The values are reduced to the default precision, like in EntityBase.getMoney.
+ * Not thread-safe. Create one reader per loop.
+ */
+public class MoneyCursorReader {
+
+    private static final int INITIAL_BUFFER_SIZE = 32;
+
+    private final CharArrayBuffer buffer = new CharArrayBuffer(INITIAL_BUFFER_SIZE);
+
+    /**
+     * @param column Index of the column in the cursor.
+     * @return the amount in the current row, or null if the column is empty.
+     */
+    public Money read(Cursor cursor, int column) {
+        switch (cursor.getType(column)) {
+            case Cursor.FIELD_TYPE_NULL:
+                return null;
+            case Cursor.FIELD_TYPE_INTEGER:
+                return MoneyFactory.fromUnits(cursor.getLong(column), 0);
+            case Cursor.FIELD_TYPE_FLOAT:
+                // the text form of a real value is rounded by SQLite, so read the double.
+                return MoneyFactory.fromDouble(cursor.getDouble(column), Constants.DEFAULT_PRECISION)
+                    .truncate(Constants.DEFAULT_PRECISION);
+            default:
+                cursor.copyStringToBuffer(column, buffer);
+                int length = trimmedLength();
+                if (length == 0) return null;
+
+                return MoneyFactory.fromCharArray(buffer.data, 0, length)
+                    .truncate(Constants.DEFAULT_PRECISION);
+        }
+    }
+
+    /**
+     * @return the amount in the current row, or the default value if the column is empty.
+     */
+    public Money read(Cursor cursor, int column, Money defaultValue) {
+        Money value = read(cursor, column);
+        return value == null ? defaultValue : value;
+    }
+
+    private int trimmedLength() {
+        int length = buffer.sizeCopied;
+        while (length > 0 && buffer.data[length - 1] <= ' ') {
+            length--;
+        }
+        return length;
+    }
+}
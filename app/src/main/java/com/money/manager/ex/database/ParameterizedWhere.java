@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.money.manager.ex.database;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import info.javaperformance.money.Money;
+
+/**
+ * Where statement generator that writes placeholders instead of the values, so that the
+ * statement text is the same for all the values and its compiled form can be reused.
+ * Pass getArgs() with getWhere() to the query. The values are collected as the statements are
+ * generated, so combine the statements in the order they are generated.
+ * The arguments are bound as text, by the content resolver. The numbers are cast back, so that
+ * they compare as numbers with the expressions that have no column affinity, as with the values
+ * written in.
+ * Null values and IN lists are still written into the statement.
+ */
+public class ParameterizedWhere
+    extends WhereStatementGenerator {
+
+    private final List<String> args = new ArrayList<>();
+
+    /**
+     * @param statement Condition with placeholders.
+     * @param arguments The values for the placeholders, in order.
+     */
+    public void addStatement(String statement, Object... arguments) {
+        super.addStatement(statement);
+        for (Object argument : arguments) {
+            args.add(toArg(argument));
+        }
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        args.clear();
+    }
+
+    /**
+     * @return The values for the placeholders, in the order of the statements, or null
+     * if there are none.
+     */
+    public String[] getArgs() {
+        return args.isEmpty() ? null : args.toArray(new String[0]);
+    }
+
+    @Override
+    public String getStatement(String field, String operator, Integer argument) {
+        if (argument == null) return super.getStatement(field, operator, argument);
+
+        args.add(argument.toString());
+        return field + " " + operator + " CAST(? AS INTEGER)";
+    }
+
+    @Override
+    public String getStatement(String field, String operator, Money argument) {
+        if (argument == null) return super.getStatement(field, operator, argument);
+
+        args.add(argument.toString());
+        return field + " " + operator + " CAST(? AS NUMERIC)";
+    }
+
+    @Override
+    public String getStatement(String field, String operator, Object argument) {
+        if (argument == null || operator.equalsIgnoreCase("in")) {
+            return super.getStatement(field, operator, argument);
+        }
+
+        String placeholder = "?";
+        if (argument instanceof Long || argument instanceof Integer || argument instanceof Boolean) {
+            placeholder = "CAST(? AS INTEGER)";
+        } else if (argument instanceof Number || argument instanceof Money) {
+            placeholder = "CAST(? AS NUMERIC)";
+        }
+        args.add(toArg(argument));
+        return field + " " + operator + " " + placeholder;
+    }
+
+    private String toArg(Object argument) {
+        if (argument instanceof Boolean) {
+            return (Boolean) argument ? "1" : "0";
+        }
+        return argument == null ? null : argument.toString();
+    }
+}
@@ -0,0 +1,523 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.money.manager.ex.database;
+
+import android.text.TextUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Pushes the filters on the result columns of a query dataset into the query, as conditions
+ * on the indexed columns of the base table.
+ * The dataset declares which result columns are derived from which base columns, and marks
+ * the place for the conditions in its SQL with {@link #INJECTION_POINT}, inside the WHERE
+ * clause of the base table.
+ * A pushed condition is implied by the original filter, which stays on the outer query, so the
+ * result does not change. It only lets SQLite search the index instead of evaluating the joins
+ * and the expressions, i.e. date(TRANSDATE), for every transaction.
+ * Only the comparisons of a declared column with a value are pushed, from the conditions
+ * combined with AND at the top of the filter, or from parentheses where all of them can be.
+ */
+public class PredicatePushdown {
+
+    /**
+     * Replaced with the pushed conditions, as " AND (...)".
+     */
+    public static final String INJECTION_POINT = "/* :pushdown */";
+
+    /**
+     * The query parts after the pushdown.
+     */
+    public static class Query {
+        public final String source;
+        /**
+         * The filter for the outer query. The placeholders are numbered, as the pushed conditions
+         * use the same arguments, so the arguments are passed unchanged.
+         */
+        public final String selection;
+
+        Query(String source, String selection) {
+            this.source = source;
+            this.selection = selection;
+        }
+    }
+
+    private enum Kind { COLUMN, DATE, YEAR }
+
+    private static class Rule {
+        final Kind kind;
+        final String[] columns;
+
+        Rule(Kind kind, String... columns) {
+            this.kind = kind;
+            this.columns = columns;
+        }
+    }
+
+    private final Map<String, Rule> rules = new HashMap<>();
+
+    /**
+     * The result column has the value of one of the base columns, or is null. The value of a
+     * left-joined table is that of the joined column of the base table, for example.
+     * A single base column is expected to have the affinity of the result column; with several,
+     * only the numbers are pushed.
+     */
+    public PredicatePushdown column(String name, String... baseColumns) {
+        rules.put(name.toLowerCase(Locale.ROOT), new Rule(Kind.COLUMN, baseColumns));
+        return this;
+    }
+
+    /**
+     * The result column is date() of the ISO date (and time) in the base column.
+     */
+    public PredicatePushdown date(String name, String baseColumn) {
+        rules.put(name.toLowerCase(Locale.ROOT), new Rule(Kind.DATE, baseColumn));
+        return this;
+    }
+
+    /**
+     * The result column is the year of the ISO date in the base column.
+     */
+    public PredicatePushdown year(String name, String baseColumn) {
+        rules.put(name.toLowerCase(Locale.ROOT), new Rule(Kind.YEAR, baseColumn));
+        return this;
+    }
+
+    /**
+     * @param source The SQL of the dataset, with the injection point.
+     * @param selection The filter on the result columns.
+     * @return The source with the pushed conditions, or the unchanged source and selection
+     * if nothing can be pushed.
+     */
+    public Query compose(String source, String selection) {
+        Query unchanged = new Query(source, selection);
+        if (source == null || !source.contains(INJECTION_POINT) || TextUtils.isEmpty(selection)) {
+            return unchanged;
+        }
+
+        Parser parser = new Parser(selection);
+        if (!parser.tokenize()) return unchanged;
+
+        String pushed;
+        try {
+            pushed = parser.parse();
+        } catch (IllegalStateException e) {
+            return unchanged;
+        }
+        if (pushed == null) return unchanged;
+
+        return new Query(source.replace(INJECTION_POINT, "AND " + pushed),
+                parser.render(0, parser.tokens.size()));
+    }
+
+    // Private
+
+    private static final int IDENTIFIER = 0;
+    private static final int STRING = 1;
+    private static final int NUMBER = 2;
+    private static final int PARAMETER = 3;
+    private static final int SYMBOL = 4;
+
+    private static class Token {
+        final int type;
+        final String text;
+        final int start;
+        final int end;
+        /**
+         * The number of a placeholder.
+         */
+        int parameter;
+
+        Token(int type, String text, int start, int end) {
+            this.type = type;
+            this.text = text;
+            this.start = start;
+            this.end = end;
+        }
+
+        boolean is(String value) {
+            return (type == IDENTIFIER || type == SYMBOL) && text.equalsIgnoreCase(value);
+        }
+    }
+
+    /**
+     * Recursive descent over the filter, with the precedence of OR, AND and the comparisons.
+     * Any other expression is skipped as a whole and not pushed.
+     */
+    private class Parser {
+        final String sql;
+        final List<Token> tokens = new ArrayList<>();
+        int position;
+
+        Parser(String sql) {
+            this.sql = sql;
+        }
+
+        /**
+         * @return false if the filter has numbered or named parameters or comments, which are
+         * not renumbered.
+         */
+        boolean tokenize() {
+            int parameters = 0;
+            int i = 0;
+            int length = sql.length();
+            while (i < length) {
+                char c = sql.charAt(i);
+                int start = i;
+                if (Character.isWhitespace(c)) {
+                    i++;
+                } else if (c == '\'') {
+                    i++;
+                    while (i < length) {
+                        if (sql.charAt(i) == '\'') {
+                            if (i + 1 < length && sql.charAt(i + 1) == '\'') {
+                                i += 2;
+                                continue;
+                            }
+                            break;
+                        }
+                        i++;
+                    }
+                    if (i >= length) return false;
+                    i++;
+                    tokens.add(new Token(STRING, sql.substring(start, i), start, i));
+                } else if (Character.isDigit(c) || (c == '.' && i + 1 < length && Character.isDigit(sql.charAt(i + 1)))) {
+                    while (i < length && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '.')) i++;
+                    tokens.add(new Token(NUMBER, sql.substring(start, i), start, i));
+                } else if (Character.isLetter(c) || c == '_') {
+                    while (i < length && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '_'
+                            || sql.charAt(i) == '$')) i++;
+                    tokens.add(new Token(IDENTIFIER, sql.substring(start, i), start, i));
+                } else if (c == '?') {
+                    i++;
+                    if (i < length && Character.isDigit(sql.charAt(i))) return false;
+                    Token token = new Token(PARAMETER, "?", start, i);
+                    token.parameter = ++parameters;
+                    tokens.add(token);
+                } else if (c == ':' || c == '@' || c == '$' || c == '"' || c == '`' || c == '['
+                        || (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-')
+                        || (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*')) {
+                    return false;
+                } else {
+                    String two = i + 1 < length ? sql.substring(i, i + 2) : "";
+                    if (two.equals("<=") || two.equals(">=") || two.equals("<>") || two.equals("!=")
+                            || two.equals("==") || two.equals("||") || two.equals("<<") || two.equals(">>")) {
+                        i += 2;
+                    } else {
+                        i++;
+                    }
+                    tokens.add(new Token(SYMBOL, sql.substring(start, i), start, i));
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return The conditions implied by the whole filter, or null.
+         */
+        String parse() {
+            String result = parseOr();
+            if (position != tokens.size()) throw new IllegalStateException("unexpected " + peek().text);
+            return result == null ? null : "(" + result + ")";
+        }
+
+        /**
+         * The original text of the tokens, with numbered placeholders.
+         */
+        String render(int from, int to) {
+            if (from >= to) return "";
+
+            StringBuilder result = new StringBuilder();
+            int last = tokens.get(from).start;
+            for (int i = from; i < to; i++) {
+                Token token = tokens.get(i);
+                result.append(sql, last, token.start);
+                result.append(token.type == PARAMETER ? "?" + token.parameter : token.text);
+                last = token.end;
+            }
+            return result.toString();
+        }
+
+        private String parseOr() {
+            List<String> terms = new ArrayList<>();
+            boolean all = true;
+            do {
+                String term = parseAnd();
+                if (term == null) {
+                    all = false;
+                } else {
+                    terms.add(term);
+                }
+            } while (accept("OR"));
+
+            if (!all) return null;
+            if (terms.size() == 1) return terms.get(0);
+            return "(" + TextUtils.join(" OR ", terms) + ")";
+        }
+
+        private String parseAnd() {
+            List<String> factors = new ArrayList<>();
+            do {
+                String factor = parseFactor();
+                if (factor != null) factors.add(factor);
+            } while (accept("AND"));
+
+            // the conditions that can be pushed are implied by all of them.
+            if (factors.isEmpty()) return null;
+            return TextUtils.join(" AND ", factors);
+        }
+
+        private String parseFactor() {
+            int start = position;
+
+            if (accept("(")) {
+                String inner = parseOr();
+                // the OR terms are parenthesized, the AND binds closer.
+                if (accept(")") && atEndOfFactor()) return inner;
+                position = start;
+            } else if (peek() != null && peek().type == IDENTIFIER) {
+                String comparison = parseComparison();
+                if (comparison != null && atEndOfFactor()) return comparison;
+                position = start;
+            }
+
+            skipFactor();
+            return null;
+        }
+
+        private String parseComparison() {
+            Token column = next();
+            Rule rule = rules.get(column.text.toLowerCase(Locale.ROOT));
+            if (rule == null || peek() == null) return null;
+
+            String operator;
+            List<String> values = new ArrayList<>();
+            if (accept("NOT")) {
+                if (!accept("IN")) return null;
+                operator = "NOT IN";
+                if (!parseList(values)) return null;
+            } else if (accept("IN")) {
+                operator = "IN";
+                if (!parseList(values)) return null;
+            } else if (accept("BETWEEN")) {
+                operator = "BETWEEN";
+                String low = parseValue();
+                if (low == null || !accept("AND")) return null;
+                String high = parseValue();
+                if (high == null) return null;
+                values.add(low);
+                values.add(high);
+            } else {
+                Token token = next();
+                if (token.type != SYMBOL) return null;
+                operator = token.text;
+                switch (operator) {
+                    case "=": case "==": case "<>": case "!=": case "<": case "<=": case ">": case ">=":
+                        break;
+                    default:
+                        return null;
+                }
+                String value = parseValue();
+                if (value == null) return null;
+                values.add(value);
+            }
+
+            return imply(rule, operator, values);
+        }
+
+        private boolean parseList(List<String> values) {
+            if (!accept("(")) return false;
+            do {
+                String value = parseValue();
+                if (value == null) return false;
+                values.add(value);
+            } while (accept(","));
+            return accept(")");
+        }
+
+        /**
+         * @return A literal, a placeholder or a cast of one of them.
+         */
+        private String parseValue() {
+            int start = position;
+            Token token = peek();
+            if (token == null) return null;
+
+            if (token.is("-")) {
+                next();
+                token = peek();
+                if (token == null || token.type != NUMBER) return null;
+                next();
+            } else if (token.type == STRING || token.type == NUMBER || token.type == PARAMETER) {
+                next();
+            } else if (token.is("CAST")) {
+                next();
+                if (!accept("(")) return null;
+                if (parseValue() == null || !accept("AS")) return null;
+                Token type = next();
+                if (type == null || type.type != IDENTIFIER || !accept(")")) return null;
+            } else {
+                return null;
+            }
+            return render(start, position);
+        }
+
+        private String imply(Rule rule, String operator, List<String> values) {
+            switch (rule.kind) {
+                case COLUMN:
+                    // a choice between the columns has no affinity, so a text never equals
+                    // the numbers there, while the base columns would convert it.
+                    if (rule.columns.length > 1) {
+                        for (String value : values) {
+                            if (!isNumber(value)) return null;
+                        }
+                    }
+                    List<String> terms = new ArrayList<>();
+                    for (String column : rule.columns) {
+                        terms.add(compare(column, operator, values));
+                    }
+                    if (terms.size() == 1) return terms.get(0);
+                    return "(" + TextUtils.join(" OR ", terms) + ")";
+
+                case DATE:
+                    // the dates are compared as the start of the ISO date and time. The result
+                    // column has no affinity, so a number never equals a date there.
+                    for (String value : values) {
+                        if (!isText(value)) return null;
+                    }
+                    String column = rule.columns[0];
+                    switch (operator) {
+                        case "=": case "==":
+                            return column + " >= " + values.get(0) + " AND " + column + " <= " + endOfDay(values.get(0));
+                        case ">": case ">=":
+                            return column + " " + operator + " " + values.get(0);
+                        case "<":
+                            // a longer value, with a time, can be after the times of the day.
+                            return isDate(values.get(0))
+                                    ? column + " < " + values.get(0)
+                                    : column + " <= " + endOfDay(values.get(0));
+                        case "<=":
+                            return column + " <= " + endOfDay(values.get(0));
+                        case "BETWEEN":
+                            return column + " >= " + values.get(0) + " AND " + column + " <= " + endOfDay(values.get(1));
+                        default:
+                            return null;
+                    }
+
+                case YEAR:
+                    // the year is a number without affinity, only equal to the whole numbers.
+                    if (!operator.equals("=") && !operator.equals("==")) return null;
+                    String year = values.get(0);
+                    if (!isInteger(year)) return null;
+                    return rule.columns[0] + " >= printf('%04d', " + year + ") AND "
+                            + rule.columns[0] + " < printf('%04d', " + year + " + 1)";
+
+                default:
+                    return null;
+            }
+        }
+
+        private String compare(String column, String operator, List<String> values) {
+            if (operator.equals("BETWEEN")) {
+                return column + " BETWEEN " + values.get(0) + " AND " + values.get(1);
+            }
+            if (operator.endsWith("IN")) {
+                return column + " " + operator + " (" + TextUtils.join(", ", values) + ")";
+            }
+            return column + " " + operator + " " + values.get(0);
+        }
+
+        private boolean isText(String value) {
+            return value.startsWith("'") || value.startsWith("?")
+                    || value.toUpperCase(Locale.ROOT).matches("CAST\\(.* AS TEXT\\)");
+        }
+
+        private boolean isNumber(String value) {
+            return value.matches("-? ?[0-9.]+")
+                    || value.toUpperCase(Locale.ROOT).matches("CAST\\(.* AS (INTEGER|NUMERIC|REAL)\\)");
+        }
+
+        private boolean isInteger(String value) {
+            return value.matches("-? ?[0-9]+")
+                    || value.toUpperCase(Locale.ROOT).matches("CAST\\(.* AS INTEGER\\)");
+        }
+
+        private boolean isDate(String value) {
+            return value.startsWith("'") && value.length() <= 12;
+        }
+
+        /**
+         * @return An upper bound for the date and time values up to the date of the value.
+         * The times follow the date, i.e. "T10:00", and sort before "~".
+         */
+        private String endOfDay(String value) {
+            return "substr(" + value + ", 1, 10) || '~'";
+        }
+
+        /**
+         * Skips an expression that is not pushed, up to the next AND or OR at this level.
+         */
+        private void skipFactor() {
+            int depth = 0;
+            boolean between = false;
+            boolean any = false;
+            while (position < tokens.size()) {
+                Token token = peek();
+                if (depth == 0 && (token.is(")") || token.is("OR")
+                        || (token.is("AND") && !between))) {
+                    break;
+                }
+                if (token.is("(") || token.is("CASE")) depth++;
+                if (token.is(")") || token.is("END")) depth--;
+                if (depth == 0 && token.is("BETWEEN")) between = true;
+                if (depth == 0 && token.is("AND")) between = false;
+                position++;
+                any = true;
+            }
+            if (!any) throw new IllegalStateException("empty expression");
+        }
+
+        private boolean atEndOfFactor() {
+            Token token = peek();
+            return token == null || token.is("AND") || token.is("OR") || token.is(")");
+        }
+
+        private boolean accept(String value) {
+            Token token = peek();
+            if (token != null && token.is(value)) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private Token peek() {
+            return position < tokens.size() ? tokens.get(position) : null;
+        }
+
+        private Token next() {
+            Token token = peek();
+            if (token == null) throw new IllegalStateException("unexpected end");
+            position++;
+            return token;
+        }
+    }
+}
@@ -55,6 +55,20 @@ public class QueryAllData
     public static final String Notes = "Notes";
     public static final String currency = "currency";
 
+    /**
+     * The columns taken from the transaction, or from the accounts joined on it.
+     */
+    private static final PredicatePushdown PUSHDOWN = new PredicatePushdown()
+            .column(ID, "TX.TRANSID")
+            .column(TransactionType, "TX.TRANSCODE")
+            .column(Status, "TX.STATUS")
+            .column(CATEGID, "TX.CATEGID")
+            .column(ACCOUNTID, "TX.ACCOUNTID")
+            // the destination account, or the account itself.
+            .column(TOACCOUNTID, "TX.TOACCOUNTID", "TX.ACCOUNTID")
+            .date(Date, "TX.TRANSDATE")
+            .year(Year, "TX.TRANSDATE");
+
     public QueryAllData(Context context) {
         super(MmxFileUtils.getRawAsString(context, R.raw.query_alldata), DatasetType.QUERY, "queryalldata");
         this.mContext = context.getApplicationContext();
@@ -62,6 +76,11 @@ public class QueryAllData
 
     private final Context mContext;
 
+    @Override
+    public PredicatePushdown getPushdown() {
+        return PUSHDOWN;
+    }
+
     @Override
     public String[] getAllColumns() {
         return new String[]{"ID AS _id", ID, TransactionType, Date, Year, Month, Day,
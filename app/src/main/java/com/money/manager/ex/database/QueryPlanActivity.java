@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.money.manager.ex.database;
+
+import android.os.Bundle;
+import android.widget.TextView;
+
+import com.money.manager.ex.MmexApplication;
+import com.money.manager.ex.MmxContentProvider;
+import com.money.manager.ex.R;
+import com.money.manager.ex.common.MmxBaseFragmentActivity;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import rx.Single;
+import rx.SingleSubscriber;
+import rx.android.schedulers.AndroidSchedulers;
+import rx.schedulers.Schedulers;
+import timber.log.Timber;
+
+/**
+ * Debug screen with the query plans of the content provider datasets.
+ * Full table scans are marked with "!!" and counted, the datasets with scans come first.
+ * The hit rates of the statement cache are shown above the plans.
+ */
+public class QueryPlanActivity
+    extends MmxBaseFragmentActivity {
+
+    private TextView mPlansView;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_query_plan);
+        setDisplayHomeAsUpEnabled(true);
+
+        mPlansView = findViewById(R.id.plansTextView);
+        mPlansView.setText(R.string.loading);
+
+        loadPlans();
+    }
+
+    private void loadPlans() {
+        compositeSubscription.add(
+            Single.fromCallable(new Callable<String>() {
+                @Override
+                public String call() {
+                    MmxOpenHelper helper = MmexApplication.getApp().openHelperAtomicReference.get();
+                    List<QueryPlanInspector.Plan> plans = new QueryPlanInspector(helper.getReadableDatabase())
+                        .explain(MmxContentProvider.createDatasets(getApplicationContext()));
+                    return helper.getStatementCache().getStatistics() + "\n\n" + format(plans);
+                }
+            })
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(new SingleSubscriber<String>() {
+                    @Override
+                    public void onSuccess(String value) {
+                        mPlansView.setText(value);
+                    }
+
+                    @Override
+                    public void onError(Throwable error) {
+                        Timber.e(error, "explaining queries");
+                        mPlansView.setText(error.getMessage());
+                    }
+                })
+        );
+    }
+
+    private String format(List<QueryPlanInspector.Plan> plans) {
+        StringBuilder text = new StringBuilder();
+        for (int pass = 0; pass < 2; pass++) {
+            for (QueryPlanInspector.Plan plan : plans) {
+                boolean flagged = plan.fullScans > 0 || plan.error != null;
+                if (flagged != (pass == 0)) continue;
+
+                text.append(plan.name);
+                if (plan.fullScans > 0) {
+                    text.append(" (").append(getString(R.string.full_scans, plan.fullScans)).append(")");
+                }
+                text.append("\n");
+
+                if (plan.error != null) {
+                    text.append("!! ").append(plan.error).append("\n");
+                }
+                for (String step : plan.steps) {
+                    text.append("  ").append(step).append("\n");
+                }
+                text.append("\n");
+            }
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.money.manager.ex.database;
+
+import android.database.Cursor;
+import android.util.SparseIntArray;
+
+import com.money.manager.ex.MmxContentProvider;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+/**
+ * Runs EXPLAIN QUERY PLAN for the datasets of the content provider, so that the queries
+ * which fall back to a full table scan, i.e. after a schema or index change, are visible.
+ * Used by the debug screen.
+ */
+public class QueryPlanInspector {
+
+    /**
+     * Typical filters and sort orders of the datasets, as used by the app: {selection, sort}.
+     * The datasets not listed here are explained without a filter.
+     */
+    private static final Map<String, String[]> SAMPLES = new HashMap<>();
+
+    static {
+        // AccountService.calculateBalanceOn()
+        SAMPLES.put("checkingaccount", new String[] {
+                "(" + ITransactionEntity.ACCOUNTID + " = CAST(? AS INTEGER) OR "
+                        + ITransactionEntity.TOACCOUNTID + " = CAST(? AS INTEGER))" +
+                " AND " + ITransactionEntity.TRANSDATE + " <= ?" +
+                " AND " + ITransactionEntity.STATUS + " <> ?",
+                null });
+        // account transactions list
+        SAMPLES.put("queryalldata", new String[] {
+                "(" + QueryAllData.TOACCOUNTID + " = 1 OR " + QueryAllData.ACCOUNTID + " = 1)" +
+                " AND " + QueryAllData.Date + " >= '2000-01-01' AND " + QueryAllData.Date + " <= '2100-01-01'",
+                QueryAllData.Date + " DESC, " + QueryAllData.ID + " DESC" });
+        // reports for a period
+        SAMPLES.put("mobiledata", new String[] {
+                ViewMobileData.Status + " <> 'V' AND " + ViewMobileData.Date + " >= '2020-01-01'" +
+                " AND " + ViewMobileData.Date + " <= '2020-03-31'",
+                null });
+    }
+
+    public QueryPlanInspector(SupportSQLiteDatabase database) {
+        this.database = database;
+    }
+
+    private final SupportSQLiteDatabase database;
+
+    /**
+     * @return the plans of all the datasets, except the raw SQL one. The datasets with
+     * a filter pushdown are also explained without it, for comparison.
+     */
+    public List<Plan> explain(List<Dataset> datasets) {
+        List<Plan> plans = new ArrayList<>();
+        for (Dataset dataset : datasets) {
+            if (dataset.getType() == DatasetType.SQL) continue;
+
+            String[] sample = SAMPLES.get(dataset.getBasePath());
+            String selection = sample == null ? null : sample[0];
+            String sort = sample == null ? null : sample[1];
+
+            String sql = MmxContentProvider.prepareQuery(dataset.getSource(), dataset.getPushdown(),
+                    null, selection, sort);
+            plans.add(explain(dataset.getBasePath(), sql));
+
+            if (dataset.getPushdown() != null && selection != null) {
+                sql = MmxContentProvider.prepareQuery(dataset.getSource(), null, selection, sort);
+                plans.add(explain(dataset.getBasePath() + " (without pushdown)", sql));
+            }
+        }
+        return plans;
+    }
+
+    public Plan explain(String name, String sql) {
+        Plan plan = new Plan(name, sql);
+
+        Cursor cursor = null;
+        try {
+            cursor = database.query("EXPLAIN QUERY PLAN " + sql);
+            int idColumn = cursor.getColumnIndex("id");
+            int parentColumn = cursor.getColumnIndex("parent");
+            int detailColumn = cursor.getColumnIndex("detail");
+
+            SparseIntArray depths = new SparseIntArray();
+            Set<String> derived = new HashSet<>();
+            while (cursor.moveToNext()) {
+                String detail = cursor.getString(detailColumn);
+                int depth = depths.get(cursor.getInt(parentColumn), -1) + 1;
+                depths.put(cursor.getInt(idColumn), depth);
+
+                addDerivedName(detail, derived);
+                boolean fullScan = isFullScan(detail, derived);
+                if (fullScan) plan.fullScans++;
+
+                plan.steps.add(indent(depth) + (fullScan ? "!! " : "") + detail);
+            }
+        } catch (Exception e) {
+            plan.error = e.getMessage();
+        } finally {
+            if (cursor != null) cursor.close();
+        }
+        return plan;
+    }
+
+    /**
+     * @param detail A step of the plan, i.e. "SCAN CHECKINGACCOUNT_V1".
+     * @param derived Names of the subqueries and CTEs seen in the plan so far.
+     * @return true if the step reads a whole table without an index.
+     */
+    public static boolean isFullScan(String detail, Set<String> derived) {
+        if (detail == null) return false;
+
+        String name;
+        if (detail.startsWith("SCAN TABLE ")) {
+            // before SQLite 3.36
+            name = detail.substring("SCAN TABLE ".length());
+        } else if (detail.startsWith("SCAN ")) {
+            name = detail.substring("SCAN ".length());
+        } else {
+            return false;
+        }
+        if (name.contains(" USING ")) return false;
+
+        int end = name.indexOf(' ');
+        if (end > 0) name = name.substring(0, end);
+
+        return !name.startsWith("SUBQUERY") && !name.equals("CONSTANT")
+                && !derived.contains(name.toUpperCase(Locale.ROOT));
+    }
+
+    private static void addDerivedName(String detail, Set<String> derived) {
+        for (String prefix : new String[] { "CO-ROUTINE ", "MATERIALIZE " }) {
+            if (detail != null && detail.startsWith(prefix)) {
+                derived.add(detail.substring(prefix.length()).trim().toUpperCase(Locale.ROOT));
+            }
+        }
+    }
+
+    private static String indent(int depth) {
+        StringBuilder indent = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            indent.append("  ");
+        }
+        return indent.toString();
+    }
+
+    /**
+     * The plan of one query.
+     */
+    public static class Plan {
+        Plan(String name, String sql) {
+            this.name = name;
+            this.sql = sql;
+        }
+
+        public final String name;
+        public final String sql;
+        public final List<String> steps = new ArrayList<>();
+        public int fullScans;
+        public String error;
+    }
+}
@@ -17,7 +17,6 @@
 package com.money.manager.ex.database;
 
 import android.content.Context;
-import android.text.TextUtils;
 
 import com.money.manager.ex.Constants;
 import com.money.manager.ex.R;
@@ -30,7 +29,21 @@ public class QueryReportIncomeVsExpenses
     public QueryReportIncomeVsExpenses(Context context) {
         super("", DatasetType.QUERY, "report_income_vs_expenses");
 
-        initialize(context, null);
+        mMobileData = new ViewMobileData(context);
+        mTemplate = MmxFileUtils.getRawAsString(context, R.raw.report_income_vs_expenses);
+    }
+
+    private final ViewMobileData mMobileData;
+    private final String mTemplate;
+
+    /**
+     * Assembled on every call, as the mobiledata source can switch to the materialized table.
+     */
+    @Override
+    public String getSource() {
+        // assemble the source statement by combining queries.
+        String source = mTemplate.replace(Constants.MOBILE_DATA_PATTERN, mMobileData.getSource());
+        return "(" + source + ") xxxx";
     }
 
     @Override
@@ -42,19 +55,4 @@ public class QueryReportIncomeVsExpenses
             IncomeVsExpenseReportEntity.Expenses,
             IncomeVsExpenseReportEntity.Transfers};
     }
-
-    private void initialize(Context context, String whereStatement) {
-        ViewMobileData mobileData = new ViewMobileData(context);
-        // add where statement
-        if(!TextUtils.isEmpty(whereStatement)) {
-            mobileData.setWhere(whereStatement);
-        }
-        String mobileDataQuery = mobileData.getSource();
-
-        // assemble the source statement by combining queries.
-        String source = MmxFileUtils.getRawAsString(context, R.raw.report_income_vs_expenses);
-        source = source.replace(Constants.MOBILE_DATA_PATTERN, mobileDataQuery);
-        source = "(" + source + ") xxxx";
-        this.setSource(source);
-    }
 }
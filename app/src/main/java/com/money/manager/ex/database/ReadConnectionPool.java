@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.money.manager.ex.database;
+
+import android.content.Context;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteOpenHelper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import timber.log.Timber;
+
+/**
+ * Read-only connections to a database file in write-ahead log mode. The queries spread over
+ * them run concurrently with each other and with the writes on the main connection.
+ * The connections are opened in the background. Until then {@link #getConnection()} returns
+ * null and the caller uses the main connection. Not used for encrypted files, as each
+ * connection would derive the key again.
+ * A connection is not leased: it can run one statement at a time and the next query on it
+ * waits, as on the main connection.
+ */
+public class ReadConnectionPool {
+
+    public static final int DEFAULT_SIZE = 2;
+
+    /**
+     * Shared by the pools, so that the connections are opened one at a time.
+     */
+    private static final ExecutorService opener = Executors.newSingleThreadExecutor();
+
+    /**
+     * @param factory Creates the open helpers.
+     * @param version Schema version. The main connection has already upgraded the file.
+     */
+    public ReadConnectionPool(Context context, String path, SupportSQLiteOpenHelper.Factory factory,
+                              int version, int size) {
+        mContext = context;
+        mPath = path;
+        mFactory = factory;
+        mVersion = version;
+        mSize = size;
+    }
+
+    private final Context mContext;
+    private final String mPath;
+    private final SupportSQLiteOpenHelper.Factory mFactory;
+    private final int mVersion;
+    private final int mSize;
+    private final List<SupportSQLiteOpenHelper> mHelpers = new ArrayList<>();
+    private final List<SupportSQLiteDatabase> mConnections = new ArrayList<>();
+    private boolean mOpening;
+    private boolean mClosed;
+    private int mNext;
+
+    /**
+     * Starts opening the connections, on the first call.
+     * @return The next read connection, in turn, or null if none is open yet.
+     */
+    public synchronized SupportSQLiteDatabase getConnection() {
+        if (mClosed) return null;
+
+        if (!mOpening) {
+            mOpening = true;
+            opener.execute(this::open);
+        }
+        if (mConnections.isEmpty()) return null;
+
+        mNext = (mNext + 1) % mConnections.size();
+        return mConnections.get(mNext);
+    }
+
+    public synchronized int getOpenCount() {
+        return mConnections.size();
+    }
+
+    public synchronized void close() {
+        mClosed = true;
+
+        for (SupportSQLiteOpenHelper helper : mHelpers) {
+            try {
+                helper.close();
+            } catch (Exception e) {
+                Timber.w(e, "closing read connection");
+            }
+        }
+        mHelpers.clear();
+        mConnections.clear();
+    }
+
+    // Private
+
+    private void open() {
+        for (int i = 0; i < mSize; i++) {
+            long start = SystemClock.elapsedRealtime();
+            SupportSQLiteOpenHelper helper = mFactory.create(
+                    SupportSQLiteOpenHelper.Configuration.builder(mContext)
+                            .name(mPath)
+                            .callback(new ReaderCallback(mVersion))
+                            .build());
+
+            SupportSQLiteDatabase connection;
+            try {
+                connection = helper.getReadableDatabase();
+            } catch (Exception e) {
+                Timber.w(e, "opening read connection, the queries use the main connection");
+                helper.close();
+                return;
+            }
+
+            synchronized (this) {
+                if (mClosed) {
+                    helper.close();
+                    return;
+                }
+                mHelpers.add(helper);
+                mConnections.add(connection);
+            }
+            Timber.d("read connection %d to %s opened in %d ms", i + 1, mPath,
+                    SystemClock.elapsedRealtime() - start);
+        }
+    }
+
+    /**
+     * The schema is maintained through the main connection. The read connections only
+     * refuse writes.
+     */
+    private static class ReaderCallback
+            extends SupportSQLiteOpenHelper.Callback {
+
+        ReaderCallback(int version) {
+            super(version);
+        }
+
+        @Override
+        public void onCreate(@NonNull SupportSQLiteDatabase db) {
+        }
+
+        @Override
+        public void onUpgrade(@NonNull SupportSQLiteDatabase db, int oldVersion, int newVersion) {
+        }
+
+        @Override
+        public void onOpen(@NonNull SupportSQLiteDatabase db) {
+            db.execSQL("PRAGMA query_only = 1");
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.money.manager.ex.database;
+
+import android.os.SystemClock;
+import android.text.TextUtils;
+
+import com.money.manager.ex.MmexApplication;
+import com.money.manager.ex.R;
+import com.money.manager.ex.settings.AppSettings;
+import com.money.manager.ex.utils.MmxFileUtils;
+
+import java.util.Collection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import timber.log.Timber;
+
+/**
+ * Optional materialized copy of the mobiledata view, used by the reports, budgets and the
+ * dashboard instead of evaluating the recursive view on every query.
+ * The table is created in the temp schema of the open connection, so the database file,
+ * which is shared with the desktop application, is never modified. It is built in the
+ * background when first needed and kept current by the content provider: writes to
+ * transactions and splits refresh only the affected rows, while changes to categories,
+ * payees, accounts or currencies, which affect many rows, trigger a rebuild.
+ * Until the table is ready the readers use the view.
+ */
+@Singleton
+public class ReportFactTable {
+
+    public static final String TABLE_NAME = "mobiledata_facts";
+
+    private static final String[] INDEXES = {
+        "ID", "Year, Month", "Date", "CATEGID", "AccountID", "PayeeID"
+    };
+
+    @Inject
+    public ReportFactTable(MmexApplication app) {
+        this.app = app;
+    }
+
+    private final MmexApplication app;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean(false);
+    /**
+     * The connection that holds the current copy of the data. Null when there is none.
+     */
+    private volatile SupportSQLiteDatabase builtFor;
+
+    public boolean isEnabled() {
+        return new AppSettings(app).getDatabaseSettings().getUseReportFactTable();
+    }
+
+    /**
+     * @param where Optional filter.
+     * @return the source to use in place of the mobiledata view, or null if the table is not
+     * available at the moment. In that case the table is rebuilt in the background.
+     */
+    public String getSource(String where) {
+        if (!isEnabled()) return null;
+
+        SupportSQLiteDatabase database = getOpenDatabase();
+        if (database == null) return null;
+
+        if (builtFor != database) {
+            requestRebuild();
+            return null;
+        }
+
+        String source = "SELECT * FROM temp." + TABLE_NAME;
+        if (!TextUtils.isEmpty(where)) {
+            source += " WHERE " + where;
+        }
+        return "(" + source + ") mobiledata";
+    }
+
+    /**
+     * @return whether the table in the given connection is current and must be maintained.
+     */
+    public boolean isMaintained(SupportSQLiteDatabase database) {
+        return database != null && builtFor == database;
+    }
+
+    /**
+     * Schedules a full rebuild in the background. Multiple requests are merged.
+     */
+    public void requestRebuild() {
+        if (!rebuildScheduled.compareAndSet(false, true)) return;
+
+        executor.execute(() -> {
+            rebuildScheduled.set(false);
+            rebuild();
+        });
+    }
+
+    /**
+     * Recreates the table from the mobiledata view.
+     */
+    public synchronized void rebuild() {
+        if (!isEnabled() || app.openHelperAtomicReference == null) return;
+
+        MmxOpenHelper helper = app.openHelperAtomicReference.get();
+        if (helper == null) return;
+
+        long start = SystemClock.elapsedRealtime();
+        SupportSQLiteDatabase database = helper.getWritableDatabase();
+
+        database.beginTransaction();
+        try {
+            builtFor = null;
+
+            database.execSQL("DROP TABLE IF EXISTS temp." + TABLE_NAME);
+            database.execSQL("CREATE TEMP TABLE " + TABLE_NAME + " AS SELECT * FROM (" + getViewSql() + ")");
+            for (int i = 0; i < INDEXES.length; i++) {
+                database.execSQL("CREATE INDEX temp.IDX_" + TABLE_NAME.toUpperCase() + "_" + i +
+                        " ON " + TABLE_NAME + " (" + INDEXES[i] + ")");
+            }
+
+            // no other writes can happen on the connection until the transaction ends.
+            builtFor = database;
+            database.setTransactionSuccessful();
+        } catch (Exception e) {
+            builtFor = null;
+            Timber.e(e, "building the report fact table");
+        } finally {
+            database.endTransaction();
+        }
+
+        Timber.i("report fact table built in %d ms", SystemClock.elapsedRealtime() - start);
+    }
+
+    /**
+     * Reloads the rows of the given transactions. Called by the content provider, on the same
+     * connection and within the same transaction as the write.
+     * @param transactionIds Ids of the inserted, changed or deleted transactions.
+     */
+    public void refresh(SupportSQLiteDatabase database, Collection<Integer> transactionIds) {
+        if (!isMaintained(database) || transactionIds.isEmpty()) return;
+
+        String ids = TextUtils.join(", ", transactionIds);
+        try {
+            database.execSQL("DELETE FROM temp." + TABLE_NAME + " WHERE ID IN (" + ids + ")");
+            // the condition goes into the WHERE clause of the view.
+            database.execSQL("INSERT INTO temp." + TABLE_NAME + " SELECT * FROM (" + getViewSql()
+                    .replace(PredicatePushdown.INJECTION_POINT, "AND TX.TRANSID IN (" + ids + ")") + ")");
+        } catch (Exception e) {
+            Timber.e(e, "refreshing the report fact table");
+            invalidate();
+        }
+    }
+
+    /**
+     * Drops the current copy and schedules a rebuild. Used when the changed data affects
+     * many rows.
+     */
+    public void invalidate() {
+        builtFor = null;
+
+        if (isEnabled()) {
+            requestRebuild();
+        }
+    }
+
+    /**
+     * Forgets the current copy. Used when the database is switched.
+     */
+    public void reset() {
+        builtFor = null;
+    }
+
+    private String getViewSql() {
+        return MmxFileUtils.getRawAsString(app, R.raw.query_mobiledata);
+    }
+
+    private SupportSQLiteDatabase getOpenDatabase() {
+        if (app.openHelperAtomicReference == null) return null;
+
+        MmxOpenHelper helper = app.openHelperAtomicReference.get();
+        return helper == null ? null : helper.getOpenDatabase();
+    }
+}
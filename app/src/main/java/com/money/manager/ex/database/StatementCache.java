@@ -0,0 +1,285 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.money.manager.ex.database;
+
+import android.content.ContentValues;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import com.money.manager.ex.BuildConfig;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+import timber.log.Timber;
+
+/**
+ * The compiled insert, update and delete statements of a connection, by table and operation,
+ * so that the writes with the same columns and condition are not parsed and planned again.
+ * The values are always bound, never written into the statement.
+ * A statement is taken out of the cache while it runs, so that no lock is held while waiting
+ * for the connection, i.e. behind a batch on another thread. A second thread that needs the same
+ * statement at the same time compiles its own.
+ * Debug builds log the share of the writes that reused a statement.
+ */
+public class StatementCache {
+
+    public static final int DEFAULT_CAPACITY = 32;
+
+    /**
+     * Lookups between the statistics in the debug log.
+     */
+    private static final int REPORT_INTERVAL = 100;
+    /**
+     * By the conflict algorithm constants of SQLiteDatabase.
+     */
+    private static final String[] CONFLICT_VALUES = new String[] {
+            "", " OR ROLLBACK", " OR ABORT", " OR FAIL", " OR IGNORE", " OR REPLACE" };
+
+    public StatementCache(SupportSQLiteDatabase database, int capacity) {
+        this.database = database;
+        this.statements = new LinkedHashMap<String, SupportSQLiteStatement>(capacity, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SupportSQLiteStatement> eldest) {
+                if (size() <= capacity) return false;
+
+                closeStatement(eldest.getValue());
+                return true;
+            }
+        };
+        this.queries = new LinkedHashMap<String, Boolean>(capacity, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    private final SupportSQLiteDatabase database;
+    private final LinkedHashMap<String, SupportSQLiteStatement> statements;
+    private final LinkedHashMap<String, Boolean> queries;
+    private long hits;
+    private long misses;
+    private long queryHits;
+    private long queryMisses;
+    private boolean closed;
+
+    /**
+     * Binds the value by its type, as the framework does for the ContentValues.
+     */
+    public static void bind(SupportSQLiteStatement statement, int index, Object value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else if (value instanceof Long || value instanceof Integer
+                || value instanceof Short || value instanceof Byte) {
+            statement.bindLong(index, ((Number) value).longValue());
+        } else if (value instanceof Double || value instanceof Float) {
+            statement.bindDouble(index, ((Number) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            statement.bindLong(index, (Boolean) value ? 1 : 0);
+        } else if (value instanceof byte[]) {
+            statement.bindBlob(index, (byte[]) value);
+        } else {
+            statement.bindString(index, value.toString());
+        }
+    }
+
+    public boolean isFor(SupportSQLiteDatabase database) {
+        return this.database == database;
+    }
+
+    /**
+     * @param conflictAlgorithm One of the SQLiteDatabase.CONFLICT_ constants.
+     * @return the row id of the inserted record.
+     */
+    public long insert(String table, int conflictAlgorithm, ContentValues values) {
+        // sort the columns so that the statement does not depend on the order of the values.
+        TreeSet<String> columns = new TreeSet<>(values.keySet());
+
+        StringBuilder sql = new StringBuilder("INSERT").append(CONFLICT_VALUES[conflictAlgorithm])
+                .append(" INTO ").append(table).append(" (");
+        StringBuilder params = new StringBuilder();
+        for (String column : columns) {
+            if (params.length() > 0) {
+                sql.append(", ");
+                params.append(", ");
+            }
+            sql.append(column);
+            params.append("?");
+        }
+        sql.append(") VALUES (").append(params).append(")");
+
+        String key = sql.toString();
+        SupportSQLiteStatement statement = acquire(key);
+        try {
+            int index = 1;
+            for (String column : columns) {
+                bind(statement, index++, values.get(column));
+            }
+            return statement.executeInsert();
+        } finally {
+            release(key, statement);
+        }
+    }
+
+    /**
+     * @param where The condition with placeholders, or null for all the records.
+     * @return the number of updated records.
+     */
+    public int update(String table, int conflictAlgorithm, ContentValues values, String where,
+                      Object[] whereArgs) {
+        TreeSet<String> columns = new TreeSet<>(values.keySet());
+
+        StringBuilder sql = new StringBuilder("UPDATE").append(CONFLICT_VALUES[conflictAlgorithm])
+                .append(" ").append(table).append(" SET ");
+        boolean first = true;
+        for (String column : columns) {
+            if (!first) sql.append(", ");
+            sql.append(column).append(" = ?");
+            first = false;
+        }
+        if (where != null && !where.isEmpty()) {
+            sql.append(" WHERE ").append(where);
+        }
+
+        String key = sql.toString();
+        SupportSQLiteStatement statement = acquire(key);
+        try {
+            int index = 1;
+            for (String column : columns) {
+                bind(statement, index++, values.get(column));
+            }
+            bindAll(statement, index, whereArgs);
+            return statement.executeUpdateDelete();
+        } finally {
+            release(key, statement);
+        }
+    }
+
+    /**
+     * @return the number of deleted records.
+     */
+    public int delete(String table, String where, Object[] whereArgs) {
+        String key = "DELETE FROM " + table;
+        if (where != null && !where.isEmpty()) {
+            key += " WHERE " + where;
+        }
+
+        SupportSQLiteStatement statement = acquire(key);
+        try {
+            bindAll(statement, 1, whereArgs);
+            return statement.executeUpdateDelete();
+        } finally {
+            release(key, statement);
+        }
+    }
+
+    /**
+     * Counts whether the text of a query was seen recently, i.e. whether it would be found in
+     * a statement cache of the same size. Queries with the values written into them never are.
+     * Only counted in debug builds.
+     */
+    public synchronized void recordQuery(String sql) {
+        if (!BuildConfig.DEBUG || sql == null) return;
+
+        if (queries.put(sql, Boolean.TRUE) != null) {
+            queryHits++;
+        } else {
+            queryMisses++;
+        }
+    }
+
+    /**
+     * @return The hit rates of the statements and of the query texts, for the debug screens.
+     */
+    public synchronized String getStatistics() {
+        return String.format("statements: %d%% of %d reused, %d cached; queries: %d%% of %d repeated",
+                percent(hits, misses), hits + misses, statements.size(),
+                percent(queryHits, queryMisses), queryHits + queryMisses);
+    }
+
+    /**
+     * Releases the statements. Those in use are released when they complete.
+     */
+    public synchronized void close() {
+        closed = true;
+        for (SupportSQLiteStatement statement : statements.values()) {
+            closeStatement(statement);
+        }
+        statements.clear();
+    }
+
+    // Private
+
+    private SupportSQLiteStatement acquire(String sql) {
+        synchronized (this) {
+            SupportSQLiteStatement statement = statements.remove(sql);
+            if (statement != null) {
+                hits++;
+            } else {
+                misses++;
+            }
+            if (BuildConfig.DEBUG && (hits + misses) % REPORT_INTERVAL == 0) {
+                Timber.d("statement cache: %s", getStatistics());
+            }
+            if (statement != null) return statement;
+        }
+        // compiling waits for the connection.
+        return database.compileStatement(sql);
+    }
+
+    private void release(String sql, SupportSQLiteStatement statement) {
+        try {
+            statement.clearBindings();
+        } catch (Exception e) {
+            closeStatement(statement);
+            return;
+        }
+
+        synchronized (this) {
+            if (closed) {
+                closeStatement(statement);
+                return;
+            }
+            SupportSQLiteStatement previous = statements.put(sql, statement);
+            if (previous != null) closeStatement(previous);
+        }
+    }
+
+    private void bindAll(SupportSQLiteStatement statement, int start, Object[] args) {
+        if (args == null) return;
+
+        for (int i = 0; i < args.length; i++) {
+            bind(statement, start + i, args[i]);
+        }
+    }
+
+    private static int percent(long hits, long misses) {
+        long total = hits + misses;
+        return total == 0 ? 0 : (int) (hits * 100 / total);
+    }
+
+    private static void closeStatement(SupportSQLiteStatement statement) {
+        try {
+            statement.close();
+        } catch (Exception e) {
+            Timber.w(e, "closing statement");
+        }
+    }
+}
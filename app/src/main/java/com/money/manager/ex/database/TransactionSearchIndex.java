@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.money.manager.ex.database;
+
+import android.database.DatabaseUtils;
+import android.os.SystemClock;
+import android.text.TextUtils;
+
+import com.money.manager.ex.MmexApplication;
+
+import java.util.Collection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import timber.log.Timber;
+
+/**
+ * Full-text index of the transactions for the search screen: notes, payee name, category
+ * path, transaction number and amounts.
+ * It is an FTS5 table with the trigram tokenizer, so that the LIKE '%text%' searches use
+ * the index and keep their results. As the report fact table, it lives in the temp schema
+ * of the open connection, so the database file is not modified. It is built in the
+ * background when the search screen opens and kept current by the content provider.
+ * Until it is ready, or where FTS5 is not available, the search scans the transactions.
+ */
+@Singleton
+public class TransactionSearchIndex {
+
+    public static final String TABLE_NAME = "transaction_search";
+
+    public static final String NOTES = "notes";
+    public static final String PAYEE = "payee";
+    public static final String CATEGORY = "category";
+    public static final String NUMBER = "number";
+    public static final String AMOUNT = "amount";
+
+    /**
+     * The indexed values of the transactions. The caller appends the transaction filter.
+     */
+    private static final String SOURCE_SQL =
+            "WITH RECURSIVE categories(categid, categname, parentid) AS" +
+            " (SELECT a.categid, a.categname, a.parentid FROM category_v1 a WHERE parentid = '-1'" +
+            " UNION ALL" +
+            " SELECT c.categid, r.categname || ':' || c.categname, c.parentid" +
+            " FROM categories r, category_v1 c WHERE r.categid = c.parentid)" +
+            " INSERT INTO temp." + TABLE_NAME +
+            " (rowid, " + NOTES + ", " + PAYEE + ", " + CATEGORY + ", " + NUMBER + ", " + AMOUNT + ")" +
+            " SELECT TX.TRANSID, TX.NOTES, PAYEE.PAYEENAME, CAT.categname, TX.TRANSACTIONNUMBER," +
+            " TX.TRANSAMOUNT || ' ' || TX.TOTRANSAMOUNT" +
+            " FROM CHECKINGACCOUNT_V1 TX" +
+            " LEFT JOIN categories CAT ON CAT.categid = TX.CATEGID" +
+            " LEFT JOIN PAYEE_V1 PAYEE ON PAYEE.PAYEEID = TX.PAYEEID" +
+            " WHERE (TX.DELETEDTIME IS NULL OR TX.DELETEDTIME = '')";
+
+    @Inject
+    public TransactionSearchIndex(MmexApplication app) {
+        this.app = app;
+    }
+
+    private final MmexApplication app;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final AtomicBoolean rebuildScheduled = new AtomicBoolean(false);
+    /**
+     * The connection that holds the current index. Null when there is none.
+     */
+    private volatile SupportSQLiteDatabase builtFor;
+    /**
+     * Set when the SQLite library has no FTS5 or trigram tokenizer.
+     */
+    private volatile boolean unsupported;
+
+    /**
+     * Builds the index in the background if it is not current. Called when the search opens.
+     */
+    public void prepare() {
+        SupportSQLiteDatabase database = getOpenDatabase();
+        if (database == null || builtFor != database) {
+            requestRebuild();
+        }
+    }
+
+    /**
+     * @param idColumn The transaction id column of the searched query.
+     * @param column The indexed column, i.e. NOTES.
+     * @param pattern LIKE pattern.
+     * @return the condition that matches the transaction ids through the index, or null if
+     * the index is not available at the moment. In that case it is rebuilt in the background.
+     */
+    public String getIdFilter(String idColumn, String column, String pattern) {
+        SupportSQLiteDatabase database = getOpenDatabase();
+        if (database == null || unsupported) return null;
+
+        if (builtFor != database) {
+            requestRebuild();
+            return null;
+        }
+
+        return idColumn + " IN (SELECT rowid FROM temp." + TABLE_NAME +
+                " WHERE " + column + " LIKE " + DatabaseUtils.sqlEscapeString(pattern) + ")";
+    }
+
+    /**
+     * @return whether the index in the given connection is current and must be maintained.
+     */
+    public boolean isMaintained(SupportSQLiteDatabase database) {
+        return database != null && builtFor == database;
+    }
+
+    /**
+     * Schedules a full rebuild in the background. Multiple requests are merged.
+     */
+    public void requestRebuild() {
+        if (unsupported || !rebuildScheduled.compareAndSet(false, true)) return;
+
+        executor.execute(() -> {
+            rebuildScheduled.set(false);
+            rebuild();
+        });
+    }
+
+    /**
+     * Recreates the index from the transactions.
+     */
+    public synchronized void rebuild() {
+        if (unsupported || app.openHelperAtomicReference == null) return;
+
+        MmxOpenHelper helper = app.openHelperAtomicReference.get();
+        if (helper == null) return;
+
+        long start = SystemClock.elapsedRealtime();
+        SupportSQLiteDatabase database = helper.getWritableDatabase();
+
+        database.beginTransaction();
+        try {
+            builtFor = null;
+
+            database.execSQL("DROP TABLE IF EXISTS temp." + TABLE_NAME);
+            database.execSQL("CREATE VIRTUAL TABLE temp." + TABLE_NAME + " USING fts5(" +
+                    NOTES + ", " + PAYEE + ", " + CATEGORY + ", " + NUMBER + ", " + AMOUNT +
+                    ", tokenize = 'trigram')");
+            database.execSQL(SOURCE_SQL);
+
+            // no other writes can happen on the connection until the transaction ends.
+            builtFor = database;
+            database.setTransactionSuccessful();
+        } catch (Exception e) {
+            builtFor = null;
+            if (e.getMessage() != null && (e.getMessage().contains("fts5") || e.getMessage().contains("trigram"))) {
+                unsupported = true;
+            }
+            Timber.e(e, "building the transaction search index");
+        } finally {
+            database.endTransaction();
+        }
+
+        Timber.i("transaction search index built in %d ms", SystemClock.elapsedRealtime() - start);
+    }
+
+    /**
+     * Reindexes the given transactions. Called by the content provider, on the same
+     * connection and within the same transaction as the write.
+     * @param transactionIds Ids of the inserted, changed or deleted transactions.
+     */
+    public void refresh(SupportSQLiteDatabase database, Collection<Integer> transactionIds) {
+        if (!isMaintained(database) || transactionIds.isEmpty()) return;
+
+        String ids = TextUtils.join(", ", transactionIds);
+        try {
+            database.execSQL("DELETE FROM temp." + TABLE_NAME + " WHERE rowid IN (" + ids + ")");
+            database.execSQL(SOURCE_SQL + " AND TX.TRANSID IN (" + ids + ")");
+        } catch (Exception e) {
+            Timber.e(e, "refreshing the transaction search index");
+            invalidate();
+        }
+    }
+
+    /**
+     * Drops the current index and schedules a rebuild. Used when payees or categories change.
+     */
+    public void invalidate() {
+        if (builtFor == null) return;
+
+        builtFor = null;
+        requestRebuild();
+    }
+
+    /**
+     * Forgets the current index. Used when the database is switched.
+     */
+    public void reset() {
+        builtFor = null;
+        unsupported = false;
+    }
+
+    private SupportSQLiteDatabase getOpenDatabase() {
+        if (app.openHelperAtomicReference == null) return null;
+
+        MmxOpenHelper helper = app.openHelperAtomicReference.get();
+        return helper == null ? null : helper.getOpenDatabase();
+    }
+}
@@ -19,6 +19,7 @@ package com.money.manager.ex.database;
 import android.content.Context;
 import android.text.TextUtils;
 
+import com.money.manager.ex.MmexApplication;
 import com.money.manager.ex.R;
 import com.money.manager.ex.utils.MmxFileUtils;
 
@@ -58,6 +59,18 @@ public class ViewMobileData
 	public static final String currency = "currency";
 	public static final String AmountBaseConvRate = "AmountBaseConvRate";
 	
+    /**
+     * The columns taken from the transaction, or from the account joined on it.
+     * The materialized copy has no injection point and is filtered as it is.
+     */
+    private static final PredicatePushdown PUSHDOWN = new PredicatePushdown()
+            .column(ID, "TX.TRANSID")
+            .column(TransactionType, "TX.TRANSCODE")
+            .column(Status, "TX.STATUS")
+            .column(ACCOUNTID, "TX.ACCOUNTID")
+            .date(Date, "TX.TRANSDATE")
+            .year(Year, "TX.TRANSDATE");
+
 	public ViewMobileData(Context context) {
 		super("", DatasetType.VIEW, "mobiledata");
 
@@ -67,6 +80,23 @@ public class ViewMobileData
 	}
 
     private final Context mContext;
+    private String mWhere;
+
+    /**
+     * @return the materialized copy of the view when it is enabled and ready, the view otherwise.
+     */
+    @Override
+    public String getSource() {
+        String facts = MmexApplication.getApp().iocComponent.reportFactTable().getSource(mWhere);
+        if (facts != null) return facts;
+
+        return super.getSource();
+    }
+
+    @Override
+    public PredicatePushdown getPushdown() {
+        return PUSHDOWN;
+    }
 
 	@Override
 	public String[] getAllColumns() {
@@ -78,6 +108,7 @@ public class ViewMobileData
 	}
 
     public void setWhere(String where) {
+        mWhere = where;
         initialize(mContext, where);
     }
 
@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.money.manager.ex.database;
+
+import static android.database.sqlite.SQLiteDatabase.CONFLICT_REPLACE;
+
+import android.content.ContentValues;
+import android.net.Uri;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+/**
+ * State of a batch of writes executed in a single transaction by the content provider.
+ * Inserts through the statement cache of the connection, so that rows with the same columns
+ * reuse the compiled statement, and collects the uris to notify and the changed transactions
+ * to register once the transaction is committed.
+ */
+public class WriteBatch {
+
+    public WriteBatch(SupportSQLiteDatabase database, StatementCache statements) {
+        this.database = database;
+        this.statements = statements;
+    }
+
+    private final SupportSQLiteDatabase database;
+    private final StatementCache statements;
+    private final Set<Uri> changedUris = new LinkedHashSet<>();
+    private final List<TransactionChange> transactionChanges = new ArrayList<>();
+    private boolean failed;
+
+    public SupportSQLiteDatabase getDatabase() {
+        return database;
+    }
+
+    /**
+     * Inserts (or replaces) a record, reusing the statement compiled for the same table
+     * and columns.
+     * @return the row id of the inserted record.
+     */
+    public long insert(String table, ContentValues values) {
+        return statements.insert(table, CONFLICT_REPLACE, values);
+    }
+
+    public void addChangedUri(Uri uri) {
+        changedUris.add(uri);
+    }
+
+    public Set<Uri> getChangedUris() {
+        return changedUris;
+    }
+
+    public void addTransactionChange(Integer accountId, Integer toAccountId, String date) {
+        transactionChanges.add(new TransactionChange(accountId, toAccountId, date));
+    }
+
+    public List<TransactionChange> getTransactionChanges() {
+        return transactionChanges;
+    }
+
+    /**
+     * Marks the batch for rollback. Called when one of the operations fails.
+     */
+    public void setFailed() {
+        failed = true;
+    }
+
+    public boolean isFailed() {
+        return failed;
+    }
+
+    /**
+     * The accounts and the date of a written transaction, for the balance checkpoints.
+     */
+    public static class TransactionChange {
+        TransactionChange(Integer accountId, Integer toAccountId, String date) {
+            this.accountId = accountId;
+            this.toAccountId = toAccountId;
+            this.date = date;
+        }
+
+        public final Integer accountId;
+        public final Integer toAccountId;
+        public final String date;
+    }
+}
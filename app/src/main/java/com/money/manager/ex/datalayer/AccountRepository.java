@@ -25,7 +25,7 @@ import com.money.manager.ex.account.AccountStatuses;
 import com.money.manager.ex.account.AccountTypes;
 import com.money.manager.ex.database.DatasetType;
 import com.money.manager.ex.database.QueryAccountBills;
-import com.money.manager.ex.database.WhereStatementGenerator;
+import com.money.manager.ex.database.ParameterizedWhere;
 import com.money.manager.ex.domainmodel.Account;
 import com.money.manager.ex.utils.MmxDatabaseUtils;
 
@@ -51,10 +51,10 @@ public class AccountRepository
     public Account load(int id) {
         if (id == Constants.NOT_SET) return null;
 
-        WhereStatementGenerator where = new WhereStatementGenerator();
+        ParameterizedWhere where = new ParameterizedWhere();
         where.addStatement(Account.ACCOUNTID, "=", id);
 
-        return first(where.getWhere());
+        return (Account) super.first(Account.class, null, where.getWhere(), where.getArgs(), null);
     }
 
     public boolean delete(int id) {
@@ -164,14 +164,14 @@ public class AccountRepository
             return true;
         }
 
-        WhereStatementGenerator generator = new WhereStatementGenerator();
-        String where = generator.getStatement(Account.ACCOUNTID, "=", id);
+        ParameterizedWhere where = new ParameterizedWhere();
+        where.addStatement(Account.ACCOUNTID, "=", id);
 
-        return update(value, where);
+        return update(value, where.getWhere(), where.getArgs());
     }
 
     public Cursor getInvestmentAccountsCursor(boolean openOnly) {
-        WhereStatementGenerator where = new WhereStatementGenerator();
+        ParameterizedWhere where = new ParameterizedWhere();
         where.addStatement(Account.ACCOUNTTYPE, "=", AccountTypes.INVESTMENT.toString());
         if (openOnly) {
             where.addStatement(Account.STATUS, "=", AccountStatuses.OPEN.toString());
@@ -179,7 +179,7 @@ public class AccountRepository
 
         Cursor c = openCursor(this.getAllColumns(),
             where.getWhere(),
-            null,
+            where.getArgs(),
             "lower (" + Account.ACCOUNTNAME + ")");
 
         return c;
@@ -21,7 +21,7 @@ import android.content.Context;
 import com.money.manager.ex.Constants;
 import com.money.manager.ex.database.DatasetType;
 import com.money.manager.ex.database.ITransactionEntity;
-import com.money.manager.ex.database.WhereStatementGenerator;
+import com.money.manager.ex.database.ParameterizedWhere;
 import com.money.manager.ex.domainmodel.AccountTransaction;
 import com.money.manager.ex.utils.MmxDatabaseUtils;
 import com.money.manager.ex.utils.MmxDate;
@@ -31,10 +31,12 @@ import com.money.manager.ex.utils.MmxDate;
  * Source: Table Checking Account.
  */
 public class AccountTransactionRepository
-    extends RepositoryBase {
+    extends RepositoryBase<AccountTransaction> {
+
+    public static final String TABLE_NAME = "checkingaccount_v1";
 
     public AccountTransactionRepository(Context context) {
-        super(context, "checkingaccount_v1", DatasetType.TABLE, "checkingaccount");
+        super(context, TABLE_NAME, DatasetType.TABLE, "checkingaccount");
     }
 
     @Override
@@ -55,10 +57,15 @@ public class AccountTransactionRepository
                 ITransactionEntity.TOTRANSAMOUNT};
     }
 
+    @Override
+    protected RowMapper<AccountTransaction> createRowMapper() {
+        return new AccountTransactionRowMapper();
+    }
+
     public AccountTransaction load(int id) {
         if (id == Constants.NOT_SET) return null;
 
-        AccountTransaction tx = (AccountTransaction) first(AccountTransaction.class,
+        AccountTransaction tx = first(AccountTransaction.class,
                 getAllColumns(),
                 AccountTransaction.TRANSID + "=?",
                 MmxDatabaseUtils.getArgsForId(id),
@@ -79,12 +86,12 @@ public class AccountTransactionRepository
     }
 
     public boolean update(AccountTransaction item) {
-        WhereStatementGenerator where = new WhereStatementGenerator();
+        ParameterizedWhere where = new ParameterizedWhere();
         where.addStatement(AccountTransaction.TRANSID, "=", item.getId());
 
         item.setLastUpdatedTime((new MmxDate()).toIsoCombinedString());
 
-        boolean saved = super.update(item, where.getWhere());
+        boolean saved = super.update(item, where.getWhere(), where.getArgs());
         return saved;
     }
 }
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.money.manager.ex.datalayer;
+
+import android.content.ContentValues;
+
+import com.money.manager.ex.database.ITransactionEntity;
+import com.money.manager.ex.domainmodel.AccountTransaction;
+
+/**
+ * Reads account transactions (checkingaccount_v1) from cursors.
+ */
+public class AccountTransactionRowMapper
+    extends RowMapper<AccountTransaction> {
+
+    @Override
+    protected AccountTransaction create(ContentValues values) {
+        return new AccountTransaction(values);
+    }
+
+    @Override
+    protected int getColumnType(String column) {
+        switch (column) {
+            case AccountTransaction.TRANSID:
+            case ITransactionEntity.ACCOUNTID:
+            case ITransactionEntity.TOACCOUNTID:
+            case ITransactionEntity.PAYEEID:
+            case ITransactionEntity.CATEGID:
+            case ITransactionEntity.FOLLOWUPID:
+                return INTEGER;
+            case ITransactionEntity.TRANSAMOUNT:
+            case ITransactionEntity.TOTRANSAMOUNT:
+                return REAL;
+            default:
+                return TEXT;
+        }
+    }
+}
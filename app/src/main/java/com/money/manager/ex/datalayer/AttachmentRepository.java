@@ -92,6 +92,6 @@ public class AttachmentRepository
 
     public boolean save(Attachment attachment) {
         int id = attachment.getId();
-        return super.update(attachment, Attachment.ATTACHMENTID + "=" + id);
+        return super.update(attachment, Attachment.ATTACHMENTID + "=?", MmxDatabaseUtils.getArgsForId(id));
     }
 }
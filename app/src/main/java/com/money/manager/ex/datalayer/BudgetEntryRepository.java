@@ -22,7 +22,7 @@ import android.database.Cursor;
 
 import com.money.manager.ex.Constants;
 import com.money.manager.ex.database.DatasetType;
-import com.money.manager.ex.database.WhereStatementGenerator;
+import com.money.manager.ex.database.ParameterizedWhere;
 import com.money.manager.ex.domainmodel.BudgetEntry;
 import com.money.manager.ex.domainmodel.Category;
 import com.money.manager.ex.nestedcategory.NestedCategoryEntity;
@@ -62,13 +62,13 @@ public class BudgetEntryRepository
     public BudgetEntry load(int id) {
         if (id == Constants.NOT_SET) return null;
 
-        WhereStatementGenerator where = new WhereStatementGenerator();
+        ParameterizedWhere where = new ParameterizedWhere();
         where.addStatement(BudgetEntry.BUDGETENTRYID, "=", id);
 
         BudgetEntry result = super.first(BudgetEntry.class,
                 null,
                 where.getWhere(),
-                null,
+                where.getArgs(),
                 null);
         return result;
     }
@@ -93,13 +93,13 @@ public class BudgetEntryRepository
     public HashMap<String, BudgetEntry> loadForYear(long budgetYearId) {
         if (budgetYearId == Constants.NOT_SET) return null;
 
-        WhereStatementGenerator where = new WhereStatementGenerator();
+        ParameterizedWhere where = new ParameterizedWhere();
         where.addStatement(BudgetEntry.BUDGETYEARID, "=", budgetYearId);
 
         Cursor cursor = getContext().getContentResolver().query(getUri(),
                 null,
                 where.getWhere(),
-                null,
+                where.getArgs(),
                 null);
         if (cursor == null) return null;
 
@@ -21,7 +21,7 @@ import android.content.Context;
 
 import com.money.manager.ex.Constants;
 import com.money.manager.ex.database.DatasetType;
-import com.money.manager.ex.database.WhereStatementGenerator;
+import com.money.manager.ex.database.ParameterizedWhere;
 import com.money.manager.ex.domainmodel.Budget;
 import com.money.manager.ex.utils.MmxDatabaseUtils;
 
@@ -50,13 +50,13 @@ public class BudgetRepository
     public Budget load(int id) {
         if (id == Constants.NOT_SET) return null;
 
-        WhereStatementGenerator where = new WhereStatementGenerator();
+        ParameterizedWhere where = new ParameterizedWhere();
         where.addStatement(Budget.BUDGETYEARID, "=", id);
 
         Budget result = super.first(Budget.class,
                 null,
                 where.getWhere(),
-                null,
+                where.getArgs(),
                 null);
         return result;
     }
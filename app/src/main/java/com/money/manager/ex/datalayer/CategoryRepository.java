@@ -44,6 +44,11 @@ public class CategoryRepository
                 Category.PARENTID};
     }
 
+    @Override
+    protected RowMapper<Category> createRowMapper() {
+        return new CategoryRowMapper();
+    }
+
     public Category load(int id) {
         if (id == Constants.NOT_SET) return null;
 
@@ -22,7 +22,6 @@ import android.database.Cursor;
 import com.money.manager.ex.domainmodel.Info;
 import com.squareup.sqlbrite3.BriteDatabase;
 
-import java.util.ArrayList;
 import java.util.List;
 
 import javax.inject.Inject;
@@ -53,16 +52,17 @@ public class InfoRepositorySql
         Cursor c = this.query(sql);
         if (c == null) return null;
 
-        List<Info> results = new ArrayList<>();
-        while (c.moveToNext()) {
-            Info entity = new Info();
-            entity.loadFromCursor(c);
-            results.add(entity);
-        }
+        List<Info> results = createRowMapper().mapAll(c);
+        c.close();
 
         return results;
     }
 
+    @Override
+    protected RowMapper<Info> createRowMapper() {
+        return new InfoRowMapper();
+    }
+
     public int delete(long id) {
         String idString = String.valueOf(id);
         return this.delete(Info.INFOID + "=?", idString);
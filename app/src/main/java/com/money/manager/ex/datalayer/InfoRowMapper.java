@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.money.manager.ex.datalayer;
+
+import android.content.ContentValues;
+
+import com.money.manager.ex.domainmodel.Info;
+
+/**
+ * Reads the records of the info table from cursors.
+ */
+public class InfoRowMapper
+    extends RowMapper<Info> {
+
+    @Override
+    protected Info create(ContentValues values) {
+        return new Info(values);
+    }
+
+    @Override
+    protected int getColumnType(String column) {
+        return Info.INFOID.equals(column) ? INTEGER : TEXT;
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.money.manager.ex.datalayer;
+
+import android.database.Cursor;
+import android.text.TextUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a sorted query into pages of a fixed size. Each page continues after the sort key
+ * of the last row of the previous page (keyset pagination), so fetching a page does not
+ * depend on how many rows come before it.
+ * The sort must consist of plain columns, the last of which is unique (i.e. the id), and the
+ * sort columns must not contain nulls. They must also be in the projection.
+ */
+public class KeysetPager {
+
+    /**
+     * @return the pager for the query, or null if the sort can not be used for paging.
+     */
+    public static KeysetPager create(Select query, String idColumn, int pageSize) {
+        List<String> columns = new ArrayList<>();
+        List<Boolean> descending = new ArrayList<>();
+        if (!parseSort(query.sort, columns, descending)) return null;
+
+        // the last column must make the key unique.
+        if (!columns.get(columns.size() - 1).equalsIgnoreCase(idColumn)) return null;
+
+        return new KeysetPager(query, columns.toArray(new String[0]), descending, pageSize);
+    }
+
+    private KeysetPager(Select query, String[] keyColumns, List<Boolean> descending, int pageSize) {
+        this.query = query;
+        this.keyColumns = keyColumns;
+        this.descending = new boolean[keyColumns.length];
+        for (int i = 0; i < keyColumns.length; i++) {
+            this.descending[i] = descending.get(i);
+        }
+        this.pageSize = pageSize;
+    }
+
+    private final Select query;
+    private final String[] keyColumns;
+    private final boolean[] descending;
+    private final int pageSize;
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public Select getFirstPage() {
+        return createPage(query.selection, query.selectionArgs);
+    }
+
+    /**
+     * @param lastRow Cursor positioned on the last row of the previous page.
+     * @return the query for the rows that follow.
+     */
+    public Select getNextPage(Cursor lastRow) {
+        Object[] key = new Object[keyColumns.length];
+        for (int i = 0; i < keyColumns.length; i++) {
+            int column = lastRow.getColumnIndexOrThrow(keyColumns[i]);
+            switch (lastRow.getType(column)) {
+                case Cursor.FIELD_TYPE_INTEGER:
+                    key[i] = lastRow.getLong(column);
+                    break;
+                case Cursor.FIELD_TYPE_FLOAT:
+                    key[i] = lastRow.getDouble(column);
+                    break;
+                default:
+                    key[i] = lastRow.getString(column);
+                    break;
+            }
+        }
+        return getNextPage(key);
+    }
+
+    /**
+     * @param lastKey Values of the sort columns in the last row of the previous page.
+     *                Numbers are written into the statement, text is passed as an argument.
+     * @return the query for the rows that follow.
+     */
+    public Select getNextPage(Object[] lastKey) {
+        List<String> args = new ArrayList<>();
+        if (query.selectionArgs != null) {
+            for (String arg : query.selectionArgs) {
+                args.add(arg);
+            }
+        }
+
+        // (k1 > v1) OR (k1 = v1 AND k2 > v2) OR ... with < for the descending columns.
+        StringBuilder seek = new StringBuilder("(");
+        for (int i = 0; i < keyColumns.length; i++) {
+            if (i > 0) seek.append(" OR ");
+            seek.append("(");
+            for (int j = 0; j < i; j++) {
+                appendComparison(seek, j, "=", lastKey[j], args);
+                seek.append(" AND ");
+            }
+            appendComparison(seek, i, descending[i] ? "<" : ">", lastKey[i], args);
+            seek.append(")");
+        }
+        seek.append(")");
+
+        String selection = TextUtils.isEmpty(query.selection)
+            ? seek.toString()
+            : "(" + query.selection + ") AND " + seek;
+
+        return createPage(selection, args.isEmpty() ? null : args.toArray(new String[0]));
+    }
+
+    // Private
+
+    private Select createPage(String selection, String[] args) {
+        Select page = new Select(query.projection)
+            .from(query.from)
+            .orderBy(query.sort)
+            .limit(pageSize);
+        page.selection = selection;
+        page.selectionArgs = args;
+        return page;
+    }
+
+    private void appendComparison(StringBuilder sql, int index, String operator, Object value,
+                                  List<String> args) {
+        sql.append(keyColumns[index]).append(' ').append(operator).append(' ');
+        if (value instanceof Long || value instanceof Double) {
+            sql.append(value);
+        } else {
+            sql.append('?');
+            args.add(String.valueOf(value));
+        }
+    }
+
+    /**
+     * Parses "column [ASC|DESC], ...".
+     * @return false if the sort contains anything other than columns and directions.
+     */
+    static boolean parseSort(String sort, List<String> columns, List<Boolean> descending) {
+        if (TextUtils.isEmpty(sort)) return false;
+
+        for (String part : sort.split(",")) {
+            String[] tokens = part.trim().split("\\s+");
+            if (tokens.length == 0 || tokens.length > 2) return false;
+            if (!tokens[0].matches("[A-Za-z_][A-Za-z0-9_.]*")) return false;
+
+            boolean desc = false;
+            if (tokens.length == 2) {
+                if (tokens[1].equalsIgnoreCase("DESC")) {
+                    desc = true;
+                } else if (!tokens[1].equalsIgnoreCase("ASC")) {
+                    return false;
+                }
+            }
+            columns.add(tokens[0]);
+            descending.add(desc);
+        }
+        return !columns.isEmpty();
+    }
+}
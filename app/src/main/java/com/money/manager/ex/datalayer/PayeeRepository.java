@@ -27,7 +27,7 @@ import com.money.manager.ex.utils.MmxDatabaseUtils;
  * Payee repository
  */
 public class PayeeRepository
-    extends RepositoryBase{
+    extends RepositoryBase<Payee> {
 
     public PayeeRepository(Context context) {
         super(context, "payee_v1", DatasetType.TABLE, "payee");
@@ -45,6 +45,11 @@ public class PayeeRepository
         };
     }
 
+    @Override
+    protected RowMapper<Payee> createRowMapper() {
+        return new PayeeRowMapper();
+    }
+
     public int add(Payee entity) {
         return insert(entity.contentValues);
     }
@@ -59,7 +64,7 @@ public class PayeeRepository
     public Payee load(Integer id) {
         if (id == null || id == Constants.NOT_SET) return null;
 
-        Payee payee = (Payee) super.first(Payee.class,
+        Payee payee = super.first(Payee.class,
                 getAllColumns(),
                 Payee.PAYEEID + "=?", MmxDatabaseUtils.getArgsForId(id),
                 null);
@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.money.manager.ex.datalayer;
+
+import android.content.ContentValues;
+
+import com.money.manager.ex.domainmodel.Payee;
+
+/**
+ * Reads payees from cursors.
+ */
+public class PayeeRowMapper
+    extends RowMapper<Payee> {
+
+    @Override
+    protected Payee create(ContentValues values) {
+        return new Payee(values);
+    }
+
+    @Override
+    protected int getColumnType(String column) {
+        switch (column) {
+            case Payee.PAYEEID:
+            case Payee.CATEGID:
+            case Payee.ACTIVE:
+                return INTEGER;
+            default:
+                return TEXT;
+        }
+    }
+}
@@ -23,7 +23,7 @@ import android.database.Cursor;
 import com.money.manager.ex.Constants;
 import com.money.manager.ex.database.DatasetType;
 import com.money.manager.ex.database.ITransactionEntity;
-import com.money.manager.ex.database.WhereStatementGenerator;
+import com.money.manager.ex.database.ParameterizedWhere;
 import com.money.manager.ex.domainmodel.RecurringTransaction;
 
 /**
@@ -63,10 +63,10 @@ public class RecurringTransactionRepository
     public RecurringTransaction load(int id) {
         if (id == Constants.NOT_SET) return null;
 
-        WhereStatementGenerator where = new WhereStatementGenerator();
+        ParameterizedWhere where = new ParameterizedWhere();
         where.addStatement(RecurringTransaction.BDID, "=", id);
 
-        RecurringTransaction tx = first(null, where.getWhere(), null);
+        RecurringTransaction tx = first(null, where.getWhere(), where.getArgs());
 
         return tx;
     }
@@ -101,10 +101,10 @@ public class RecurringTransactionRepository
     public boolean update(RecurringTransaction value) {
         int id = value.getId();
 
-        WhereStatementGenerator generator = new WhereStatementGenerator();
-        String where = generator.getStatement(RecurringTransaction.BDID, "=", id);
+        ParameterizedWhere where = new ParameterizedWhere();
+        where.addStatement(RecurringTransaction.BDID, "=", id);
 
-        return update(value, where);
+        return update(value, where.getWhere(), where.getArgs());
     }
 
 }
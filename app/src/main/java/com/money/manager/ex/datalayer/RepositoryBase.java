@@ -105,13 +105,7 @@ public abstract class RepositoryBase<T extends EntityBase>
             if (c == null) return null;
 
             if (c.moveToNext()) {
-                try {
-                    entity = resultType.newInstance();
-                    //resultType.cast(entity);
-                    entity.loadFromCursor(c);
-                } catch (Exception e) {
-                    Timber.e(e, "creating %s", resultType.getName());
-                }
+                entity = readEntity(resultType, createRowMapper(), c);
             }
             c.close();
         } catch (Exception ex) {
@@ -127,16 +121,12 @@ public abstract class RepositoryBase<T extends EntityBase>
         if (c == null) return null;
 
         List<T> results = new ArrayList<>();
-        //T entity = null;
+        RowMapper<T> mapper = createRowMapper();
 
         while (c.moveToNext()) {
-            try {
-                T entity = resultType.newInstance();
-                entity.loadFromCursor(c);
-
+            T entity = readEntity(resultType, mapper, c);
+            if (entity != null) {
                 results.add(entity);
-            } catch (Exception e) {
-                Timber.e(e, "creating %s", resultType.getName());
             }
         }
         c.close();
@@ -146,6 +136,15 @@ public abstract class RepositoryBase<T extends EntityBase>
 
     // Protected
 
+    /**
+     * Override to read the entities with a typed row mapper instead of
+     * EntityBase.loadFromCursor. A new mapper is used for each query.
+     * @return the row mapper for the entity, or null to use loadFromCursor.
+     */
+    protected RowMapper<T> createRowMapper() {
+        return null;
+    }
+
     protected int bulkInsert(ContentValues[] items) {
         return getContext().getContentResolver().bulkInsert(this.getUri(), items);
     }
@@ -203,7 +202,7 @@ public abstract class RepositoryBase<T extends EntityBase>
     }
 
     /**
-     * Warning: this works only with Asset Class entities!
+     * Updates the entities, matched by their primary key, in a single transaction.
      * Ref:
      * http://www.grokkingandroid.com/better-performance-with-contentprovideroperation/
      * http://www.grokkingandroid.com/android-tutorial-using-content-providers/
@@ -211,7 +210,17 @@ public abstract class RepositoryBase<T extends EntityBase>
      * @return results of the bulk update
      */
     protected ContentProviderResult[] bulkUpdate(EntityBase[] entities) {
+        String idColumn = getIdColumn();
         ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+        for (EntityBase entity : entities) {
+            ContentValues values = new ContentValues(entity.contentValues);
+            values.remove("_id");
+
+            operations.add(ContentProviderOperation.newUpdate(getUri())
+                .withValues(values)
+                .withSelection(idColumn + "=?", new String[] { values.getAsString(idColumn) })
+                .build());
+        }
 
         ContentProviderResult[] results = null;
         try {
@@ -231,16 +240,58 @@ public abstract class RepositoryBase<T extends EntityBase>
         return result;
     }
 
+    /**
+     * Deletes the records with the given ids in a single transaction.
+     */
     protected ContentProviderResult[] bulkDelete(List<Integer> ids) {
+        String idColumn = getIdColumn();
         ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+        for (Integer id : ids) {
+            operations.add(ContentProviderOperation.newDelete(getUri())
+                .withSelection(idColumn + "=?", new String[] { Integer.toString(id) })
+                .build());
+        }
 
         ContentProviderResult[] results = null;
         try {
             results = getContext().getContentResolver()
                 .applyBatch(MmxContentProvider.getAuthority(), operations);
         } catch (RemoteException | OperationApplicationException e) {
-            Timber.e(e, "bulk updating");
+            Timber.e(e, "bulk deleting");
         }
         return results;
     }
+
+    /**
+     * Reads the entity in the current row, with the row mapper when there is one.
+     * @return the entity, or null if it could not be created.
+     */
+    static <T extends EntityBase> T readEntity(Class<T> resultType, RowMapper<T> mapper, Cursor c) {
+        if (mapper != null) {
+            return mapper.map(c);
+        }
+
+        try {
+            T entity = resultType.newInstance();
+            entity.loadFromCursor(c);
+            return entity;
+        } catch (Exception e) {
+            Timber.e(e, "creating %s", resultType.getName());
+            return null;
+        }
+    }
+
+    /**
+     * The primary key column. By default, this is the column aliased as _id in the list
+     * of all columns.
+     */
+    protected String getIdColumn() {
+        for (String column : getAllColumns()) {
+            int aliasPosition = column.toUpperCase().indexOf(" AS _ID");
+            if (aliasPosition > 0) {
+                return column.substring(0, aliasPosition).trim();
+            }
+        }
+        throw new IllegalStateException("No id column defined for " + getSource());
+    }
 }
@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.money.manager.ex.datalayer;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+
+import com.money.manager.ex.domainmodel.EntityBase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Creates entities from cursor rows, as a replacement for EntityBase.loadFromCursor.
+ * The columns are resolved once per cursor. Numeric columns are read as numbers instead of
+ * strings, the values are stored in a ContentValues of the right size, and the entity is
+ * created without reflection. The entities still keep their values in ContentValues,
+ * which are used for the writes.
+ * A mapper keeps the state of the last cursor, so use one instance per query.
+ */
+public abstract class RowMapper<T extends EntityBase> {
+
+    protected static final int TEXT = 0;
+    protected static final int INTEGER = 1;
+    protected static final int REAL = 2;
+
+    private Cursor mCursor;
+    private String[] mColumnNames;
+    private int[] mColumnTypes;
+
+    /**
+     * @return the entity in the current row of the cursor.
+     */
+    public T map(Cursor cursor) {
+        if (cursor != mCursor) {
+            bind(cursor);
+        }
+
+        ContentValues values = new ContentValues(mColumnNames.length);
+        for (int i = 0; i < mColumnNames.length; i++) {
+            String column = mColumnNames[i];
+            if (cursor.isNull(i)) {
+                values.putNull(column);
+                continue;
+            }
+
+            switch (mColumnTypes[i]) {
+                case INTEGER:
+                    values.put(column, cursor.getInt(i));
+                    break;
+                case REAL:
+                    values.put(column, cursor.getDouble(i));
+                    break;
+                default:
+                    if (cursor.getType(i) == Cursor.FIELD_TYPE_BLOB) {
+                        values.put(column, cursor.getBlob(i));
+                    } else {
+                        values.put(column, cursor.getString(i));
+                    }
+                    break;
+            }
+        }
+
+        return create(values);
+    }
+
+    /**
+     * Reads all the remaining rows of the cursor. Does not close the cursor.
+     */
+    public List<T> mapAll(Cursor cursor) {
+        List<T> results = new ArrayList<>(Math.max(cursor.getCount(), 0));
+        while (cursor.moveToNext()) {
+            results.add(map(cursor));
+        }
+        return results;
+    }
+
+    /**
+     * Creates the entity over the values read from the row.
+     */
+    protected abstract T create(ContentValues values);
+
+    /**
+     * @return the storage type of the column: INTEGER, REAL or TEXT.
+     * Columns that are not known to the entity should be TEXT, which is how
+     * EntityBase.loadFromCursor reads all the columns.
+     */
+    protected abstract int getColumnType(String column);
+
+    private void bind(Cursor cursor) {
+        mCursor = cursor;
+        mColumnNames = cursor.getColumnNames();
+        mColumnTypes = new int[mColumnNames.length];
+        for (int i = 0; i < mColumnNames.length; i++) {
+            mColumnTypes[i] = getColumnType(mColumnNames[i]);
+        }
+    }
+}
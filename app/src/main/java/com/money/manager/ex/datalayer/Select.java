@@ -18,6 +18,9 @@
 package com.money.manager.ex.datalayer;
 
 import android.database.sqlite.SQLiteQueryBuilder;
+import android.net.Uri;
+
+import com.money.manager.ex.database.ParameterizedWhere;
 
 import java.util.Arrays;
 
@@ -25,11 +28,18 @@ import java.util.Arrays;
  * Select object for easier querying through repositories.
  */
 public class Select {
+    /**
+     * Uri query parameter with the maximum number of rows. The content resolver queries
+     * have no argument for it, and the cursor loaders only pass the uri.
+     */
+    public static final String LIMIT_PARAMETER = "limit";
+
     public String[] projection = null;
     public String from = null;
     public String selection = null;
     public String[] selectionArgs = null;
     public String sort = null;
+    public Integer limit = null;
 
     /**
      * Query generator. The constructor is also the projection definition. Empty arguments mean *.
@@ -72,6 +82,17 @@ public class Select {
         return this;
     }
 
+    /**
+     * The statement with placeholders and its arguments.
+     * @param where Conditions, with the values as arguments.
+     * @return Select object for chaining methods.
+     */
+    public Select where(ParameterizedWhere where) {
+        this.selection = where.getWhere();
+        this.selectionArgs = where.getArgs();
+        return this;
+    }
+
     public Select where(String selection, long... args) {
         this.selection = selection;
 
@@ -90,11 +111,33 @@ public class Select {
         return this;
     }
 
+    /**
+     * @param limit Maximum number of rows to return.
+     * @return Select object for chaining methods.
+     */
+    public Select limit(int limit) {
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * @param uri Uri of the dataset.
+     * @return The uri to query, with the limit if there is one.
+     */
+    public Uri getUri(Uri uri) {
+        if (limit == null) return uri;
+
+        return uri.buildUpon()
+                .appendQueryParameter(LIMIT_PARAMETER, Integer.toString(limit))
+                .build();
+    }
+
     public String toString() {
         // compose select query.
         SQLiteQueryBuilder builder = new SQLiteQueryBuilder();
         builder.setTables(from);
-        String sql = builder.buildQuery(projection, selection, null, null, sort, null);
+        String sql = builder.buildQuery(projection, selection, null, null, sort,
+                limit == null ? null : Integer.toString(limit));
         return sql;
     }
 }
@@ -21,8 +21,9 @@ import android.database.Cursor;
 
 import com.money.manager.ex.database.DatasetType;
 import com.money.manager.ex.database.ISplitTransaction;
-import com.money.manager.ex.database.WhereStatementGenerator;
+import com.money.manager.ex.database.ParameterizedWhere;
 import com.money.manager.ex.domainmodel.SplitCategory;
+import com.money.manager.ex.utils.MmxDatabaseUtils;
 
 import java.util.ArrayList;
 
@@ -55,8 +56,8 @@ public class SplitCategoriesRepository
      */
     public ArrayList<ISplitTransaction> loadSplitCategoriesFor(int transId) {
         Cursor curSplit = getContext().getContentResolver().query(getUri(), null,
-            SplitCategory.TRANSID + "=" + transId,
-            null,
+            SplitCategory.TRANSID + "=?",
+            MmxDatabaseUtils.getArgsForId(transId),
             SplitCategory.SPLITTRANSID);
         if (curSplit == null) return null;
 
@@ -84,10 +85,10 @@ public class SplitCategoriesRepository
     }
 
     public boolean update(SplitCategory entity) {
-        WhereStatementGenerator where = new WhereStatementGenerator();
+        ParameterizedWhere where = new ParameterizedWhere();
         where.addStatement(SplitCategory.SPLITTRANSID, "=", entity.getId());
 
-        return update(entity, where.getWhere());
+        return update(entity, where.getWhere(), where.getArgs());
     }
 
     public boolean delete(ISplitTransaction entity) {
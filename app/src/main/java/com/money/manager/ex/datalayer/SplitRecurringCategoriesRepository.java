@@ -21,8 +21,9 @@ import android.database.Cursor;
 
 import com.money.manager.ex.database.DatasetType;
 import com.money.manager.ex.database.ISplitTransaction;
-import com.money.manager.ex.database.WhereStatementGenerator;
+import com.money.manager.ex.database.ParameterizedWhere;
 import com.money.manager.ex.domainmodel.SplitRecurringCategory;
+import com.money.manager.ex.utils.MmxDatabaseUtils;
 
 import java.util.ArrayList;
 
@@ -55,8 +56,8 @@ public class SplitRecurringCategoriesRepository
      */
     public ArrayList<ISplitTransaction> loadSplitCategoriesFor(int transId) {
         Cursor curSplit = getContext().getContentResolver().query(getUri(), null,
-            SplitRecurringCategory.TRANSID + "=" + transId,
-            null,
+            SplitRecurringCategory.TRANSID + "=?",
+            MmxDatabaseUtils.getArgsForId(transId),
             SplitRecurringCategory.SPLITTRANSID);
         if (curSplit == null) return null;
 
@@ -84,10 +85,10 @@ public class SplitRecurringCategoriesRepository
     }
 
     public boolean update(SplitRecurringCategory entity) {
-        WhereStatementGenerator where = new WhereStatementGenerator();
+        ParameterizedWhere where = new ParameterizedWhere();
         where.addStatement(SplitRecurringCategory.SPLITTRANSID, "=", entity.getId());
 
-        return update(entity, where.getWhere());
+        return update(entity, where.getWhere(), where.getArgs());
     }
 
     public boolean delete (int id) {
@@ -22,6 +22,9 @@ import static android.database.sqlite.SQLiteDatabase.CONFLICT_FAIL;
 import android.content.ContentValues;
 import android.database.Cursor;
 
+import com.money.manager.ex.MmexApplication;
+import com.money.manager.ex.database.MmxOpenHelper;
+import com.money.manager.ex.database.StatementCache;
 import com.money.manager.ex.domainmodel.EntityBase;
 import com.squareup.sqlbrite3.BriteDatabase;
 
@@ -42,17 +45,23 @@ abstract class SqlRepositoryBase<T extends EntityBase> {
     public String tableName;
 
     public long insert(ContentValues values) {
-        return database.insert(tableName, CONFLICT_FAIL, values);
+        StatementCache statements = getStatementCache();
+        if (statements == null) {
+            return database.insert(tableName, CONFLICT_FAIL, values);
+        }
+        return statements.insert(tableName, CONFLICT_FAIL, values);
     }
 
     public int delete(String where, String... whereArgs) {
-        int result = database.delete(tableName, where, whereArgs);
-
-        return result;
+        StatementCache statements = getStatementCache();
+        if (statements == null) {
+            return database.delete(tableName, where, whereArgs);
+        }
+        return statements.delete(tableName, where, whereArgs);
     }
 
     public boolean exists(Select query) {
-        Cursor c = database.query(query.toString(), query.selectionArgs);
+        Cursor c = read(query.toString(), (Object[]) query.selectionArgs);
         if (c == null) return false;
 
         boolean result = c.getCount() > 0;
@@ -72,17 +81,11 @@ abstract class SqlRepositoryBase<T extends EntityBase> {
             .toString();
 
         try {
-            Cursor c = database.query(sql, args);
+            Cursor c = read(sql, (Object[]) args);
             if (c == null) return null;
 
             if (c.moveToNext()) {
-                try {
-                    entity = resultType.newInstance();
-                    //resultType.cast(entity);
-                    entity.loadFromCursor(c);
-                } catch (Exception e) {
-                    Timber.e(e, "creating %s", resultType.getName());
-                }
+                entity = RepositoryBase.readEntity(resultType, createRowMapper(), c);
             }
             c.close();
         } catch (Exception ex) {
@@ -93,7 +96,37 @@ abstract class SqlRepositoryBase<T extends EntityBase> {
     }
 
     public Cursor query(Select query) {
-        return database.query(query.toString(), query.selectionArgs);
+        return read(query.toString(), (Object[]) query.selectionArgs);
+    }
+
+    /**
+     * Runs the query on a read connection of the database, if it has them, instead of the
+     * connection of the BriteDatabase, which does the writes.
+     */
+    protected Cursor read(String sql, Object... args) {
+        MmxOpenHelper helper = getOpenHelper();
+        if (helper == null) {
+            return database.query(sql, args);
+        }
+        return helper.getReadConnection(sql).query(sql, args);
+    }
+
+    /**
+     * @return The compiled write statements of the connection of the BriteDatabase, or null
+     * outside the app, where the BriteDatabase writes directly.
+     */
+    protected StatementCache getStatementCache() {
+        MmxOpenHelper helper = getOpenHelper();
+        return helper == null ? null : helper.getStatementCache();
+    }
+
+    /**
+     * Override to read the entities with a typed row mapper instead of
+     * EntityBase.loadFromCursor. A new mapper is used for each query.
+     * @return the row mapper for the entity, or null to use loadFromCursor.
+     */
+    protected RowMapper<T> createRowMapper() {
+        return null;
     }
 
     protected boolean update(EntityBase entity, String where, String... selectionArgs) {
@@ -103,12 +136,7 @@ abstract class SqlRepositoryBase<T extends EntityBase> {
         // remove "_id" from the values.
         values.remove("_id");
 
-        int updateResult = database.update(tableName,
-                CONFLICT_FAIL,
-                values,
-                where,
-                selectionArgs
-        );
+        int updateResult = update(values, where, selectionArgs);
 
         if (updateResult != 0) {
             result = true;
@@ -118,4 +146,19 @@ abstract class SqlRepositoryBase<T extends EntityBase> {
 
         return result;
     }
+
+    protected int update(ContentValues values, String where, String... whereArgs) {
+        StatementCache statements = getStatementCache();
+        if (statements == null) {
+            return database.update(tableName, CONFLICT_FAIL, values, where, whereArgs);
+        }
+        return statements.update(tableName, CONFLICT_FAIL, values, where, whereArgs);
+    }
+
+    private MmxOpenHelper getOpenHelper() {
+        MmexApplication app = MmexApplication.getApp();
+        return app == null || app.openHelperAtomicReference == null
+            ? null
+            : app.openHelperAtomicReference.get();
+    }
 }
@@ -17,8 +17,6 @@
 
 package com.money.manager.ex.datalayer;
 
-import static android.database.sqlite.SQLiteDatabase.CONFLICT_FAIL;
-
 import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.DatabaseUtils;
@@ -57,7 +55,7 @@ public class StockHistoryRepositorySql
         // check whether to insert or update.
         if (!recordExists) {
             ContentValues values = getContentValues(symbol, price, date);
-            long id = database.insert(TABLE_NAME, CONFLICT_FAIL, values);
+            long id = insert(values);
 
             if (id > 0) {
                 // success
@@ -97,7 +95,7 @@ public class StockHistoryRepositorySql
             .where(StockHistory.SYMBOL + "=? AND " + StockHistory.DATE + "=?")
             .toString();
 
-        Cursor cursor = database.query(sql, symbol, isoDate);
+        Cursor cursor = read(sql, symbol, isoDate);
         if (cursor == null) return false;
 
         int records = cursor.getCount();
@@ -116,7 +114,7 @@ public class StockHistoryRepositorySql
         where = DatabaseUtils.concatenateWhere(where, StockHistory.DATE + "=?");
         String[] whereArgs = new String[] { symbol, values.getAsString(StockHistory.DATE) };
 
-        int records = database.update(TABLE_NAME, CONFLICT_FAIL, values, where, whereArgs);
+        int records = update(values, where, whereArgs);
 
         result = records > 0;
 
@@ -23,7 +23,7 @@ import android.database.Cursor;
 import com.google.common.collect.ObjectArrays;
 import com.money.manager.ex.Constants;
 import com.money.manager.ex.database.DatasetType;
-import com.money.manager.ex.database.WhereStatementGenerator;
+import com.money.manager.ex.database.ParameterizedWhere;
 import com.money.manager.ex.domainmodel.Stock;
 import com.money.manager.ex.utils.MmxDatabaseUtils;
 
@@ -160,10 +160,10 @@ public class StockRepository
     public boolean save(Stock stock) {
         int id = stock.getId();
 
-        WhereStatementGenerator generator = new WhereStatementGenerator();
-        String where = generator.getStatement(StockFields.STOCKID, "=", id);
+        ParameterizedWhere where = new ParameterizedWhere();
+        where.addStatement(StockFields.STOCKID, "=", id);
 
-        return update(stock, where);
+        return update(stock, where.getWhere(), where.getArgs());
     }
 
     /**
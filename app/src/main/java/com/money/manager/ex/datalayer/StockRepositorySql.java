@@ -101,7 +101,7 @@ public class StockRepositorySql
             .where(StockFields.SYMBOL + "=?")
             .toString();
 
-        Cursor cursor = database.query(sql, symbol);
+        Cursor cursor = read(sql, symbol);
         if (cursor == null) return null;
 
         int records = cursor.getCount();
@@ -17,6 +17,8 @@
 
 package com.money.manager.ex.domainmodel;
 
+import android.content.ContentValues;
+
 /**
  * InfoTable entity
  */
@@ -34,6 +36,14 @@ public class Info
         return entity;
     }
 
+    public Info() {
+        super();
+    }
+
+    public Info(ContentValues contentValues) {
+        super(contentValues);
+    }
+
     public int getId() {
         return getInt(INFOID);
     }
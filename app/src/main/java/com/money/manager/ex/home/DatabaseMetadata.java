@@ -38,6 +38,11 @@ public class DatabaseMetadata {
     // SyncAdapterType
     public String remotePath;
     public String remoteLastChangedDate;
+    /**
+     * Digest of the file contents at the last synchronization, when the local and the remote
+     * copies were the same. Null if not recorded yet.
+     */
+    public String syncedDigest;
 
     public String getFileName() {
         if (TextUtils.isEmpty(this.localPath)) return "";
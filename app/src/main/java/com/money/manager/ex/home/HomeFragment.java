@@ -57,6 +57,7 @@ import com.money.manager.ex.common.MmxCursorLoader;
 import com.money.manager.ex.common.events.AmountEnteredEvent;
 import com.money.manager.ex.core.ContextMenuIds;
 import com.money.manager.ex.core.InfoKeys;
+import com.money.manager.ex.core.StartupTimings;
 import com.money.manager.ex.core.TransactionTypes;
 import com.money.manager.ex.core.database.DatabaseManager;
 import com.money.manager.ex.currency.CurrencyService;
@@ -66,6 +67,7 @@ import com.money.manager.ex.datalayer.AccountRepository;
 import com.money.manager.ex.datalayer.InfoRepositorySql;
 import com.money.manager.ex.datalayer.Select;
 import com.money.manager.ex.home.events.AccountsTotalLoadedEvent;
+import com.money.manager.ex.home.events.DatabaseReadyEvent;
 import com.money.manager.ex.home.events.RequestAccountFragmentEvent;
 import com.money.manager.ex.home.events.RequestPortfolioFragmentEvent;
 import com.money.manager.ex.home.events.RequestWatchlistFragmentEvent;
@@ -292,6 +294,10 @@ public class HomeFragment
 
                 // set total for accounts in the main Drawer.
                 EventBus.getDefault().post(new AccountsTotalLoadedEvent(txtTotalAccounts.getText().toString()));
+
+                if (StartupTimings.mark(StartupTimings.BALANCES) && getActivity() != null) {
+                    getActivity().reportFullyDrawn();
+                }
                 break;
 
             case LOADER_INCOME_EXPENSES:
@@ -388,8 +394,12 @@ public class HomeFragment
             activity.getSupportActionBar().setSubtitle(dbFileName);
         }
 
-        // reload data.
-        startLoaders();
+        // reload data, once the startup has opened the database.
+        if (EventBus.getDefault().getStickyEvent(DatabaseReadyEvent.class) != null) {
+            startLoaders();
+        } else {
+            setListViewAccountBillsVisible(false);
+        }
     }
 
     // Context menu
@@ -478,6 +488,13 @@ public class HomeFragment
 
     // Events
 
+    @Subscribe
+    public void onEvent(DatabaseReadyEvent event) {
+        if (isResumed()) {
+            startLoaders();
+        }
+    }
+
     @Subscribe
     public void onEvent(AmountEnteredEvent event) {
         QueryAccountBills account = this.getAccountBeingBalanced();
@@ -31,6 +31,7 @@ import android.view.Menu;
 import android.view.MenuInflater;
 import android.view.MenuItem;
 import android.view.View;
+import android.view.ViewTreeObserver;
 import android.view.animation.Animation;
 import android.view.animation.LinearInterpolator;
 import android.view.animation.RotateAnimation;
@@ -48,7 +49,6 @@ import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentTransaction;
 import androidx.preference.PreferenceManager;
 
-import com.amplitude.android.Amplitude;
 import com.mikepenz.google_material_typeface_library.GoogleMaterial;
 import com.mikepenz.mmex_icon_font_typeface_library.MMXIconFont;
 import com.money.manager.ex.Constants;
@@ -69,14 +69,18 @@ import com.money.manager.ex.core.IntentFactory;
 import com.money.manager.ex.core.Passcode;
 import com.money.manager.ex.core.RecurringTransactionBootReceiver;
 import com.money.manager.ex.core.RequestCodes;
+import com.money.manager.ex.core.StartupTimings;
 import com.money.manager.ex.core.TransactionTypes;
 import com.money.manager.ex.core.UIHelper;
 import com.money.manager.ex.core.database.DatabaseManager;
 import com.money.manager.ex.core.docstorage.FileStorageHelper;
 import com.money.manager.ex.currency.list.CurrencyListActivity;
+import com.money.manager.ex.database.DatabaseIntegrity;
+import com.money.manager.ex.database.MmxOpenHelper;
 import com.money.manager.ex.database.PasswordActivity;
 import com.money.manager.ex.payee.PayeeListFragment;
 import com.money.manager.ex.home.events.AccountsTotalLoadedEvent;
+import com.money.manager.ex.home.events.DatabaseReadyEvent;
 import com.money.manager.ex.home.events.RequestAccountFragmentEvent;
 import com.money.manager.ex.home.events.RequestOpenDatabaseEvent;
 import com.money.manager.ex.home.events.RequestPortfolioFragmentEvent;
@@ -103,6 +107,7 @@ import com.money.manager.ex.sync.events.SyncStoppingEvent;
 import com.money.manager.ex.tutorial.TutorialActivity;
 import com.money.manager.ex.utils.MmxDatabaseUtils;
 
+import org.greenrobot.eventbus.EventBus;
 import org.greenrobot.eventbus.Subscribe;
 
 import java.io.File;
@@ -157,7 +162,8 @@ public class MainActivity
     int deviceOrientation = Constants.NOT_SET;
 
     private boolean isInAuthentication = false;
-    private boolean isScheduledTransactionStarted = false;
+    private volatile boolean isScheduledTransactionStarted = false;
+    private StartupPipeline mStartupPipeline;
     // navigation drawer
     private LinearLayout mDrawerLayout;
     private DrawerLayout mDrawer;
@@ -172,6 +178,11 @@ public class MainActivity
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        // a recreation, i.e. on rotation, is not a new start.
+        if (savedInstanceState == null) {
+            StartupTimings.begin();
+        }
+
         super.onCreate(savedInstanceState);
 
         MmexApplication.getApp().iocComponent.inject(this);
@@ -180,7 +191,6 @@ public class MainActivity
             finish();
             return;
         }
-        Amplitude amplitude = MmexApplication.getAmplitude();
         // todo: remove this after the users upgrade the recent files list.
         migrateRecentDatabases();
 
@@ -217,27 +227,15 @@ public class MainActivity
 
         showCurrentDatabasePath(this);
 
-        // Read something from the database at this stage so that the db file gets created.
-        InfoService infoService = new InfoService(this);
-
-        String uid = infoService.getInfoValue(InfoKeys.UID);
-        if (uid == null || uid.isEmpty()) {
-            uid = "android_" + Instant.now()
-                    .atZone(ZoneId.of("UTC"))
-                    .format(DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS"));
-            infoService.setInfoValue(InfoKeys.UID, uid);
-        }
-        amplitude.setUserId(uid);
-
         // fragments
         initHomeFragment();
 
         initializeDrawer();
 
-        initializeSync();
-
-        populateScheduledTransactions();
+        markFirstFrame();
 
+        // The database work runs after the first frame.
+        startPipeline();
     }
 
     @Override
@@ -424,6 +422,10 @@ public class MainActivity
 
     @Override
     protected void onDestroy() {
+        if (mStartupPipeline != null) {
+            mStartupPipeline.cancel();
+        }
+
         NotificationManager notificationManager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
         if (notificationManager != null)
             notificationManager.cancelAll();
@@ -535,7 +537,8 @@ public class MainActivity
         try {
             MmxDatabaseUtils dbUtils = new MmxDatabaseUtils(this);
             dbUtils.useDatabase(database);
-            dbUtils.checkIntegrity();
+            // the integrity is checked in the background once the activity is restarted.
+            dbUtils.openDatabase();
         } catch (Exception e) {
             if (e instanceof IllegalArgumentException) {
                 Timber.w(e.getMessage());
@@ -1162,6 +1165,73 @@ public class MainActivity
         this.dbUpdateCheckDone = skipRemoteCheck;
     }
 
+    /**
+     * Opens the database, enters the due recurring transactions and then checks for a newer
+     * database file in the cloud. The home screen loads the balances once the recurring
+     * transactions are processed. The quick integrity check of the file runs last.
+     */
+    private void startPipeline() {
+        // until the new pipeline gets there.
+        EventBus.getDefault().removeStickyEvent(DatabaseReadyEvent.class);
+
+        mStartupPipeline = new StartupPipeline(new StartupPipeline.Listener() {
+            @Override
+            public void onStageSettled(String name, boolean success) {
+                StartupTimings.mark(name);
+
+                // also when the database could not be opened, so that the home screen shows the error.
+                if (StartupTimings.RECURRING.equals(name)) {
+                    EventBus.getDefault().postSticky(new DatabaseReadyEvent());
+                }
+            }
+        })
+                .background(StartupTimings.DATABASE, this::initializeUserId)
+                .background(StartupTimings.RECURRING, this::populateScheduledTransactions,
+                        StartupTimings.DATABASE)
+                .mainThread(StartupTimings.SYNC, this::initializeSync, StartupTimings.RECURRING)
+                .background(StartupTimings.INTEGRITY, this::checkIntegrity, StartupTimings.DATABASE);
+        mStartupPipeline.start();
+    }
+
+    /**
+     * Reads the device id from the database. This is what opens the database file, or creates it.
+     */
+    private void initializeUserId() {
+        InfoService infoService = new InfoService(this);
+
+        String uid = infoService.getInfoValue(InfoKeys.UID);
+        if (uid == null || uid.isEmpty()) {
+            uid = "android_" + Instant.now()
+                    .atZone(ZoneId.of("UTC"))
+                    .format(DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS"));
+            infoService.setInfoValue(InfoKeys.UID, uid);
+        }
+        MmexApplication.getAmplitude().setUserId(uid);
+    }
+
+    /**
+     * Quick check of the database file. Skipped when the file did not change since it was
+     * last verified. The full check is scheduled in the background.
+     */
+    private void checkIntegrity() {
+        MmxOpenHelper openHelper = MmexApplication.getApp().openHelperAtomicReference.get();
+        if (!new DatabaseIntegrity(this, openHelper).checkOnOpen()) {
+            new UIHelper(this).showToast(R.string.db_check_integrity_error, Toast.LENGTH_LONG);
+        }
+    }
+
+    private void markFirstFrame() {
+        final View content = findViewById(android.R.id.content);
+        content.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                content.getViewTreeObserver().removeOnPreDrawListener(this);
+                StartupTimings.mark(StartupTimings.FIRST_FRAME);
+                return true;
+            }
+        });
+    }
+
     private void initializeSync() {
         SyncManager sync = new SyncManager(this);
         SyncPreferences preferences = new SyncPreferences(this);
@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.money.manager.ex.home;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import timber.log.Timber;
+
+/**
+ * The work done when the main activity starts, split in stages that run after the stages
+ * they depend on. Background stages run on a worker thread, the others are posted to the
+ * main thread, so none of them delays the first frame.
+ * When a stage fails, the stages that depend on it are skipped. Every stage is reported to
+ * the listener, on the main thread, once it is settled.
+ */
+public class StartupPipeline {
+
+    public interface Task {
+        void run() throws Exception;
+    }
+
+    public interface Listener {
+        /**
+         * @param success false if the stage failed or was skipped.
+         */
+        void onStageSettled(String name, boolean success);
+    }
+
+    /**
+     * Shared by all the pipelines. When the activity is recreated while a stage is running,
+     * the stages of the new pipeline wait for it instead of running concurrently.
+     */
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    public StartupPipeline(Listener listener) {
+        this.listener = listener;
+    }
+
+    private final Listener listener;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Map<String, Stage> stages = new LinkedHashMap<>();
+    private boolean cancelled;
+
+    public StartupPipeline background(String name, Task task, String... dependencies) {
+        stages.put(name, new Stage(name, task, false, dependencies));
+        return this;
+    }
+
+    public StartupPipeline mainThread(String name, Task task, String... dependencies) {
+        stages.put(name, new Stage(name, task, true, dependencies));
+        return this;
+    }
+
+    /**
+     * Starts the stages without dependencies. Call on the main thread.
+     */
+    public void start() {
+        scheduleReadyStages();
+    }
+
+    /**
+     * Stops scheduling new stages, i.e. when the activity is destroyed. A running stage completes.
+     */
+    public void cancel() {
+        cancelled = true;
+        handler.removeCallbacksAndMessages(null);
+    }
+
+    // Private
+
+    private void scheduleReadyStages() {
+        if (cancelled) return;
+
+        for (Stage stage : stages.values()) {
+            if (stage.state != State.PENDING) continue;
+
+            State dependencies = getDependenciesState(stage);
+            if (dependencies == State.FAILED) {
+                stage.state = State.FAILED;
+                Timber.w("startup stage %s skipped", stage.name);
+                settle(stage);
+                // the stages depending on this one are skipped, too.
+                scheduleReadyStages();
+                return;
+            }
+            if (dependencies == State.DONE) {
+                run(stage);
+            }
+        }
+    }
+
+    private State getDependenciesState(Stage stage) {
+        State result = State.DONE;
+        for (String name : stage.dependencies) {
+            Stage dependency = stages.get(name);
+            if (dependency == null) continue;
+
+            if (dependency.state == State.FAILED) return State.FAILED;
+            if (dependency.state != State.DONE) result = State.PENDING;
+        }
+        return result;
+    }
+
+    private void run(final Stage stage) {
+        stage.state = State.RUNNING;
+
+        Runnable runnable = new Runnable() {
+            @Override
+            public void run() {
+                long start = SystemClock.elapsedRealtime();
+                boolean success;
+                try {
+                    stage.task.run();
+                    success = true;
+                } catch (Exception e) {
+                    Timber.e(e, "startup stage %s", stage.name);
+                    success = false;
+                }
+                Timber.d("startup stage %s took %d ms", stage.name, SystemClock.elapsedRealtime() - start);
+
+                final boolean result = success;
+                handler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onStageCompleted(stage, result);
+                    }
+                });
+            }
+        };
+
+        if (stage.mainThread) {
+            handler.post(runnable);
+        } else {
+            executor.execute(runnable);
+        }
+    }
+
+    private void onStageCompleted(Stage stage, boolean success) {
+        if (cancelled) return;
+
+        stage.state = success ? State.DONE : State.FAILED;
+        settle(stage);
+        scheduleReadyStages();
+    }
+
+    private void settle(Stage stage) {
+        listener.onStageSettled(stage.name, stage.state == State.DONE);
+    }
+
+    private enum State {
+        PENDING, RUNNING, DONE, FAILED
+    }
+
+    private static class Stage {
+        Stage(String name, Task task, boolean mainThread, String[] dependencies) {
+            this.name = name;
+            this.task = task;
+            this.mainThread = mainThread;
+            this.dependencies = new ArrayList<>(Arrays.asList(dependencies));
+        }
+
+        final String name;
+        final Task task;
+        final boolean mainThread;
+        final List<String> dependencies;
+        State state = State.PENDING;
+    }
+}
@@ -48,7 +48,7 @@ import com.money.manager.ex.R;
 import com.money.manager.ex.adapter.CategoryExpandableListAdapter;
 import com.money.manager.ex.common.BaseExpandableListFragment;
 import com.money.manager.ex.common.CategoryListActivity;
-import com.money.manager.ex.common.MmxCursorLoader;
+import com.money.manager.ex.common.SearchCursorLoader;
 import com.money.manager.ex.core.ContextMenuIds;
 import com.money.manager.ex.core.Core;
 import com.money.manager.ex.core.UIHelper;
@@ -85,6 +85,7 @@ public class NestedCategoryListFragment
 
     private List<Category> mCategories;
     private String mCurFilter;
+    private final SearchCursorLoader.Results mSearchResults = new SearchCursorLoader.Results();
 
     @Override
     public void onActivityCreated(Bundle savedInstanceState) {
@@ -243,17 +244,11 @@ public class NestedCategoryListFragment
             mCategories.clear();
 
             // load data
-            String whereClause = null;
-            String[] selectionArgs = null;
-            if (!TextUtils.isEmpty(mCurFilter)) {
-                whereClause = QueryNestedCategory.CATEGNAME + " LIKE ?";
-                selectionArgs = new String[]{mCurFilter + "%"};
-            }
             Select query = new Select(mQuery.getAllColumns())
-                    .where(whereClause, selectionArgs)
                     .orderBy(QueryNestedCategory.CATEGNAME);
 
-            return new MmxCursorLoader(getActivity(), mQuery.getUri(), query);
+            return new SearchCursorLoader(getActivity(), mQuery.getUri(), query, mCurFilter, mSearchResults,
+                    QueryNestedCategory.CATEGNAME);
         }
         return null;
     }
@@ -23,8 +23,9 @@
 
 package com.money.manager.ex.notifications;
 
+import java.util.ArrayList;
 import java.util.Date;
-import java.util.regex.*;
+import java.util.List;
 
 import android.app.Notification;
 import android.app.NotificationChannel;
@@ -35,6 +36,9 @@ import android.content.Context;
 import android.content.Intent;
 import android.database.Cursor;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import androidx.core.app.NotificationCompat;
 import androidx.sqlite.db.SupportSQLiteDatabase;
 import androidx.sqlite.db.SupportSQLiteQuery;
@@ -44,8 +48,11 @@ import android.telephony.SmsMessage;
 import android.widget.Toast;
 
 import com.money.manager.ex.Constants;
+import com.money.manager.ex.MmexApplication;
 import com.money.manager.ex.R;
 import com.money.manager.ex.core.Core;
+import com.money.manager.ex.core.NameIndex;
+import com.money.manager.ex.core.NameIndexCache;
 import com.money.manager.ex.core.TransactionTypes;
 import com.money.manager.ex.currency.CurrencyService;
 import com.money.manager.ex.database.ITransactionEntity;
@@ -55,8 +62,6 @@ import com.money.manager.ex.datalayer.AccountTransactionRepository;
 import com.money.manager.ex.domainmodel.AccountTransaction;
 import com.money.manager.ex.settings.BehaviourSettings;
 import com.money.manager.ex.settings.GeneralSettings;
-import com.money.manager.ex.settings.AppSettings;
-import com.money.manager.ex.settings.PreferenceConstants;
 import com.money.manager.ex.transactions.CheckingTransactionEditActivity;
 import com.money.manager.ex.transactions.EditTransactionActivityConstants;
 import com.money.manager.ex.transactions.EditTransactionCommonFunctions;
@@ -65,6 +70,8 @@ import com.squareup.sqlbrite3.BriteDatabase;
 
 import javax.inject.Inject;
 
+import dagger.Lazy;
+
 import info.javaperformance.money.MoneyFactory;
 import timber.log.Timber;
 
@@ -77,27 +84,80 @@ public class SmsReceiverTransactions extends BroadcastReceiver {
 
     @Inject
     BriteDatabase database;
+    @Inject
+    Lazy<MmxOpenHelper> openHelper;
+    @Inject
+    Lazy<NameIndexCache> nameIndexCache;
 
     private EditTransactionCommonFunctions mCommon;
+    private final SmsTransactionRules rules = SmsTransactionRules.getInstance();
 
     /// Db setup
-    public static MmxOpenHelper MmxHelper;
-    public static SupportSQLiteDatabase db;
+    private SupportSQLiteDatabase db;
+    /**
+     * Payees ordered by name: id, name, category id. Loaded once per message.
+     */
+    private List<String[]> mPayees;
+    /**
+     * Time (elapsed realtime) after which the message is not saved automatically.
+     */
+    private long mDeadline = Long.MAX_VALUE;
 
-    static String[] fromAccountDetails;
-    static String[] toAccountDetails;
+    String[] fromAccountDetails;
+    String[] toAccountDetails;
 
     public static String CHANNEL_ID = "SmsTransaction_NotificationChannel";
     private static final int ID_NOTIFICATION = 0x000A;
 
+
     @Override
     public void onReceive(Context context, Intent intent) {
+        try {
+            //------- if settings enabled the parse the sms and create trans ---------------
+            if (!new BehaviourSettings(context).getBankSmsTrans()) return;
+
+            //---get the SMS message passed in---
+            Bundle bundle = intent.getExtras();
+            if (bundle == null) return;
+
+            //---retrieve the SMS message received---
+            Object[] pdus = (Object[]) bundle.get("pdus");
+            if (pdus == null) return;
+
+            String msgBody = "";
+            String msgSender = "";
+            for (Object pdu : pdus) {
+                SmsMessage msg = SmsMessage.createFromPdu((byte[]) pdu);
+                msgSender = msg.getOriginatingAddress();
+                msgBody += msg.getMessageBody();
+            }
+
+            //msgSender = "AT-SIBSMS";
+
+            if (!rules.isTransactionSender(msgSender)) return;
+
+            // Parsing and saving can take longer than a broadcast is allowed to run,
+            // especially with bursts of messages.
+            SmsTransactionWorker.enqueueWork(context, msgSender, msgBody);
+        }
+        catch(Exception e)
+        {
+            Timber.e(e, "MMEX: Bank Transaction SMS receive EXCEPTION");
+        }
+    }
+
+    /**
+     * Creates the transaction from a bank SMS. Runs on the worker thread.
+     * @param deadline Time (elapsed realtime) after which the transaction is not saved
+     *                 automatically but left for the user to complete.
+     */
+    public void process(Context context, String msgSender, String msgBody, long deadline) {
         mContext = context.getApplicationContext();
+        mDeadline = deadline;
+        MmexApplication.getApp().iocComponent.inject(this);
 
         final BehaviourSettings behav_settings = new BehaviourSettings(mContext);
         final GeneralSettings gen_settings = new GeneralSettings(mContext);
-        final AppSettings app_settings = new AppSettings(mContext);
-        final PreferenceConstants prf_const = new PreferenceConstants();
 
         //App Settings
         int baseCurencyID, fromCurrencyID, toCurrencyID;
@@ -110,333 +170,294 @@ public class SmsReceiverTransactions extends BroadcastReceiver {
         Boolean skipSaveTrans = false;
 
         try {
-            //------- if settings enabled the parse the sms and create trans ---------------
-            if (behav_settings.getBankSmsTrans()) {
+            ITransactionEntity model = AccountTransaction.create();
+            mCommon = new EditTransactionCommonFunctions(null, model, database);
 
-                //---get the SMS message passed in---
-                Bundle bundle = intent.getExtras();
-                SmsMessage[] msgs = null;
-                String msgBody = "";
-                String msgSender = "";
+            String transType = "";
 
-                if (bundle != null) { //---retrieve the SMS message received---
+            //Handle the string
+            msgBody = msgBody.replaceAll("[\\t\\n\\r]+"," ");
+            msgBody = msgBody.replaceAll("  "," ");
 
-                    Object[] pdus = (Object[]) bundle.get("pdus");
-                    msgs = new SmsMessage[pdus.length];
-
-                    for (int i = 0; i < msgs.length; i++) {
-                        msgs[i] = SmsMessage.createFromPdu((byte[]) pdus[i]);
-                        msgSender = msgs[i].getOriginatingAddress();
-                        msgBody += msgs[i].getMessageBody();
-                    }
+            // find out the trans type using reg ex
+            String lowerCaseBody = msgBody.toLowerCase();
+            Boolean isDeposit = rules.isDeposit(lowerCaseBody);
+            Boolean isWithdrawal = rules.isWithdrawal(lowerCaseBody);
 
-                    //msgSender = "AT-SIBSMS";
+            if (isDeposit)
+            {
+                if (isWithdrawal)
+                {
+                    transType = "Transfer";
+                    String[] transCategory = getCategoryOrSubCategoryByName("Transfer");
 
-                    if(isTransactionSms(msgSender)) {
-                        // Transaction Sms sender will have format like this AT-SIBSMS,
-                        // Promotional sms will have sender like AT-012345
-                        // Not sure how this format will be in out side of India. I may need to update if I get sample
+                    if (!transCategory[0].isEmpty()) {
+                        mCommon.transactionEntity.setCategoryId(parseInt(transCategory[0]));
+                    }
 
-                        ITransactionEntity model = AccountTransaction.create();
-                        mCommon = new EditTransactionCommonFunctions(null, model, database);
+                    mCommon.transactionEntity.setTransactionType(TransactionTypes.Transfer);
 
-                        // find out the trans type using reg ex
-                        String[] key_credit_search = {"(credited)", "(received)", "(added)", "(reloaded)", "(deposited)", "(refunded)",
-                                "(debited)(.*?)(towards)(\\s)", "(\\s)(received)(.*?)(in(\\s)your)(\\s)", "(sent)(.*?)(to)(\\s)", "(debited)(.*?)(to)(\\s)",
-                                "(credited)(.*?)(in)(\\s)", "(credited)(.*?)(to)(\\s)"};
+                } else {
+                    transType = "Deposit";
+                    String[] incomeCategory = getCategoryOrSubCategoryByName("Income");
 
-                        // - Sales Draft added for LBP currency. Request from HussienH
-                        String[] key_debit_search = {"(made)", "(debited)", "(using)", "(paid)", "(purchase)", "(withdrawn)", "(done)",
-                                "(credited)(.*?)(from)(\\s)", "(sent)(.*?)(from)(\\s)", "(\\s)(received)(.*?)(from)(\\s)",
-                                "(Sales\\sDraft)"}; //
+                    if (!incomeCategory[0].isEmpty()) {
+                        mCommon.transactionEntity.setCategoryId(parseInt(incomeCategory[0]));
+                    }
 
-                        String transType = "";
+                    mCommon.transactionEntity.setTransactionType(TransactionTypes.Deposit);
+                }
 
-                        //Handle the string
-                        msgBody = msgBody.replaceAll("[\\t\\n\\r]+"," ");
-                        msgBody = msgBody.replaceAll("  "," ");
+            } else if (isWithdrawal) {
+                transType = "Withdrawal";
+                mCommon.transactionEntity.setTransactionType(TransactionTypes.Withdrawal);
+            }
 
-                        Boolean isDeposit = validateTransType(key_credit_search, msgBody.toLowerCase());
-                        Boolean isWithdrawal = validateTransType(key_debit_search, msgBody.toLowerCase());
+            mCommon.transactionEntity.setStatus("");
+            mCommon.payeeName = "";
 
-                        if (isDeposit)
-                        {
-                            if (isWithdrawal)
-                            {
-                                transType = "Transfer";
-                                String[] transCategory = getCategoryOrSubCategoryByName("Transfer");
+            if (transType != "" && !lowerCaseBody.contains("otp")) { // if not from blank, then nothing to do with sms
 
-                                if (!transCategory[0].isEmpty()) {
-                                    mCommon.transactionEntity.setCategoryId(parseInt(transCategory[0]));
-                                }
+                //Create the intent that’ll fire when the user taps the notification//
+                Intent t_intent = new Intent(mContext, CheckingTransactionEditActivity.class);
+                t_intent.addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
 
-                                mCommon.transactionEntity.setTransactionType(TransactionTypes.Transfer);
+                // Db setup
+                db = openHelper.get().getReadableDatabase();
 
-                            } else {
-                                transType = "Deposit";
-                                String[] incomeCategory = getCategoryOrSubCategoryByName("Income");
+                baseCurencyID = gen_settings.getBaseCurrencyId();
+                baseAccountID = gen_settings.getDefaultAccountId();
+                baseAccountName = "";
+                fromAccountID = -1;
+                fromCurrencyID = -1;
+                fromAccountName = "";
 
-                                if (!incomeCategory[0].isEmpty()) {
-                                    mCommon.transactionEntity.setCategoryId(parseInt(incomeCategory[0]));
-                                }
+                //if default account id selected
+                if (baseAccountID > 0) {
+                    fromAccountID = baseAccountID;
+                    fromAccountName = baseAccountName;
+                    fromCurrencyID = baseCurencyID;
+                }
 
-                                mCommon.transactionEntity.setTransactionType(TransactionTypes.Deposit);
-                            }
+                //Get the base currency sysmbl
+                baseCurrencySymbl = getCurrencySymbl(baseCurencyID);
+                fromAccCurrencySymbl = baseCurrencySymbl;
 
-                        } else if (isWithdrawal) {
-                            transType = "Withdrawal";
-                            mCommon.transactionEntity.setTransactionType(TransactionTypes.Withdrawal);
-                        }
+                //get te from acount details
+                extractAccountDetails(msgBody, transType);
 
-                        mCommon.transactionEntity.setStatus("");
-                        mCommon.payeeName = "";
+                if (!fromAccountDetails[0].isEmpty()) {
+                    fromAccountID = parseInt(fromAccountDetails[0]);
+                    fromAccountName = fromAccountDetails[1];
+                    fromCurrencyID = parseInt(fromAccountDetails[2]);
+                    fromAccCurrencySymbl = fromAccountDetails[3];
+                    mCommon.transactionEntity.setAccountId(fromAccountID);
+                }
 
-                        if (transType != "" && !msgBody.toLowerCase().contains("otp")) { // if not from blank, then nothing to do with sms
+                mCommon.transactionEntity.setNotes(msgBody);
+                mCommon.transactionEntity.setDate(new MmxDate().toDate());
 
-                            //Create the intent that’ll fire when the user taps the notification//
-                            Intent t_intent = new Intent(mContext, CheckingTransactionEditActivity.class);
+                //get the trans amount
+                String transAmount = rules.findAmount(msgBody, 0, fromAccCurrencySymbl);
+                String balanceAmount = rules.findAmount(msgBody, 1, fromAccCurrencySymbl);
+                String[] transPayee = extractTransPayee(msgBody);
 
-                            // Db setup
-                            MmxHelper = new MmxOpenHelper(mContext, app_settings.getDatabaseSettings().getDatabasePath());
-                            db = MmxHelper.getReadableDatabase();
+                //If there is no account no. or payee in the msg & no amt, then this is not valid sms to do transaction
+                if ((!fromAccountDetails[6].isEmpty() || !toAccountDetails[6].isEmpty() ||
+                        !transPayee[0].isEmpty()) && !transAmount.isEmpty()) {
 
-                            baseCurencyID = gen_settings.getBaseCurrencyId();
-                            baseAccountID = gen_settings.getDefaultAccountId();
-                            baseAccountName = "";
-                            fromAccountID = -1;
-                            fromCurrencyID = -1;
-                            fromAccountName = "";
+                    mCommon.transactionEntity.setAmount(MoneyFactory.fromString(transAmount));
 
-                            //if default account id selected
-                            if (baseAccountID > 0) {
-                                fromAccountID = baseAccountID;
-                                fromAccountName = baseAccountName;
-                                fromCurrencyID = baseCurencyID;
-                            }
+                    String transRefNo = rules.findReferenceNumber(msgBody);
 
-                            //Get the base currency sysmbl
-                            baseCurrencySymbl = getCurrencySymbl(baseCurencyID);
-                            fromAccCurrencySymbl = baseCurrencySymbl;
+                    //set the ref no. if exists
+                    if(!transRefNo.isEmpty()){
+                        mCommon.transactionEntity.setTransactionNumber(transRefNo);
+                    }
 
-                            //get te from acount details
-                            extractAccountDetails(msgBody, transType);
+                    int txnId = getTxnId(transRefNo.trim(), mCommon.transactionEntity.getDateString());
 
-                            if (!fromAccountDetails[0].isEmpty()) {
-                                fromAccountID = parseInt(fromAccountDetails[0]);
-                                fromAccountName = fromAccountDetails[1];
-                                fromCurrencyID = parseInt(fromAccountDetails[2]);
-                                fromAccCurrencySymbl = fromAccountDetails[3];
-                                mCommon.transactionEntity.setAccountId(fromAccountID);
-                            }
+                    //Update existing transaction
+                    if (txnId == 0) { //add new trnsaction
 
-                            mCommon.transactionEntity.setNotes(msgBody);
-                            mCommon.transactionEntity.setDate(new MmxDate().toDate());
+                        if (transType == "Transfer") //if it is transfer
+                        {
+                            if (!toAccountDetails[0].isEmpty()) // if id exists then considering as account transfer
+                            {
+                                toAccountID = parseInt(toAccountDetails[0]);
+                                toAccountName = toAccountDetails[1];
+                                toCurrencyID = parseInt(toAccountDetails[2]);
+                                toAccCurrencySymbl = toAccountDetails[3];
 
-                            //get the trans amount
-                            String transAmount = extractTransAmount(0, msgBody, fromAccCurrencySymbl);
-                            String balanceAmount = extractTransAmount(1, msgBody, fromAccCurrencySymbl);
-                            String[] transPayee = extractTransPayee(msgBody);
+                                mCommon.transactionEntity.setAccountToId(toAccountID);
 
-                            //If there is no account no. or payee in the msg & no amt, then this is not valid sms to do transaction
-                            if ((!fromAccountDetails[6].isEmpty() || !toAccountDetails[6].isEmpty() ||
-                                    !transPayee[0].isEmpty()) && !transAmount.isEmpty()) {
+                                //convert the to amount from the both currency details
+                                CurrencyService currencyService = new CurrencyService(mContext);
+                                mCommon.transactionEntity.setAmountTo(currencyService.doCurrencyExchange(fromCurrencyID,
+                                        mCommon.transactionEntity.getAmount(),
+                                        toCurrencyID));
 
-                                mCommon.transactionEntity.setAmount(MoneyFactory.fromString(transAmount));
+                                mCommon.transactionEntity.setPayeeId(Constants.NOT_SET);
 
-                                String transRefNo = extractTransRefNo(msgBody);
+                            } else { // if not, then may be IMPS transfer to 3rd party
 
-                                //set the ref no. if exists
-                                if(!transRefNo.isEmpty()){
-                                    mCommon.transactionEntity.setTransactionNumber(transRefNo);
+                                //if there is no to account found from mmex db, then check for payee
+                                //This will helps me to handle 3rd party transfer thru IMPS
+                                if (!toAccountDetails[6].isEmpty() && transPayee[0].isEmpty()) {
+                                    transPayee = getPayeeDetails(toAccountDetails[6].trim());
                                 }
+                            }
+                        }
 
-                                int txnId = getTxnId(transRefNo.trim(), mCommon.transactionEntity.getDateString());
-
-                                //Update existing transaction
-                                if (txnId == 0) { //add new trnsaction
-
-                                    if (transType == "Transfer") //if it is transfer
-                                    {
-                                        if (!toAccountDetails[0].isEmpty()) // if id exists then considering as account transfer
-                                        {
-                                            toAccountID = parseInt(toAccountDetails[0]);
-                                            toAccountName = toAccountDetails[1];
-                                            toCurrencyID = parseInt(toAccountDetails[2]);
-                                            toAccCurrencySymbl = toAccountDetails[3];
-
-                                            mCommon.transactionEntity.setAccountToId(toAccountID);
+                        if (!transPayee[0].isEmpty()) {
 
-                                            //convert the to amount from the both currency details
-                                            CurrencyService currencyService = new CurrencyService(mContext);
-                                            mCommon.transactionEntity.setAmountTo(currencyService.doCurrencyExchange(fromCurrencyID,
-                                                    mCommon.transactionEntity.getAmount(),
-                                                    toCurrencyID));
+                            transType = "Withdrawal";
 
-                                            mCommon.transactionEntity.setPayeeId(Constants.NOT_SET);
+                            mCommon.transactionEntity.setTransactionType(TransactionTypes.Withdrawal);
+                            mCommon.transactionEntity.setAccountToId(Constants.NOT_SET);
+                            mCommon.transactionEntity.setAmountTo(MoneyFactory.fromString(transAmount));
 
-                                        } else { // if not, then may be IMPS transfer to 3rd party
+                            mCommon.transactionEntity.setPayeeId(parseInt(transPayee[0]));
+                            mCommon.payeeName = transPayee[1];
+                            mCommon.transactionEntity.setCategoryId(parseInt(transPayee[2]));
+                        }
 
-                                            //if there is no to account found from mmex db, then check for payee
-                                            //This will helps me to handle 3rd party transfer thru IMPS
-                                            if (!toAccountDetails[6].isEmpty() && transPayee[0].isEmpty()) {
-                                                transPayee = getPayeeDetails(toAccountDetails[6].trim());
-                                            }
-                                        }
-                                    }
+                        t_intent.setAction(Intent.ACTION_INSERT); //Set the action
+                    } else {
+                        transType = "Transfer";
 
-                                    if (!transPayee[0].isEmpty()) {
+                        AccountTransactionRepository repo = new AccountTransactionRepository(mContext);
+                        AccountTransaction txn = repo.load(txnId);
 
-                                        transType = "Withdrawal";
+                        if (txn != null) {
 
-                                        mCommon.transactionEntity.setTransactionType(TransactionTypes.Withdrawal);
-                                        mCommon.transactionEntity.setAccountToId(Constants.NOT_SET);
-                                        mCommon.transactionEntity.setAmountTo(MoneyFactory.fromString(transAmount));
+                            if (txn.getTransactionType() != TransactionTypes.Transfer) {
 
-                                        mCommon.transactionEntity.setPayeeId(parseInt(transPayee[0]));
-                                        mCommon.payeeName = transPayee[1];
-                                        mCommon.transactionEntity.setCategoryId(parseInt(transPayee[2]));
-                                    }
+                                AccountRepository accountRepository = new AccountRepository(mContext);
 
-                                    t_intent.setAction(Intent.ACTION_INSERT); //Set the action
+                                if (txn.getTransactionType() == TransactionTypes.Deposit) {
+                                    toAccountID = txn.getAccountId();
+                                    toCurrencyID = accountRepository.loadCurrencyIdFor(txn.getAccountId());
                                 } else {
-                                    transType = "Transfer";
-
-                                    AccountTransactionRepository repo = new AccountTransactionRepository(mContext);
-                                    AccountTransaction txn = repo.load(txnId);
-
-                                    if (txn != null) {
-
-                                        if (txn.getTransactionType() != TransactionTypes.Transfer) {
-
-                                            AccountRepository accountRepository = new AccountRepository(mContext);
+                                    toAccountID = fromAccountID;
+                                    toCurrencyID = fromCurrencyID;
+                                    fromCurrencyID = accountRepository.loadCurrencyIdFor(txn.getAccountId());
+                                }
 
-                                            if (txn.getTransactionType() == TransactionTypes.Deposit) {
-                                                toAccountID = txn.getAccountId();
-                                                toCurrencyID = accountRepository.loadCurrencyIdFor(txn.getAccountId());
-                                            } else {
-                                                toAccountID = fromAccountID;
-                                                toCurrencyID = fromCurrencyID;
-                                                fromCurrencyID = accountRepository.loadCurrencyIdFor(txn.getAccountId());
-                                            }
+                                mCommon.transactionEntity = txn;
+                                mCommon.transactionEntity.setTransactionType(TransactionTypes.Transfer);
+                                mCommon.transactionEntity.setAccountId(fromAccountID);
+                                mCommon.transactionEntity.setAccountToId(toAccountID);
 
-                                            mCommon.transactionEntity = txn;
-                                            mCommon.transactionEntity.setTransactionType(TransactionTypes.Transfer);
-                                            mCommon.transactionEntity.setAccountId(fromAccountID);
-                                            mCommon.transactionEntity.setAccountToId(toAccountID);
+                                //convert the to amount from the both currency details
+                                CurrencyService currencyService = new CurrencyService(mContext);
+                                mCommon.transactionEntity.setAmountTo(currencyService.doCurrencyExchange(fromCurrencyID,
+                                        mCommon.transactionEntity.getAmount(),
+                                        toCurrencyID));
 
-                                            //convert the to amount from the both currency details
-                                            CurrencyService currencyService = new CurrencyService(mContext);
-                                            mCommon.transactionEntity.setAmountTo(currencyService.doCurrencyExchange(fromCurrencyID,
-                                                    mCommon.transactionEntity.getAmount(),
-                                                    toCurrencyID));
+                                mCommon.transactionEntity.setPayeeId(Constants.NOT_SET);
 
-                                            mCommon.transactionEntity.setPayeeId(Constants.NOT_SET);
+                                String[] transCategory = getCategoryOrSubCategoryByName("Transfer");
+                                if (!transCategory[0].isEmpty()) {
+                                    mCommon.transactionEntity.setCategoryId(parseInt(transCategory[0]));
+                                }
 
-                                            String[] transCategory = getCategoryOrSubCategoryByName("Transfer");
-                                            if (!transCategory[0].isEmpty()) {
-                                                mCommon.transactionEntity.setCategoryId(parseInt(transCategory[0]));
-                                            }
+                                mCommon.transactionEntity.setNotes(mCommon.transactionEntity.getNotes() + "\n\n" + msgBody);
 
-                                            mCommon.transactionEntity.setNotes(mCommon.transactionEntity.getNotes() + "\n\n" + msgBody);
+                                t_intent.setAction(Intent.ACTION_EDIT); //Set the action
+                            } else //if transfer already exists, then do nothing
+                            {
+                                mCommon.transactionEntity = txn;
+                                t_intent.setAction(Intent.ACTION_EDIT); //Set the action
 
-                                            t_intent.setAction(Intent.ACTION_EDIT); //Set the action
-                                        } else //if transfer already exists, then do nothing
-                                        {
-                                            mCommon.transactionEntity = txn;
-                                            t_intent.setAction(Intent.ACTION_EDIT); //Set the action
+                                skipSaveTrans = true;
+                            }
 
-                                            skipSaveTrans = true;
-                                        }
+                        }
+                    }
 
-                                    }
-                                }
+                    // Capture the details the for Toast
+                    String strExtracted = "Account = " + fromAccountName + "-" + fromAccountDetails[6] + "\n"
+                            + "Trans Amt = " + fromAccCurrencySymbl + " " + transAmount + ",\n"
+                            + "Payyee Name= " + transPayee[1] + "\n"
+                            + "Category ID = " + transPayee[2] + "\n"
+                            + "Sub Category ID = " + transPayee[3] + "\n"
+                            + "Trans Ref No. = " + transRefNo + "\n"
+                            + "Trans Type = " + transType + "\n";
+
+                    //Must be commented for released version
+                    //mCommon.transactionEntity.setNotes(strExtracted);
+
+                    // Set the content for a transaction);
+                    t_intent.putExtra(EditTransactionActivityConstants.KEY_TRANS_SOURCE, "SmsReceiverTransactions.java");
+                    t_intent.putExtra(EditTransactionActivityConstants.KEY_TRANS_ID, mCommon.transactionEntity.getId());
+                    t_intent.putExtra(EditTransactionActivityConstants.KEY_ACCOUNT_ID, String.valueOf(mCommon.transactionEntity.getAccountId()));
+                    t_intent.putExtra(EditTransactionActivityConstants.KEY_TO_ACCOUNT_ID, String.valueOf(mCommon.transactionEntity.getAccountToId()));
+                    t_intent.putExtra(EditTransactionActivityConstants.KEY_TRANS_CODE, mCommon.getTransactionType());
+                    t_intent.putExtra(EditTransactionActivityConstants.KEY_PAYEE_ID, String.valueOf(mCommon.transactionEntity.getPayeeId()));
+                    t_intent.putExtra(EditTransactionActivityConstants.KEY_PAYEE_NAME, mCommon.payeeName);
+                    t_intent.putExtra(EditTransactionActivityConstants.KEY_CATEGORY_ID, String.valueOf(mCommon.transactionEntity.getCategoryId()));
+                    t_intent.putExtra(EditTransactionActivityConstants.KEY_TRANS_AMOUNT, String.valueOf(mCommon.transactionEntity.getAmount()));
+                    t_intent.putExtra(EditTransactionActivityConstants.KEY_NOTES, mCommon.transactionEntity.getNotes());
+                    t_intent.putExtra(EditTransactionActivityConstants.KEY_TRANS_DATE, new MmxDate().toDate());
+                    t_intent.putExtra(EditTransactionActivityConstants.KEY_TRANS_NUMBER, mCommon.transactionEntity.getTransactionNumber());
+
+                    // validate and save the transaction
+                    if(!skipSaveTrans) {
+                        // if the parsing took too long, leave the transaction to the user.
+                        if (!isOverBudget() && validateData()) {
+                            if (saveTransaction()) {
+
+                                autoTransactionStatus = true;
+
+                                if (behav_settings.getSmsTransStatusNotification())
+                                {
+                                    t_intent.setAction(Intent.ACTION_EDIT);
+                                    t_intent.putExtra(EditTransactionActivityConstants.KEY_TRANS_ID, mCommon.transactionEntity.getId());
 
-                                // Capture the details the for Toast
-                                String strExtracted = "Account = " + fromAccountName + "-" + fromAccountDetails[6] + "\n"
-                                        + "Trans Amt = " + fromAccCurrencySymbl + " " + transAmount + ",\n"
-                                        + "Payyee Name= " + transPayee[1] + "\n"
-                                        + "Category ID = " + transPayee[2] + "\n"
-                                        + "Sub Category ID = " + transPayee[3] + "\n"
-                                        + "Trans Ref No. = " + transRefNo + "\n"
-                                        + "Trans Type = " + transType + "\n";
-
-                                //Must be commented for released version
-                                //mCommon.transactionEntity.setNotes(strExtracted);
-
-                                // Set the content for a transaction);
-                                t_intent.putExtra(EditTransactionActivityConstants.KEY_TRANS_SOURCE, "SmsReceiverTransactions.java");
-                                t_intent.putExtra(EditTransactionActivityConstants.KEY_TRANS_ID, mCommon.transactionEntity.getId());
-                                t_intent.putExtra(EditTransactionActivityConstants.KEY_ACCOUNT_ID, String.valueOf(mCommon.transactionEntity.getAccountId()));
-                                t_intent.putExtra(EditTransactionActivityConstants.KEY_TO_ACCOUNT_ID, String.valueOf(mCommon.transactionEntity.getAccountToId()));
-                                t_intent.putExtra(EditTransactionActivityConstants.KEY_TRANS_CODE, mCommon.getTransactionType());
-                                t_intent.putExtra(EditTransactionActivityConstants.KEY_PAYEE_ID, String.valueOf(mCommon.transactionEntity.getPayeeId()));
-                                t_intent.putExtra(EditTransactionActivityConstants.KEY_PAYEE_NAME, mCommon.payeeName);
-                                t_intent.putExtra(EditTransactionActivityConstants.KEY_CATEGORY_ID, String.valueOf(mCommon.transactionEntity.getCategoryId()));
-                                t_intent.putExtra(EditTransactionActivityConstants.KEY_TRANS_AMOUNT, String.valueOf(mCommon.transactionEntity.getAmount()));
-                                t_intent.putExtra(EditTransactionActivityConstants.KEY_NOTES, mCommon.transactionEntity.getNotes());
-                                t_intent.putExtra(EditTransactionActivityConstants.KEY_TRANS_DATE, new MmxDate().toDate());
-                                t_intent.putExtra(EditTransactionActivityConstants.KEY_TRANS_NUMBER, mCommon.transactionEntity.getTransactionNumber());
-
-                                // validate and save the transaction
-                                if(!skipSaveTrans) {
-                                    if (validateData()) {
-                                        if (saveTransaction()) {
-
-                                            autoTransactionStatus = true;
-
-                                            if (behav_settings.getSmsTransStatusNotification())
-                                            {
-                                                t_intent.setAction(Intent.ACTION_EDIT);
-                                                t_intent.putExtra(EditTransactionActivityConstants.KEY_TRANS_ID, mCommon.transactionEntity.getId());
-
-                                                showNotification(t_intent, msgBody, msgSender, "Successful");
-                                            }
-                                            else
-                                            {
-                                                Toast.makeText(context, "MMEX: Bank Transaction Processed for: \n\n" + strExtracted, Toast.LENGTH_LONG).show();
-                                            }
-                                        }
-                                        else
-                                        {
-                                            if (behav_settings.getSmsTransStatusNotification())
-                                            { showNotification(t_intent, msgBody, msgSender, "Save Failed"); }
-                                            else
-                                            { startActivity(mContext, t_intent, null); }
-                                        }
-                                    }
-
-                                    //if transaction is not created automatically, then invoke notification or activity screen
-                                    if (!autoTransactionStatus) {
-
-                                        if (behav_settings.getSmsTransStatusNotification())
-                                        { showNotification(t_intent, msgBody, msgSender, "Auto Failed"); }
-                                        else
-                                        { startActivity(mContext, t_intent, null); }
-                                    }
+                                    showNotification(t_intent, msgBody, msgSender, "Successful");
                                 }
                                 else
                                 {
-                                    if (behav_settings.getSmsTransStatusNotification())
-                                    {
-                                        showNotification(t_intent, "MMEX: Skiping Bank Transaction updates SMS, because transaction exists with ref. no. " + transRefNo, msgSender, "Already Exists");
-                                    }
-                                    else
-                                    {
-                                        Toast.makeText(context, "MMEX: Skiping Bank Transaction updates SMS, because transaction exists with ref. no. " + transRefNo, Toast.LENGTH_LONG).show();
-                                    }
+                                    showToast("MMEX: Bank Transaction Processed for: \n\n" + strExtracted);
                                 }
+                            }
+                            else
+                            {
+                                if (behav_settings.getSmsTransStatusNotification())
+                                { showNotification(t_intent, msgBody, msgSender, "Save Failed"); }
+                                else
+                                { startActivity(mContext, t_intent, null); }
+                            }
+                        }
 
-                                //reset the value
-                                msgBody = "";
-                                msgSender = "";
-                                bundle = null;
-                                msgs = null;
-                                mCommon = null;
-                                skipSaveTrans = false;
+                        //if transaction is not created automatically, then invoke notification or activity screen
+                        if (!autoTransactionStatus) {
 
-                            }
+                            if (behav_settings.getSmsTransStatusNotification())
+                            { showNotification(t_intent, msgBody, msgSender, "Auto Failed"); }
+                            else
+                            { startActivity(mContext, t_intent, null); }
                         }
                     }
+                    else
+                    {
+                        if (behav_settings.getSmsTransStatusNotification())
+                        {
+                            showNotification(t_intent, "MMEX: Skiping Bank Transaction updates SMS, because transaction exists with ref. no. " + transRefNo, msgSender, "Already Exists");
+                        }
+                        else
+                        {
+                            showToast("MMEX: Skiping Bank Transaction updates SMS, because transaction exists with ref. no. " + transRefNo);
+                        }
+                    }
+
+                    //reset the value
+                    msgBody = "";
+                    msgSender = "";
+                    mCommon = null;
+                    skipSaveTrans = false;
+
                 }
             }
         }
@@ -446,7 +467,7 @@ public class SmsReceiverTransactions extends BroadcastReceiver {
         }
     }
 
-    private static String getCurrencySymbl(int currencyID)
+    private String getCurrencySymbl(int currencyID)
     {
         //Get the currency sysmbl
         String currencySymbl = "";
@@ -479,62 +500,7 @@ public class SmsReceiverTransactions extends BroadcastReceiver {
 
     }
 
-    private static boolean isTransactionSms(String smsSender)
-    {
-        boolean reqMatch = false;
-
-        try
-        {
-            Pattern p = Pattern.compile("(-?[a-zA-Z]+)");
-            Matcher m = p.matcher(smsSender);
-
-            if (m != null)
-            {
-                while(m.find())
-                {
-                    reqMatch = true;
-                    break;
-                }
-            }
-        }
-        catch(Exception e)
-        {
-            Timber.e(e, "isTransactionSms");
-        }
-
-        return reqMatch;
-    }
-
-    private static boolean validateTransType(String[] keySearch, String smsMsg)
-    {
-        boolean reqMatch = false;
-
-        try
-        {
-            for(int i=0; i<=keySearch.length-1; i++)
-            {
-                Pattern p = Pattern.compile(keySearch[i]);
-                Matcher m = p.matcher(smsMsg);
-
-                if (m != null && !reqMatch)
-                {
-                    while(m.find())
-                    {
-                        reqMatch = true;
-                        break;
-                    }
-                }
-            }
-        }
-        catch(Exception e)
-        {
-            Timber.e(e, "validateTransType");
-        }
-
-        return reqMatch;
-    }
-
-    private static void extractAccountDetails(String smsMsg, String transType)
+    private void extractAccountDetails(String smsMsg, String transType)
     {
         String[] reqMatch =  new String[]{"", ""};
 
@@ -557,7 +523,7 @@ public class SmsReceiverTransactions extends BroadcastReceiver {
 
                     for(int j=0; j<=mIndx.length-1; j++)
                     {
-                        reqMatch[j] = searchForAccountNum(smsMsg, mIndx[j]);
+                        reqMatch[j] = rules.findAccountNumber(smsMsg, mIndx[j]);
                     }
                     break;
 
@@ -578,26 +544,26 @@ public class SmsReceiverTransactions extends BroadcastReceiver {
 
                     if(fromIndex > 0) {
                         if(fromIndex > toIndex) {
-                            reqMatch[0] = searchForAccountNum(smsMsg.substring(fromIndex), 1);
+                            reqMatch[0] = rules.findAccountNumber(smsMsg.substring(fromIndex), 1);
                             if(toIndex == -1) { nonUPIMsg = smsMsg.substring(0, fromIndex); }
                         }else{
-                            reqMatch[0] = searchForAccountNum(smsMsg.substring(fromIndex, toIndex), 1);
+                            reqMatch[0] = rules.findAccountNumber(smsMsg.substring(fromIndex, toIndex), 1);
                             nonUPIMsg = smsMsg.substring(0, fromIndex);
                         }
                     }
 
                     if(toIndex > 0) {
                         if(toIndex > fromIndex) {
-                            reqMatch[1] = searchForAccountNum(smsMsg.substring(toIndex), 1);
+                            reqMatch[1] = rules.findAccountNumber(smsMsg.substring(toIndex), 1);
                             if(toIndex == -1) { nonUPIMsg = smsMsg.substring(0, toIndex); }
                         }else{
-                            reqMatch[1] = searchForAccountNum(smsMsg.substring(toIndex, fromIndex), 1);
+                            reqMatch[1] = rules.findAccountNumber(smsMsg.substring(toIndex, fromIndex), 1);
                             nonUPIMsg = smsMsg.substring(0, toIndex);
                         }
                     }
 
-                    if(fromIndex == -1) { reqMatch[0] = searchForAccountNum(nonUPIMsg, 1); }
-                    if(toIndex == -1) { reqMatch[1] = searchForAccountNum(nonUPIMsg, 1); }
+                    if(fromIndex == -1) { reqMatch[0] = rules.findAccountNumber(nonUPIMsg, 1); }
+                    if(toIndex == -1) { reqMatch[1] = rules.findAccountNumber(nonUPIMsg, 1); }
 
                     //if both the str are same then, reset 2nd index
                     if(reqMatch[0].contains(reqMatch[1])) { reqMatch[1] = ""; }
@@ -614,235 +580,109 @@ public class SmsReceiverTransactions extends BroadcastReceiver {
         }
     }
 
-    private static String searchForAccountNum(String smsMsg, int mIndx)
+    private String[] extractTransPayee(String smsMsg)
     {
-        String reqMatch =  "";
-
-        // - ((\s)using\scard\s(.*?)\s.emaining) added for LBP currency. Request from HussienH
-        String[] searchFor =
-                {
-                        "((\\s)?((\\d+)?[X]+(\\d+))(\\s)?)", "((\\s)?((\\d+)?[x]+(\\d+))(\\s)?)", "((\\s)?((\\d+)?[\\*]+(\\d+))(\\s)?)",
-                        "((\\s)?Account\\s?No(.*?)\\s?(\\d+)(\\s)?)", "((\\s)?A/.\\s?No(.*?)\\s?(\\d+)(\\s)?)",
-                        "[N-n][O-o](.)?(:)?(\\s)?'(.*?)'", "((\\s)using\\scard\\s(.*?)\\s.emaining)",
-                        "([\\(]((.*?)[@](.*?))[\\)])", "(from((.*?)@(.*?))[.])", "(linked((.*?)@(.*?))[.])",
-                        "((\\s)virtual(\\s)address((.*?)@(.*?))(\\s))", "(your\\s(.*?)\\s+using)",
-                        "([\\[](\\d+)[\\]])", "(using(.*?)(\\.))", "(.ay.m\\s.allet)"
-                };
-
-        int[] getGroup =
-                {
-                        5, 5, 5,
-                        4, 4,
-                        4, 3,
-                        2, 2, 2,
-                        4, 2,
-                        2, 2, 1
-                };
-
-        int mFound;
+        String[] reqMatch = new String[]{"", "", "", ""};
 
-        try
+        for (String payeeName : rules.findPayeeNames(smsMsg))
         {
-            for(int i=0; i<=searchFor.length-1; i++)
-            {
-                mFound = 1;
+            if (isOverBudget()) break;
 
-                Pattern p = Pattern.compile(searchFor[i]);
-                Matcher m = p.matcher(smsMsg);
+            reqMatch = getPayeeDetails(payeeName);
 
-                if (m != null && reqMatch.isEmpty())
-                {
-                    while(m.find())
-                    {
-                        if(mFound == mIndx)
-                        {
-                            // Append X with acc no, bcz start with X for non UPI trans
-                            if (m.group(getGroup[i]).trim().matches("\\d+") &&
-                                    !m.group(getGroup[i]).trim().matches("[a-zA-Z@]+"))
-                            {
-                                reqMatch = "X" + m.group(getGroup[i]).trim();
-                            }
-                            else{
-                                reqMatch = m.group(getGroup[i]).trim();
-                            }
-                            break;
-                        }
-                        else { mFound = mFound + 1; }
-                    }
-                }
+            if(!reqMatch[0].isEmpty()){
+                break;
             }
         }
-        catch(Exception e)
-        {
-            Timber.e(e, "searchForAccountNum");
-        }
 
         return reqMatch;
     }
 
-    private static String extractTransAmount(int indexOfAmt, String smsMsg, String fromAccCurrencySymbl)
+    private String[] getPayeeDetails(String payeeName)
     {
-        String reqMatch = "";
-        smsMsg = smsMsg.replace(",", "");
-        String searchFor = "((\\s)?##SEARCH4CURRENCY##(.)?(\\s)?((\\d+)(\\.\\d+)?))";
-        int[] getGroup = {5};
-        int indx = 0;
-
-        //Handle multiple symbol for currency
-        String[] searchCurrency;
-
-        if (fromAccCurrencySymbl.contentEquals("INR")) {
-            searchCurrency = new String[]{"INR", "Rs"};
-        } else {
-            searchCurrency = new String[]{fromAccCurrencySymbl};
-        }
+        String[] payeeDetails = new String[]{"", payeeName.trim(), "", ""};
 
         try
         {
-            for(int i=0; i<=searchCurrency.length-1; i++)
-            {
-                Pattern p = Pattern.compile(searchFor.replace("##SEARCH4CURRENCY##", searchCurrency[i]));
-                Matcher m = p.matcher(smsMsg);
-
-                if (m != null && reqMatch.isEmpty())
-                {
-                    while(m.find())
-                    {
-                        if (indx==indexOfAmt){
-                            reqMatch = m.group(getGroup[0]).trim();
-                            break;
-                        }
+            if(!payeeName.trim().isEmpty()) {
 
-                        indx = indx + 1;
+                // The shared payee index ranks the names by how they match and by usage.
+                NameIndex index = nameIndexCache.get().awaitPayees();
+                if (index != null) {
+                    List<Integer> matches = index.search(payeeName.trim(), 1, false);
+                    if (!matches.isEmpty()) {
+                        String[] payee = getPayee(matches.get(0));
+                        if (payee != null) return new String[] { payee[0], payee[1], payee[2], "" };
                     }
+                    return payeeDetails;
                 }
-            }
-
-        }
-        catch(Exception e)
-        {
-            Timber.e(e, "extractTransAmount");
-        }
-
-        return reqMatch;
-    }
-
-    private static String[] extractTransPayee(String smsMsg)
-    {
-        // - ((\s)at\s(.*?)\s+using) added for LBP currency. Request from HussienH
-        String[] searchFor = {
-                "((\\s)at\\s(.*?)\\s+on)", "((\\s)favoring\\s(.*?)\\s+is)",
-                "((\\s)to\\s(.*?)\\s+at)", "((\\s)to\\s(.*?)[.])",
-                "((\\s)at\\s(.*?)[.])", "([\\*](.*?)[.])",
-                "((\\s)FROM\\s(.*?)\\s+\\d)", "(from\\s(.*?)\\s(\\())", "(([a-zA-Z]+)(\\s)has(\\s)added)",
-                "((\\s)paid\\s(.*?)\\s)",
-                "((\\s)at\\s(.*?)\\s+using)" };
-
-        int[] getGroup = {3, 3, 3, 3, 3, 2, 3, 2, 2, 3, 3};
-        String[] reqMatch = new String[]{"", "", "", ""};
 
-        try
-        {
-            for(int i=0; i<=searchFor.length-1; i++)
-            {
-                Pattern p = Pattern.compile(searchFor[i]);
-                Matcher m = p.matcher(smsMsg);
-
-                if (m != null && reqMatch[0].isEmpty())
+                // Match in memory instead of a LIKE '%...%' query for each name.
+                String search = payeeName.toLowerCase();
+                for (String[] payee : getPayees())
                 {
-                    while(m.find())
+                    if (payee[1].toLowerCase().contains(search))
                     {
-                        reqMatch = getPayeeDetails(m.group(getGroup[i]).trim());
-
-                        if(!reqMatch[0].isEmpty()){
-                            break;
-                        }
+                        payeeDetails = new String[] { payee[0], payee[1], payee[2], "" };
+                        break;
                     }
                 }
             }
         }
         catch(Exception e)
         {
-            Timber.e(e, "extractTransPayee");
+            Timber.e(e, "getPayeeDetails");
         }
 
-        return reqMatch;
+        return payeeDetails;
     }
 
-    private static String extractTransRefNo(String smsMsg)
+    private String[] getPayee(int payeeId)
     {
-        String reqMatch = "";
-        String[] searchFor = {"(Cheque\\sNo[.*?](\\d+))", "(Ref\\sno(:)?\\s(\\d+))", "(\\s(\\d+(.*?)\\d+)TXN\\s)",
-                "(I[D//d](.)?(:)?(\\s)?((.*?)\\w+))", "(I[D//d](.)?(:)?)(\\s)?(\\d+)", "(id(\\s)is(\\s)?(:)?(\\d+))",
-                "((Reference:)(\\s)?(\\d+))",  "([\\*](\\d+)[\\*])", "(Info(:)+(.*?)(\\d+)[:]?[-]?)",
-                "((reference number)(.*?)(\\d+))", "(\\s)?#(\\s?)(\\d+)(\\s?)",  "(\\/+(\\d+)+\\/)"};
-        int[] getGroup = {2, 3, 2,
-                          5, 5, 5,
-                          4, 2, 4,
-                          4, 3, 2};
-
+        Cursor payeeCursor = db.query("SELECT PAYEEID, PAYEENAME, CATEGID FROM PAYEE_V1 WHERE PAYEEID = ?",
+                new Object[] { payeeId });
         try
         {
-            for(int i=0; i<=searchFor.length-1; i++)
-            {
-                Pattern p = Pattern.compile(searchFor[i]);
-                Matcher m = p.matcher(smsMsg);
+            if (!payeeCursor.moveToFirst()) return null;
 
-                if (m != null && reqMatch.isEmpty())
-                {
-                    while(m.find())
-                    {
-                        reqMatch = m.group(getGroup[i]).trim();
-                        break;
-                    }
-                }
-            }
+            return new String[] {
+                    payeeCursor.getString(0),
+                    payeeCursor.getString(1),
+                    payeeCursor.isNull(2) ? String.valueOf(Constants.NOT_SET) : payeeCursor.getString(2)
+            };
         }
-        catch(Exception e)
+        finally
         {
-            Timber.e(e, "extractTransRefNo");
+            payeeCursor.close();
         }
-
-        return reqMatch;
     }
 
-    private static String[] getPayeeDetails(String payeeName)
+    private List<String[]> getPayees()
     {
-        String[] payeeDetails = new String[]{"", payeeName.trim(), "", ""};
+        if (mPayees != null) return mPayees;
 
+        mPayees = new ArrayList<>();
+        Cursor payeeCursor = db.query("SELECT PAYEEID, PAYEENAME, CATEGID FROM PAYEE_V1 ORDER BY PAYEENAME");
         try
         {
-            if(!payeeName.trim().isEmpty()) {
-
-                String sql = "SELECT PAYEEID, PAYEENAME, CATEGID, SUBCATEGID " +
-                                "FROM PAYEE_V1 " +
-                                "WHERE PAYEENAME LIKE '%" + payeeName + "%' " +
-                                "ORDER BY PAYEENAME LIMIT 1";
-
-                Cursor payeeCursor = db.query(sql);
-
-                if(payeeCursor.moveToFirst())
-                {
-                    payeeDetails = new String[] {
-                            payeeCursor.getString(payeeCursor.getColumnIndex("PAYEEID")),
-                            payeeCursor.getString(payeeCursor.getColumnIndex("PAYEENAME")),
-                            payeeCursor.getString(payeeCursor.getColumnIndex("CATEGID")),
-                            payeeCursor.getString(payeeCursor.getColumnIndex("SUBCATEGID"))
-                    };
-                }
-
-                payeeCursor.close();
+            while (payeeCursor.moveToNext())
+            {
+                mPayees.add(new String[] {
+                        payeeCursor.getString(0),
+                        payeeCursor.getString(1),
+                        payeeCursor.isNull(2) ? String.valueOf(Constants.NOT_SET) : payeeCursor.getString(2)
+                });
             }
         }
-        catch(Exception e)
+        finally
         {
-            Timber.e(e, "getPayeeDetails");
+            payeeCursor.close();
         }
 
-        return payeeDetails;
+        return mPayees;
     }
 
-    private static Integer getTxnId(String refNumber, String transDate)
+    private Integer getTxnId(String refNumber, String transDate)
     {
         int txnId = 0;
 
@@ -850,18 +690,19 @@ public class SmsReceiverTransactions extends BroadcastReceiver {
         {
             if(!refNumber.trim().isEmpty()) {
 
+                // the date narrows the search through the index, before the LIKE.
                 String sql =
                         "SELECT TRANSID " +
                                 "FROM CHECKINGACCOUNT_V1 " +
-                                "WHERE TRANSACTIONNUMBER  LIKE '%" + refNumber + "%' " +
-                                "AND TRANSDATE ='" + transDate + "' " +
+                                "WHERE TRANSDATE = ? " +
+                                "AND TRANSACTIONNUMBER LIKE ? " +
                                 "ORDER BY TRANSID LIMIT 1";
 
-                Cursor txnCursor = db.query(sql);
+                Cursor txnCursor = db.query(sql, new Object[] { transDate, "%" + refNumber + "%" });
 
                 if(txnCursor.moveToFirst())
                 {
-                    txnId = parseInt(txnCursor.getString(txnCursor.getColumnIndex("TRANSID")));
+                    txnId = txnCursor.getInt(0);
                 }
 
                 txnCursor.close();
@@ -875,7 +716,7 @@ public class SmsReceiverTransactions extends BroadcastReceiver {
         return txnId;
     }
 
-    private static String[] getCategoryOrSubCategoryByName(String searchName)
+    private String[] getCategoryOrSubCategoryByName(String searchName)
     {
         String[] cTran = new String[]{"", ""};
 
@@ -883,38 +724,21 @@ public class SmsReceiverTransactions extends BroadcastReceiver {
         {
             if(!searchName.trim().isEmpty()) {
 
+                // Categories and subcategories are in the same table.
                 String sql =
-                        "SELECT c.CATEGID, c.CATEGNAME, s.SUBCATEGID, s.SUBCATEGNAME " +
-                                "FROM CATEGORY_V1 c  " +
-                                "INNER JOIN SUBCATEGORY_V1 s ON s.CATEGID=c.CATEGID " +
-                                "WHERE s.SUBCATEGNAME = '" + searchName + "' " +
-                                "ORDER BY s.SUBCATEGID  LIMIT 1";
+                        "SELECT c.CATEGID " +
+                                "FROM CATEGORY_V1 c " +
+                                "WHERE c.CATEGNAME = ? " +
+                                "ORDER BY c.CATEGID LIMIT 1";
 
-                Cursor cCursor = db.query(sql);
+                Cursor cCursor = db.query(sql, new Object[] { searchName });
 
                 if(cCursor.moveToFirst())
                 {
                     cTran = new String[]{
-                            cCursor.getString(cCursor.getColumnIndex("CATEGID")),
-                            cCursor.getString(cCursor.getColumnIndex("SUBCATEGID"))
+                            cCursor.getString(0),
+                            "-1"
                     };
-                } else{ //search in only catogery
-
-                    sql =
-                            "SELECT c.CATEGID, c.CATEGNAME " +
-                                    "FROM CATEGORY_V1 c  " +
-                                    "WHERE c.CATEGNAME = '" + searchName + "' " +
-                                    "ORDER BY c.CATEGID  LIMIT 1";
-
-                    cCursor = db.query(sql);
-
-                    if(cCursor.moveToFirst())
-                    {
-                        cTran = new String[]{
-                                cCursor.getString(cCursor.getColumnIndex("CATEGID")),
-                                "-1"
-                        };
-                    }
                 }
 
                 cCursor.close();
@@ -928,7 +752,7 @@ public class SmsReceiverTransactions extends BroadcastReceiver {
         return cTran;
     }
 
-    private static void getAccountDetails(String[] reqMatch)
+    private void getAccountDetails(String[] reqMatch)
     {
         String[] accountDetails = new String[]{"", "", "", "", "", "", ""};
 
@@ -945,11 +769,11 @@ public class SmsReceiverTransactions extends BroadcastReceiver {
                                     "C.CURRENCY_SYMBOL, C.DECIMAL_POINT, C.GROUP_SEPARATOR " +
                                     "FROM ACCOUNTLIST_V1 A " +
                                     "INNER JOIN CURRENCYFORMATS_V1 C ON C.CURRENCYID = A.CURRENCYID " +
-                                    "WHERE A.STATUS='Open' AND A.ACCOUNTNUM LIKE '%" + reqMatch[j] + "%' " +
+                                    "WHERE A.STATUS='Open' AND A.ACCOUNTNUM LIKE ? " +
                                     "ORDER BY A.ACCOUNTID " +
                                     "LIMIT 1";
 
-                    Cursor accountCursor = db.query(sql);
+                    Cursor accountCursor = db.query(sql, new Object[] { "%" + reqMatch[j] + "%" });
 
                     if(accountCursor.moveToFirst())
                     {
@@ -1040,7 +864,7 @@ public class SmsReceiverTransactions extends BroadcastReceiver {
             mCommon.transactionEntity = repo.insert((AccountTransaction) mCommon.transactionEntity);
 
             if (!mCommon.transactionEntity.hasId()) {
-                Toast.makeText(mContext, R.string.db_checking_insert_failed, Toast.LENGTH_SHORT).show();
+                showToast(mContext.getString(R.string.db_checking_insert_failed));
                 Timber.w("Insert new transaction failed!");
                 return false;
             }
@@ -1048,7 +872,7 @@ public class SmsReceiverTransactions extends BroadcastReceiver {
             // update
             boolean updated = repo.update((AccountTransaction) mCommon.transactionEntity);
             if (!updated) {
-                Toast.makeText(mContext, R.string.db_checking_update_failed, Toast.LENGTH_SHORT).show();
+                showToast(mContext.getString(R.string.db_checking_update_failed));
                 Timber.w("Update transaction failed!");
                 return false;
             }
@@ -1113,4 +937,20 @@ public class SmsReceiverTransactions extends BroadcastReceiver {
                 Timber.e(e, "showing notification for sms transaction");
             }
     }
+
+    private boolean isOverBudget() {
+        return SystemClock.elapsedRealtime() > mDeadline;
+    }
+
+    /**
+     * Toasts can only be shown from the main thread.
+     */
+    private void showToast(final String text) {
+        new Handler(Looper.getMainLooper()).post(new Runnable() {
+            @Override
+            public void run() {
+                Toast.makeText(mContext, text, Toast.LENGTH_LONG).show();
+            }
+        });
+    }
 }
@@ -0,0 +1,291 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.money.manager.ex.notifications;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import timber.log.Timber;
+
+/**
+ * The rules used to read the transactions from bank SMS.
+ * The patterns are compiled once. The amount patterns depend on the currency symbol of the
+ * account and are compiled the first time a symbol is used.
+ * Where only the presence of a keyword matters, the keywords are combined into one pattern
+ * and the message is scanned once. Where the rules have a priority, they are applied in order
+ * with a single matcher over the message.
+ * Thread-safe.
+ */
+public class SmsTransactionRules {
+
+    private static final SmsTransactionRules instance = new SmsTransactionRules();
+
+    public static SmsTransactionRules getInstance() {
+        return instance;
+    }
+
+    /**
+     * A pattern and the group that contains the value.
+     */
+    private static class Rule {
+        Rule(String regex, int group) {
+            this.pattern = Pattern.compile(regex);
+            this.group = group;
+        }
+
+        final Pattern pattern;
+        final int group;
+    }
+
+    // Transaction Sms sender will have format like this AT-SIBSMS,
+    // Promotional sms will have sender like AT-012345
+    private final Pattern transactionSender = Pattern.compile("(-?[a-zA-Z]+)");
+
+    private final Pattern deposit = anyOf(
+        "(credited)", "(received)", "(added)", "(reloaded)", "(deposited)", "(refunded)",
+        "(debited)(.*?)(towards)(\\s)", "(\\s)(received)(.*?)(in(\\s)your)(\\s)", "(sent)(.*?)(to)(\\s)", "(debited)(.*?)(to)(\\s)",
+        "(credited)(.*?)(in)(\\s)", "(credited)(.*?)(to)(\\s)");
+
+    // - Sales Draft added for LBP currency. Request from HussienH
+    private final Pattern withdrawal = anyOf(
+        "(made)", "(debited)", "(using)", "(paid)", "(purchase)", "(withdrawn)", "(done)",
+        "(credited)(.*?)(from)(\\s)", "(sent)(.*?)(from)(\\s)", "(\\s)(received)(.*?)(from)(\\s)",
+        "(Sales\\sDraft)");
+
+    // - ((\s)using\scard\s(.*?)\s.emaining) added for LBP currency. Request from HussienH
+    private final Rule[] accountNumber = {
+        new Rule("((\\s)?((\\d+)?[X]+(\\d+))(\\s)?)", 5),
+        new Rule("((\\s)?((\\d+)?[x]+(\\d+))(\\s)?)", 5),
+        new Rule("((\\s)?((\\d+)?[\\*]+(\\d+))(\\s)?)", 5),
+        new Rule("((\\s)?Account\\s?No(.*?)\\s?(\\d+)(\\s)?)", 4),
+        new Rule("((\\s)?A/.\\s?No(.*?)\\s?(\\d+)(\\s)?)", 4),
+        new Rule("[N-n][O-o](.)?(:)?(\\s)?'(.*?)'", 4),
+        new Rule("((\\s)using\\scard\\s(.*?)\\s.emaining)", 3),
+        new Rule("([\\(]((.*?)[@](.*?))[\\)])", 2),
+        new Rule("(from((.*?)@(.*?))[.])", 2),
+        new Rule("(linked((.*?)@(.*?))[.])", 2),
+        new Rule("((\\s)virtual(\\s)address((.*?)@(.*?))(\\s))", 4),
+        new Rule("(your\\s(.*?)\\s+using)", 2),
+        new Rule("([\\[](\\d+)[\\]])", 2),
+        new Rule("(using(.*?)(\\.))", 2),
+        new Rule("(.ay.m\\s.allet)", 1)
+    };
+
+    // - ((\s)at\s(.*?)\s+using) added for LBP currency. Request from HussienH
+    private final Rule[] payee = {
+        new Rule("((\\s)at\\s(.*?)\\s+on)", 3),
+        new Rule("((\\s)favoring\\s(.*?)\\s+is)", 3),
+        new Rule("((\\s)to\\s(.*?)\\s+at)", 3),
+        new Rule("((\\s)to\\s(.*?)[.])", 3),
+        new Rule("((\\s)at\\s(.*?)[.])", 3),
+        new Rule("([\\*](.*?)[.])", 2),
+        new Rule("((\\s)FROM\\s(.*?)\\s+\\d)", 3),
+        new Rule("(from\\s(.*?)\\s(\\())", 2),
+        new Rule("(([a-zA-Z]+)(\\s)has(\\s)added)", 2),
+        new Rule("((\\s)paid\\s(.*?)\\s)", 3),
+        new Rule("((\\s)at\\s(.*?)\\s+using)", 3)
+    };
+
+    private final Rule[] referenceNumber = {
+        new Rule("(Cheque\\sNo[.*?](\\d+))", 2),
+        new Rule("(Ref\\sno(:)?\\s(\\d+))", 3),
+        new Rule("(\\s(\\d+(.*?)\\d+)TXN\\s)", 2),
+        new Rule("(I[D//d](.)?(:)?(\\s)?((.*?)\\w+))", 5),
+        new Rule("(I[D//d](.)?(:)?)(\\s)?(\\d+)", 5),
+        new Rule("(id(\\s)is(\\s)?(:)?(\\d+))", 5),
+        new Rule("((Reference:)(\\s)?(\\d+))", 4),
+        new Rule("([\\*](\\d+)[\\*])", 2),
+        new Rule("(Info(:)+(.*?)(\\d+)[:]?[-]?)", 4),
+        new Rule("((reference number)(.*?)(\\d+))", 4),
+        new Rule("(\\s)?#(\\s?)(\\d+)(\\s?)", 3),
+        new Rule("(\\/+(\\d+)+\\/)", 2)
+    };
+
+    private final Pattern digits = Pattern.compile("\\d+");
+    private final Pattern letters = Pattern.compile("[a-zA-Z@]+");
+
+    private static final String AMOUNT_PATTERN = "((\\s)?##SEARCH4CURRENCY##(.)?(\\s)?((\\d+)(\\.\\d+)?))";
+    private static final int AMOUNT_GROUP = 5;
+    /**
+     * Amount patterns by the currency symbol.
+     */
+    private final Map<String, Pattern[]> amountPatterns = new ConcurrentHashMap<>();
+
+    public boolean isTransactionSender(String smsSender) {
+        return smsSender != null && transactionSender.matcher(smsSender).find();
+    }
+
+    /**
+     * @param smsMsg Message in lower case.
+     */
+    public boolean isDeposit(String smsMsg) {
+        return deposit.matcher(smsMsg).find();
+    }
+
+    /**
+     * @param smsMsg Message in lower case.
+     */
+    public boolean isWithdrawal(String smsMsg) {
+        return withdrawal.matcher(smsMsg).find();
+    }
+
+    /**
+     * @param occurrence Which of the matches to use, starting from 1.
+     * @return the account number or UPI address, or an empty string.
+     */
+    public String findAccountNumber(String smsMsg, int occurrence) {
+        String reqMatch = "";
+
+        try {
+            Matcher m = accountNumber[0].pattern.matcher(smsMsg);
+            for (Rule rule : accountNumber) {
+                m.usePattern(rule.pattern);
+                m.reset();
+
+                int found = 1;
+                while (m.find()) {
+                    if (found == occurrence) {
+                        String value = m.group(rule.group).trim();
+                        // Append X with acc no, bcz start with X for non UPI trans
+                        if (digits.matcher(value).matches() && !letters.matcher(value).matches()) {
+                            reqMatch = "X" + value;
+                        } else {
+                            reqMatch = value;
+                        }
+                        break;
+                    }
+                    found++;
+                }
+
+                if (!reqMatch.isEmpty()) break;
+            }
+        } catch (Exception e) {
+            Timber.e(e, "findAccountNumber");
+        }
+
+        return reqMatch;
+    }
+
+    /**
+     * @param index Which of the amounts to use, i.e. 0 for the transaction and 1 for the balance.
+     * @param currencySymbol Currency symbol of the account.
+     * @return the amount, or an empty string.
+     */
+    public String findAmount(String smsMsg, int index, String currencySymbol) {
+        String reqMatch = "";
+        smsMsg = smsMsg.replace(",", "");
+        int indx = 0;
+
+        try {
+            for (Pattern pattern : getAmountPatterns(currencySymbol)) {
+                Matcher m = pattern.matcher(smsMsg);
+                while (m.find()) {
+                    if (indx == index) {
+                        reqMatch = m.group(AMOUNT_GROUP).trim();
+                        break;
+                    }
+                    indx++;
+                }
+
+                if (!reqMatch.isEmpty()) break;
+            }
+        } catch (Exception e) {
+            Timber.e(e, "findAmount");
+        }
+
+        return reqMatch;
+    }
+
+    /**
+     * @return the possible payee names, in the order in which they should be looked up.
+     */
+    public List<String> findPayeeNames(String smsMsg) {
+        List<String> names = new ArrayList<>();
+
+        try {
+            Matcher m = payee[0].pattern.matcher(smsMsg);
+            for (Rule rule : payee) {
+                m.usePattern(rule.pattern);
+                m.reset();
+
+                while (m.find()) {
+                    names.add(m.group(rule.group).trim());
+                }
+            }
+        } catch (Exception e) {
+            Timber.e(e, "findPayeeNames");
+        }
+
+        return names;
+    }
+
+    /**
+     * @return the reference number of the transaction, or an empty string.
+     */
+    public String findReferenceNumber(String smsMsg) {
+        try {
+            Matcher m = referenceNumber[0].pattern.matcher(smsMsg);
+            for (Rule rule : referenceNumber) {
+                m.usePattern(rule.pattern);
+                m.reset();
+
+                if (m.find()) {
+                    return m.group(rule.group).trim();
+                }
+            }
+        } catch (Exception e) {
+            Timber.e(e, "findReferenceNumber");
+        }
+
+        return "";
+    }
+
+    // Private
+
+    private Pattern[] getAmountPatterns(String currencySymbol) {
+        Pattern[] patterns = amountPatterns.get(currencySymbol);
+        if (patterns != null) return patterns;
+
+        //Handle multiple symbol for currency
+        String[] searchCurrency;
+        if (currencySymbol.contentEquals("INR")) {
+            searchCurrency = new String[]{"INR", "Rs"};
+        } else {
+            searchCurrency = new String[]{currencySymbol};
+        }
+
+        patterns = new Pattern[searchCurrency.length];
+        for (int i = 0; i < searchCurrency.length; i++) {
+            patterns[i] = Pattern.compile(AMOUNT_PATTERN.replace("##SEARCH4CURRENCY##", searchCurrency[i]));
+        }
+        amountPatterns.put(currencySymbol, patterns);
+        return patterns;
+    }
+
+    private static Pattern anyOf(String... keywords) {
+        StringBuilder regex = new StringBuilder();
+        for (String keyword : keywords) {
+            if (regex.length() > 0) regex.append('|');
+            regex.append(keyword);
+        }
+        return Pattern.compile(regex.toString());
+    }
+}
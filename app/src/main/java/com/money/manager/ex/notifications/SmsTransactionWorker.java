@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.money.manager.ex.notifications;
+
+import android.content.Context;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+/**
+ * Creates the transactions from the bank SMS, off the broadcast thread.
+ * The messages are processed one at a time, in the order in which they arrive, so that
+ * a message can find the transaction created from the previous one.
+ */
+public class SmsTransactionWorker
+		extends Worker {
+
+	private static final String WORK_NAME = "SmsTransactions";
+	private static final String KEY_SENDER = "sender";
+	private static final String KEY_BODY = "body";
+	/**
+	 * Time allowed for one message. When it runs out, the transaction is not saved
+	 * automatically and the user is asked to complete it.
+	 */
+	private static final long TIME_BUDGET_MS = 5000;
+
+	public SmsTransactionWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+		super(context, workerParams);
+	}
+
+	@NonNull
+	@Override
+	public Result doWork() {
+		String sender = getInputData().getString(KEY_SENDER);
+		String body = getInputData().getString(KEY_BODY);
+		if (body == null) return Result.success();
+
+		long deadline = SystemClock.elapsedRealtime() + TIME_BUDGET_MS;
+		new SmsReceiverTransactions().process(getApplicationContext(), sender, body, deadline);
+		return Result.success();
+	}
+
+	public static void enqueueWork(Context context, String sender, String body) {
+		Data input = new Data.Builder()
+				.putString(KEY_SENDER, sender)
+				.putString(KEY_BODY, body)
+				.build();
+		OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(SmsTransactionWorker.class)
+				.setInputData(input)
+				.build();
+
+		WorkManager.getInstance(context)
+				.enqueueUniqueWork(WORK_NAME, ExistingWorkPolicy.APPEND_OR_REPLACE, request);
+	}
+}
@@ -41,12 +41,16 @@ import androidx.loader.content.Loader;
 
 import com.mikepenz.google_material_typeface_library.GoogleMaterial;
 import com.mikepenz.iconics.IconicsDrawable;
+import com.money.manager.ex.MmexApplication;
 import com.money.manager.ex.R;
 import com.money.manager.ex.adapter.MoneySimpleCursorAdapter;
 import com.money.manager.ex.common.BaseListFragment;
 import com.money.manager.ex.common.MmxCursorLoader;
+import com.money.manager.ex.common.SearchCursorLoader;
 import com.money.manager.ex.core.ContextMenuIds;
 import com.money.manager.ex.core.IntentFactory;
+import com.money.manager.ex.core.NameIndex;
+import com.money.manager.ex.core.NameIndexCache;
 import com.money.manager.ex.core.UIHelper;
 import com.money.manager.ex.database.SQLTypeTransaction;
 import com.money.manager.ex.datalayer.PayeeRepository;
@@ -56,6 +60,8 @@ import com.money.manager.ex.search.SearchParameters;
 import com.money.manager.ex.servicelayer.PayeeService;
 import com.money.manager.ex.settings.AppSettings;
 
+import java.util.List;
+
 /**
  * List of Payees. Used as a picker/selector also.
  */
@@ -75,6 +81,7 @@ public class PayeeListFragment
     private Context mContext;
     private String mCurFilter;
     private int mSort = 0;
+    private final SearchCursorLoader.Results mSearchResults = new SearchCursorLoader.Results();
 
     @Override
     public void onActivityCreated(Bundle savedInstanceState) {
@@ -244,18 +251,21 @@ public class PayeeListFragment
     @Override
     public Loader<Cursor> onCreateLoader(int id, Bundle args) {
         if (id == ID_LOADER_PAYEE) {
-            String whereClause = null;
-            String[] selectionArgs = null;
-            if (!TextUtils.isEmpty(mCurFilter)) {
-                whereClause = Payee.PAYEENAME + " LIKE ?"; // + mCurFilter + "%'";
-                selectionArgs = new String[]{mCurFilter + '%'};
-            }
+            String orderBy = mSort == 1 ? SORT_BY_USAGE : SORT_BY_NAME;
             PayeeRepository repo = new PayeeRepository(getActivity());
-            Select query = new Select(repo.getAllColumns())
-                    .where(whereClause, selectionArgs)
-                    .orderBy(mSort == 1 ? SORT_BY_USAGE : SORT_BY_NAME);
+            List<Integer> matches = findInIndex();
+            if (matches != null) {
+                // the index ranks the matches by usage.
+                Select query = new Select(repo.getAllColumns())
+                        .where(NameIndexCache.getIdFilter(Payee.PAYEEID, matches))
+                        .orderBy(mSort == 1 ? getRankOrder(matches) : orderBy);
+                return new MmxCursorLoader(getActivity(), repo.getUri(), query);
+            }
 
-            return new MmxCursorLoader(getActivity(), repo.getUri(), query);
+            Select query = new Select(repo.getAllColumns())
+                    .orderBy(orderBy);
+            return new SearchCursorLoader(getActivity(), repo.getUri(), query, mCurFilter,
+                    mSearchResults, Payee.PAYEENAME);
         }
 
         return null;
@@ -454,6 +464,29 @@ public class PayeeListFragment
         getLoaderManager().restartLoader(ID_LOADER_PAYEE, null, this);
     }
 
+    /**
+     * Looks up the filter in the in-memory payee index.
+     * @return the ids of the matching payees, or null to filter in the database.
+     */
+    private List<Integer> findInIndex() {
+        if (TextUtils.isEmpty(mCurFilter)) return null;
+
+        NameIndex index = MmexApplication.getApp().iocComponent.nameIndexCache().getPayees();
+        if (index == null) return null;
+
+        List<Integer> matches = index.search(mCurFilter.replace("%", ""),
+                NameIndexCache.FILTER_LIMIT, true);
+        return matches.size() < NameIndexCache.FILTER_LIMIT ? matches : null;
+    }
+
+    private String getRankOrder(List<Integer> ids) {
+        StringBuilder order = new StringBuilder("CASE " + Payee.PAYEEID);
+        for (int i = 0; i < ids.size(); i++) {
+            order.append(" WHEN ").append(ids.get(i)).append(" THEN ").append(i);
+        }
+        return order.append(" END").toString();
+    }
+
 //    private void showSearchActivityFor(SearchParameters parameters) {
 //        Intent intent = new Intent(getActivity(), SearchActivity.class);
 //        intent.putExtra(SearchActivity.EXTRA_SEARCH_PARAMETERS, parameters);
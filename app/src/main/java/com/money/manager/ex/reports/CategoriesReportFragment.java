@@ -37,6 +37,8 @@ import com.money.manager.ex.R;
 import com.money.manager.ex.core.TransactionTypes;
 import com.money.manager.ex.core.UIHelper;
 import com.money.manager.ex.currency.CurrencyService;
+import com.money.manager.ex.database.MoneyCursorReader;
+import com.money.manager.ex.database.PredicatePushdown;
 import com.money.manager.ex.database.ViewMobileData;
 import com.money.manager.ex.search.CategorySub;
 import com.money.manager.ex.search.SearchActivity;
@@ -50,6 +52,7 @@ import androidx.fragment.app.FragmentManager;
 import androidx.fragment.app.FragmentTransaction;
 import androidx.loader.content.Loader;
 import info.javaperformance.money.Money;
+import info.javaperformance.money.MoneyAccumulator;
 import info.javaperformance.money.MoneyFactory;
 import timber.log.Timber;
 
@@ -125,17 +128,19 @@ public class CategoriesReportFragment
 
             CurrencyService currencyService = new CurrencyService(getActivity().getApplicationContext());
 
-            Money totalAmount = MoneyFactory.fromString("0");
+            MoneyAccumulator totalAmount = new MoneyAccumulator();
+            MoneyCursorReader reader = new MoneyCursorReader();
+            int totalColumn = data.getColumnIndex("TOTAL");
             while (data.moveToNext()) {
-                String totalRow = data.getString(data.getColumnIndex("TOTAL"));
-                if (!TextUtils.isEmpty(totalRow)) {
-                    totalAmount = totalAmount.add(MoneyFactory.fromString(totalRow));
+                Money totalRow = reader.read(data, totalColumn);
+                if (totalRow != null) {
+                    totalAmount.add(totalRow);
                 } else {
                     new UIHelper(getActivity()).showToast("reading total");
                 }
             }
             TextView txtColumn2 = mListViewFooter.findViewById(R.id.textViewColumn2);
-            txtColumn2.setText(currencyService.getBaseCurrencyFormatted(totalAmount));
+            txtColumn2.setText(currencyService.getBaseCurrencyFormatted(totalAmount.toMoney()));
 
             // solved bug chart
             if (data.getCount() > 0) {
@@ -242,10 +247,12 @@ public class CategoriesReportFragment
         String sortOrder = ViewMobileData.CategoryFullName;
 
         //compose builder
-        builder.setTables(mobileData.getSource());
+        PredicatePushdown.Query query = mobileData.getPushdown()
+                .compose(mobileData.getSource(), selection);
+        builder.setTables(query.source);
 
         //return query
-        return builder.buildQuery(projectionIn, selection, groupBy, having, sortOrder, null);
+        return builder.buildQuery(projectionIn, query.selection, groupBy, having, sortOrder, null);
     }
 
     @Override
@@ -28,10 +28,11 @@ import android.widget.TextView;
 import com.money.manager.ex.R;
 import com.money.manager.ex.core.UIHelper;
 import com.money.manager.ex.currency.CurrencyService;
+import com.money.manager.ex.utils.FormatterCache;
 import com.money.manager.ex.viewmodels.IncomeVsExpenseReportEntity;
 
-import java.text.SimpleDateFormat;
 import java.util.Calendar;
+import java.util.Locale;
 
 import androidx.cursoradapter.widget.CursorAdapter;
 import info.javaperformance.money.MoneyFactory;
@@ -73,7 +74,7 @@ public class IncomeVsExpensesAdapter
         String formatMonth = context.getResources().getConfiguration().orientation == Configuration.ORIENTATION_PORTRAIT ? "MMM" : "MMMM";
 
         if (month != IncomeVsExpensesActivity.SUBTOTAL_MONTH) {
-            txtMonth.setText(new SimpleDateFormat(formatMonth).format(calendar.getTime()));
+            txtMonth.setText(FormatterCache.getDateFormat(formatMonth, Locale.getDefault()).format(calendar.getTime()));
         } else {
             txtMonth.setText(null);
         }
@@ -35,6 +35,7 @@ import android.widget.TextView;
 import com.money.manager.ex.R;
 import com.money.manager.ex.core.UIHelper;
 import com.money.manager.ex.currency.CurrencyService;
+import com.money.manager.ex.database.PredicatePushdown;
 import com.money.manager.ex.database.ViewMobileData;
 import com.money.manager.ex.domainmodel.Payee;
 import com.money.manager.ex.search.SearchActivity;
@@ -175,9 +176,11 @@ public class PayeeReportFragment
         String sortOrder = ViewMobileData.Payee;
         String limit = null;
         //compose builder
-        builder.setTables(mobileData.getSource());
+        PredicatePushdown.Query query = mobileData.getPushdown()
+                .compose(mobileData.getSource(), selection);
+        builder.setTables(query.source);
         //return query
-        return builder.buildQuery(projectionIn, selection, groupBy, having, sortOrder, limit);
+        return builder.buildQuery(projectionIn, query.selection, groupBy, having, sortOrder, limit);
     }
 
     @Override
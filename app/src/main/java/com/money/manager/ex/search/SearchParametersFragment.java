@@ -56,6 +56,7 @@ import com.money.manager.ex.core.RequestCodes;
 import com.money.manager.ex.core.UIHelper;
 import com.money.manager.ex.currency.CurrencyService;
 import com.money.manager.ex.database.QueryAllData;
+import com.money.manager.ex.database.TransactionSearchIndex;
 import com.money.manager.ex.database.WhereStatementGenerator;
 import com.money.manager.ex.domainmodel.Account;
 import com.money.manager.ex.domainmodel.Currency;
@@ -88,6 +89,7 @@ public class SearchParametersFragment
     public static final String DATEPICKER_TAG = "datepicker";
 
     @Inject Lazy<MmxDateTimeUtils> dateTimeUtilsLazy;
+    @Inject Lazy<TransactionSearchIndex> searchIndexLazy;
 
     private SearchParametersViewHolder viewHolder;
 
@@ -122,6 +124,8 @@ public class SearchParametersFragment
         super.onCreate(savedInstanceState);
 
         MmexApplication.getApp().iocComponent.inject(this);
+        // build the text search index while the parameters are entered.
+        searchIndexLazy.get().prepare();
 
         setHasOptionsMenu(true);
 
@@ -520,11 +524,24 @@ public class SearchParametersFragment
 
         // transaction number
         if (!TextUtils.isEmpty(searchParameters.transactionNumber)) {
-            where.addStatement(QueryAllData.TransactionNumber, " LIKE ", searchParameters.transactionNumber);
+            String indexed = searchIndexLazy.get().getIdFilter(QueryAllData.ID,
+                    TransactionSearchIndex.NUMBER, searchParameters.transactionNumber);
+            if (indexed != null) {
+                where.addStatement(indexed);
+            } else {
+                where.addStatement(QueryAllData.TransactionNumber, " LIKE ", searchParameters.transactionNumber);
+            }
         }
         // notes
         if (!TextUtils.isEmpty(searchParameters.notes)) {
-            where.addStatement(QueryAllData.Notes + " LIKE '%" + searchParameters.notes + "%'");
+            // the index finds the transaction ids before the query joins the other tables.
+            String indexed = searchIndexLazy.get().getIdFilter(QueryAllData.ID,
+                    TransactionSearchIndex.NOTES, "%" + searchParameters.notes + "%");
+            if (indexed != null) {
+                where.addStatement(indexed);
+            } else {
+                where.addStatement(QueryAllData.Notes + " LIKE '%" + searchParameters.notes + "%'");
+            }
         }
 
         return where.getWhere();
@@ -34,23 +34,22 @@ import com.money.manager.ex.core.TransactionTypes;
 import com.money.manager.ex.core.UIHelper;
 import com.money.manager.ex.currency.CurrencyService;
 import com.money.manager.ex.database.ITransactionEntity;
+import com.money.manager.ex.database.MoneyCursorReader;
+import com.money.manager.ex.database.ParameterizedWhere;
 import com.money.manager.ex.datalayer.AccountRepository;
 import com.money.manager.ex.database.QueryAccountBills;
-import com.money.manager.ex.database.QueryAllData;
-import com.money.manager.ex.database.WhereStatementGenerator;
 import com.money.manager.ex.datalayer.AccountTransactionRepository;
 import com.money.manager.ex.datalayer.StockFields;
 import com.money.manager.ex.datalayer.StockRepository;
 import com.money.manager.ex.domainmodel.Account;
 import com.money.manager.ex.settings.AppSettings;
 import com.money.manager.ex.settings.LookAndFeelSettings;
-import com.money.manager.ex.viewmodels.AccountTransactionDisplay;
 
-import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 
 import info.javaperformance.money.Money;
+import info.javaperformance.money.MoneyAccumulator;
 import info.javaperformance.money.MoneyFactory;
 import timber.log.Timber;
 
@@ -108,9 +107,9 @@ public class AccountService
      * @param isoDate date in ISO format
      */
     public Money calculateBalanceOn(int accountId, String isoDate) {
-        Money total = MoneyFactory.fromBigDecimal(BigDecimal.ZERO);
+        MoneyAccumulator total = new MoneyAccumulator();
 
-        WhereStatementGenerator where = new WhereStatementGenerator();
+        ParameterizedWhere where = new ParameterizedWhere();
         // load all transactions on the account before and on given date.
         where.addStatement(
             where.concatenateOr(
@@ -129,54 +128,42 @@ public class AccountService
         Cursor cursor = getContext().getContentResolver().query(repo.getUri(),
             null,
             selection,
-            null,
+            where.getArgs(),
             null);
-        if (cursor == null) return total;
+        if (cursor == null) return total.toMoney();
 
-        AccountTransactionDisplay tx = new AccountTransactionDisplay();
-        Money amount;
+        MoneyCursorReader reader = new MoneyCursorReader();
+        Money zero = MoneyFactory.fromUnits(0, 0);
+        int transCodeColumn = cursor.getColumnIndex(ITransactionEntity.TRANSCODE);
+        int accountIdColumn = cursor.getColumnIndex(ITransactionEntity.ACCOUNTID);
+        int amountColumn = cursor.getColumnIndex(ITransactionEntity.TRANSAMOUNT);
+        int toAmountColumn = cursor.getColumnIndex(ITransactionEntity.TOTRANSAMOUNT);
 
         // calculate balance.
         while (cursor.moveToNext()) {
-            tx.contentValues.clear();
-            String transType = cursor.getString(cursor.getColumnIndex(ITransactionEntity.TRANSCODE));
+            String transType = cursor.getString(transCodeColumn);
 
             // Some users have invalid Transaction Type. Should we check .contains()?
 
             switch (TransactionTypes.valueOf(transType)) {
                 case Withdrawal:
-                    DatabaseUtils.cursorDoubleToContentValues(cursor, ITransactionEntity.TRANSAMOUNT,
-                            tx.contentValues, QueryAllData.Amount);
-                    amount = tx.getAmount();
-                    total = total.subtract(amount);
+                    total.subtract(reader.read(cursor, amountColumn, zero));
                     break;
                 case Deposit:
-                    DatabaseUtils.cursorDoubleToContentValues(cursor, ITransactionEntity.TRANSAMOUNT,
-                            tx.contentValues, QueryAllData.Amount);
-                    amount = tx.getAmount();
-                    total = total.add(amount);
+                    total.add(reader.read(cursor, amountColumn, zero));
                     break;
                 case Transfer:
-                    DatabaseUtils.cursorDoubleToContentValues(cursor, ITransactionEntity.ACCOUNTID,
-                            tx.contentValues, QueryAllData.ACCOUNTID);
-
-                    if (tx.getAccountId().equals(accountId)) {
-                        DatabaseUtils.cursorDoubleToContentValues(cursor, ITransactionEntity.TRANSAMOUNT,
-                                tx.contentValues, QueryAllData.Amount);
-                        amount = tx.getAmount();
-                        total = total.subtract(amount);
+                    if (cursor.getInt(accountIdColumn) == accountId) {
+                        total.subtract(reader.read(cursor, amountColumn, zero));
                     } else {
-                        DatabaseUtils.cursorDoubleToContentValues(cursor, ITransactionEntity.TOTRANSAMOUNT,
-                                tx.contentValues, QueryAllData.Amount);
-                        amount = tx.getAmount();
-                        total = total.add(amount);
+                        total.add(reader.read(cursor, toAmountColumn, zero));
                     }
                     break;
             }
         }
 
         cursor.close();
-        return total;
+        return total.toMoney();
     }
 
     public String getAccountCurrencyCode(int accountId) {
@@ -239,7 +226,7 @@ public class AccountService
      * @return a boolean indicating if there are any transactions using this account.
      */
     public boolean isAccountUsed(int accountId) {
-        WhereStatementGenerator where = new WhereStatementGenerator();
+        ParameterizedWhere where = new ParameterizedWhere();
         // transactional accounts
         where.addStatement(
             where.concatenateOr(
@@ -249,13 +236,13 @@ public class AccountService
         );
 
         AccountTransactionRepository repo = new AccountTransactionRepository(getContext());
-        int txCount = repo.count(where.getWhere(), null);
+        int txCount = repo.count(where.getWhere(), where.getArgs());
 
         // investment accounts
         StockRepository stockRepository = new StockRepository(getContext());
         where.clear();
         where.addStatement(StockFields.HELDAT, "=", accountId);
-        int investmentCount = stockRepository.count(where.getWhere(), null);
+        int investmentCount = stockRepository.count(where.getWhere(), where.getArgs());
 
         return (txCount + investmentCount) > 0;
     }
@@ -345,7 +332,7 @@ public class AccountService
      * @return current balance in the currency of the account.
      */
     public Money loadBalance(String where) {
-        Money curTotal = MoneyFactory.fromString("0");
+        MoneyAccumulator curTotal = new MoneyAccumulator();
 
         QueryAccountBills accountBills = new QueryAccountBills(getContext());
         Cursor cursor = getContext().getContentResolver().query(accountBills.getUri(),
@@ -353,16 +340,20 @@ public class AccountService
                 where,
                 null,
                 null);
-        if (cursor == null) return curTotal;
+        if (cursor == null) return curTotal.toMoney();
 
         // calculate summary
+        MoneyCursorReader reader = new MoneyCursorReader();
+        int totalColumn = cursor.getColumnIndex(QueryAccountBills.TOTAL);
         while (cursor.moveToNext()) {
-//            curTotal = curTotal.add(MoneyFactory.fromDouble(cursor.getDouble(cursor.getColumnIndex(QueryAccountBills.TOTAL))));
-            curTotal = curTotal.add(MoneyFactory.fromString(cursor.getString(cursor.getColumnIndex(QueryAccountBills.TOTAL))));
+            Money total = reader.read(cursor, totalColumn);
+            if (total != null) {
+                curTotal.add(total);
+            }
         }
         cursor.close();
 
-        return curTotal;
+        return curTotal.toMoney();
     }
 
     // Private
@@ -16,8 +16,11 @@
  */
 package com.money.manager.ex.servicelayer.qif;
 
+import android.database.Cursor;
+
 import com.money.manager.ex.adapter.AllDataAdapter;
 
+import java.io.IOException;
 import java.text.ParseException;
 
 /**
@@ -26,5 +29,13 @@ import java.text.ParseException;
  */
 public interface IQifGenerator {
     // todo: replace AllDataAdapter with generic adapter (i.e. CursorAdapter).
-    String createFromAdapter(AllDataAdapter adapter) throws ParseException;
+    String createFromAdapter(AllDataAdapter adapter) throws ParseException, IOException;
+
+    /**
+     * Writes the transactions from the cursor into the output, as they are read.
+     * The cursor is expected to contain the QueryAllData columns and is consumed from
+     * its current position to the end.
+     * @return the number of exported transactions.
+     */
+    int write(Cursor cursor, Appendable output) throws ParseException, IOException;
 }
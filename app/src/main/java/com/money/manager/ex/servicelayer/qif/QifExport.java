@@ -17,12 +17,23 @@
 package com.money.manager.ex.servicelayer.qif;
 
 import android.content.Context;
+import android.database.Cursor;
 
 import com.money.manager.ex.R;
-import com.money.manager.ex.adapter.AllDataAdapter;
 import com.money.manager.ex.core.file.TextFileExport;
+import com.money.manager.ex.datalayer.QueryAllDataRepository;
 import com.money.manager.ex.utils.MmxDate;
 
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+import rx.Single;
+import rx.SingleSubscriber;
+import rx.android.schedulers.AndroidSchedulers;
+import rx.schedulers.Schedulers;
 import timber.log.Timber;
 
 /**
@@ -40,29 +51,50 @@ public class QifExport
     }
 
     /**
-     * Export the transactions into qif format and offer file for sharing.
+     * Export the transactions matching the filter. The file is written in the background,
+     * directly from a dedicated cursor, and offered for sharing when complete.
+     * @param selection Filter on the QueryAllData columns.
+     * @param sort Order of the transactions. Empty for the default.
      */
-    public void export(AllDataAdapter adapter) {
-        // just e errors here
-        try {
-            this.export_internal(adapter);
-        } catch (Exception e) {
-            Timber.e(e, ".qif export");
-        }
+    public void export(String selection, String sort) {
+        String title = getContext().getString(R.string.qif_export);
+
+        Single.fromCallable(() -> writeFile(selection, sort))
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(new SingleSubscriber<File>() {
+                    @Override
+                    public void onSuccess(File file) {
+                        export(file, title);
+                    }
+
+                    @Override
+                    public void onError(Throwable error) {
+                        Timber.e(error, ".qif export");
+                    }
+                });
     }
 
     // Private
 
-    private void export_internal(AllDataAdapter adapter)
-            throws Exception {
-        String fileName = generateFileName();
-
-        // get data into qif structure
-        IQifGenerator generator = getQifGenerator();
-        String content = generator.createFromAdapter(adapter);
-        String title = getContext().getString(R.string.qif_export);
+    /**
+     * Streams the transactions into a new export file.
+     */
+    private File writeFile(String selection, String sort) throws Exception {
+        clearCache();
+        File file = createExportFile(generateFileName());
+
+        Cursor cursor = new QueryAllDataRepository(getContext()).query(selection, sort);
+        if (cursor == null) throw new IOException("could not read the transactions");
+
+        try (Writer writer = new BufferedWriter(new FileWriter(file))) {
+            int count = getQifGenerator().write(cursor, writer);
+            Timber.d("exported %d transactions to qif", count);
+        } finally {
+            cursor.close();
+        }
 
-        boolean success = this.export(fileName, content, title);
+        return file;
     }
 
 //    private void dumpContentIntoFile(String content, File file) {
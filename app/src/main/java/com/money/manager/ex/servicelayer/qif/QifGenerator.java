@@ -23,6 +23,7 @@ import com.money.manager.ex.adapter.AllDataAdapter;
 import com.money.manager.ex.core.TransactionTypes;
 import com.money.manager.ex.viewmodels.AccountTransactionDisplay;
 
+import java.io.IOException;
 import java.text.ParseException;
 
 /**
@@ -39,19 +40,31 @@ public class QifGenerator implements IQifGenerator {
     private final Context mContext;
 
     public String createFromAdapter(AllDataAdapter adapter)
-            throws ParseException {
+            throws ParseException, IOException {
         StringBuilder builder = new StringBuilder();
 
         Cursor cursor = adapter.getCursor();
         int originalCursorPosition = cursor.getPosition();
-        cursor.moveToFirst();
+        cursor.moveToPosition(-1);
 
+        write(cursor, builder);
+
+        // No need to close the cursor here because it is used in the parent fragment.
+        cursor.moveToPosition(originalCursorPosition);
+
+        return builder.toString();
+    }
+
+    public int write(Cursor cursor, Appendable output)
+            throws ParseException, IOException {
         int previousAccountId = 0;
+        int count = 0;
+        // the same instances are used for all the records.
         QifHeader header = new QifHeader(mContext);
         QifRecord record = new QifRecord(mContext);
         AccountTransactionDisplay transaction = new AccountTransactionDisplay();
 
-        while (!cursor.isAfterLast()) {
+        while (cursor.moveToNext()) {
             // get data from cursor.
             transaction.loadFromCursor(cursor);
 
@@ -64,21 +77,14 @@ public class QifGenerator implements IQifGenerator {
             if (accountId != previousAccountId) {
                 previousAccountId = accountId;
                 // add header record
-                String headerRecord = header.parse(cursor);
-                builder.append(headerRecord);
+                header.write(cursor, output);
             }
 
             // add transaction record
-            String row = record.parse(transaction);
-
-            builder.append(row);
-            cursor.moveToNext();
+            record.write(transaction, output);
+            count++;
         }
-        // No need to close the cursor here because it is used in the parent fragment.
-//        cursor.close();
-        cursor.moveToPosition(originalCursorPosition);
 
-        return builder.toString();
+        return count;
     }
-
 }
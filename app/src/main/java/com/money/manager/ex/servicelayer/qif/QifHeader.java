@@ -25,6 +25,7 @@ import com.money.manager.ex.domainmodel.Account;
 import com.money.manager.ex.account.AccountTypes;
 import com.money.manager.ex.database.QueryAllData;
 
+import java.io.IOException;
 import java.util.HashMap;
 
 /**
@@ -36,14 +37,22 @@ public class QifHeader {
     }
 
     private final Context mContext;
+    private final HashMap<Integer, Account> mAccounts = new HashMap<>();
 
     public Context getContext() {
         return mContext;
     }
 
-    public String parse(Cursor cursor) {
+    public String parse(Cursor cursor) throws IOException {
         StringBuilder builder = new StringBuilder();
+        write(cursor, builder);
+        return builder.toString();
+    }
 
+    /**
+     * Writes the header for the account of the current cursor row directly into the output.
+     */
+    public void write(Cursor cursor, Appendable builder) throws IOException {
         // Line separator.
         String separator;
         separator = System.lineSeparator();
@@ -100,8 +109,6 @@ $57.300000
         builder.append("!Type:");
         builder.append(accountType);
         builder.append(separator);
-
-        return builder.toString();
     }
 
     private String getAccountType(Account account) {
@@ -140,8 +147,14 @@ L5,000.00
     private Account loadAccount(Cursor cursor) {
 //        int accountId = cursor.getInt(cursor.getColumnIndex(QueryAllData.ACCOUNTID));
         int accountId = cursor.getInt(cursor.getColumnIndex(QueryAllData.TOACCOUNTID));
-        AccountRepository repo = new AccountRepository(getContext());
-        Account account = repo.load(accountId);
+
+        // the same account can appear more than once in an export.
+        Account account = mAccounts.get(accountId);
+        if (account == null) {
+            AccountRepository repo = new AccountRepository(getContext());
+            account = repo.load(accountId);
+            mAccounts.put(accountId, account);
+        }
         return account;
     }
 }
@@ -19,7 +19,6 @@ package com.money.manager.ex.servicelayer.qif;
 import android.content.Context;
 import android.text.TextUtils;
 
-import com.money.manager.ex.Constants;
 import com.money.manager.ex.core.TransactionTypes;
 import com.money.manager.ex.database.ISplitTransaction;
 import com.money.manager.ex.datalayer.SplitCategoriesRepository;
@@ -27,6 +26,7 @@ import com.money.manager.ex.servicelayer.CategoryService;
 import com.money.manager.ex.utils.MmxDate;
 import com.money.manager.ex.viewmodels.AccountTransactionDisplay;
 
+import java.io.IOException;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Date;
@@ -47,6 +47,7 @@ public class QifRecord {
     }
 
     private final Context mContext;
+    private CategoryService mCategoryService;
 
     public Context getContext() {
         return mContext;
@@ -56,10 +57,18 @@ public class QifRecord {
      * Parses the data and generates a QIF record for transaction.
      * @return A string representing one QIF record
      */
-    public String parse(AccountTransactionDisplay transaction) throws ParseException {
-        final String lineSeparator = System.getProperty("line.separator");
-
+    public String parse(AccountTransactionDisplay transaction) throws ParseException, IOException {
         StringBuilder builder = new StringBuilder();
+        write(transaction, builder);
+        return builder.toString();
+    }
+
+    /**
+     * Writes the QIF record for the transaction directly into the output.
+     */
+    public void write(AccountTransactionDisplay transaction, Appendable builder)
+            throws ParseException, IOException {
+        final String lineSeparator = System.getProperty("line.separator");
 
         // Date
         String date = parseDate(transaction);
@@ -118,8 +127,7 @@ public class QifRecord {
         // Split Categories
         boolean splitCategory = transaction.getIsSplit();
         if (splitCategory) {
-            String splits = getSplitCategories(transaction);
-            builder.append(splits);
+            writeSplitCategories(transaction, builder);
         }
 
         // Memo
@@ -132,41 +140,39 @@ public class QifRecord {
 
         builder.append("^");
         builder.append(lineSeparator);
-
-        return builder.toString();
     }
 
-    public String getSplitCategories(AccountTransactionDisplay transaction) {
+    public String getSplitCategories(AccountTransactionDisplay transaction) throws IOException {
         StringBuilder builder = new StringBuilder();
+        writeSplitCategories(transaction, builder);
+        return builder.toString();
+    }
 
+    private void writeSplitCategories(AccountTransactionDisplay transaction, Appendable builder)
+            throws IOException {
         // retrieve splits
         SplitCategoriesRepository repo = new SplitCategoriesRepository(mContext);
         int transactionId = transaction.getId();
         ArrayList<ISplitTransaction> splits = repo.loadSplitCategoriesFor(transactionId);
-        if (splits == null) return Constants.EMPTY_STRING;
+        if (splits == null) return;
 
         String transactionType = transaction.getTransactionTypeName();
 
         for(ISplitTransaction split : splits) {
-            String splitRecord = getSplitCategory(split, transactionType);
-            builder.append(splitRecord);
+            writeSplitCategory(split, transactionType, builder);
         }
-
-        return builder.toString();
     }
 
-    private String getSplitCategory(ISplitTransaction split, String transactionType) {
+    private void writeSplitCategory(ISplitTransaction split, String transactionType, Appendable builder)
+            throws IOException {
         final String lineSeparator = System.getProperty("line.separator");
 
-        StringBuilder builder = new StringBuilder();
-
         // S = category in split
         // $ = amount in split
         // E = memo in split
 
         // category
-        CategoryService service = new CategoryService(getContext());
-        String category = service.getCategorySubcategoryName(split.getCategoryId());
+        String category = getCategoryService().getCategorySubcategoryName(split.getCategoryId());
         builder.append("S");
         builder.append(category);
         builder.append(lineSeparator);
@@ -181,13 +187,18 @@ public class QifRecord {
             // leave positive?
         }
         builder.append("$");
-        builder.append(amount);
+        builder.append(amount.toString());
         builder.append(lineSeparator);
 
         // memo - currently we don't have a field for it.
 //        String memo = split.get
+    }
 
-        return builder.toString();
+    private CategoryService getCategoryService() {
+        if (mCategoryService == null) {
+            mCategoryService = new CategoryService(getContext());
+        }
+        return mCategoryService;
     }
 
     private String parseDate(AccountTransactionDisplay transaction) throws ParseException {
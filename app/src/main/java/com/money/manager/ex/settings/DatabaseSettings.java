@@ -36,4 +36,12 @@ public class DatabaseSettings {
     public void setDatabasePath(String path) {
         mAppSettings.set(R.string.pref_database_path, path);
     }
+
+    public boolean getUseWriteAheadLog() {
+        return mAppSettings.get(R.string.pref_db_write_ahead_log, true);
+    }
+
+    public boolean getUseReportFactTable() {
+        return mAppSettings.get(R.string.pref_db_report_fact_table, false);
+    }
 }
@@ -34,6 +34,8 @@ import com.money.manager.ex.R;
 import com.money.manager.ex.core.RequestCodes;
 import com.money.manager.ex.core.UIHelper;
 import com.money.manager.ex.database.MmxOpenHelper;
+import com.money.manager.ex.database.QueryPlanActivity;
+import com.money.manager.ex.database.ReportFactTable;
 import com.money.manager.ex.home.DatabaseMetadata;
 import com.money.manager.ex.home.RecentDatabasesProvider;
 import com.money.manager.ex.utils.MmxDatabaseUtils;
@@ -46,6 +48,10 @@ import java.io.OutputStream;
 import javax.inject.Inject;
 
 import dagger.Lazy;
+import rx.Single;
+import rx.SingleSubscriber;
+import rx.android.schedulers.AndroidSchedulers;
+import rx.schedulers.Schedulers;
 import timber.log.Timber;
 
 /**
@@ -56,6 +62,7 @@ public class DatabaseSettingsFragment
 
     @Inject Lazy<MmxOpenHelper> openHelper;
     @Inject Lazy<RecentDatabasesProvider> mDatabases;
+    @Inject Lazy<ReportFactTable> mReportFactTable;
 
     @Override
     public void onCreate(Bundle savedInstanceState) {
@@ -90,6 +97,10 @@ public class DatabaseSettingsFragment
 
         // Fix duplicates
         initFixDuplicates();
+
+        initReportFactTableOptions();
+
+        initQueryPlansOption();
     }
 
     @Override
@@ -177,21 +188,30 @@ public class DatabaseSettingsFragment
         preference.setSummary(getString(R.string.db_check_integrity_summary));
 
         preference.setOnPreferenceClickListener(preference1 -> {
-            MmxDatabaseUtils db = new MmxDatabaseUtils(getActivity());
-            boolean result;
-            try {
-                Timber.d("checking db integrity.");
-
-                result = db.checkIntegrity();
-
-                if (result) {
-                    showToast(R.string.db_check_integrity_success, Toast.LENGTH_SHORT);
-                } else {
-                    showToast(R.string.db_check_integrity_error, Toast.LENGTH_SHORT);
-                }
-            } catch (Exception ex) {
-                Timber.e(ex, "checking integrity");
-            }
+            final MmxDatabaseUtils db = new MmxDatabaseUtils(getActivity());
+            Timber.d("checking db integrity.");
+
+            // the full check takes a while on large files.
+            Single.fromCallable(db::checkIntegrity)
+                .subscribeOn(Schedulers.io())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(new SingleSubscriber<Boolean>() {
+                    @Override
+                    public void onSuccess(Boolean result) {
+                        if (getActivity() == null) return;
+
+                        if (result) {
+                            showToast(R.string.db_check_integrity_success, Toast.LENGTH_SHORT);
+                        } else {
+                            showToast(R.string.db_check_integrity_error, Toast.LENGTH_SHORT);
+                        }
+                    }
+
+                    @Override
+                    public void onError(Throwable error) {
+                        Timber.e(error, "checking integrity");
+                    }
+                });
             return false;
         });
     }
@@ -221,6 +241,11 @@ public class DatabaseSettingsFragment
     private void backupDatabase(Uri destinationUri) {
         try {
             DatabaseMetadata db = mDatabases.get().getCurrent();
+            if (!MmexApplication.getApp().checkpointDb(db.localPath)) {
+                // the file lacks the latest changes, still in the write-ahead log.
+                showToast("Backup failed");
+                return;
+            }
             InputStream inputStream = new FileInputStream(db.localPath);
             OutputStream outputStream = getActivity().getContentResolver().openOutputStream(destinationUri);
 
@@ -285,6 +310,43 @@ public class DatabaseSettingsFragment
         });
     }
 
+    private void initReportFactTableOptions() {
+        Preference switchPreference = findPreference(getString(R.string.pref_db_report_fact_table));
+        if (switchPreference != null) {
+            switchPreference.setOnPreferenceChangeListener((preference, newValue) -> {
+                if (!((Boolean) newValue)) {
+                    mReportFactTable.get().reset();
+                }
+                return true;
+            });
+        }
+
+        Preference rebuildPreference = findPreference(getString(R.string.pref_db_rebuild_report_fact_table));
+        if (rebuildPreference == null) return;
+
+        rebuildPreference.setOnPreferenceClickListener(preference -> {
+            Timber.d("rebuilding report fact table");
+
+            mReportFactTable.get().invalidate();
+            showToast(R.string.db_rebuild_report_fact_table_started, Toast.LENGTH_SHORT);
+            return false;
+        });
+    }
+
+    /**
+     * The query plans are a development aid, shown in debug builds only.
+     */
+    private void initQueryPlansOption() {
+        Preference preference = findPreference(getString(R.string.pref_db_query_plans));
+        if (preference == null) return;
+
+        preference.setVisible(BuildConfig.DEBUG);
+        preference.setOnPreferenceClickListener(preference1 -> {
+            startActivity(new Intent(getActivity(), QueryPlanActivity.class));
+            return false;
+        });
+    }
+
     private void showNumberOfRecentFiles() {
         Preference preference = findPreference(getString(R.string.pref_clear_recent_files));
         if (preference == null) return;
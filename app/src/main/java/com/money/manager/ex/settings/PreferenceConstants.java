@@ -61,6 +61,8 @@ public class PreferenceConstants {
     // Recent files preferences
     public static final String RECENT_DB_PREFERENCES = "com.money.manager.ex.recent_db";
     public static final String SYNC_PREFERENCES = "com.money.manager.ex.sync_preferences";
+    // Verified state of the database files
+    public static final String INTEGRITY_PREFERENCES = "com.money.manager.ex.integrity";
 
     //SMS Prefs
     public static final Integer PREF_SMS_AUTOMATIC_TRANSACTIONS = R.string.pref_sms_auto_trans;
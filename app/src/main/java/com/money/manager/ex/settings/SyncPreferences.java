@@ -64,6 +64,13 @@ public class SyncPreferences
         return scheduleInt;
     }
 
+    /**
+     * @return whether uploads write only the changed blocks of the database file.
+     */
+    public boolean getDeltaSync() {
+        return get(R.string.pref_sync_delta, true);
+    }
+
     public boolean getUploadImmediately() {
         return get(R.string.pref_upload_immediately, true);
     }
@@ -36,16 +36,16 @@ import com.money.manager.ex.home.DatabaseMetadata;
 import com.money.manager.ex.home.RecentDatabasesProvider;
 import com.money.manager.ex.settings.PreferenceConstants;
 import com.money.manager.ex.sync.events.DbFileDownloadedEvent;
-import com.money.manager.ex.utils.MmxDate;
 
 import org.greenrobot.eventbus.EventBus;
 import org.greenrobot.eventbus.Subscribe;
 
-import java.util.Date;
-
 import javax.inject.Inject;
 
 import dagger.Lazy;
+import rx.Single;
+import rx.android.schedulers.AndroidSchedulers;
+import rx.schedulers.Schedulers;
 import timber.log.Timber;
 
 /**
@@ -147,21 +147,18 @@ public class SyncPreferenceFragment
             DatabaseMetadata currentDb = getDatabases().getCurrent();
             FileStorageHelper storage = new FileStorageHelper(getContext());
 
-            Date localSnapshot = MmxDate.fromIso8601(currentDb.localSnapshotTimestamp).toDate();
-            Date localModified = storage.getLocalFileModifiedDate(currentDb).toDate();
-
-            Date remoteSnapshot = MmxDate.fromIso8601(currentDb.remoteLastChangedDate).toDate();
-            Date remoteModified = storage.getRemoteFileModifiedDate(currentDb).toDate();
-
-            boolean isLocalModified = storage.isLocalFileChanged(currentDb);
-            boolean isRemoteModified = storage.isRemoteFileChanged(currentDb);
-
-            String message = String.format(
-                    "Local file changes indicator: %s.\n" +
-                            "Downloading will overwrite your local version.\nDo you want to continue?"
-                    , isLocalModified);
-
-            showConfirmDialog("Download Warning", message, this::forceDownload);
+            // reading the file contents takes time.
+            Single.fromCallable(() -> storage.isLocalFileChanged(currentDb))
+                    .subscribeOn(Schedulers.io())
+                    .observeOn(AndroidSchedulers.mainThread())
+                    .subscribe(isLocalModified -> {
+                        String message = String.format(
+                                "Local file changes indicator: %s.\n" +
+                                        "Downloading will overwrite your local version.\nDo you want to continue?"
+                                , isLocalModified);
+
+                        showConfirmDialog("Download Warning", message, this::forceDownload);
+                    }, error -> Timber.e(error, "checking the local changes"));
             return false;
         });
 
@@ -171,13 +168,6 @@ public class SyncPreferenceFragment
             DatabaseMetadata currentDb = getDatabases().getCurrent();
             FileStorageHelper storage = new FileStorageHelper(getContext());
 
-            Date localSnapshot = MmxDate.fromIso8601(currentDb.localSnapshotTimestamp).toDate();
-            Date localModified = storage.getLocalFileModifiedDate(currentDb).toDate();
-
-            Date remoteSnapshot = MmxDate.fromIso8601(currentDb.remoteLastChangedDate).toDate();
-            Date remoteModified = storage.getRemoteFileModifiedDate(currentDb).toDate();
-
-            boolean isLocalModified = storage.isLocalFileChanged(currentDb);
             boolean isRemoteModified = storage.isRemoteFileChanged(currentDb);
 
             String message = String.format(
@@ -128,8 +128,9 @@ public class SyncService
                 sendMessage(outMessenger, SyncServiceMessage.DOWNLOAD_COMPLETE);
                 break;
             case SyncConstants.INTENT_ACTION_UPLOAD:
-                storage.pushDatabase(currentDb);
-                sendMessage(outMessenger, SyncServiceMessage.UPLOAD_COMPLETE);
+                sendMessage(outMessenger, storage.pushDatabase(currentDb)
+                        ? SyncServiceMessage.UPLOAD_COMPLETE
+                        : SyncServiceMessage.ERROR);
                 break;
             case SyncConstants.INTENT_ACTION_SYNC:
                 triggerSync(outMessenger, localFile);
@@ -176,6 +177,10 @@ public class SyncService
         FileStorageHelper storage = new FileStorageHelper(getApplicationContext());
         boolean isLocalModified = storage.isLocalFileChanged(currentDb);
         boolean isRemoteModified = storage.isRemoteFileChanged(currentDb);
+        if (isLocalModified && isRemoteModified) {
+            // the remote timestamp changes also when the same contents are written again.
+            isRemoteModified = storage.isRemoteContentChanged(currentDb);
+        }
         Timber.d("Local file has changed: %b, Remote file has changed: %b", isLocalModified, isRemoteModified);
         Uri uri = Uri.parse(currentDb.remotePath);
 
@@ -212,8 +217,9 @@ public class SyncService
         if (isLocalModified) {
             Timber.d("Local file %s changed. Triggering upload.", localFile.getPath());
             // upload file
-            storage.pushDatabase(currentDb);
-            sendMessage(outMessenger, SyncServiceMessage.UPLOAD_COMPLETE);
+            sendMessage(outMessenger, storage.pushDatabase(currentDb)
+                    ? SyncServiceMessage.UPLOAD_COMPLETE
+                    : SyncServiceMessage.ERROR);
             return;
         }
     }
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.money.manager.ex.utils;
+
+import android.text.TextUtils;
+
+import com.money.manager.ex.core.NumericPatternGenerator;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.SimpleDateFormat;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Reusable date and number formatters. Creating a SimpleDateFormat or DecimalFormat is
+ * expensive and they are not thread-safe, so each thread keeps its own instances.
+ * The returned formatters are shared by all the callers on the thread and must not be
+ * modified.
+ */
+public final class FormatterCache {
+
+    private static final ThreadLocal<FormatterCache> cache = new ThreadLocal<FormatterCache>() {
+        @Override
+        protected FormatterCache initialValue() {
+            return new FormatterCache();
+        }
+    };
+
+    private FormatterCache() {
+    }
+
+    /**
+     * Locale -> pattern -> date formatter.
+     */
+    private final Map<Locale, Map<String, SimpleDateFormat>> dateFormats = new HashMap<>();
+    /**
+     * Number formats by number of decimals and separators.
+     */
+    private final Map<Long, DecimalFormat> numberFormats = new HashMap<>();
+    /**
+     * Number formats by pattern.
+     */
+    private final Map<String, DecimalFormat> patternFormats = new HashMap<>();
+    private final Map<Locale, DecimalFormatSymbols> localeSymbols = new HashMap<>();
+    // the last number format used, to skip the map lookup when formatting a list.
+    private long lastNumberKey = -1;
+    private DecimalFormat lastNumberFormat;
+
+    /**
+     * @return the date formatter for the pattern, in the current time zone.
+     */
+    public static SimpleDateFormat getDateFormat(String pattern, Locale locale) {
+        Map<Locale, Map<String, SimpleDateFormat>> formats = cache.get().dateFormats;
+
+        Map<String, SimpleDateFormat> localeFormats = formats.get(locale);
+        if (localeFormats == null) {
+            localeFormats = new HashMap<>();
+            formats.put(locale, localeFormats);
+        }
+
+        SimpleDateFormat format = localeFormats.get(pattern);
+        if (format == null) {
+            format = new SimpleDateFormat(pattern, locale);
+            localeFormats.put(pattern, format);
+        } else {
+            // the time zone of the device can change while the app is running.
+            TimeZone zone = TimeZone.getDefault();
+            if (!zone.getID().equals(format.getTimeZone().getID())) {
+                format.setTimeZone(zone);
+            }
+        }
+        return format;
+    }
+
+    /**
+     * @param decimals Number of decimals to show.
+     * @param decimalSeparator Decimal separator. The one from the default locale is used if empty.
+     * @param groupSeparator Grouping separator. The one from the default locale is used if empty.
+     * @return the number formatter, with groups of 3 digits.
+     */
+    public static DecimalFormat getNumberFormat(int decimals, String decimalSeparator, String groupSeparator) {
+        char decimal = TextUtils.isEmpty(decimalSeparator) ? 0 : decimalSeparator.charAt(0);
+        char group = TextUtils.isEmpty(groupSeparator) ? 0 : groupSeparator.charAt(0);
+        long key = ((long) decimals << 32) | ((long) decimal << 16) | group;
+
+        FormatterCache instance = cache.get();
+        if (key == instance.lastNumberKey) {
+            return instance.lastNumberFormat;
+        }
+
+        DecimalFormat format = instance.numberFormats.get(key);
+        if (format == null) {
+            format = createNumberFormat(decimals, decimal, group);
+            instance.numberFormats.put(key, format);
+        }
+
+        instance.lastNumberKey = key;
+        instance.lastNumberFormat = format;
+        return format;
+    }
+
+    /**
+     * @return the number formatter for a DecimalFormat pattern.
+     */
+    public static DecimalFormat getNumberFormat(String pattern) {
+        Map<String, DecimalFormat> formats = cache.get().patternFormats;
+
+        DecimalFormat format = formats.get(pattern);
+        if (format == null) {
+            format = new DecimalFormat(pattern);
+            formats.put(pattern, format);
+        }
+        return format;
+    }
+
+    /**
+     * @return the number symbols (separators) of the locale.
+     */
+    public static DecimalFormatSymbols getSymbols(Locale locale) {
+        Map<Locale, DecimalFormatSymbols> symbols = cache.get().localeSymbols;
+
+        DecimalFormatSymbols result = symbols.get(locale);
+        if (result == null) {
+            result = DecimalFormatSymbols.getInstance(locale);
+            symbols.put(locale, result);
+        }
+        return result;
+    }
+
+    private static DecimalFormat createNumberFormat(int decimals, char decimalSeparator, char groupSeparator) {
+        DecimalFormatSymbols formatSymbols = new DecimalFormatSymbols();
+        if (decimalSeparator != 0) {
+            formatSymbols.setDecimalSeparator(decimalSeparator);
+        }
+        if (groupSeparator != 0) {
+            formatSymbols.setGroupingSeparator(groupSeparator);
+        }
+
+        DecimalFormat format = new DecimalFormat(NumericPatternGenerator.getPattern(decimals));
+        format.setMaximumFractionDigits(decimals);
+        format.setMinimumFractionDigits(decimals);
+        format.setGroupingSize(3);
+        format.setDecimalFormatSymbols(formatSymbols);
+        return format;
+    }
+}
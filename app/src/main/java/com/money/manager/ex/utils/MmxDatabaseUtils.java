@@ -33,6 +33,7 @@ import com.money.manager.ex.R;
 import com.money.manager.ex.core.InfoKeys;
 import com.money.manager.ex.core.UIHelper;
 import com.money.manager.ex.core.database.DatabaseManager;
+import com.money.manager.ex.database.DatabaseIntegrity;
 import com.money.manager.ex.database.MmxOpenHelper;
 import com.money.manager.ex.datalayer.InfoRepositorySql;
 import com.money.manager.ex.domainmodel.Info;
@@ -106,13 +107,21 @@ public class MmxDatabaseUtils {
     }
 
     /**
-     * Runs SQLite pragma check on the database file.
+     * Opens the current database, so that an invalid file or password is found right away.
+     */
+    public void openDatabase() {
+        openHelper.get().getReadableDatabase();
+    }
+
+    /**
+     * Runs the full integrity check of the database file. This takes a while on large files,
+     * call off the main thread.
      * @return A boolean indicating whether the check was successfully completed.
      */
     public boolean checkIntegrity() {
-        boolean result = openHelper.get().getReadableDatabase()
-                .isDatabaseIntegrityOk();
-        return result;
+        DatabaseIntegrity.Report report = new DatabaseIntegrity(getContext(), openHelper.get())
+                .checkAll(() -> false);
+        return report.isOk();
     }
 
     /**
@@ -150,6 +159,14 @@ public class MmxDatabaseUtils {
         return result;
     }
 
+    /**
+     * @return true if there are duplicate records in Info Table, removed by fixDuplicates().
+     */
+    public boolean hasDuplicates() {
+        List<Info> results = infoRepositorySqlLazy.get().loadAll(InfoKeys.DATEFORMAT);
+        return results != null && results.size() > 1;
+    }
+
     public boolean fixDuplicates() {
         boolean result = false;
 
@@ -224,23 +241,32 @@ public class MmxDatabaseUtils {
 
     // Private
 
+    /**
+     * @return The tables of the generation script that are not in the database.
+     */
+    public List<String> getMissingTables() throws IOException {
+        // Get the names of all the tables from the generation script.
+        ArrayList<String> scriptTables = getAllTableNamesFromGenerationScript();
+
+        // get the list of all the tables from the database.
+        ArrayList<String> existingTables = getTableNamesFromDb();
+
+        // compare. retainAll, removeAll, addAll
+        scriptTables.removeAll(existingTables);
+        return scriptTables;
+    }
+
     private boolean checkSchemaInternal() {
         boolean result = false;
 
-        // Get the names of all the tables from the generation script.
-        ArrayList<String> scriptTables;
+        List<String> scriptTables;
         try {
-            scriptTables = getAllTableNamesFromGenerationScript();
+            scriptTables = getMissingTables();
         } catch (IOException | SQLiteDiskIOException ex) {
             Timber.e(ex, "reading table names from generation script");
             return false;
         }
 
-        // get the list of all the tables from the database.
-        ArrayList<String> existingTables = getTableNamesFromDb();
-
-        // compare. retainAll, removeAll, addAll
-        scriptTables.removeAll(existingTables);
         // If there is anything left, the script schema has more tables than the db.
         if (!scriptTables.isEmpty()) {
             StringBuilder message = new StringBuilder("Tables missing: ");
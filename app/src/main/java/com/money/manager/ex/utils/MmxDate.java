@@ -54,7 +54,7 @@ public class MmxDate {
             if (dateString.charAt(23) == 'Z') {
                 dateString = dateString.substring(0, 23);
                 // append the current time zone time
-                DateFormat offsetFormat = new SimpleDateFormat("Z");
+                DateFormat offsetFormat = FormatterCache.getDateFormat("Z", Locale.getDefault());
                 String offsetString = offsetFormat.format(new MmxDate().toDate());
                 dateString += offsetString;
             }
@@ -357,23 +357,19 @@ public class MmxDate {
     }
 
     public String toIsoDateString() {
-        SimpleDateFormat format = new SimpleDateFormat(Constants.ISO_DATE_FORMAT, Locale.ENGLISH);
-        return format.format(toDate());
+        return getFormatterFor(Constants.ISO_DATE_FORMAT).format(toDate());
     }
 
     public String toIsoString() {
-        SimpleDateFormat format = new SimpleDateFormat(Constants.ISO_8601_FORMAT, Locale.ENGLISH);
-        return format.format(toDate());
+        return getFormatterFor(Constants.ISO_8601_FORMAT).format(toDate());
     }
 
     public String toIsoCombinedString() {
-        SimpleDateFormat format = new SimpleDateFormat(Constants.IOS_8601_COMBINED, Locale.ENGLISH);
-        return format.format(toDate());
+        return getFormatterFor(Constants.IOS_8601_COMBINED).format(toDate());
     }
 
     public String toIsoDateShortTimeString() {
-        SimpleDateFormat format = new SimpleDateFormat(Constants.ISO_DATE_SHORT_TIME_FORMAT, Locale.ENGLISH);
-        return format.format(toDate());
+        return getFormatterFor(Constants.ISO_DATE_SHORT_TIME_FORMAT).format(toDate());
     }
 
     /*
@@ -381,6 +377,6 @@ public class MmxDate {
      */
 
     private static SimpleDateFormat getFormatterFor(String format) {
-        return new SimpleDateFormat(format, Locale.ENGLISH);
+        return FormatterCache.getDateFormat(format, Locale.ENGLISH);
     }
 }
@@ -219,6 +219,6 @@ public class MmxDateTimeUtils {
      */
 
     private SimpleDateFormat getFormatterFor(String format) {
-        return new SimpleDateFormat(format, _locale);
+        return FormatterCache.getDateFormat(format, _locale);
     }
 }
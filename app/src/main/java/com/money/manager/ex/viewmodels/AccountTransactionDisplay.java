@@ -17,10 +17,10 @@
 package com.money.manager.ex.viewmodels;
 
 import android.database.Cursor;
-import android.database.DatabaseUtils;
 
 import com.money.manager.ex.core.TransactionStatuses;
 import com.money.manager.ex.core.TransactionTypes;
+import com.money.manager.ex.database.MoneyCursorReader;
 import com.money.manager.ex.database.QueryAllData;
 import com.money.manager.ex.domainmodel.EntityBase;
 import com.money.manager.ex.utils.MmxDate;
@@ -38,13 +38,40 @@ import info.javaperformance.money.Money;
 public class AccountTransactionDisplay
     extends EntityBase {
 
+    // The amounts are kept outside of the content values, read directly from the cursor.
+    private final transient MoneyCursorReader moneyReader = new MoneyCursorReader();
+    private transient Cursor lastCursor;
+    private transient int amountColumn;
+    private transient int toAmountColumn;
+    private transient Money amount;
+    private transient Money toAmount;
+
+    /**
+     * Copies the current row. The same instance is reused for all the rows when exporting,
+     * so the amount columns are read without creating strings.
+     */
     @Override
     public void loadFromCursor(Cursor c) {
-        super.loadFromCursor(c);
+        if (c != lastCursor) {
+            lastCursor = c;
+            amountColumn = c.getColumnIndex(QueryAllData.Amount);
+            toAmountColumn = c.getColumnIndex(QueryAllData.ToAmount);
+        }
 
-        // Reload all money values.
-        DatabaseUtils.cursorDoubleToCursorValues(c, QueryAllData.Amount, this.contentValues);
-        DatabaseUtils.cursorDoubleToCursorValues(c, QueryAllData.ToAmount, this.contentValues);
+        this.contentValues.clear();
+        int columnCount = c.getColumnCount();
+        for (int i = 0; i < columnCount; i++) {
+            if (i == amountColumn || i == toAmountColumn) continue;
+
+            if (c.getType(i) == Cursor.FIELD_TYPE_BLOB) {
+                this.contentValues.put(c.getColumnName(i), c.getBlob(i));
+            } else {
+                this.contentValues.put(c.getColumnName(i), c.getString(i));
+            }
+        }
+
+        amount = amountColumn == -1 ? null : moneyReader.read(c, amountColumn);
+        toAmount = toAmountColumn == -1 ? null : moneyReader.read(c, toAmountColumn);
     }
 
     public Integer getId() {
@@ -60,7 +87,7 @@ public class AccountTransactionDisplay
     }
 
     public Money getAmount() {
-        return getMoney(QueryAllData.Amount);
+        return amount;
     }
 
     public String getCategory() {
@@ -110,7 +137,7 @@ public class AccountTransactionDisplay
     }
 
     public Money getToAmount() {
-        return getMoney(QueryAllData.ToAmount);
+        return toAmount;
     }
 
     public String getTransactionTypeName() {
@@ -46,3 +46,4 @@ FROM CHECKINGACCOUNT_V1 TX
     LEFT JOIN currencyformats_v1 cf ON cf.currencyid = FROMACC.currencyid
     LEFT JOIN currencyformats_v1 cfTo ON cfTo.currencyid = TOACC.currencyid
 WHERE (TX.DELETEDTIME IS NULL OR TX.DELETEDTIME = '')
+    /* :pushdown */
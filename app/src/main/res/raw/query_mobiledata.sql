@@ -51,3 +51,4 @@ FROM CHECKINGACCOUNT_V1 TX
     LEFT JOIN categories SCAT ON SCAT.CATEGID = st.CATEGID AND TX.TransId = st.transid
     LEFT JOIN categories SPARENTCAT ON SPARENTCAT.CATEGID = SCAT.CATEGID
 WHERE (TX.DELETEDTIME IS NULL OR TX.DELETEDTIME = '')
+    /* :pushdown */
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.moneymanagerex.android.tests;
+
+import android.database.MatrixCursor;
+
+import com.money.manager.ex.account.BalanceCheckpoints;
+import com.money.manager.ex.account.CalculateRunningBalanceTask2;
+import com.money.manager.ex.database.QueryAllData;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.HashMap;
+
+import info.javaperformance.money.Money;
+import info.javaperformance.money.MoneyFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the monthly balance checkpoints and the running balances of the list pages.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class BalanceCheckpointsTests {
+
+    @Test
+    public void periodBoundaries() {
+        assertEquals("2024-03", BalanceCheckpoints.getPeriod("2024-03-15"));
+        assertEquals("2024-03", BalanceCheckpoints.getPeriod("2024-03-15T10:00:00"));
+        assertEquals("2024-03-01", BalanceCheckpoints.getPeriodStart("2024-03"));
+        assertEquals("2024-04-01", BalanceCheckpoints.getNextPeriodStart("2024-03"));
+        assertEquals("2025-01-01", BalanceCheckpoints.getNextPeriodStart("2024-12"));
+    }
+
+    @Test
+    public void totalBeforePeriod() {
+        BalanceCheckpoints checkpoints = new BalanceCheckpoints(1);
+        checkpoints.put("2024-01", MoneyFactory.fromString("100"));
+        checkpoints.put("2024-02", MoneyFactory.fromString("-30.5"));
+        checkpoints.put("2024-03", MoneyFactory.fromString("10"));
+
+        assertEquals(0, checkpoints.getTotalBefore("2024-01").compareTo(MoneyFactory.fromString("0")));
+        assertEquals(0, checkpoints.getTotalBefore("2024-03").compareTo(MoneyFactory.fromString("69.5")));
+        assertEquals(0, checkpoints.getTotalBefore("2025-01").compareTo(MoneyFactory.fromString("79.5")));
+    }
+
+    @Test
+    public void totalBeforePeriodWithNewTotals() {
+        BalanceCheckpoints checkpoints = new BalanceCheckpoints(1);
+        checkpoints.put("2024-01", MoneyFactory.fromString("100"));
+        checkpoints.put("2024-02", MoneyFactory.fromString("-30.5"));
+        checkpoints.markDirty("2024-02");
+
+        // re-aggregated, but not stored: a changed period and a new one.
+        HashMap<String, Money> totals = new HashMap<>();
+        totals.put("2024-02", MoneyFactory.fromString("-20"));
+        totals.put("2024-03", MoneyFactory.fromString("5"));
+        totals.put("2024-05", MoneyFactory.fromString("1000"));
+
+        assertEquals(0, checkpoints.getTotalBefore("2024-04", totals).compareTo(MoneyFactory.fromString("85")));
+        assertTrue(checkpoints.hasDirtyPeriods());
+    }
+
+    @Test
+    public void dirtyPeriodIsClearedOnPut() {
+        BalanceCheckpoints checkpoints = new BalanceCheckpoints(1);
+        checkpoints.put("2024-01", MoneyFactory.fromString("100"));
+
+        checkpoints.markDirty("2024-01");
+        assertTrue(checkpoints.hasDirtyPeriods());
+
+        checkpoints.put("2024-01", MoneyFactory.fromString("0"));
+        assertFalse(checkpoints.hasDirtyPeriods());
+        assertEquals(0, checkpoints.size());
+    }
+
+    @Test
+    public void roundTrip() {
+        BalanceCheckpoints checkpoints = new BalanceCheckpoints(1);
+        checkpoints.put("2024-01", MoneyFactory.fromString("100.25"));
+
+        BalanceCheckpoints copy = new BalanceCheckpoints(1);
+        copy.loadFrom(checkpoints.toMap());
+
+        assertEquals(0, copy.getTotalBefore("2024-02").compareTo(MoneyFactory.fromString("100.25")));
+    }
+
+    @Test
+    public void runningBalancesContinueOnNextPage() {
+        MatrixCursor cursor = new MatrixCursor(new String[] { QueryAllData.ID, QueryAllData.ACCOUNTID,
+            QueryAllData.Status, QueryAllData.TransactionType, QueryAllData.Amount, QueryAllData.ToAmount });
+        // newest first. The first row was calculated with the first page.
+        cursor.addRow(new Object[] { 4, 1, "R", "Deposit", 10.0, 10.0 });
+        cursor.addRow(new Object[] { 3, 2, "", "Transfer", -20.0, 5.5 });
+        cursor.addRow(new Object[] { 2, 1, "V", "Withdrawal", -7.0, 7.0 });
+        cursor.addRow(new Object[] { 1, 1, "", "Withdrawal", -1.25, 1.25 });
+
+        HashMap<Integer, Money> balances = new HashMap<>();
+        balances.put(4, MoneyFactory.fromString("100"));
+
+        CalculateRunningBalanceTask2.continueBalances(cursor, 1, balances);
+
+        assertEquals(4, balances.size());
+        // the incoming transfer counts its destination amount, the void transaction nothing.
+        assertEquals(0, balances.get(3).compareTo(MoneyFactory.fromString("90")));
+        assertEquals(0, balances.get(2).compareTo(MoneyFactory.fromString("84.5")));
+        assertEquals(0, balances.get(1).compareTo(MoneyFactory.fromString("84.5")));
+    }
+}
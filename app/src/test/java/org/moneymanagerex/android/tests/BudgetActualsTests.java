@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.moneymanagerex.android.tests;
+
+import com.money.manager.ex.budget.BudgetActuals;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.HashMap;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for the budget actuals roll-up.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class BudgetActualsTests {
+
+    @Test
+    public void totalsRollUpTheCategoryTree() {
+        // 1 > 2 > 3, 4 is a separate root.
+        HashMap<Integer, Integer> parents = new HashMap<>();
+        parents.put(1, -1);
+        parents.put(2, 1);
+        parents.put(3, 2);
+        parents.put(4, -1);
+
+        HashMap<Integer, Double> totals = new HashMap<>();
+        totals.put(1, -10.0);
+        totals.put(2, -20.0);
+        totals.put(3, -5.0);
+        totals.put(4, 100.0);
+
+        BudgetActuals actuals = new BudgetActuals(totals, parents);
+
+        assertEquals(-10.0, actuals.getActual(1), 0.001);
+        assertEquals(-35.0, actuals.getActualWithSubcategories(1), 0.001);
+        assertEquals(-25.0, actuals.getActualWithSubcategories(2), 0.001);
+        assertEquals(-5.0, actuals.getActualWithSubcategories(3), 0.001);
+        assertEquals(100.0, actuals.getActualWithSubcategories(4), 0.001);
+        assertEquals(0.0, actuals.getActual(99), 0.001);
+    }
+
+    @Test
+    public void cyclesDoNotLoop() {
+        HashMap<Integer, Integer> parents = new HashMap<>();
+        parents.put(1, 2);
+        parents.put(2, 1);
+
+        HashMap<Integer, Double> totals = new HashMap<>();
+        totals.put(1, 1.0);
+
+        BudgetActuals actuals = new BudgetActuals(totals, parents);
+
+        assertEquals(1.0, actuals.getActual(1), 0.001);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.moneymanagerex.android.tests;
+
+import com.money.manager.ex.database.DatabaseIntegrity;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests for the fingerprint of the verified database files.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DatabaseIntegrityTests {
+
+    @Test
+    public void unchangedFile() throws IOException {
+        File file = createFile(10000);
+
+        String fingerprint = DatabaseIntegrity.fingerprint(file);
+
+        assertNotNull(fingerprint);
+        assertEquals(fingerprint, DatabaseIntegrity.fingerprint(file));
+    }
+
+    @Test
+    public void changedFile() throws IOException {
+        File file = createFile(10000);
+        long modified = file.lastModified();
+        String fingerprint = DatabaseIntegrity.fingerprint(file);
+
+        // the header changes on every commit, the modification time may stay the same.
+        try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+            output.seek(24);
+            output.write(1);
+        }
+        file.setLastModified(modified);
+
+        assertNotEquals(fingerprint, DatabaseIntegrity.fingerprint(file));
+    }
+
+    @Test
+    public void smallAndMissingFiles() throws IOException {
+        assertNotNull(DatabaseIntegrity.fingerprint(createFile(100)));
+        assertNull(DatabaseIntegrity.fingerprint(new File("missing.mmb")));
+    }
+
+    private File createFile(int length) throws IOException {
+        File file = File.createTempFile("integrity", ".mmb");
+        file.deleteOnExit();
+        try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+            output.setLength(length);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.moneymanagerex.android.tests;
+
+import com.money.manager.ex.core.docstorage.DeltaSync;
+import com.money.manager.ex.core.docstorage.LocalRemoteFile;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for the block-level database upload, against a local directory.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class DeltaSyncTests {
+
+    private static final int PAGE_SIZE = 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File local;
+    private LocalRemoteFile remote;
+    private DeltaSync deltaSync;
+
+    @Before
+    public void setUp() throws IOException {
+        local = new File(folder.newFolder("local"), "data.mmb");
+        remote = new LocalRemoteFile(folder.newFolder("remote"), "data.mmb");
+        deltaSync = new DeltaSync(new File(folder.getRoot(), "data.blocks"));
+
+        writeDatabase(local, 8);
+    }
+
+    @Test
+    public void firstUploadCopiesTheWholeFile() throws IOException {
+        long written = deltaSync.upload(local, remote);
+
+        assertEquals(8 * PAGE_SIZE, written);
+        assertSameContents();
+    }
+
+    @Test
+    public void onlyChangedPagesAreWritten() throws IOException {
+        deltaSync.upload(local, remote);
+
+        changePage(local, 5);
+        long written = deltaSync.upload(local, remote);
+
+        assertEquals(PAGE_SIZE, written);
+        assertSameContents();
+    }
+
+    @Test
+    public void growingAndShrinkingFilesAreMirrored() throws IOException {
+        deltaSync.upload(local, remote);
+
+        writeDatabase(local, 10);
+        changePage(local, 9);
+        deltaSync.upload(local, remote);
+        assertSameContents();
+
+        try (RandomAccessFile file = new RandomAccessFile(local, "rw")) {
+            file.setLength(6 * PAGE_SIZE);
+        }
+        long written = deltaSync.upload(local, remote);
+
+        assertEquals(0, written);
+        assertSameContents();
+    }
+
+    @Test
+    public void replacedRemoteFileGetsFullCopy() throws IOException {
+        deltaSync.upload(local, remote);
+
+        // someone else uploaded a different version.
+        writeDatabase(remote.getFile(), 3);
+        changePage(local, 1);
+        long written = deltaSync.upload(local, remote);
+
+        assertEquals(8 * PAGE_SIZE, written);
+        assertSameContents();
+    }
+
+    @Test
+    public void remoteVersionOfTheSameSizeGetsFullCopy() throws IOException {
+        deltaSync.upload(local, remote);
+
+        // another commit changes the file change counter in the header.
+        try (RandomAccessFile output = new RandomAccessFile(remote.getFile(), "rw")) {
+            output.seek(24);
+            output.writeInt(7);
+        }
+        changePage(local, 1);
+        long written = deltaSync.upload(local, remote);
+
+        assertEquals(8 * PAGE_SIZE, written);
+        assertSameContents();
+    }
+
+    @Test
+    public void resetForcesFullCopy() throws IOException {
+        deltaSync.upload(local, remote);
+
+        deltaSync.reset();
+        long written = deltaSync.upload(local, remote);
+
+        assertEquals(8 * PAGE_SIZE, written);
+    }
+
+    // Private
+
+    private void assertSameContents() throws IOException {
+        assertArrayEquals(Files.readAllBytes(local.toPath()), Files.readAllBytes(remote.getFile().toPath()));
+    }
+
+    /**
+     * Writes a file with an SQLite header and the given number of pages.
+     * Existing pages keep their contents.
+     */
+    private void writeDatabase(File file, int pages) throws IOException {
+        try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+            long existing = output.length() / PAGE_SIZE;
+            output.setLength((long) pages * PAGE_SIZE);
+
+            byte[] header = "SQLite format 3\0".getBytes(StandardCharsets.US_ASCII);
+            output.seek(0);
+            output.write(header);
+            output.writeShort(PAGE_SIZE);
+
+            for (long page = Math.max(existing, 1); page < pages; page++) {
+                byte[] contents = new byte[PAGE_SIZE];
+                Arrays.fill(contents, (byte) page);
+                output.seek(page * PAGE_SIZE);
+                output.write(contents);
+            }
+        }
+    }
+
+    private void changePage(File file, int page) throws IOException {
+        try (RandomAccessFile output = new RandomAccessFile(file, "rw")) {
+            output.seek((long) page * PAGE_SIZE + 100);
+            output.write(new byte[] { 42, 43, 44 });
+        }
+    }
+}
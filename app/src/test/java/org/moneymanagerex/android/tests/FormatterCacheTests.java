@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.moneymanagerex.android.tests;
+
+import com.money.manager.ex.utils.FormatterCache;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.text.DecimalFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests for the per-thread formatter cache.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class FormatterCacheTests {
+
+    private final TimeZone originalZone = TimeZone.getDefault();
+
+    @After
+    public void tearDown() {
+        TimeZone.setDefault(originalZone);
+    }
+
+    @Test
+    public void numberFormatsAreReusedAndKeyedBySeparators() {
+        DecimalFormat format = FormatterCache.getNumberFormat(2, ",", ".");
+
+        assertSame(format, FormatterCache.getNumberFormat(2, ",", "."));
+        assertEquals("1.234,50", format.format(1234.5));
+        assertEquals("1,234.500", FormatterCache.getNumberFormat(3, ".", ",").format(1234.5));
+        // the first format is not changed by the second one.
+        assertEquals("1.234,50", FormatterCache.getNumberFormat(2, ",", ".").format(1234.5));
+    }
+
+    @Test
+    public void eachThreadHasItsOwnFormatter() throws InterruptedException {
+        SimpleDateFormat format = FormatterCache.getDateFormat("yyyy-MM-dd", Locale.ENGLISH);
+        AtomicReference<SimpleDateFormat> other = new AtomicReference<>();
+
+        Thread thread = new Thread(() -> other.set(FormatterCache.getDateFormat("yyyy-MM-dd", Locale.ENGLISH)));
+        thread.start();
+        thread.join();
+
+        assertSame(format, FormatterCache.getDateFormat("yyyy-MM-dd", Locale.ENGLISH));
+        assertNotSame(format, other.get());
+    }
+
+    @Test
+    public void dateFormatsFollowTheTimeZone() {
+        Date date = new Date(0);
+        TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+        assertEquals("00", FormatterCache.getDateFormat("HH", Locale.ENGLISH).format(date));
+
+        TimeZone.setDefault(TimeZone.getTimeZone("GMT+02:00"));
+        assertEquals("02", FormatterCache.getDateFormat("HH", Locale.ENGLISH).format(date));
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.moneymanagerex.android.tests;
+
+import android.database.MatrixCursor;
+
+import com.money.manager.ex.common.PagedCursor;
+import com.money.manager.ex.datalayer.KeysetPager;
+import com.money.manager.ex.datalayer.Select;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests for the keyset pagination of the transaction lists.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class KeysetPagerTests {
+
+    @Test
+    public void firstPageIsLimited() {
+        KeysetPager pager = KeysetPager.create(createQuery("Date DESC, ID DESC"), "ID", 50);
+
+        Select page = pager.getFirstPage();
+
+        assertEquals("AccountID=1", page.selection);
+        assertEquals("Date DESC, ID DESC", page.sort);
+        assertEquals(Integer.valueOf(50), page.limit);
+    }
+
+    @Test
+    public void nextPageSeeksAfterLastRow() {
+        KeysetPager pager = KeysetPager.create(createQuery("Date DESC, TransactionType, ID DESC"), "ID", 50);
+
+        MatrixCursor cursor = new MatrixCursor(new String[] { "ID", "Date", "TransactionType" });
+        cursor.addRow(new Object[] { 42L, "2024-01-15", "Deposit" });
+        cursor.moveToFirst();
+        Select page = pager.getNextPage(cursor);
+
+        assertEquals("(AccountID=1) AND ((Date < ?) OR (Date = ? AND TransactionType > ?)"
+                + " OR (Date = ? AND TransactionType = ? AND ID < 42))", page.selection);
+        assertArrayEquals(new String[] { "2024-01-15", "2024-01-15", "Deposit", "2024-01-15", "Deposit" },
+            page.selectionArgs);
+        assertEquals("Date DESC, TransactionType, ID DESC", page.sort);
+        assertEquals(Integer.valueOf(50), page.limit);
+    }
+
+    @Test
+    public void unsupportedSortIsNotPaged() {
+        assertNull(KeysetPager.create(createQuery("Date DESC"), "ID", 50));
+        assertNull(KeysetPager.create(createQuery("lower(Payee), ID"), "ID", 50));
+        assertNull(KeysetPager.create(createQuery(""), "ID", 50));
+        assertNotNull(KeysetPager.create(createQuery("ToAccountId, Date, TransactionType, ID"), "ID", 50));
+    }
+
+    @Test
+    public void pagedCursorJoinsPages() {
+        MatrixCursor first = createIds(1, 3);
+        PagedCursor cursor = new PagedCursor(first);
+        cursor.addPage(createIds(4, 5));
+
+        assertEquals(5, cursor.getCount());
+        for (int i = 0; i < 5; i++) {
+            cursor.moveToPosition(i);
+            assertEquals(i + 1, cursor.getInt(0));
+        }
+
+        cursor.close();
+        // the first page belongs to the loader.
+        assertEquals(false, first.isClosed());
+    }
+
+    private Select createQuery(String sort) {
+        return new Select("ID", "Date", "TransactionType")
+            .where("AccountID=1")
+            .orderBy(sort);
+    }
+
+    private MatrixCursor createIds(int from, int to) {
+        MatrixCursor cursor = new MatrixCursor(new String[] { "ID" });
+        for (int i = from; i <= to; i++) {
+            cursor.addRow(new Object[] { i });
+        }
+        return cursor;
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.moneymanagerex.android.tests;
+
+import android.database.MatrixCursor;
+
+import com.money.manager.ex.database.MoneyCursorReader;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import info.javaperformance.money.Money;
+import info.javaperformance.money.MoneyFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests for reading amounts from cursors.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class MoneyCursorReaderTests {
+
+    @Test
+    public void readsAllColumnTypes() {
+        MatrixCursor cursor = new MatrixCursor(new String[] { "AMOUNT" });
+        cursor.addRow(new Object[] { 125.5 });
+        cursor.addRow(new Object[] { 42L });
+        cursor.addRow(new Object[] { "-1234.5678" });
+        cursor.addRow(new Object[] { null });
+        cursor.addRow(new Object[] { "" });
+
+        MoneyCursorReader reader = new MoneyCursorReader();
+
+        cursor.moveToNext();
+        assertEquals(MoneyFactory.fromString("125.5"), reader.read(cursor, 0));
+        cursor.moveToNext();
+        assertEquals(MoneyFactory.fromString("42"), reader.read(cursor, 0));
+        cursor.moveToNext();
+        assertEquals(MoneyFactory.fromString("-1234.5678"), reader.read(cursor, 0));
+        cursor.moveToNext();
+        assertNull(reader.read(cursor, 0));
+        cursor.moveToNext();
+        assertNull(reader.read(cursor, 0));
+    }
+
+    @Test
+    public void keepsDefaultPrecision() {
+        MatrixCursor cursor = new MatrixCursor(new String[] { "AMOUNT" });
+        cursor.addRow(new Object[] { "10.123456" });
+        cursor.addRow(new Object[] { "7" });
+        cursor.moveToFirst();
+
+        MoneyCursorReader reader = new MoneyCursorReader();
+        assertEquals(MoneyFactory.fromString("10.1235"), reader.read(cursor, 0));
+
+        // the buffer is reused for a shorter value.
+        cursor.moveToNext();
+        Money zero = MoneyFactory.fromUnits(0, 0);
+        assertEquals(MoneyFactory.fromString("7"), reader.read(cursor, 0, zero));
+    }
+}
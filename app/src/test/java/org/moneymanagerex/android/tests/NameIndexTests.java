@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.moneymanagerex.android.tests;
+
+import com.money.manager.ex.core.NameIndex;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the in-memory name index used by the payee and category lookups.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class NameIndexTests {
+
+    private final NameIndex index = new NameIndex.Builder()
+        .add(1, "Supermarket", 10)
+        .add(2, "Super Store", 50)
+        .add(3, "City Supermarket", 100)
+        .add(4, "Amazon", 5)
+        .add(5, "Food : Groceries", 20)
+        .build();
+
+    @Test
+    public void ranking() {
+        // name prefix by usage, then word prefix.
+        assertEquals(Arrays.asList(2, 1, 3), index.search("super", 10, false));
+    }
+
+    @Test
+    public void substring() {
+        assertEquals(Arrays.asList(3, 1), index.search("market", 10, false));
+        assertEquals(Arrays.asList(5), index.search("GROC", 10, false));
+        assertEquals(Arrays.asList(5), index.search("food : gr", 10, false));
+    }
+
+    @Test
+    public void typos() {
+        assertTrue(index.search("supermarkt", 10, false).isEmpty());
+
+        List<Integer> result = index.search("supermarkt", 10, true);
+        assertEquals(Arrays.asList(3, 1), result);
+        assertEquals(Arrays.asList(4), index.search("amazn", 10, true));
+    }
+
+    @Test
+    public void limit() {
+        assertEquals(Arrays.asList(2), index.search("s", 1, false));
+        assertTrue(index.search("", 10, true).isEmpty());
+        assertEquals("Amazon", index.getName(4));
+        assertEquals(100, index.getUsage(3));
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.moneymanagerex.android.tests;
+
+import com.money.manager.ex.database.PredicatePushdown;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests for pushing the filters of the query datasets into the base table conditions.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class PredicatePushdownTests {
+
+    private static final String SOURCE = "SELECT * FROM TX WHERE TX.DELETEDTIME IS NULL "
+            + PredicatePushdown.INJECTION_POINT;
+
+    private final PredicatePushdown pushdown = new PredicatePushdown()
+            .column("ID", "TX.TRANSID")
+            .column("Status", "TX.STATUS")
+            .column("AccountID", "TX.ACCOUNTID")
+            .column("ToAccountId", "TX.TOACCOUNTID", "TX.ACCOUNTID")
+            .date("Date", "TX.TRANSDATE")
+            .year("Year", "TX.TRANSDATE");
+
+    @Test
+    public void pushesAccountAndDateRange() {
+        PredicatePushdown.Query query = pushdown.compose(SOURCE,
+                "(ToAccountId = 3 OR AccountID = 3) AND Date >= '2020-01-01' AND Date <= '2020-03-31'");
+
+        assertEquals("SELECT * FROM TX WHERE TX.DELETEDTIME IS NULL AND ("
+                        + "((TX.TOACCOUNTID = 3 OR TX.ACCOUNTID = 3) OR TX.ACCOUNTID = 3)"
+                        + " AND TX.TRANSDATE >= '2020-01-01'"
+                        + " AND TX.TRANSDATE <= substr('2020-03-31', 1, 10) || '~')",
+                query.source);
+        assertEquals("(ToAccountId = 3 OR AccountID = 3) AND Date >= '2020-01-01' AND Date <= '2020-03-31'",
+                query.selection);
+    }
+
+    @Test
+    public void numbersThePlaceholders() {
+        PredicatePushdown.Query query = pushdown.compose(SOURCE,
+                "Status <> ? AND Year = CAST(? AS INTEGER) AND Month = CAST(? AS INTEGER)");
+
+        // the month is not declared, so only the other two use the arguments.
+        assertEquals("SELECT * FROM TX WHERE TX.DELETEDTIME IS NULL AND (TX.STATUS <> ?1"
+                        + " AND TX.TRANSDATE >= printf('%04d', CAST(?2 AS INTEGER))"
+                        + " AND TX.TRANSDATE < printf('%04d', CAST(?2 AS INTEGER) + 1))",
+                query.source);
+        assertEquals("Status <> ?1 AND Year = CAST(?2 AS INTEGER) AND Month = CAST(?3 AS INTEGER)",
+                query.selection);
+    }
+
+    @Test
+    public void keepsFiltersThatCannotBePushed() {
+        String[] selections = new String[] {
+                // a term of OR on another column.
+                "Payee LIKE 'A%' OR AccountID = 3",
+                // a text never equals the year, or a choice between the account columns.
+                "Year = '2020' AND ToAccountId = ?",
+        };
+        for (String selection : selections) {
+            PredicatePushdown.Query query = pushdown.compose(SOURCE, selection);
+
+            assertSame(SOURCE, query.source);
+            assertSame(selection, query.selection);
+        }
+    }
+}
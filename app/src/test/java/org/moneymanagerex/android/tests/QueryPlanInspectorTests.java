@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.moneymanagerex.android.tests;
+
+import com.money.manager.ex.database.QueryPlanInspector;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the detection of full table scans in the query plans.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class QueryPlanInspectorTests {
+
+    @Test
+    public void tableScans() {
+        Set<String> none = Collections.emptySet();
+
+        assertTrue(QueryPlanInspector.isFullScan("SCAN CHECKINGACCOUNT_V1", none));
+        assertTrue(QueryPlanInspector.isFullScan("SCAN TABLE CHECKINGACCOUNT_V1", none));
+        assertTrue(QueryPlanInspector.isFullScan("SCAN TX", none));
+    }
+
+    @Test
+    public void indexesAndSubqueries() {
+        Set<String> derived = new HashSet<>();
+        derived.add("T");
+
+        assertFalse(QueryPlanInspector.isFullScan("SCAN CHECKINGACCOUNT_V1 USING COVERING INDEX IDX_X", derived));
+        assertFalse(QueryPlanInspector.isFullScan("SEARCH CHECKINGACCOUNT_V1 USING INDEX IDX_X (ACCOUNTID=?)", derived));
+        assertFalse(QueryPlanInspector.isFullScan("SCAN t", derived));
+        assertFalse(QueryPlanInspector.isFullScan("SCAN SUBQUERY 1", derived));
+        assertFalse(QueryPlanInspector.isFullScan("SCAN CONSTANT ROW", derived));
+        assertFalse(QueryPlanInspector.isFullScan("USE TEMP B-TREE FOR GROUP BY", derived));
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.moneymanagerex.android.tests;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteOpenHelper;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
+
+import com.money.manager.ex.database.ReadConnectionPool;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+
+/**
+ * Tests for the read connections in write-ahead log mode. The dashboard load with concurrent
+ * writes runs only with -Dmmex.benchmark=true.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ReadConnectionPoolTests {
+
+    private static final int VERSION = 1;
+    /**
+     * The totals of the dashboard, run by its loaders at the same time.
+     */
+    private static final String[] DASHBOARD_QUERIES = {
+        "SELECT ACCOUNTID, SUM(TRANSAMOUNT) FROM TX GROUP BY ACCOUNTID",
+        "SELECT PAYEEID, COUNT(*) FROM TX GROUP BY PAYEEID ORDER BY 2 DESC LIMIT 10",
+        "SELECT substr(TRANSDATE, 1, 7), SUM(TRANSAMOUNT) FROM TX GROUP BY 1",
+        "SELECT CATEGID, SUM(TRANSAMOUNT) FROM TX WHERE TRANSAMOUNT < 0 GROUP BY CATEGID"
+    };
+
+    private Context context;
+    private File file;
+    private SupportSQLiteOpenHelper writerHelper;
+    private SupportSQLiteDatabase writer;
+    private ReadConnectionPool pool;
+
+    @Before
+    public void setUp() throws Exception {
+        context = RuntimeEnvironment.application;
+        file = File.createTempFile("pool", ".mmb");
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        if (pool != null) pool.close();
+        if (writerHelper != null) writerHelper.close();
+        file.delete();
+        new File(file.getPath() + "-wal").delete();
+        new File(file.getPath() + "-shm").delete();
+    }
+
+    @Test
+    public void readsCommittedChanges() throws Exception {
+        open(true, 100);
+        SupportSQLiteDatabase reader = awaitReader();
+        assertNotSame(writer, reader);
+
+        insert(10);
+        assertEquals(110, count(reader));
+
+        writer.beginTransaction();
+        try {
+            insert(10);
+            // the reader sees the last committed state.
+            assertEquals(110, count(reader));
+            assertEquals(120, count(writer));
+            writer.setTransactionSuccessful();
+        } finally {
+            writer.endTransaction();
+        }
+        assertEquals(120, count(reader));
+    }
+
+    @Test(expected = Exception.class)
+    public void readConnectionsRefuseWrites() throws Exception {
+        open(true, 1);
+
+        awaitReader().execSQL("DELETE FROM TX");
+    }
+
+    @Test
+    public void dashboardWithConcurrentWrites() throws Exception {
+        Assume.assumeTrue(Boolean.getBoolean("mmex.benchmark"));
+
+        int rows = 50_000;
+
+        open(false, rows);
+        long single = loadDashboard(false);
+        tearDown();
+
+        open(true, rows);
+        awaitReader();
+        // all the read connections.
+        while (pool.getOpenCount() < ReadConnectionPool.DEFAULT_SIZE) Thread.sleep(10);
+        long pooled = loadDashboard(true);
+
+        System.out.printf("dashboard with concurrent writes, %d rows: one connection %d ms, "
+            + "write-ahead log with %d read connections %d ms%n",
+            rows, single, ReadConnectionPool.DEFAULT_SIZE, pooled);
+    }
+
+    // Private
+
+    private void open(boolean writeAheadLog, int rows) {
+        writerHelper = new FrameworkSQLiteOpenHelperFactory().create(
+            SupportSQLiteOpenHelper.Configuration.builder(context)
+                .name(file.getPath())
+                .callback(new SupportSQLiteOpenHelper.Callback(VERSION) {
+                    @Override
+                    public void onCreate(@NonNull SupportSQLiteDatabase db) {
+                        db.execSQL("CREATE TABLE TX (TRANSID INTEGER PRIMARY KEY, ACCOUNTID INTEGER,"
+                            + " PAYEEID INTEGER, CATEGID INTEGER, TRANSDATE TEXT, TRANSAMOUNT NUMERIC)");
+                    }
+
+                    @Override
+                    public void onUpgrade(@NonNull SupportSQLiteDatabase db, int oldVersion, int newVersion) {
+                    }
+                })
+                .build());
+        writer = writerHelper.getWritableDatabase();
+        if (writeAheadLog) {
+            writer.enableWriteAheadLogging();
+        } else {
+            writer.disableWriteAheadLogging();
+        }
+
+        writer.beginTransaction();
+        try {
+            insert(rows);
+            writer.setTransactionSuccessful();
+        } finally {
+            writer.endTransaction();
+        }
+
+        pool = new ReadConnectionPool(context, file.getPath(), new FrameworkSQLiteOpenHelperFactory(),
+            VERSION, ReadConnectionPool.DEFAULT_SIZE);
+    }
+
+    private SupportSQLiteDatabase awaitReader() throws InterruptedException {
+        SupportSQLiteDatabase reader = pool.getConnection();
+        for (int i = 0; reader == null && i < 500; i++) {
+            Thread.sleep(10);
+            reader = pool.getConnection();
+        }
+        assertNotNull(reader);
+        return reader;
+    }
+
+    private void insert(int rows) {
+        for (int i = 0; i < rows; i++) {
+            writer.execSQL("INSERT INTO TX (ACCOUNTID, PAYEEID, CATEGID, TRANSDATE, TRANSAMOUNT)"
+                + " VALUES (?, ?, ?, ?, ?)", new Object[] {
+                i % 10, i % 300, i % 80, String.format("20%02d-%02d-15", 10 + i % 15, 1 + i % 12),
+                (i % 7 - 3) * 12.5 });
+        }
+    }
+
+    private long count(SupportSQLiteDatabase db) {
+        try (Cursor cursor = db.query("SELECT COUNT(*) FROM TX")) {
+            cursor.moveToFirst();
+            return cursor.getLong(0);
+        }
+    }
+
+    /**
+     * Runs the dashboard queries on their own threads while another thread saves transactions,
+     * one per transaction, as the sync download or the recurring transactions do.
+     * @return The time until all the queries completed.
+     */
+    private long loadDashboard(boolean pooled) throws InterruptedException {
+        AtomicBoolean writing = new AtomicBoolean(true);
+        Thread writes = new Thread(() -> {
+            while (writing.get()) {
+                insert(1);
+            }
+        });
+        writes.start();
+
+        long start = System.nanoTime();
+        CountDownLatch done = new CountDownLatch(DASHBOARD_QUERIES.length);
+        for (String sql : DASHBOARD_QUERIES) {
+            Thread loader = new Thread(() -> {
+                SupportSQLiteDatabase db = pooled ? pool.getConnection() : writer;
+                try (Cursor cursor = db.query(sql)) {
+                    cursor.getCount();
+                }
+                done.countDown();
+            });
+            loader.start();
+        }
+        done.await();
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+
+        writing.set(false);
+        writes.join();
+        return elapsed;
+    }
+}
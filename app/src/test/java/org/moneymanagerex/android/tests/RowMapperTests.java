@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.moneymanagerex.android.tests;
+
+import android.database.MatrixCursor;
+
+import com.money.manager.ex.database.ITransactionEntity;
+import com.money.manager.ex.datalayer.AccountTransactionRowMapper;
+import com.money.manager.ex.datalayer.PayeeRowMapper;
+import com.money.manager.ex.domainmodel.AccountTransaction;
+import com.money.manager.ex.domainmodel.Payee;
+
+import org.junit.Assume;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests for the typed row mappers. The allocation comparison runs only with
+ * -Dmmex.benchmark=true.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class RowMapperTests {
+
+    private static final String[] TRANSACTION_COLUMNS = {
+        "_id", AccountTransaction.TRANSID, ITransactionEntity.ACCOUNTID, ITransactionEntity.TOACCOUNTID,
+        ITransactionEntity.PAYEEID, ITransactionEntity.TRANSCODE, ITransactionEntity.TRANSAMOUNT,
+        ITransactionEntity.STATUS, ITransactionEntity.TRANSACTIONNUMBER, ITransactionEntity.NOTES,
+        ITransactionEntity.CATEGID, ITransactionEntity.TRANSDATE, ITransactionEntity.FOLLOWUPID,
+        ITransactionEntity.TOTRANSAMOUNT
+    };
+
+    @Test
+    public void mapperMatchesLoadFromCursor() {
+        MatrixCursor cursor = createTransactions(3);
+
+        AccountTransactionRowMapper mapper = new AccountTransactionRowMapper();
+        while (cursor.moveToNext()) {
+            AccountTransaction expected = new AccountTransaction();
+            expected.loadFromCursor(cursor);
+
+            AccountTransaction actual = mapper.map(cursor);
+
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getAccountId(), actual.getAccountId());
+            assertEquals(expected.getPayeeId(), actual.getPayeeId());
+            assertEquals(expected.getCategoryId(), actual.getCategoryId());
+            assertEquals(expected.getAmount(), actual.getAmount());
+            assertEquals(expected.getAmountTo(), actual.getAmountTo());
+            assertEquals(expected.getTransactionType(), actual.getTransactionType());
+            assertEquals(expected.getDateString(), actual.getDateString());
+            assertEquals(expected.getNotes(), actual.getNotes());
+        }
+    }
+
+    @Test
+    public void nullsAndUnknownColumnsAreKept() {
+        MatrixCursor cursor = new MatrixCursor(new String[] {
+            Payee.PAYEEID, Payee.PAYEENAME, Payee.CATEGID, "EXTRA" });
+        cursor.addRow(new Object[] { 7, "Shop", null, 12 });
+
+        List<Payee> payees = new PayeeRowMapper().mapAll(cursor);
+
+        assertEquals(1, payees.size());
+        Payee payee = payees.get(0);
+        assertEquals(Integer.valueOf(7), payee.getId());
+        assertEquals("Shop", payee.getName());
+        assertNull(payee.getCategoryId());
+        assertEquals("12", payee.getString("EXTRA"));
+    }
+
+    @Test
+    public void allocationsPer10kRows() {
+        Assume.assumeTrue(Boolean.getBoolean("mmex.benchmark"));
+
+        int rows = 10_000;
+        MatrixCursor cursor = createTransactions(rows);
+
+        // warm up both paths.
+        for (int i = 0; i < 5; i++) {
+            readWithLoadFromCursor(cursor);
+            readWithMapper(cursor);
+        }
+
+        long loadFromCursor = measureAllocations(() -> readWithLoadFromCursor(cursor));
+        long mapper = measureAllocations(() -> readWithMapper(cursor));
+
+        System.out.printf("allocations per %d rows: loadFromCursor %d KB, row mapper %d KB%n",
+            rows, loadFromCursor / 1024, mapper / 1024);
+    }
+
+    // Private
+
+    private MatrixCursor createTransactions(int count) {
+        MatrixCursor cursor = new MatrixCursor(TRANSACTION_COLUMNS, count);
+        for (int i = 1; i <= count; i++) {
+            cursor.addRow(new Object[] { i, i, 1, -1, i % 50, "Withdrawal", i * 1.25,
+                "R", null, "note " + i, i % 30, "2024-01-15", -1, 0.0 });
+        }
+        return cursor;
+    }
+
+    private void readWithLoadFromCursor(MatrixCursor cursor) {
+        cursor.moveToPosition(-1);
+        while (cursor.moveToNext()) {
+            AccountTransaction tx = new AccountTransaction();
+            tx.loadFromCursor(cursor);
+        }
+    }
+
+    private void readWithMapper(MatrixCursor cursor) {
+        cursor.moveToPosition(-1);
+        new AccountTransactionRowMapper().mapAll(cursor);
+    }
+
+    private long measureAllocations(Runnable action) {
+        com.sun.management.ThreadMXBean bean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        long before = bean.getThreadAllocatedBytes(threadId);
+        action.run();
+        return bean.getThreadAllocatedBytes(threadId) - before;
+    }
+}
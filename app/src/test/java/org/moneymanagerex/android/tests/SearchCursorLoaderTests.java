@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.moneymanagerex.android.tests;
+
+import com.money.manager.ex.common.SearchCursorLoader;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the in-memory filtering of the search lists.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SearchCursorLoaderTests {
+
+    @Test
+    public void likeMatchesSqlite() {
+        assertTrue(SearchCursorLoader.like("sup%", "Supermarket"));
+        assertTrue(SearchCursorLoader.like("%market%", "Supermarket"));
+        assertTrue(SearchCursorLoader.like("s_p%", "Supermarket"));
+        assertTrue(SearchCursorLoader.like("%", ""));
+        assertFalse(SearchCursorLoader.like("market%", "Supermarket"));
+        assertFalse(SearchCursorLoader.like("sup%", null));
+        // SQLite folds the case of the ASCII letters only.
+        assertFalse(SearchCursorLoader.like("é%", "École"));
+    }
+
+    @Test
+    public void refinement() {
+        assertTrue(SearchCursorLoader.isRefinement("", "a"));
+        assertTrue(SearchCursorLoader.isRefinement("%ab", "%abc"));
+        assertFalse(SearchCursorLoader.isRefinement("abc", "ab"));
+        assertFalse(SearchCursorLoader.isRefinement("abc", "abc"));
+    }
+}
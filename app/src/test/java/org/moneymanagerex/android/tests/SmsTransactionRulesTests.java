@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.moneymanagerex.android.tests;
+
+import com.money.manager.ex.notifications.SmsTransactionRules;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the bank SMS parsing rules.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SmsTransactionRulesTests {
+
+    private static final String DEBIT_SMS = "Your a/c no. XX1234 is debited for Rs 1,250.50 on 12-01-24 "
+        + "at AMAZON SELLER on 12 Jan. Ref no 998877. Avl Bal Rs 10,000.00";
+
+    private final SmsTransactionRules rules = SmsTransactionRules.getInstance();
+
+    @Test
+    public void sender() {
+        assertTrue(rules.isTransactionSender("AT-SIBSMS"));
+        assertFalse(rules.isTransactionSender("012345"));
+    }
+
+    @Test
+    public void transactionType() {
+        String message = DEBIT_SMS.toLowerCase();
+
+        assertTrue(rules.isWithdrawal(message));
+        assertFalse(rules.isDeposit(message));
+        assertTrue(rules.isDeposit("rs 500 credited to your a/c xx1234"));
+    }
+
+    @Test
+    public void values() {
+        assertEquals("X1234", rules.findAccountNumber(DEBIT_SMS, 1));
+        assertEquals("1250.50", rules.findAmount(DEBIT_SMS, 0, "INR"));
+        assertEquals("10000.00", rules.findAmount(DEBIT_SMS, 1, "INR"));
+        assertEquals("AMAZON SELLER", rules.findPayeeNames(DEBIT_SMS).get(0));
+        assertEquals("998877", rules.findReferenceNumber(DEBIT_SMS));
+    }
+}
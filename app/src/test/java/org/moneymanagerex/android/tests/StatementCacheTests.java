@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.moneymanagerex.android.tests;
+
+import static android.database.sqlite.SQLiteDatabase.CONFLICT_FAIL;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteOpenHelper;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
+
+import com.money.manager.ex.database.ParameterizedWhere;
+import com.money.manager.ex.database.StatementCache;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the compiled write statements and the where statements with placeholders.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class StatementCacheTests {
+
+    private SupportSQLiteOpenHelper helper;
+    private SupportSQLiteDatabase database;
+    private StatementCache statements;
+
+    @Before
+    public void setUp() {
+        helper = new FrameworkSQLiteOpenHelperFactory().create(
+            SupportSQLiteOpenHelper.Configuration.builder(RuntimeEnvironment.application)
+                .name(null)
+                .callback(new SupportSQLiteOpenHelper.Callback(1) {
+                    @Override
+                    public void onCreate(@NonNull SupportSQLiteDatabase db) {
+                        db.execSQL("CREATE TABLE TX (TRANSID INTEGER PRIMARY KEY, ACCOUNTID INTEGER,"
+                            + " TRANSDATE TEXT, TRANSAMOUNT NUMERIC)");
+                    }
+
+                    @Override
+                    public void onUpgrade(@NonNull SupportSQLiteDatabase db, int oldVersion, int newVersion) {
+                    }
+                })
+                .build());
+        database = helper.getWritableDatabase();
+        statements = new StatementCache(database, StatementCache.DEFAULT_CAPACITY);
+    }
+
+    @After
+    public void tearDown() {
+        statements.close();
+        helper.close();
+    }
+
+    @Test
+    public void reusesStatements() {
+        for (int i = 1; i <= 3; i++) {
+            assertEquals(i, statements.insert("TX", CONFLICT_FAIL, values(i, "2024-0" + i + "-15", 10.5)));
+        }
+
+        assertTrue(statements.getStatistics(), statements.getStatistics().startsWith("statements: 66% of 3 reused"));
+    }
+
+    @Test
+    public void updatesAndDeletesWithArguments() {
+        statements.insert("TX", CONFLICT_FAIL, values(1, "2024-01-15", 10.5));
+        statements.insert("TX", CONFLICT_FAIL, values(2, "2024-02-15", 20));
+
+        ContentValues update = new ContentValues();
+        update.put("TRANSAMOUNT", 30);
+        assertEquals(1, statements.update("TX", CONFLICT_FAIL, update, "ACCOUNTID = ?", new Object[] { 2 }));
+        assertEquals(1, statements.delete("TX", "TRANSDATE < ?", new Object[] { "2024-02-01" }));
+
+        try (Cursor cursor = database.query("SELECT ACCOUNTID, TRANSAMOUNT FROM TX")) {
+            assertEquals(1, cursor.getCount());
+            cursor.moveToFirst();
+            assertEquals(2, cursor.getInt(0));
+            assertEquals(30, cursor.getInt(1));
+        }
+    }
+
+    @Test
+    public void placeholdersCompareAsNumbers() {
+        statements.insert("TX", CONFLICT_FAIL, values(1, "2024-01-15", 10.5));
+        statements.insert("TX", CONFLICT_FAIL, values(2, "2023-01-15", 20));
+
+        // the year has no column affinity, as in the mobile data view.
+        ParameterizedWhere where = new ParameterizedWhere();
+        where.addStatement("round(strftime('%Y', TRANSDATE))", "=", 2024);
+        where.addStatement("ACCOUNTID", "<>", "V");
+
+        assertEquals("(round(strftime('%Y', TRANSDATE)) = CAST(? AS INTEGER)) AND (ACCOUNTID <> ?)",
+            where.getWhere());
+        assertArrayEquals(new String[] { "2024", "V" }, where.getArgs());
+
+        try (Cursor cursor = database.query("SELECT ACCOUNTID FROM TX WHERE " + where.getWhere(),
+            where.getArgs())) {
+            assertEquals(1, cursor.getCount());
+            cursor.moveToFirst();
+            assertEquals(1, cursor.getInt(0));
+        }
+    }
+
+    private ContentValues values(int accountId, String date, double amount) {
+        ContentValues values = new ContentValues();
+        values.put("ACCOUNTID", accountId);
+        values.put("TRANSDATE", date);
+        values.put("TRANSAMOUNT", amount);
+        return values;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package info.javaperformance.money;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+/**
+ * Mutable sum of Money values, for summation loops.
+ * The sum is kept as a number of units in a <code>long</code> at a fixed precision, which is raised
+ * when a value with a higher precision is added. Adding a <code>MoneyLong</code> does not allocate.
+ * On overflow, or when a <code>MoneyBigDecimal</code> is added, the sum continues in a BigDecimal.
+ * Not thread-safe.
+ */
+public final class MoneyAccumulator {
+
+    /** Sum in units of <code>10^-m_precision</code>. Not used after promotion to BigDecimal. */
+    private long m_units;
+    private int m_precision;
+    /** The sum, once it does not fit in <code>m_units</code>. */
+    private BigDecimal m_big;
+
+    public MoneyAccumulator() {
+        this( 0 );
+    }
+
+    /**
+     * @param precision Initial precision of the sum. Use the scale of the values to avoid rescaling.
+     */
+    public MoneyAccumulator( final int precision ) {
+        MoneyFactory.checkPrecision( precision );
+        m_precision = precision;
+    }
+
+    /**
+     * Adds a value to the sum.
+     * @return this accumulator
+     */
+    public MoneyAccumulator add( final Money value ) {
+        if ( value instanceof MoneyLong ) {
+            final MoneyLong other = ( MoneyLong ) value;
+            return add( other.getUnits(), other.getPrecision() );
+        }
+        return add( value.toBigDecimal() );
+    }
+
+    /**
+     * Subtracts a value from the sum.
+     * @return this accumulator
+     */
+    public MoneyAccumulator subtract( final Money value ) {
+        if ( value instanceof MoneyLong ) {
+            final MoneyLong other = ( MoneyLong ) value;
+            if ( other.getUnits() != Long.MIN_VALUE )
+                return add( -other.getUnits(), other.getPrecision() );
+        }
+        return add( value.toBigDecimal().negate() );
+    }
+
+    /**
+     * Adds <code>units / 10^precision</code> to the sum.
+     * @return this accumulator
+     */
+    public MoneyAccumulator add( final long units, final int precision ) {
+        if ( m_big != null )
+            return add( BigDecimal.valueOf( units, precision ) );
+
+        long addend = units;
+        if ( precision > m_precision ) {
+            //raise the precision of the sum
+            final long multiplier = MoneyFactory.MULTIPLIERS[ precision - m_precision ];
+            final long scaled = m_units * multiplier;
+            if ( scaled / multiplier != m_units )
+                return promote( BigDecimal.valueOf( units, precision ) );
+            m_units = scaled;
+            m_precision = precision;
+        } else if ( precision < m_precision ) {
+            final long multiplier = MoneyFactory.MULTIPLIERS[ m_precision - precision ];
+            addend = units * multiplier;
+            if ( addend / multiplier != units )
+                return promote( BigDecimal.valueOf( units, precision ) );
+        }
+
+        final long sum = m_units + addend;
+        //overflow if both operands have the same sign and the sum has a different one
+        if ( ( ( m_units ^ sum ) & ( addend ^ sum ) ) < 0 )
+            return promote( BigDecimal.valueOf( addend, m_precision ) );
+        m_units = sum;
+        return this;
+    }
+
+    /**
+     * @return the current sum as an immutable Money value.
+     */
+    public Money toMoney() {
+        if ( m_big != null )
+            return MoneyFactory.fromBigDecimal( m_big );
+        return new MoneyLong( m_units, m_precision ).normalize();
+    }
+
+    /**
+     * Sets the sum to zero, keeping the precision.
+     * @return this accumulator
+     */
+    public MoneyAccumulator reset() {
+        m_units = 0;
+        m_big = null;
+        return this;
+    }
+
+    public boolean isZero() {
+        return m_big != null ? m_big.signum() == 0 : m_units == 0;
+    }
+
+    @Override
+    public String toString() {
+        return toMoney().toString();
+    }
+
+    private MoneyAccumulator add( final BigDecimal value ) {
+        if ( m_big == null )
+            return promote( value );
+        m_big = m_big.add( value, MathContext.DECIMAL128 );
+        return this;
+    }
+
+    /**
+     * Continues the sum in a BigDecimal.
+     */
+    private MoneyAccumulator promote( final BigDecimal addend ) {
+        m_big = BigDecimal.valueOf( m_units, m_precision ).add( addend, MathContext.DECIMAL128 );
+        return this;
+    }
+}
@@ -35,6 +35,14 @@ class MoneyLong extends AbstractMoney {
         m_precision = precision;
     }
 
+    long getUnits() {
+        return m_units;
+    }
+
+    int getPrecision() {
+        return m_precision;
+    }
+
     /**
      * Convert to the original currency - divide <code>units</code> by <code>10^precision</code>.
      * @return <code>units / (10^precision)</code>
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package info.javaperformance.money;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares MoneyAccumulator with repeated Money.add over 1M values, with warm-up and measured
+ * iterations in the manner of JMH. Skipped unless run with -Dmoney.benchmark=true, i.e.
+ * ./gradlew :money:testDebugUnitTest --tests *MoneyAccumulatorBenchmark -Dmoney.benchmark=true
+ */
+public class MoneyAccumulatorBenchmark {
+
+    private static final int VALUES = 1_000_000;
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASURED_ITERATIONS = 10;
+
+    @Test
+    public void sumOneMillionValues() {
+        Assume.assumeTrue(Boolean.getBoolean("money.benchmark"));
+
+        Money[] values = createValues();
+
+        // the results are compared, which also keeps the loops from being optimized away.
+        assertEquals(sumWithAdd(values), sumWithAccumulator(values));
+
+        double add = measure("Money.add", () -> sumWithAdd(values));
+        double accumulator = measure("MoneyAccumulator", () -> sumWithAccumulator(values));
+        System.out.printf("MoneyAccumulator speed-up: %.1fx%n", add / accumulator);
+    }
+
+    // Private
+
+    private interface Summation {
+        Money run();
+    }
+
+    /**
+     * Amounts with 0 to 2 decimals, as read from the database.
+     */
+    private Money[] createValues() {
+        Random random = new Random(42);
+        Money[] values = new Money[VALUES];
+        for (int i = 0; i < VALUES; i++) {
+            long cents = random.nextInt(2_000_000) - 1_000_000;
+            values[i] = MoneyFactory.fromUnits(cents, 2);
+        }
+        return values;
+    }
+
+    private Money sumWithAdd(Money[] values) {
+        Money total = MoneyFactory.fromUnits(0, 0);
+        for (Money value : values) {
+            total = total.add(value);
+        }
+        return total;
+    }
+
+    private Money sumWithAccumulator(Money[] values) {
+        MoneyAccumulator total = new MoneyAccumulator(2);
+        for (Money value : values) {
+            total.add(value);
+        }
+        return total.toMoney();
+    }
+
+    /**
+     * @return the average time of the measured iterations in milliseconds.
+     */
+    private double measure(String name, Summation summation) {
+        Money blackhole = null;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            blackhole = summation.run();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            blackhole = summation.run();
+        }
+        double average = (System.nanoTime() - start) / 1e6 / MEASURED_ITERATIONS;
+
+        System.out.printf("%s: %.2f ms/op (%.1f ns per value), result %s%n",
+                name, average, average * 1e6 / VALUES, blackhole);
+        return average;
+    }
+}
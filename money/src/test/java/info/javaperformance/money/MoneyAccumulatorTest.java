@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2012-2024 The Android Money Manager Ex Project Team
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 3
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package info.javaperformance.money;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.Assert.*;
+
+public class MoneyAccumulatorTest {
+    @Test
+    public void sumMatchesMoneyAdd() {
+        MoneyAccumulator accumulator = new MoneyAccumulator(2);
+        Money expected = MoneyFactory.fromUnits(0, 0);
+
+        for (int i = -500; i < 500; i++) {
+            Money value = MoneyFactory.fromUnits(i * 37L, i % 4 == 0 ? 0 : 2);
+            accumulator.add(value);
+            expected = expected.add(value);
+        }
+
+        assertEquals(expected, accumulator.toMoney());
+    }
+
+    @Test
+    public void precisionIsRaisedWhenNeeded() {
+        MoneyAccumulator accumulator = new MoneyAccumulator();
+        accumulator.add(MoneyFactory.fromString("10"));
+        accumulator.add(MoneyFactory.fromString("0.125"));
+        accumulator.subtract(MoneyFactory.fromString("0.5"));
+
+        assertEquals(MoneyFactory.fromString("9.625"), accumulator.toMoney());
+    }
+
+    @Test
+    public void overflowContinuesInBigDecimal() {
+        MoneyAccumulator accumulator = new MoneyAccumulator();
+        accumulator.add(MoneyFactory.fromUnits(Long.MAX_VALUE, 0));
+        accumulator.add(MoneyFactory.fromUnits(Long.MAX_VALUE, 0));
+
+        BigDecimal expected = BigDecimal.valueOf(Long.MAX_VALUE).multiply(BigDecimal.valueOf(2));
+        assertEquals(0, expected.compareTo(accumulator.toMoney().toBigDecimal()));
+
+        accumulator.subtract(MoneyFactory.fromUnits(Long.MAX_VALUE, 0));
+        assertEquals(0, BigDecimal.valueOf(Long.MAX_VALUE).compareTo(accumulator.toMoney().toBigDecimal()));
+    }
+
+    @Test
+    public void resetStartsFromZero() {
+        MoneyAccumulator accumulator = new MoneyAccumulator(2);
+        accumulator.add(MoneyFactory.fromString("12.34"));
+        accumulator.reset();
+
+        assertTrue(accumulator.isZero());
+        assertTrue(accumulator.toMoney().isZero());
+    }
+}